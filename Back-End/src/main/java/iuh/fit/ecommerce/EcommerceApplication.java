@@ -4,6 +4,7 @@ import io.github.cdimascio.dotenv.Dotenv;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientProperties;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
@@ -25,7 +26,10 @@ public class EcommerceApplication {
 			loadDotenv();
 		}
 
-		SpringApplication.run(EcommerceApplication.class, args);
+		// Ghi lại các bước khởi động của context, xem qua /actuator/startup
+		SpringApplication app = new SpringApplication(EcommerceApplication.class);
+		app.setApplicationStartup(new BufferingApplicationStartup(2048));
+		app.run(args);
 	}
 
 	private static boolean isLocalEnvironment() {
@@ -1,11 +1,16 @@
 package iuh.fit.ecommerce.configurations;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
@@ -21,4 +26,70 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    // Pool riêng cho các query aggregate độc lập của dashboard, tách khỏi pool gửi email
+    @Bean(name = "dashboardQueryExecutor")
+    public ThreadPoolTaskExecutor dashboardQueryExecutor(MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8); // giới hạn số connection DB mà dashboard chiếm cùng lúc
+        executor.setQueueCapacity(200);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy()); // đầy thì chạy tuần tự trên thread gọi
+        executor.setThreadNamePrefix("DashboardQuery-");
+        executor.initialize();
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "dashboardQueryExecutor", Tags.empty())
+                .bindTo(meterRegistry);
+        return executor;
+    }
+
+    // Pool dùng chung cho mọi request upload MinIO thay vì tạo pool mới mỗi request
+    @Bean(name = "uploadExecutor")
+    public ThreadPoolTaskExecutor uploadExecutor(MeterRegistry meterRegistry,
+                                                 @Value("${upload.executor.pool-size:6}") int poolSize,
+                                                 @Value("${upload.executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy()); // đầy thì thread request tự upload
+        executor.setThreadNamePrefix("Upload-");
+        executor.initialize();
+        // executor.queued / executor.active / executor.completed{name=uploadExecutor}
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "uploadExecutor", Tags.empty())
+                .bindTo(meterRegistry);
+        return executor;
+    }
+
+    // Pool dùng chung cho các bulk request khi reindex Elasticsearch thay vì tạo pool mới mỗi lần reindex.
+    // Số bulk đang chạy đã bị giới hạn ở phía gửi, hàng đợi chỉ cần nhỏ
+    @Bean(name = "reindexExecutor")
+    public ThreadPoolTaskExecutor reindexExecutor(MeterRegistry meterRegistry,
+                                                  @Value("${search.reindex.parallelism:4}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(parallelism);
+        executor.setThreadNamePrefix("Reindex-");
+        executor.initialize();
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "reindexExecutor", Tags.empty())
+                .bindTo(meterRegistry);
+        return executor;
+    }
+
+    // Pool riêng gửi batch push Expo: nhỏ và có giới hạn. Không dùng CallerRunsPolicy vì thread gọi là scheduler
+    // dùng chung; đầy thì ném TaskRejectedException để batch được trả về hàng đợi
+    @Bean(name = "pushExecutor")
+    public ThreadPoolTaskExecutor pushExecutor(MeterRegistry meterRegistry,
+                                               @Value("${push.executor.pool-size:2}") int poolSize,
+                                               @Value("${push.executor.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("Push-");
+        executor.initialize();
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "pushExecutor", Tags.empty())
+                .bindTo(meterRegistry);
+        return executor;
+    }
 }
@@ -3,6 +3,12 @@ package iuh.fit.ecommerce.configurations;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import iuh.fit.ecommerce.configurations.cache.CacheInvalidationPublisher;
+import iuh.fit.ecommerce.configurations.cache.TwoLevelCacheManager;
+import iuh.fit.ecommerce.configurations.jwt.AuthenticatedPrincipalCache;
+import iuh.fit.ecommerce.services.impl.PromotionResolverImpl;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -10,6 +16,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
@@ -18,15 +27,58 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
     public static final String PROVINCE_CACHE = "provinces";
     public static final String RANKING_CACHE = "rankings";
+    public static final String CATEGORY_CACHE = "categories";
+    public static final String BRAND_CACHE = "brands";
+    public static final String CATEGORY_BRAND_CACHE = "categoryBrands";
+    public static final String FILTER_CRITERIA_CACHE = "filterCriteria";
+    public static final String VARIANT_CACHE = "variants";
+    public static final String AI_CONTEXT_CACHE = "aiContext";
+
+    // Dữ liệu danh mục đọc ở hầu hết request storefront: thêm near-cache trong heap trước Redis
+    private static final Set<String> NEAR_CACHES = Set.of(
+            CATEGORY_CACHE, BRAND_CACHE, CATEGORY_BRAND_CACHE, FILTER_CRITERIA_CACHE, VARIANT_CACHE);
+
+    @Value("${cache.near.ttl-ms:60000}")
+    private long nearCacheTtlMs;
+
+    @Value("${cache.near.max-size:1000}")
+    private int nearCacheMaxSize;
+
+    @Bean
+    public CacheInvalidationPublisher cacheInvalidationPublisher(StringRedisTemplate stringRedisTemplate) {
+        return new CacheInvalidationPublisher(stringRedisTemplate);
+    }
 
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                             CacheInvalidationPublisher cacheInvalidationPublisher,
+                                             MeterRegistry meterRegistry) {
+        return new TwoLevelCacheManager(redisCacheManager(redisConnectionFactory), NEAR_CACHES,
+                cacheInvalidationPublisher, nearCacheTtlMs, nearCacheMaxSize, meterRegistry);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                            TwoLevelCacheManager cacheManager,
+                                                                            AuthenticatedPrincipalCache principalCache,
+                                                                            PromotionResolverImpl promotionResolver) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(CacheInvalidationPublisher.CHANNEL));
+        container.addMessageListener(principalCache, new ChannelTopic(AuthenticatedPrincipalCache.EVICT_CHANNEL));
+        container.addMessageListener(promotionResolver, new ChannelTopic(CacheInvalidationPublisher.CHANNEL));
+        return container;
+    }
+
+    // Không đăng ký làm bean riêng để chỉ có một CacheManager trong context
+    private RedisCacheManager redisCacheManager(RedisConnectionFactory redisConnectionFactory) {
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
@@ -65,11 +117,19 @@ public class CacheConfig {
         cacheConfigurations.put(PROVINCE_CACHE, listConfig.entryTtl(Duration.ofHours(24)));
         cacheConfigurations.put(RANKING_CACHE, listConfig.entryTtl(Duration.ofHours(24)));
 
+        // Cache danh mục cần trả đúng kiểu DTO → dùng defaultConfig (có type info)
+        NEAR_CACHES.forEach(name -> cacheConfigurations.put(name, defaultConfig.entryTtl(Duration.ofHours(6))));
+
+        // Ngữ cảnh cho trợ lý AI chỉ cần gần đúng, TTL ngắn thay cho evict theo từng thay đổi sản phẩm
+        cacheConfigurations.put(AI_CONTEXT_CACHE, defaultConfig.entryTtl(Duration.ofMinutes(10)));
 
-        return RedisCacheManager.builder(redisConnectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
                 .build();
+        // Nạp initial cache configurations (bình thường do container gọi)
+        redisCacheManager.afterPropertiesSet();
+        return redisCacheManager;
     }
 }
 
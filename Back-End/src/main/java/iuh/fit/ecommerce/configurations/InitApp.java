@@ -1,14 +1,13 @@
  package iuh.fit.ecommerce.configurations;
 
-
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import iuh.fit.ecommerce.entities.*;
 import iuh.fit.ecommerce.enums.WorkStatus;
 import iuh.fit.ecommerce.repositories.*;
-import iuh.fit.ecommerce.repositories.ProductVariantRepository;
 import iuh.fit.ecommerce.repositories.RankingRepository;
 import iuh.fit.ecommerce.repositories.RoleRepository;
 import iuh.fit.ecommerce.repositories.StaffRepository;
-import iuh.fit.ecommerce.services.ProductSearchService;
 import iuh.fit.ecommerce.services.VectorStoreService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,9 +18,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Configuration
 @RequiredArgsConstructor
@@ -30,187 +29,173 @@ public class InitApp {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final RankingRepository rankingRepository;
-    private final ProductVariantRepository productVariantRepository;
     private final VectorStoreService vectorStoreService;
     private final CustomerRepository customerRepository;
-    private final ProductSearchService productSearchService;
     private final SupplierRepository supplierRepository;
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
 
 
     @Bean
     @Transactional
     ApplicationRunner initApplication(StaffRepository staffRepository){
         return args -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
 
-            List<Map<String, String>> roles = List.of(
-                    Map.of( "ADMIN","Quản trị viên"),
-                    Map.of( "STAFF", "Nhân viên"),
-                    Map.of( "CUSTOMER", "Khách hàng"),
-                    Map.of( "SHIPPER", "Người giao hàng")
-            );
-
-            List<Role> roleList = new ArrayList<>();
+            // Mỗi bảng chỉ một query kiểm tra + một saveAll cho các bản ghi còn thiếu
+            Map<String, Role> roles = seedRoles();
+            Map<String, Ranking> rankings = seedRankings();
+            seedUsers(staffRepository, roles, rankings);
 
+            sample.stop(Timer.builder("app.startup.phase")
+                    .description("Thời gian từng bước khởi động ứng dụng")
+                    .tag("phase", "seed")
+                    .register(meterRegistry));
 
-            for (Map<String, String> roleMap : roles) {
-                String roleName = roleMap.keySet().iterator().next();
-                String roleDesc = roleMap.get(roleName);
-
-                if (!roleRepository.existsByName(roleName)) {
-                    Role newRole = new Role();
-                    newRole.setName(roleName);
-                    newRole.setDescription(roleDesc);
-                    roleList.add(newRole);
-                }
-            }
+            // Index toàn bộ product variants vào Qdrant
+//            indexAllProductVariants();
+//
+//            generateFakeShippers(staffRepository);
+//
+            // Index ES không dựng lại ở đây: ProductSearchService kiểm tra watermark sau khi app sẵn sàng nhận traffic
+        };
+    }
 
-            if (!roleList.isEmpty()) {
-                roleRepository.saveAll(roleList);
+    private Map<String, Role> seedRoles() {
+        List<Map<String, String>> roles = List.of(
+                Map.of( "ADMIN","Quản trị viên"),
+                Map.of( "STAFF", "Nhân viên"),
+                Map.of( "CUSTOMER", "Khách hàng"),
+                Map.of( "SHIPPER", "Người giao hàng")
+        );
+
+        List<String> roleNames = roles.stream().map(r -> r.keySet().iterator().next()).toList();
+        Map<String, Role> existing = roleRepository.findAllByNameIn(roleNames).stream()
+                .collect(Collectors.toMap(Role::getName, Function.identity()));
+
+        List<Role> roleList = new ArrayList<>();
+        for (Map<String, String> roleMap : roles) {
+            String roleName = roleMap.keySet().iterator().next();
+            if (!existing.containsKey(roleName)) {
+                Role newRole = new Role();
+                newRole.setName(roleName);
+                newRole.setDescription(roleMap.get(roleName));
+                roleList.add(newRole);
             }
+        }
 
-            if ( !staffRepository.existsByEmail("admin@gmail.com")){
-                Staff staff = Staff.builder()
-                        .email("admin@gmail.com")
-                        .fullName("Admin")
-                        .password(passwordEncoder.encode("123456"))
-                        .phone("0123456789")
-                        .address("123 Admin St")
-                        .active(true)
-                        .workStatus(WorkStatus.ACTIVE)
-                        .joinDate(LocalDate.now())
-                        .build();
-
-                staff.setUserRoles(new ArrayList<>());
-
-                UserRole adminRole = UserRole.builder()
-                        .role(roleRepository.findByName("ADMIN")
-                                .orElseThrow(() -> new RuntimeException("Role ADMIN not exist")))
-                        .user(staff)
-                        .build();
-
-                staff.getUserRoles().add(adminRole);
-
-                staffRepository.save(staff);
-
-            }
+        Map<String, Role> result = new HashMap<>(existing);
+        if (!roleList.isEmpty()) {
+            roleRepository.saveAll(roleList).forEach(r -> result.put(r.getName(), r));
+        }
+        return result;
+    }
 
-            if (!staffRepository.existsByEmail("staff@gmail.com")) {
-                Staff staff = Staff.builder()
-                        .email("staff@gmail.com")
-                        .fullName("Staff Member")
-                        .password(passwordEncoder.encode("123456"))
-                        .phone("0987654321")
-                        .address("456 Staff St")
-                        .active(true)
-                        .workStatus(WorkStatus.ACTIVE)
-                        .leader(false)
-                        .joinDate(LocalDate.now().minusMonths(1))
-                        .build();
-
-                staff.setUserRoles(new ArrayList<>());
-                UserRole staffRole = UserRole.builder()
-                        .role(roleRepository.findByName("STAFF")
-                                .orElseThrow(() -> new RuntimeException("Role STAFF not exist")))
-                        .user(staff)
-                        .build();
-                staff.getUserRoles().add(staffRole);
-                staffRepository.save(staff);
-            }
+    private Map<String, Ranking> seedRankings() {
+        List<Ranking> rankings = List.of(
+                Ranking.builder().name("S-NEW").description("New Membership")
+                        .minSpending(0.0).maxSpending(3000000.0).discountRate(0.0).build(),
+                Ranking.builder().name("S-SILVER").description("Silver Membership")
+                        .minSpending(3000000.0).maxSpending(10000000.0).discountRate(2.0).build(),
+                Ranking.builder().name("S-GOLD").description("Gold Membership")
+                        .minSpending(10000000.0).maxSpending(50000000.0).discountRate(3.0).build(),
+                Ranking.builder().name("S-PLATINUM").description("Platinum Membership")
+                        .minSpending(50000000.0).maxSpending(100000000.0).discountRate(5.0).build(),
+                Ranking.builder().name("S-DIAMOND").description("Diamond Membership")
+                        .minSpending(100000000.0).maxSpending(Double.MAX_VALUE).discountRate(7.0).build()
+        );
+
+        Map<String, Ranking> existing = rankingRepository
+                .findAllByNameIn(rankings.stream().map(Ranking::getName).toList()).stream()
+                .collect(Collectors.toMap(Ranking::getName, Function.identity()));
+
+        List<Ranking> missing = rankings.stream()
+                .filter(r -> !existing.containsKey(r.getName()))
+                .toList();
+
+        Map<String, Ranking> result = new HashMap<>(existing);
+        if (!missing.isEmpty()) {
+            rankingRepository.saveAll(missing).forEach(r -> result.put(r.getName(), r));
+        }
+        return result;
+    }
 
-            if (!staffRepository.existsByEmail("leader@gmail.com")) {
-                Staff leader = Staff.builder()
-                        .email("leader@gmail.com")
-                        .fullName("Team Leader")
-                        .password(passwordEncoder.encode("123456"))
-                        .phone("0912345678")
-                        .address("789 Leader St")
-                        .active(true)
-                        .workStatus(WorkStatus.ACTIVE)
-                        .leader(true)
-                        .joinDate(LocalDate.now().minusMonths(2))
-                        .build();
-
-                leader.setUserRoles(new ArrayList<>());
-                UserRole leaderRole = UserRole.builder()
-                        .role(roleRepository.findByName("STAFF")
-                                .orElseThrow(() -> new RuntimeException("Role STAFF not exist")))
-                        .user(leader)
-                        .build();
-                leader.getUserRoles().add(leaderRole);
-                staffRepository.save(leader);
-            }
+    private void seedUsers(StaffRepository staffRepository, Map<String, Role> roles, Map<String, Ranking> rankings) {
+        Set<String> existingEmails = userRepository.findExistingEmails(List.of(
+                "admin@gmail.com", "staff@gmail.com", "leader@gmail.com", "shipper@gmail.com", "customer@gmail.com"));
 
-            if (!customerRepository.existsByEmail("customer@gmail.com")) {
-                Customer customer = Customer.builder()
-                        .email("customer@gmail.com")
-                        .fullName("Regular Customer")
-                        .password(passwordEncoder.encode("123456"))
-                        .phone("0999888777")
-                        .active(true)
-                        .totalSpending(5000000.0)
-                        .ranking(rankingRepository.findByName("S-SILVER"))
-                        .build();
-
-                customer.setUserRoles(new ArrayList<>());
-                UserRole customerRole = UserRole.builder()
-                        .role(roleRepository.findByName("CUSTOMER")
-                                .orElseThrow(() -> new RuntimeException("Role CUSTOMER not exist")))
-                        .user(customer)
-                        .build();
-                customer.getUserRoles().add(customerRole);
-                customerRepository.save(customer);
-            }
+        // Chỉ dựng (và encode password) cho tài khoản còn thiếu
+        List<Staff> staffs = new ArrayList<>();
+        if (!existingEmails.contains("admin@gmail.com")) {
+            staffs.add(newStaff("admin@gmail.com", "Admin", "0123456789", "123 Admin St",
+                    null, LocalDate.now(), requireRole(roles, "ADMIN")));
+        }
+        if (!existingEmails.contains("staff@gmail.com")) {
+            staffs.add(newStaff("staff@gmail.com", "Staff Member", "0987654321", "456 Staff St",
+                    false, LocalDate.now().minusMonths(1), requireRole(roles, "STAFF")));
+        }
+        if (!existingEmails.contains("leader@gmail.com")) {
+            staffs.add(newStaff("leader@gmail.com", "Team Leader", "0912345678", "789 Leader St",
+                    true, LocalDate.now().minusMonths(2), requireRole(roles, "STAFF")));
+        }
+        if (!existingEmails.contains("shipper@gmail.com")) {
+            staffs.add(newStaff("shipper@gmail.com", "Shipper", "0977665544", "321 Shipper St",
+                    false, LocalDate.now().minusWeeks(1), requireRole(roles, "SHIPPER")));
+        }
+        if (!staffs.isEmpty()) {
+            staffRepository.saveAll(staffs);
+        }
 
-            if (!staffRepository.existsByEmail("shipper@gmail.com")) {
-                Staff shipper = Staff.builder()
-                        .email("shipper@gmail.com")
-                        .fullName("Shipper")
-                        .password(passwordEncoder.encode("123456"))
-                        .phone("0977665544")
-                        .address("321 Shipper St")
-                        .active(true)
-                        .workStatus(WorkStatus.ACTIVE)
-                        .leader(false)
-                        .joinDate(LocalDate.now().minusWeeks(1))
-                        .build();
-
-                shipper.setUserRoles(new ArrayList<>());
-                UserRole shipperRole = UserRole.builder()
-                        .role(roleRepository.findByName("SHIPPER")
-                                .orElseThrow(() -> new RuntimeException("Role SHIPPER not exist")))
-                        .user(shipper)
-                        .build();
-                shipper.getUserRoles().add(shipperRole);
-                staffRepository.save(shipper);
-            }
+        if (!existingEmails.contains("customer@gmail.com")) {
+            Customer customer = Customer.builder()
+                    .email("customer@gmail.com")
+                    .fullName("Regular Customer")
+                    .password(passwordEncoder.encode("123456"))
+                    .phone("0999888777")
+                    .active(true)
+                    .totalSpending(5000000.0)
+                    .ranking(rankings.get("S-SILVER"))
+                    .build();
 
-            List<Ranking> rankings = List.of(
-                    Ranking.builder().name("S-NEW").description("New Membership")
-                            .minSpending(0.0).maxSpending(3000000.0).discountRate(0.0).build(),
-                    Ranking.builder().name("S-SILVER").description("Silver Membership")
-                            .minSpending(3000000.0).maxSpending(10000000.0).discountRate(2.0).build(),
-                    Ranking.builder().name("S-GOLD").description("Gold Membership")
-                            .minSpending(10000000.0).maxSpending(50000000.0).discountRate(3.0).build(),
-                    Ranking.builder().name("S-PLATINUM").description("Platinum Membership")
-                            .minSpending(50000000.0).maxSpending(100000000.0).discountRate(5.0).build(),
-                    Ranking.builder().name("S-DIAMOND").description("Diamond Membership")
-                            .minSpending(100000000.0).maxSpending(Double.MAX_VALUE).discountRate(7.0).build()
-            );
-
-            for (Ranking r : rankings) {
-                if (!rankingRepository.existsByName(r.getName())) {
-                    rankingRepository.save(r);
-                }
-            }
+            customer.setUserRoles(new ArrayList<>());
+            UserRole customerRole = UserRole.builder()
+                    .role(requireRole(roles, "CUSTOMER"))
+                    .user(customer)
+                    .build();
+            customer.getUserRoles().add(customerRole);
+            customerRepository.save(customer);
+        }
+    }
 
-            // Index toàn bộ product variants vào Qdrant
-//            indexAllProductVariants();
-//
-//            generateFakeShippers(staffRepository);
-//
-            productSearchService.reindexAllProducts();
+    private Role requireRole(Map<String, Role> roles, String name) {
+        Role role = roles.get(name);
+        if (role == null) {
+            throw new RuntimeException("Role " + name + " not exist");
+        }
+        return role;
+    }
 
-        };
+    private Staff newStaff(String email, String fullName, String phone, String address,
+                           Boolean leader, LocalDate joinDate, Role role) {
+        Staff staff = Staff.builder()
+                .email(email)
+                .fullName(fullName)
+                .password(passwordEncoder.encode("123456"))
+                .phone(phone)
+                .address(address)
+                .active(true)
+                .workStatus(WorkStatus.ACTIVE)
+                .leader(leader)
+                .joinDate(joinDate)
+                .build();
+
+        staff.setUserRoles(new ArrayList<>());
+        UserRole userRole = UserRole.builder()
+                .role(role)
+                .user(staff)
+                .build();
+        staff.getUserRoles().add(userRole);
+        return staff;
     }
 
     private void generateFakeShippers(StaffRepository staffRepository) {
@@ -256,45 +241,14 @@ public class InitApp {
     }
 
     /**
-     * Index toàn bộ product variants hiện có trong database vào Qdrant vector store
+     * Index toàn bộ product variants hiện có trong database vào Qdrant vector store.
+     * Duyệt theo trang và bỏ qua biến thể không đổi so với lần index trước, nên chạy lại gần như chỉ tốn đọc DB.
      */
     private void indexAllProductVariants() {
         try {
             log.info("Starting to index all product variants to Qdrant...");
-
-            List<ProductVariant> allVariants = productVariantRepository.findAll();
-
-            if (allVariants.isEmpty()) {
-                log.info("No product variants found in database. Skipping indexing.");
-                return;
-            }
-
-            int total = allVariants.size();
-            int successCount = 0;
-            int errorCount = 0;
-
-            log.info("Found {} product variants to index", total);
-
-            for (ProductVariant variant : allVariants) {
-                try {
-                    // Index variant vào Qdrant
-                    vectorStoreService.indexProductVariant(variant);
-                    successCount++;
-
-                    // Log progress mỗi 100 variants
-                    if (successCount % 100 == 0) {
-                        log.info("Indexed {}/{} product variants...", successCount, total);
-                    }
-                } catch (Exception e) {
-                    errorCount++;
-                    log.error("Failed to index product variant ID: {} - Error: {}",
-                            variant.getId(), e.getMessage());
-                }
-            }
-
-            log.info("Completed indexing product variants. Success: {}, Failed: {}, Total: {}",
-                    successCount, errorCount, total);
-
+            int indexed = vectorStoreService.reindexAllProductVariants();
+            log.info("Completed indexing product variants. Re-embedded: {}", indexed);
         } catch (Exception e) {
             log.error("Error during product variant indexing: {}", e.getMessage(), e);
         }
@@ -1,9 +1,12 @@
 package iuh.fit.ecommerce.configurations;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
@@ -14,14 +17,38 @@ public class RabbitConfig {
     public static final String QUEUE_INDEX = "product.index.queue";
     public static final String ROUTING_KEY = "product.created";
 
+    public static final String DEAD_LETTER_EXCHANGE = "product.index.dlx";
+    public static final String QUEUE_INDEX_DEAD_LETTER = "product.index.dlq";
+
+    public static final String INDEX_BATCH_CONTAINER_FACTORY = "productIndexBatchContainerFactory";
+
+    @Value("${product.index.batch-size:50}")
+    private int indexBatchSize;
+
+    @Value("${product.index.batch-timeout-ms:500}")
+    private long indexBatchTimeoutMs;
+
+    @Value("${product.index.prefetch:100}")
+    private int indexPrefetch;
+
+    @Value("${product.index.concurrency:1}")
+    private int indexConcurrency;
+
+    @Value("${product.index.max-concurrency:2}")
+    private int indexMaxConcurrency;
+
     @Bean
     public TopicExchange exchange() {
         return new TopicExchange(EXCHANGE);
     }
 
+    // Message bị reject (hết lượt retry) được chuyển sang DLQ thay vì requeue vô hạn
     @Bean
     public Queue indexQueue() {
-        return new Queue(QUEUE_INDEX);
+        return QueueBuilder.durable(QUEUE_INDEX)
+                .deadLetterExchange(DEAD_LETTER_EXCHANGE)
+                .deadLetterRoutingKey(ROUTING_KEY)
+                .build();
     }
 
     @Bean
@@ -32,6 +59,24 @@ public class RabbitConfig {
                 .with(ROUTING_KEY);
     }
 
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return new DirectExchange(DEAD_LETTER_EXCHANGE);
+    }
+
+    @Bean
+    public Queue indexDeadLetterQueue() {
+        return QueueBuilder.durable(QUEUE_INDEX_DEAD_LETTER).build();
+    }
+
+    @Bean
+    public Binding deadLetterBinding() {
+        return BindingBuilder
+                .bind(indexDeadLetterQueue())
+                .to(deadLetterExchange())
+                .with(ROUTING_KEY);
+    }
+
     @Bean
     public MessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
@@ -44,4 +89,25 @@ public class RabbitConfig {
         template.setMessageConverter(messageConverter);
         return template;
     }
+
+    /**
+     * Container gom tối đa batch-size message hoặc chờ tối đa batch-timeout-ms rồi giao cả lô cho listener.
+     * Kế thừa cấu hình spring.rabbitmq.listener.simple (retry...), chỉ ghi đè phần batch và concurrency.
+     */
+    @Bean(INDEX_BATCH_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory productIndexBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(indexBatchSize);
+        factory.setReceiveTimeout(indexBatchTimeoutMs);
+        factory.setPrefetchCount(Math.max(indexPrefetch, indexBatchSize));
+        factory.setConcurrentConsumers(indexConcurrency);
+        factory.setMaxConcurrentConsumers(Math.max(indexConcurrency, indexMaxConcurrency));
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
 }
@@ -0,0 +1,36 @@
+package iuh.fit.ecommerce.configurations;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+/**
+ * STOMP plugin của RabbitMQ không chấp nhận '/' sau prefix /topic/ (routing key dùng '.'),
+ * nên khi relay, "/topic/chat/12" được đổi thành "/topic/chat.12". Client vẫn subscribe đích cũ.
+ */
+public class RabbitStompDestinationInterceptor implements ChannelInterceptor {
+
+    private static final String TOPIC_PREFIX = "/topic/";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)
+                || destination.indexOf('/', TOPIC_PREFIX.length()) < 0) {
+            return message;
+        }
+
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        SimpMessageHeaderAccessor simpAccessor = accessor instanceof SimpMessageHeaderAccessor simp
+                ? simp : SimpMessageHeaderAccessor.wrap(message);
+        simpAccessor.setDestination(toRoutingKeyDestination(destination));
+        return MessageBuilder.createMessage(message.getPayload(), simpAccessor.getMessageHeaders());
+    }
+
+    static String toRoutingKeyDestination(String destination) {
+        return TOPIC_PREFIX + destination.substring(TOPIC_PREFIX.length()).replace('/', '.');
+    }
+}
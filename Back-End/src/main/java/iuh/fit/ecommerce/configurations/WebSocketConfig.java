@@ -1,18 +1,91 @@
 package iuh.fit.ecommerce.configurations;
 
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+/**
+ * websocket.broker.mode:
+ * - simple (mặc định): broker trong bộ nhớ, subscription chỉ sống trong một JVM
+ * - relay: chuyển tiếp tới STOMP plugin của RabbitMQ, mọi replica thấy cùng một tập subscription
+ */
+@Slf4j
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final WebSocketSessionMetrics sessionMetrics;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${websocket.broker.relay.host:${spring.rabbitmq.host:localhost}}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:${spring.rabbitmq.username:guest}}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:${spring.rabbitmq.password:guest}}")
+    private String relayPasscode;
+
+    @Value("${websocket.broker.relay.virtual-host:/}")
+    private String relayVirtualHost;
+
+    @Value("${websocket.broker.relay.heartbeat-ms:10000}")
+    private long relayHeartbeatMs;
+
+    @Value("${websocket.channel.inbound.pool-size:8}")
+    private int inboundPoolSize;
+
+    @Value("${websocket.channel.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.channel.outbound.pool-size:8}")
+    private int outboundPoolSize;
+
+    @Value("${websocket.channel.outbound.queue-capacity:5000}")
+    private int outboundQueueCapacity;
+
+    // Client đọc chậm: vượt thời gian hoặc dung lượng buffer gửi thì session bị đóng thay vì giữ tin trong heap
+    @Value("${websocket.transport.send-time-limit-ms:15000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        if (isRelayMode()) {
+            log.info("STOMP broker relay -> {}:{} (vhost {})", relayHost, relayPort, relayVirtualHost);
+            config.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setVirtualHost(relayVirtualHost)
+                    .setSystemHeartbeatSendInterval(relayHeartbeatMs)
+                    .setSystemHeartbeatReceiveInterval(relayHeartbeatMs);
+            // Tin gửi từ server (SimpMessagingTemplate) cũng phải đổi đích trước khi tới relay
+            config.configureBrokerChannel().interceptors(new RabbitStompDestinationInterceptor());
+        } else {
+            config.enableSimpleBroker("/topic");
+        }
         config.setApplicationDestinationPrefixes("/app");
     }
 
@@ -26,4 +99,37 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*");
     }
 
-}
\ No newline at end of file
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
+    // Executor của hai channel là bean clientInboundChannelExecutor / clientOutboundChannelExecutor,
+    // nên có sẵn metric executor.* của actuator
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(inboundPoolSize)
+                .maxPoolSize(inboundPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+        registration.interceptors(sessionMetrics.inboundInterceptor());
+        if (isRelayMode()) {
+            registration.interceptors(new RabbitStompDestinationInterceptor());
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundPoolSize)
+                .maxPoolSize(outboundPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+        registration.interceptors(sessionMetrics.outboundInterceptor());
+    }
+
+    private boolean isRelayMode() {
+        return "relay".equalsIgnoreCase(brokerMode);
+    }
+}
@@ -0,0 +1,136 @@
+package iuh.fit.ecommerce.configurations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metric cho từng phiên STOMP: đếm frame vào/ra theo session và ghi lại khi session đóng,
+ * để thấy được client chậm (bị đóng vì vượt send buffer) mà không gắn sessionId làm tag.
+ */
+@Component
+public class WebSocketSessionMetrics {
+
+    private final Map<String, SessionStats> sessions = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter inboundMessages;
+    private final Counter outboundMessages;
+    private final DistributionSummary inboundPerSession;
+    private final DistributionSummary outboundPerSession;
+    private final Timer sessionDuration;
+
+    public WebSocketSessionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.inboundMessages = messageCounter("inbound");
+        this.outboundMessages = messageCounter("outbound");
+        this.inboundPerSession = perSessionSummary("inbound");
+        this.outboundPerSession = perSessionSummary("outbound");
+        this.sessionDuration = Timer.builder("websocket.session.duration")
+                .description("Thời gian sống của mỗi phiên WebSocket")
+                .register(meterRegistry);
+
+        Gauge.builder("websocket.sessions.active", sessions, Map::size)
+                .description("Số phiên STOMP đang mở trên node này")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) {
+            sessions.putIfAbsent(sessionId, new SessionStats(System.nanoTime()));
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        SessionStats stats = sessions.remove(event.getSessionId());
+        if (stats != null) {
+            inboundPerSession.record(stats.inbound.get());
+            outboundPerSession.record(stats.outbound.get());
+            sessionDuration.record(Duration.ofNanos(System.nanoTime() - stats.startNanos));
+        }
+        // 1008/1011 hoặc 4500 (SESSION_NOT_RELIABLE) thường là client đọc không kịp
+        Counter.builder("websocket.sessions.closed")
+                .description("Số phiên WebSocket đóng theo close status")
+                .tag("status", String.valueOf(event.getCloseStatus().getCode()))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Gắn vào clientInboundChannel
+    public ChannelInterceptor inboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                    inboundMessages.increment();
+                    SessionStats stats = stats(message);
+                    if (stats != null) stats.inbound.incrementAndGet();
+                }
+                return message;
+            }
+        };
+    }
+
+    // Gắn vào clientOutboundChannel, chỉ đếm frame MESSAGE (bỏ qua heartbeat, CONNECTED, RECEIPT...)
+    public ChannelInterceptor outboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                    outboundMessages.increment();
+                    SessionStats stats = stats(message);
+                    if (stats != null) stats.outbound.incrementAndGet();
+                }
+                return message;
+            }
+        };
+    }
+
+    private SessionStats stats(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId != null ? sessions.get(sessionId) : null;
+    }
+
+    private Counter messageCounter(String direction) {
+        return Counter.builder("websocket.messages")
+                .description("Số frame MESSAGE đi qua WebSocket theo chiều")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary perSessionSummary(String direction) {
+        return DistributionSummary.builder("websocket.session.messages")
+                .description("Số frame MESSAGE của mỗi phiên, ghi khi phiên đóng")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private static final class SessionStats {
+        final long startNanos;
+        final AtomicLong inbound = new AtomicLong();
+        final AtomicLong outbound = new AtomicLong();
+
+        SessionStats(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package iuh.fit.ecommerce.configurations.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.google.genai.text.GoogleGenAiTextEmbeddingOptions;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Bọc EmbeddingModel bằng cache trên Redis, key là SHA-256 của (tên model + options ảnh hưởng tới vector + text).
+ * Text đã embed với cùng model thì lấy lại vector từ cache; chỉ các text chưa có mới được gửi đi (gộp một request).
+ * Redis lỗi thì bỏ qua cache và gọi thẳng model, không làm hỏng request embedding.
+ */
+@Slf4j
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    static final String KEY_PREFIX = "embedding:";
+
+    private final EmbeddingModel delegate;
+    private final StringRedisTemplate redisTemplate;
+    private final String modelName;
+    private final Duration ttl;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter readErrors;
+    private final Counter writeErrors;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, StringRedisTemplate redisTemplate,
+                                 String modelName, Duration ttl, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.redisTemplate = redisTemplate;
+        this.modelName = modelName;
+        this.ttl = ttl;
+        this.hits = resultCounter(meterRegistry, "hit");
+        this.misses = resultCounter(meterRegistry, "miss");
+        this.readErrors = errorCounter(meterRegistry, "read");
+        this.writeErrors = errorCounter(meterRegistry, "write");
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        if (texts.isEmpty()) return delegate.call(request);
+
+        String variant = variant(request.getOptions());
+        List<String> keys = texts.stream().map(text -> cacheKey(variant, text)).toList();
+        List<String> cached;
+        try {
+            cached = redisTemplate.opsForValue().multiGet(keys);
+        } catch (DataAccessException e) {
+            readErrors.increment();
+            log.warn("Embedding cache read failed, calling model directly: {}", e.getMessage());
+            return delegate.call(request);
+        }
+
+        float[][] vectors = new float[texts.size()][];
+        List<Integer> missIndexes = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String value = cached != null ? cached.get(i) : null;
+            if (value != null) {
+                vectors[i] = decode(value);
+            } else {
+                missIndexes.add(i);
+            }
+        }
+        hits.increment(texts.size() - missIndexes.size());
+        misses.increment(missIndexes.size());
+
+        if (!missIndexes.isEmpty()) {
+            List<String> missTexts = missIndexes.stream().map(texts::get).toList();
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(missTexts, request.getOptions()));
+
+            Map<String, String> toCache = new HashMap<>();
+            List<Embedding> results = response.getResults();
+            for (int j = 0; j < results.size() && j < missIndexes.size(); j++) {
+                int index = missIndexes.get(j);
+                vectors[index] = results.get(j).getOutput();
+                toCache.put(keys.get(index), encode(vectors[index]));
+            }
+            store(toCache);
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private void store(Map<String, String> entries) {
+        if (entries.isEmpty()) return;
+        // Một round trip cho cả lô: SET key value EX ttl cho từng entry trong pipeline
+        Expiration expiration = Expiration.from(ttl);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                entries.forEach((key, value) -> stringConnection.set(key, value, expiration, SetOption.upsert()));
+                return null;
+            });
+        } catch (DataAccessException e) {
+            // Vector đã có, chỉ mất lần cache này
+            writeErrors.increment();
+            log.warn("Embedding cache write failed for {} entries: {}", entries.size(), e.getMessage());
+        }
+    }
+
+    private String cacheKey(String variant, String text) {
+        return KEY_PREFIX + modelName + ":" + sha256(variant + "\n" + text);
+    }
+
+    /**
+     * Các option làm thay đổi vector trả về (model, số chiều, task type...). Option để trống thì model dùng
+     * mặc định nên giữ nguyên key cũ là tên model.
+     */
+    private String variant(EmbeddingOptions options) {
+        StringBuilder variant = new StringBuilder(modelName);
+        if (options == null) return variant.toString();
+        if (options.getModel() != null && !options.getModel().equals(modelName)) {
+            variant.append("|model=").append(options.getModel());
+        }
+        if (options.getDimensions() != null) variant.append("|dimensions=").append(options.getDimensions());
+        if (options instanceof GoogleGenAiTextEmbeddingOptions genAiOptions) {
+            if (genAiOptions.getTaskType() != null) variant.append("|task=").append(genAiOptions.getTaskType());
+            if (genAiOptions.getTitle() != null) variant.append("|title=").append(genAiOptions.getTitle());
+            if (genAiOptions.getAutoTruncate() != null) variant.append("|truncate=").append(genAiOptions.getAutoTruncate());
+        }
+        return variant.toString();
+    }
+
+    public static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // float[] -> Base64 (little-endian), gọn hơn JSON khoảng 3 lần
+    private static String encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    private static float[] decode(String value) {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(value)).order(ByteOrder.LITTLE_ENDIAN);
+        float[] vector = new float[buffer.remaining() / Float.BYTES];
+        buffer.asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    private Counter errorCounter(MeterRegistry meterRegistry, String operation) {
+        return Counter.builder("ai.embedding.cache.errors")
+                .description("Số lần đọc/ghi cache embedding trên Redis bị lỗi")
+                .tag("model", modelName)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private Counter resultCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ai.embedding.cache")
+                .description("Số text được embed, theo kết quả tra cache")
+                .tag("model", modelName)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,42 @@
+package iuh.fit.ecommerce.configurations.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+@Configuration
+public class EmbeddingCacheConfig {
+
+    /**
+     * Bọc EmbeddingModel do Spring AI auto-config tạo ra, nên VectorStore (Qdrant) và mọi chỗ embed khác
+     * đều đi qua cache mà không phải khai báo lại bean model.
+     */
+    @Bean
+    static BeanPostProcessor cachingEmbeddingModelPostProcessor(Environment environment,
+                                                                ObjectProvider<StringRedisTemplate> redisTemplate,
+                                                                ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof EmbeddingModel model) || bean instanceof CachingEmbeddingModel) {
+                    return bean;
+                }
+                if (!environment.getProperty("ai.embedding.cache.enabled", Boolean.class, true)) {
+                    return bean;
+                }
+                String modelName = environment.getProperty(
+                        "spring.ai.google.genai.embedding.text.options.model", beanName);
+                Duration ttl = environment.getProperty("ai.embedding.cache.ttl", Duration.class, Duration.ofDays(30));
+                return new CachingEmbeddingModel(model, redisTemplate.getObject(), modelName, ttl,
+                        meterRegistry.getObject());
+            }
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package iuh.fit.ecommerce.configurations.cache;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.UUID;
+
+/**
+ * Phát thông báo invalidation near-cache qua Redis pub/sub.
+ * Payload: "nodeId|cacheName|key" (evict) hoặc "nodeId|cacheName" (clear).
+ */
+@Slf4j
+public class CacheInvalidationPublisher {
+
+    public static final String CHANNEL = "cache:invalidation";
+    public static final String SEPARATOR = "|";
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Getter
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public CacheInvalidationPublisher(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void publishEvict(String cacheName, String key) {
+        send(nodeId + SEPARATOR + cacheName + SEPARATOR + key);
+    }
+
+    public void publishClear(String cacheName) {
+        send(nodeId + SEPARATOR + cacheName);
+    }
+
+    private void send(String payload) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, payload);
+        } catch (Exception e) {
+            // Không chặn thao tác ghi: near-cache ở node khác vẫn tự hết hạn theo TTL local
+            log.warn("Publish cache invalidation failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package iuh.fit.ecommerce.configurations.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache hai tầng: near-cache trong heap (giới hạn kích thước + TTL ngắn) đứng trước Redis.
+ * Hit ở tầng local không tốn round trip mạng. Near-cache giữ bản đã serialize (cùng serializer với Redis)
+ * và deserialize ra bản mới mỗi lần đọc, nên caller sửa DTO trả về không làm hỏng dữ liệu của request khác.
+ * Mọi thay đổi (put/evict/clear) được phát qua {@link CacheInvalidationPublisher} để node khác xóa bản local.
+ */
+public class TwoLevelCache implements Cache {
+
+    private final String name;
+    private final Cache remote;
+    private final CacheInvalidationPublisher publisher;
+    private final SerializationPair<Object> valueSerializer;
+    private final long localTtlMs;
+    private final int localMaxSize;
+
+    private final Map<String, LocalEntry> local = new ConcurrentHashMap<>();
+
+    private final Counter localHits;
+    private final Counter remoteHits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final Counter remoteEvictions;
+
+    public TwoLevelCache(String name, Cache remote, CacheInvalidationPublisher publisher,
+                         SerializationPair<Object> valueSerializer,
+                         long localTtlMs, int localMaxSize, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.remote = remote;
+        this.publisher = publisher;
+        this.valueSerializer = valueSerializer;
+        this.localTtlMs = localTtlMs;
+        this.localMaxSize = localMaxSize;
+
+        this.localHits = getsCounter(meterRegistry, "local_hit");
+        this.remoteHits = getsCounter(meterRegistry, "remote_hit");
+        this.misses = getsCounter(meterRegistry, "miss");
+        this.sizeEvictions = evictionCounter(meterRegistry, "size");
+        this.expiredEvictions = evictionCounter(meterRegistry, "expired");
+        this.remoteEvictions = evictionCounter(meterRegistry, "remote");
+
+        Gauge.builder("cache.twolevel.local.size", local, Map::size)
+                .description("Số entry đang nằm trong near-cache")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        Object value = getLocal(localKey);
+        if (value != null) {
+            localHits.increment();
+            return new SimpleValueWrapper(value);
+        }
+
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            remoteHits.increment();
+            putLocal(localKey, wrapper.get());
+            return wrapper;
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        // RedisCache tự khóa theo key khi load, tránh nhiều node cùng query DB
+        T value = remote.get(key, valueLoader);
+        if (value != null) {
+            putLocal(localKey(key), value);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        String localKey = localKey(key);
+        if (value != null) {
+            putLocal(localKey, value);
+        } else {
+            local.remove(localKey);
+        }
+        publisher.publishEvict(name, localKey);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        String localKey = localKey(key);
+        if (existing != null && existing.get() != null) {
+            putLocal(localKey, existing.get());
+        } else if (value != null) {
+            putLocal(localKey, value);
+            publisher.publishEvict(name, localKey);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        String localKey = localKey(key);
+        local.remove(localKey);
+        publisher.publishEvict(name, localKey);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = remote.evictIfPresent(key);
+        String localKey = localKey(key);
+        local.remove(localKey);
+        publisher.publishEvict(name, localKey);
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.clear();
+        publisher.publishClear(name);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = remote.invalidate();
+        local.clear();
+        publisher.publishClear(name);
+        return invalidated;
+    }
+
+    // Node khác vừa thay đổi dữ liệu: chỉ xóa bản local, Redis đã được node đó cập nhật
+    void evictLocal(String localKey) {
+        if (local.remove(localKey) != null) {
+            remoteEvictions.increment();
+        }
+    }
+
+    void clearLocal() {
+        int size = local.size();
+        local.clear();
+        remoteEvictions.increment(size);
+    }
+
+    void evictExpired() {
+        long now = System.currentTimeMillis();
+        local.entrySet().removeIf(e -> {
+            boolean expired = e.getValue().isExpired(now);
+            if (expired) expiredEvictions.increment();
+            return expired;
+        });
+    }
+
+    private Object getLocal(String localKey) {
+        LocalEntry entry = local.get(localKey);
+        if (entry == null) return null;
+        if (entry.isExpired(System.currentTimeMillis())) {
+            if (local.remove(localKey, entry)) expiredEvictions.increment();
+            return null;
+        }
+        // ByteBuffer mới cho mỗi lần đọc: mảng byte dùng chung nhưng không bị ghi
+        return valueSerializer.read(ByteBuffer.wrap(entry.value()).asReadOnlyBuffer());
+    }
+
+    private void putLocal(String localKey, Object value) {
+        if (local.size() >= localMaxSize && !local.containsKey(localKey)) {
+            evictExpired();
+            if (local.size() >= localMaxSize) {
+                // Vẫn đầy: bỏ bớt một phần entry bất kỳ, miss sau đó chỉ tốn thêm một lần đọc Redis
+                local.keySet().stream()
+                        .limit(Math.max(1, localMaxSize / 10))
+                        .toList()
+                        .forEach(k -> {
+                            if (local.remove(k) != null) sizeEvictions.increment();
+                        });
+            }
+        }
+        local.put(localKey, new LocalEntry(toBytes(value), System.currentTimeMillis() + localTtlMs));
+    }
+
+    private byte[] toBytes(Object value) {
+        ByteBuffer buffer = valueSerializer.write(value);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    // RedisCache cũng chuyển key sang String, nên key local và key gửi qua pub/sub khớp với key trên Redis
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    private Counter getsCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cache.twolevel.gets")
+                .description("Số lần đọc cache hai tầng theo kết quả")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter evictionCounter(MeterRegistry meterRegistry, String cause) {
+        return Counter.builder("cache.twolevel.local.evictions")
+                .description("Số entry bị loại khỏi near-cache theo nguyên nhân")
+                .tag("cache", name)
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    private record LocalEntry(byte[] value, long expiresAtMs) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMs;
+        }
+    }
+}
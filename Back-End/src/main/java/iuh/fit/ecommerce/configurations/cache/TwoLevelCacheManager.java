@@ -0,0 +1,98 @@
+package iuh.fit.ecommerce.configurations.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CacheManager bọc RedisCacheManager: các cache trong nearCacheNames có thêm near-cache trong heap,
+ * các cache còn lại dùng thẳng Redis như cũ.
+ * Đồng thời lắng nghe kênh {@link CacheInvalidationPublisher#CHANNEL} để xóa near-cache khi node khác ghi.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private final CacheManager remoteCacheManager;
+    private final Set<String> nearCacheNames;
+    private final CacheInvalidationPublisher publisher;
+    private final long localTtlMs;
+    private final int localMaxSize;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+    private final Map<String, TwoLevelCache> twoLevelCaches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, Set<String> nearCacheNames,
+                                CacheInvalidationPublisher publisher, long localTtlMs, int localMaxSize,
+                                MeterRegistry meterRegistry) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.nearCacheNames = Set.copyOf(nearCacheNames);
+        this.publisher = publisher;
+        this.localTtlMs = localTtlMs;
+        this.localMaxSize = localMaxSize;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache != null) return cache;
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        Set<String> names = new LinkedHashSet<>(remoteCacheManager.getCacheNames());
+        names.addAll(caches.keySet());
+        return names;
+    }
+
+    private Cache createCache(String name) {
+        Cache remote = remoteCacheManager.getCache(name);
+        if (!(remote instanceof RedisCache redisCache) || !nearCacheNames.contains(name)) {
+            return remote;
+        }
+
+        // Near-cache serialize giống hệt tầng Redis để bản local và bản Redis cho ra cùng một kiểu DTO
+        TwoLevelCache cache = new TwoLevelCache(name, remote, publisher,
+                redisCache.getCacheConfiguration().getValueSerializationPair(),
+                localTtlMs, localMaxSize, meterRegistry);
+        twoLevelCaches.put(name, cache);
+        // Evict/put chỉ thực hiện sau khi commit, tránh request song song nạp lại dữ liệu cũ vào cache
+        return new TransactionAwareCacheDecorator(cache);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = payload.split("\\" + CacheInvalidationPublisher.SEPARATOR, 3);
+        if (parts.length < 2 || publisher.getNodeId().equals(parts[0])) return;
+
+        TwoLevelCache cache = twoLevelCaches.get(parts[1]);
+        if (cache == null) return;
+
+        if (parts.length == 3) {
+            cache.evictLocal(parts[2]);
+        } else {
+            cache.clearLocal();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cache.near.cleanup-ms:60000}")
+    public void evictExpired() {
+        twoLevelCaches.values().forEach(TwoLevelCache::evictExpired);
+    }
+}
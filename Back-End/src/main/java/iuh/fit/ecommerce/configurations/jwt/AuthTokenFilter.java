@@ -1,8 +1,8 @@
 package iuh.fit.ecommerce.configurations.jwt;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
-import iuh.fit.ecommerce.constraints.Endpoints;
 import iuh.fit.ecommerce.dtos.response.base.ResponseError;
 import iuh.fit.ecommerce.enums.TokenType;
 import jakarta.servlet.FilterChain;
@@ -21,7 +21,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Date;
 
 @RequiredArgsConstructor
@@ -30,6 +29,8 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final AuthenticatedPrincipalCache principalCache;
+    private final PrivateEndpointMatcher privateEndpointMatcher;
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
@@ -45,15 +46,20 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtil.validateJwtToken(jwt, TokenType.ACCESS_TOKEN)) {
-                String username = jwtUtil.getUserNameFromJwtToken(jwt, TokenType.ACCESS_TOKEN);
+            if (jwt != null) {
+                AuthenticatedPrincipalCache.CachedPrincipal cached = principalCache.get(jwt);
+                if (cached == null) {
+                    // Cache miss: verify token đúng một lần rồi mới nạp user từ DB
+                    Claims claims = jwtUtil.parseClaims(jwt, TokenType.ACCESS_TOKEN);
+                    UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+                    cached = principalCache.put(jwt, userDetails, claims.getExpiration().getTime());
+                }
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(
-                                userDetails,
+                                cached.principal(),
                                 null,
-                                userDetails.getAuthorities());
+                                cached.principal().getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -85,8 +91,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     }
 
     private boolean isPublicEndpoint(String requestURI) {
-        return Arrays.stream(Endpoints.PRIVATE_ENDPOINT)
-                .noneMatch(requestURI::matches);
+        return !privateEndpointMatcher.isPrivate(requestURI);
     }
 
     private void sendErrorResponse(HttpServletResponse response, HttpServletRequest request, String message) throws IOException {
@@ -0,0 +1,122 @@
+package iuh.fit.ecommerce.configurations.jwt;
+
+import iuh.fit.ecommerce.entities.User;
+import iuh.fit.ecommerce.events.UserAccessChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache token đã verify -> principal để request có JWT hợp lệ không phải parse lại
+ * và không phải query DB chỉ để xác thực.
+ * Entry sống tối đa ttl và không bao giờ vượt quá thời điểm hết hạn của chính token.
+ * Chỉ lưu {@link AuthenticatedUser} bất biến; khi quyền/trạng thái user đổi thì phát email qua Redis pub/sub
+ * để mọi node cùng xóa entry của user đó.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuthenticatedPrincipalCache implements MessageListener {
+
+    public static final String EVICT_CHANNEL = "auth:principal-evict";
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${security.principal-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${security.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    private final Map<String, CachedPrincipal> entries = new ConcurrentHashMap<>();
+
+    public CachedPrincipal get(String token) {
+        CachedPrincipal cached = entries.get(token);
+        if (cached == null) return null;
+        if (cached.isExpired(System.currentTimeMillis())) {
+            entries.remove(token, cached);
+            return null;
+        }
+        return cached;
+    }
+
+    public CachedPrincipal put(String token, UserDetails principal, long tokenExpiresAtMs) {
+        long now = System.currentTimeMillis();
+        // Snapshot ngay lúc xác thực, tránh lazy-load userRoles và không chia sẻ entity mutable giữa các request
+        Long userId = principal instanceof User user ? user.getId() : null;
+        CachedPrincipal cached = new CachedPrincipal(
+                AuthenticatedUser.from(userId, principal),
+                Math.min(tokenExpiresAtMs, now + ttlMs));
+
+        if (entries.size() >= maxSize) {
+            evictExpired(now);
+            if (entries.size() >= maxSize) {
+                // Vẫn đầy: bỏ bớt một phần entry bất kỳ, miss sau đó chỉ tốn thêm một lần verify
+                entries.keySet().stream()
+                        .limit(Math.max(1, maxSize / 10))
+                        .toList()
+                        .forEach(entries::remove);
+            }
+        }
+        entries.put(token, cached);
+        return cached;
+    }
+
+    public void evictToken(String token) {
+        if (token != null) entries.remove(token);
+    }
+
+    public void evictUser(String email) {
+        if (email == null) return;
+        entries.values().removeIf(c -> email.equalsIgnoreCase(c.principal().getUsername()));
+    }
+
+    // Chỉ xóa sau khi commit, tránh request song song nạp lại trạng thái cũ từ DB vào cache
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserAccessChanged(UserAccessChangedEvent event) {
+        if (event.email() == null) return;
+        evictUser(event.email());
+        try {
+            redisTemplate.convertAndSend(EVICT_CHANNEL, event.email());
+        } catch (Exception e) {
+            // Node khác vẫn tự hết hạn entry theo ttl
+            log.warn("Publish principal eviction failed: {}", e.getMessage());
+        }
+    }
+
+    // Nhận eviction từ node khác (và của chính node này, xóa lại cũng không sao)
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        evictUser(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Scheduled(fixedDelayString = "${security.principal-cache.cleanup-ms:60000}")
+    public void cleanup() {
+        evictExpired(System.currentTimeMillis());
+    }
+
+    private void evictExpired(long now) {
+        entries.values().removeIf(c -> c.isExpired(now));
+    }
+
+    public record CachedPrincipal(
+            AuthenticatedUser principal,
+            long expiresAtMs
+    ) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMs;
+        }
+    }
+}
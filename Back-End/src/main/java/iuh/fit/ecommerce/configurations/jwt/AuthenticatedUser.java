@@ -0,0 +1,42 @@
+package iuh.fit.ecommerce.configurations.jwt;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+/**
+ * Principal bất biến đặt vào SecurityContext thay cho entity User: chỉ giữ id, email và quyền
+ * tại thời điểm xác thực nên có thể dùng chung giữa các request song song.
+ * Cần entity đầy đủ thì dùng SecurityUtils.getCurrentUser() (nạp lại theo id).
+ */
+public record AuthenticatedUser(
+        Long id,
+        String email,
+        List<GrantedAuthority> authorities
+) implements UserDetails {
+
+    public AuthenticatedUser {
+        authorities = List.copyOf(authorities);
+    }
+
+    public static AuthenticatedUser from(Long id, UserDetails userDetails) {
+        return new AuthenticatedUser(id, userDetails.getUsername(), List.copyOf(userDetails.getAuthorities()));
+    }
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    // Không giữ mật khẩu trong cache
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
@@ -1,11 +1,14 @@
 package iuh.fit.ecommerce.configurations.jwt;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import iuh.fit.ecommerce.entities.User;
 import iuh.fit.ecommerce.enums.TokenType;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -35,6 +38,20 @@ public class JwtUtil {
     @Value("${spring.app.jwtRefreshExpirationMs}")
     private int jwtRefreshExpirationMs;
 
+    // Key và parser được dựng một lần, thread-safe nên dùng chung cho mọi request
+    private Key accessKey;
+    private Key refreshKey;
+    private JwtParser accessParser;
+    private JwtParser refreshParser;
+
+    @PostConstruct
+    void initKeys() {
+        accessKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtAccessSecret));
+        refreshKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtRefreshSecret));
+        accessParser = Jwts.parserBuilder().setSigningKey(accessKey).build();
+        refreshParser = Jwts.parserBuilder().setSigningKey(refreshKey).build();
+    }
+
     public String generateAccessToken(User user) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("email", user.getEmail());
@@ -61,21 +78,20 @@ public class JwtUtil {
     }
 
 
-    public String getUserNameFromJwtToken(String token, TokenType type) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey(type))
-                .build()
+    // Verify chữ ký + hạn dùng một lần duy nhất, trả về claims để caller tự lấy subject/expiration
+    public Claims parseClaims(String token, TokenType type) {
+        return getParser(type)
                 .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+                .getBody();
+    }
+
+    public String getUserNameFromJwtToken(String token, TokenType type) {
+        return parseClaims(token, type).getSubject();
     }
 
     public boolean validateJwtToken(String authToken, TokenType type) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSignInKey(type))
-                    .build()
-                    .parseClaimsJws(authToken);
+            parseClaims(authToken, type);
             return true;
         } catch (JwtException | IllegalArgumentException ex) {
             throw ex;
@@ -85,22 +101,29 @@ public class JwtUtil {
     private Key getSignInKey(TokenType type){
         switch (type) {
             case ACCESS_TOKEN -> {
-                return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtAccessSecret));
+                return accessKey;
+            }
+            case REFRESH_TOKEN -> {
+                return refreshKey;
+            }
+            default -> throw new InvalidParameterException("Invalid token type");
+        }
+    }
+
+    private JwtParser getParser(TokenType type){
+        switch (type) {
+            case ACCESS_TOKEN -> {
+                return accessParser;
             }
             case REFRESH_TOKEN -> {
-                return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtRefreshSecret));
+                return refreshParser;
             }
             default -> throw new InvalidParameterException("Invalid token type");
         }
     }
 
     public LocalDate getExpirationDateFromToken(String token, TokenType type) {
-        Date expirationDate = Jwts.parserBuilder()
-                .setSigningKey(getSignInKey(type))
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getExpiration();
+        Date expirationDate = parseClaims(token, type).getExpiration();
 
         return expirationDate.toInstant()
                 .atZone(ZoneId.systemDefault())
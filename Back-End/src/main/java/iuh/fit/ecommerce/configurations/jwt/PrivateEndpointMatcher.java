@@ -0,0 +1,97 @@
+package iuh.fit.ecommerce.configurations.jwt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import iuh.fit.ecommerce.constraints.Endpoints;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Bảng PRIVATE_ENDPOINT được compile một lần khi khởi động và nhóm theo segment đầu tiên sau /api/v1/,
+ * nên mỗi request chỉ thử vài pattern cùng prefix thay vì compile lại toàn bộ regex.
+ */
+@Component
+public class PrivateEndpointMatcher {
+
+    private static final String API_PREFIX = "/api/v1/";
+
+    private final Map<String, List<Rule>> rulesBySegment;
+    // Pattern không bắt đầu bằng /api/v1/<segment> literal: luôn phải thử
+    private final List<Rule> fallbackRules;
+
+    public PrivateEndpointMatcher(MeterRegistry meterRegistry) {
+        Map<String, List<Rule>> bySegment = new HashMap<>();
+        List<Rule> fallback = new ArrayList<>();
+
+        for (String regex : Endpoints.PRIVATE_ENDPOINT) {
+            Rule rule = new Rule(Pattern.compile(regex), Counter.builder("security.endpoint.private.hits")
+                    .description("Số request khớp từng rule trong Endpoints.PRIVATE_ENDPOINT")
+                    .tag("rule", regex)
+                    .register(meterRegistry));
+
+            String segment = literalSegment(regex);
+            if (segment == null) {
+                fallback.add(rule);
+            } else {
+                bySegment.computeIfAbsent(segment, k -> new ArrayList<>()).add(rule);
+            }
+        }
+
+        Map<String, List<Rule>> frozen = new HashMap<>();
+        bySegment.forEach((k, v) -> frozen.put(k, List.copyOf(v)));
+        this.rulesBySegment = Map.copyOf(frozen);
+        this.fallbackRules = List.copyOf(fallback);
+    }
+
+    public boolean isPrivate(String requestURI) {
+        if (requestURI == null) return false;
+
+        String segment = requestSegment(requestURI);
+        if (segment != null) {
+            List<Rule> candidates = rulesBySegment.get(segment);
+            if (candidates != null && matchAny(candidates, requestURI)) return true;
+        }
+        return matchAny(fallbackRules, requestURI);
+    }
+
+    private static boolean matchAny(List<Rule> rules, String requestURI) {
+        for (Rule rule : rules) {
+            if (rule.pattern().matcher(requestURI).matches()) {
+                rule.hits().increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // "/api/v1/carts(?:/.*)?" -> "carts"; null nếu segment chứa ký tự regex
+    private static String literalSegment(String regex) {
+        if (!regex.startsWith(API_PREFIX)) return null;
+        int end = API_PREFIX.length();
+        while (end < regex.length() && isSegmentChar(regex.charAt(end))) end++;
+        if (end == API_PREFIX.length()) return null;
+        if (end < regex.length()) {
+            char next = regex.charAt(end);
+            // Segment chỉ an toàn khi kết thúc bằng '/' hoặc một group bắt đầu lại bằng '/'
+            if (next != '/' && !regex.startsWith("(?:/", end)) return null;
+        }
+        return regex.substring(API_PREFIX.length(), end);
+    }
+
+    private static String requestSegment(String requestURI) {
+        if (!requestURI.startsWith(API_PREFIX)) return null;
+        int slash = requestURI.indexOf('/', API_PREFIX.length());
+        return slash < 0 ? requestURI.substring(API_PREFIX.length()) : requestURI.substring(API_PREFIX.length(), slash);
+    }
+
+    private static boolean isSegmentChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+
+    private record Rule(Pattern pattern, Counter hits) {}
+}
@@ -3,12 +3,16 @@ package iuh.fit.ecommerce.controllers;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import iuh.fit.ecommerce.dtos.request.ai.ChatAIRequest;
 import iuh.fit.ecommerce.dtos.response.ai.ChatAIResponse;
+import iuh.fit.ecommerce.dtos.response.ai.ChatAIStreamEvent;
 import iuh.fit.ecommerce.dtos.response.base.ResponseSuccess;
 import iuh.fit.ecommerce.services.AIService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import static org.springframework.http.HttpStatus.OK;
 
@@ -35,5 +39,20 @@ public class AIController {
                 response
         ));
     }
-}
 
+    // Trả từng đoạn text qua SSE: event "token" cho mỗi đoạn, event "done" chứa câu trả lời đầy đủ + sản phẩm
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ChatAIStreamEvent>> chatStream(
+            @Valid @RequestBody ChatAIRequest request
+    ) {
+        return aiService.chatStream(
+                        request.getMessage(),
+                        request.getCustomerId(),
+                        request.getSessionId()
+                )
+                .map(event -> ServerSentEvent.<ChatAIStreamEvent>builder()
+                        .event(event.getEvent())
+                        .data(event)
+                        .build());
+    }
+}
@@ -5,9 +5,11 @@ import iuh.fit.ecommerce.dtos.request.chat.BulkTransferChatRequest;
 import iuh.fit.ecommerce.dtos.request.chat.BulkUnassignChatRequest;
 import iuh.fit.ecommerce.dtos.request.chat.ChatRequest;
 import iuh.fit.ecommerce.dtos.request.chat.MessageRequest;
+import iuh.fit.ecommerce.dtos.response.base.CursorPageResponse;
 import iuh.fit.ecommerce.dtos.response.base.ResponseSuccess;
 import iuh.fit.ecommerce.dtos.response.chat.ChatResponse;
 import iuh.fit.ecommerce.dtos.response.chat.MessageResponse;
+import iuh.fit.ecommerce.enums.ChatInboxScope;
 import iuh.fit.ecommerce.services.ChatService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -107,6 +109,20 @@ public class ChatController {
         ));
     }
     
+    @GetMapping("/inbox")
+    public ResponseEntity<ResponseSuccess<CursorPageResponse<ChatResponse>>> getInbox(
+            @RequestParam(defaultValue = "ALL") ChatInboxScope scope,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        CursorPageResponse<ChatResponse> inbox = chatService.getInbox(scope, cursor, limit);
+        return ResponseEntity.ok(new ResponseSuccess<>(
+                OK,
+                "Get chat inbox successfully",
+                inbox
+        ));
+    }
+    
     @GetMapping("/unassigned")
     public ResponseEntity<ResponseSuccess<List<ChatResponse>>> getUnassignedChats() {
         List<ChatResponse> chatResponses = chatService.getUnassignedChats();
@@ -171,9 +187,11 @@ public class ChatController {
     
     @GetMapping("/{chatId}/messages")
     public ResponseEntity<ResponseSuccess<List<MessageResponse>>> getMessagesByChatId(
-            @PathVariable Long chatId
+            @PathVariable Long chatId,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer limit
     ) {
-        List<MessageResponse> messages = chatService.getMessagesByChatId(chatId);
+        List<MessageResponse> messages = chatService.getMessagesByChatId(chatId, beforeId, limit);
         return ResponseEntity.ok(new ResponseSuccess<>(
                 OK,
                 "Get messages successfully",
@@ -13,6 +13,8 @@ import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.InvalidParamException;
 import iuh.fit.ecommerce.services.CustomerService;
 import iuh.fit.ecommerce.services.excel.CustomerExcelService;
+import iuh.fit.ecommerce.utils.excel.ExcelResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -158,24 +160,9 @@ public class CustomerController {
 
     @GetMapping("/export")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Resource> exportCustomers() {
-        try {
-            Workbook workbook = customerExcelService.exportAllCustomers();
-            byte[] bytes = customerExcelService.workbookToBytes(workbook);
-
-            ByteArrayResource resource = new ByteArrayResource(bytes);
-
-            String filename = "customers_" + LocalDate.now() + ".xlsx";
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
-                    .contentType(MediaType
-                            .parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .contentLength(bytes.length)
-                    .body(resource);
-        } catch (Exception e) {
-            throw new RuntimeException(ErrorCode.EXCEL_EXPORT_FAILED.getMessage(), e);
-        }
+    public void exportCustomers(HttpServletResponse response) {
+        String filename = "customers_" + LocalDate.now() + ".xlsx";
+        ExcelResponses.stream(response, filename, customerExcelService::exportAllCustomers);
     }
 
     
@@ -2,7 +2,10 @@ package iuh.fit.ecommerce.controllers;
 
 import iuh.fit.ecommerce.dtos.response.base.ResponseSuccess;
 import iuh.fit.ecommerce.dtos.response.dashboard.*;
+import iuh.fit.ecommerce.services.DashboardRollupService;
 import iuh.fit.ecommerce.services.DashboardService;
+import iuh.fit.ecommerce.utils.excel.ExcelResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -21,6 +24,7 @@ import static org.springframework.http.HttpStatus.OK;
 public class DashboardController {
     
     private final DashboardService dashboardService;
+    private final DashboardRollupService dashboardRollupService;
     private final iuh.fit.ecommerce.services.excel.DashboardExcelService dashboardExcelService;
 
     @GetMapping("/revenue-by-month")
@@ -307,69 +311,63 @@ public class DashboardController {
                 dashboardService.getVoucherDetail(voucherId, startDate, endDate)));
     }
 
+    /**
+     * Xuất báo cáo dashboard ra file .xlsx (5 sheet), ghi thẳng vào response.
+     * Lưu ý độ trễ byte đầu tiên: xlsx là file zip nên SXSSF phải ghi hết mọi dòng ra file tạm trên đĩa
+     * rồi mới bắt đầu gửi; heap giữ ổn định theo số dòng nhưng client chỉ nhận byte đầu khi đã dựng xong.
+     * Kỳ lớn cần đặt timeout phía client/proxy đủ dài.
+     */
     @GetMapping("/export-excel")
-    public ResponseEntity<org.springframework.core.io.Resource> exportDashboardExcel(
+    public void exportDashboardExcel(
             @RequestParam(required = false, defaultValue = "day") String timeType,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) Integer year,
-            @RequestParam(required = false) Integer month) {
-        
-        try {
-            LocalDate start;
-            LocalDate end;
-            String filename;
-
-            switch (timeType.toLowerCase()) {
-                case "month":
-                    // Export theo tháng
-                    if (year == null) year = LocalDate.now().getYear();
-                    if (month == null) month = LocalDate.now().getMonthValue();
-
-                    start = LocalDate.of(year, month, 1);
-                    end = start.withDayOfMonth(start.lengthOfMonth());
-                    filename = String.format("Dashboard_Report_%d_Thang_%d.xlsx", year, month);
-                    break;
-
-                case "year":
-                    // Export theo năm
-                    if (year == null) year = LocalDate.now().getYear();
-
-                    start = LocalDate.of(year, 1, 1);
-                    end = LocalDate.of(year, 12, 31);
-                    filename = String.format("Dashboard_Report_Nam_%d.xlsx", year);
-                    break;
-
-                default: // "day"
-                    // Export theo khoảng ngày
-                    if (startDate == null) {
-                        startDate = LocalDate.now().minusDays(30);
-                    }
-                    if (endDate == null) {
-                        endDate = LocalDate.now();
-                    }
-                    start = startDate;
-                    end = endDate;
-                    filename = String.format("Dashboard_Report_%s_to_%s.xlsx",
-                            start.toString(), end.toString());
-                    break;
-            }
-            
-            byte[] excelData = dashboardExcelService.exportDashboard(start, end);
-            
-            org.springframework.core.io.ByteArrayResource resource = 
-                    new org.springframework.core.io.ByteArrayResource(excelData);
-            
-            return ResponseEntity.ok()
-                    .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, 
-                            "attachment; filename=\"" + filename + "\"")
-                    .contentType(org.springframework.http.MediaType.parseMediaType(
-                            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(resource);
-                    
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            @RequestParam(required = false) Integer month,
+            HttpServletResponse response) {
+
+        LocalDate start;
+        LocalDate end;
+        String filename;
+
+        switch (timeType.toLowerCase()) {
+            case "month":
+                // Export theo tháng
+                if (year == null) year = LocalDate.now().getYear();
+                if (month == null) month = LocalDate.now().getMonthValue();
+
+                start = LocalDate.of(year, month, 1);
+                end = start.withDayOfMonth(start.lengthOfMonth());
+                filename = String.format("Dashboard_Report_%d_Thang_%d.xlsx", year, month);
+                break;
+
+            case "year":
+                // Export theo năm
+                if (year == null) year = LocalDate.now().getYear();
+
+                start = LocalDate.of(year, 1, 1);
+                end = LocalDate.of(year, 12, 31);
+                filename = String.format("Dashboard_Report_Nam_%d.xlsx", year);
+                break;
+
+            default: // "day"
+                // Export theo khoảng ngày
+                if (startDate == null) {
+                    startDate = LocalDate.now().minusDays(30);
+                }
+                if (endDate == null) {
+                    endDate = LocalDate.now();
+                }
+                start = startDate;
+                end = endDate;
+                filename = String.format("Dashboard_Report_%s_to_%s.xlsx",
+                        start.toString(), end.toString());
+                break;
         }
+        
+        // Ghi thẳng vào response, không dựng cả file trong bộ nhớ
+        ExcelResponses.stream(response, filename,
+                out -> dashboardExcelService.exportDashboard(start, end, out));
     }
 
     /**
@@ -582,4 +580,38 @@ public class DashboardController {
                 "Get orders by date range success",
                 dashboardService.getOrdersByDateRange(startDate, endDate)));
     }
+
+    @PostMapping("/rollups/backfill")
+    public ResponseEntity<ResponseSuccess<Integer>> backfillRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        if (endDate == null) {
+            endDate = LocalDate.now();
+        }
+
+        return ResponseEntity.ok(new ResponseSuccess<>(
+                OK,
+                "Backfill dashboard rollups success",
+                dashboardRollupService.backfill(startDate, endDate)));
+    }
+
+    @GetMapping("/rollups/consistency")
+    public ResponseEntity<ResponseSuccess<RollupConsistencyResponse>> checkRollupConsistency(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "false") boolean repair) {
+
+        if (startDate == null) {
+            startDate = LocalDate.now().minusDays(30);
+        }
+        if (endDate == null) {
+            endDate = LocalDate.now();
+        }
+
+        return ResponseEntity.ok(new ResponseSuccess<>(
+                OK,
+                "Check dashboard rollup consistency success",
+                dashboardRollupService.checkConsistency(startDate, endDate, repair)));
+    }
 }
@@ -10,6 +10,8 @@ import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.InvalidParamException;
 import iuh.fit.ecommerce.services.StaffService;
 import iuh.fit.ecommerce.services.excel.StaffExcelService;
+import iuh.fit.ecommerce.utils.excel.ExcelResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -143,23 +145,8 @@ public class StaffController {
 
         @GetMapping("/export")
         @PreAuthorize("hasRole('ADMIN')")
-        public ResponseEntity<Resource> exportStaffs() {
-                try {
-                        Workbook workbook = staffExcelService.exportAllStaff();
-                        byte[] bytes = staffExcelService.workbookToBytes(workbook);
-
-                        ByteArrayResource resource = new ByteArrayResource(bytes);
-
-                        String filename = "staffs_" + LocalDate.now() + ".xlsx";
-
-                        return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
-                                .contentType(MediaType.parseMediaType(
-                                        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                                .contentLength(bytes.length)
-                                .body(resource);
-                } catch (Exception e) {
-                        throw new RuntimeException(ErrorCode.EXCEL_EXPORT_FAILED.getMessage(), e);
-                }
+        public void exportStaffs(HttpServletResponse response) {
+                String filename = "staffs_" + LocalDate.now() + ".xlsx";
+                ExcelResponses.stream(response, filename, staffExcelService::exportAllStaff);
         }
 }
\ No newline at end of file
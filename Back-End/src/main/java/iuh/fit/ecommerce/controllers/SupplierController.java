@@ -9,6 +9,8 @@ import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.InvalidParamException;
 import iuh.fit.ecommerce.services.SupplierService;
 import iuh.fit.ecommerce.services.excel.SupplierExcelService;
+import iuh.fit.ecommerce.utils.excel.ExcelResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -169,23 +171,8 @@ public class SupplierController {
      */
     @GetMapping("/export")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Resource> exportSuppliers() {
-        try {
-            Workbook workbook = supplierExcelService.exportAllSuppliers();
-            byte[] bytes = supplierExcelService.workbookToBytes(workbook);
-
-            ByteArrayResource resource = new ByteArrayResource(bytes);
-
-            String filename = "suppliers_" + LocalDate.now() + ".xlsx";
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
-                    .contentType(MediaType.parseMediaType(
-                            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .contentLength(bytes.length)
-                    .body(resource);
-        } catch (Exception e) {
-            throw new RuntimeException(ErrorCode.EXCEL_EXPORT_FAILED.getMessage(), e);
-        }
+    public void exportSuppliers(HttpServletResponse response) {
+        String filename = "suppliers_" + LocalDate.now() + ".xlsx";
+        ExcelResponses.stream(response, filename, supplierExcelService::exportAllSuppliers);
     }
 }
\ No newline at end of file
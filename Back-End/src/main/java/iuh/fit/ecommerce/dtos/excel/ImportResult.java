@@ -1,18 +1,24 @@
 package iuh.fit.ecommerce.dtos.excel;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class ImportResult {
+    // File lớn có thể sinh hàng trăm nghìn lỗi: chỉ giữ chi tiết của một phần, errorCount vẫn đếm đủ
+    public static final int MAX_ERROR_DETAILS = 1000;
+
     private int totalRows;
     private int successCount;
     private int errorCount;
@@ -21,6 +27,11 @@ public class ImportResult {
     private List<ImportError> errors = new ArrayList<>();
     
     private String message;
+
+    // Các dòng đã có lỗi, tra O(1) thay vì quét danh sách errors
+    @JsonIgnore
+    @Builder.Default
+    private Set<Integer> errorRows = new HashSet<>();
     
     @Data
     @Builder
@@ -36,13 +47,30 @@ public class ImportResult {
         if (errors == null) {
             errors = new ArrayList<>();
         }
-        errors.add(ImportError.builder()
-                .rowIndex(rowIndex)
-                .field(field)
-                .message(message)
-                .build());
+        if (errors.size() < MAX_ERROR_DETAILS) {
+            errors.add(ImportError.builder()
+                    .rowIndex(rowIndex)
+                    .field(field)
+                    .message(message)
+                    .build());
+        }
+        if (errorRows == null) {
+            errorRows = new HashSet<>();
+        }
+        errorRows.add(rowIndex);
         errorCount++;
     }
+
+    public boolean hasRowErrors(int rowIndex) {
+        return errorRows != null && errorRows.contains(rowIndex);
+    }
+
+    // Dòng đã xử lý xong thì không cần nhớ nữa, giữ bộ nhớ cố định theo kích thước chunk
+    public void clearRowErrors() {
+        if (errorRows != null) {
+            errorRows.clear();
+        }
+    }
     
     public boolean hasErrors() {
         return errorCount > 0;
@@ -0,0 +1,27 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+public interface CatalogWatermarkProjection {
+    // Bảng gắn với từng sản phẩm: thay đổi đi qua luồng index/partial update
+    Long getProductCount();
+    Long getProductModifiedAt();
+    Long getVariantCount();
+    Long getVariantModifiedAt();
+    Long getProductAttributeValueCount();
+    Long getProductAttributeValueModifiedAt();
+    Long getProductVariantValueCount();
+    Long getProductVariantValueModifiedAt();
+    Long getProductFilterValueCount();
+    Long getProductFilterValueMaxId();
+
+    // Bảng tham chiếu dùng chung: đổi tên brand/category/... ảnh hưởng nhiều document, chỉ reindex mới cập nhật
+    Long getBrandCount();
+    Long getBrandModifiedAt();
+    Long getCategoryCount();
+    Long getCategoryModifiedAt();
+    Long getAttributeCount();
+    Long getAttributeModifiedAt();
+    Long getVariantValueCount();
+    Long getVariantValueModifiedAt();
+    Long getFilterValueCount();
+    Long getFilterValueChecksum();
+}
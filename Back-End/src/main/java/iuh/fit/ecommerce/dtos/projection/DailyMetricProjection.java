@@ -0,0 +1,9 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+import java.time.LocalDate;
+
+public interface DailyMetricProjection {
+    LocalDate getDay();
+    Long getCount();
+    Double getAmount();
+}
@@ -0,0 +1,10 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+import java.time.LocalDate;
+
+public interface DailyRevenueCheckProjection {
+    LocalDate getDay();
+    Double getRevenue();
+    Long getOrderCount();
+    Long getCompletedOrderCount();
+}
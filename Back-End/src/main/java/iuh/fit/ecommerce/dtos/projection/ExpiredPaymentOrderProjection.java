@@ -0,0 +1,8 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+import java.time.LocalDateTime;
+
+public interface ExpiredPaymentOrderProjection {
+    Long getId();
+    LocalDateTime getOrderDate();
+}
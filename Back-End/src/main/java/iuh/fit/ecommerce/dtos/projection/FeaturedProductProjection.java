@@ -0,0 +1,8 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+public interface FeaturedProductProjection {
+    String getName();
+    String getBrandName();
+    String getCategoryName();
+    Double getMinPrice();
+}
@@ -0,0 +1,8 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+public interface ProductExportProjection {
+    Long getId();
+    String getName();
+    String getSpu();
+    Boolean getStatus();
+}
@@ -0,0 +1,10 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+public interface ProductSearchFieldsProjection {
+    Long getProductId();
+    Long getStock();
+    Double getMinPrice();
+    Double getMaxPrice();
+    Double getRating();
+    Boolean getStatus();
+}
@@ -0,0 +1,7 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+public interface RevenueByMonthProjection {
+    Integer getMonth();
+    Double getRevenue();
+    Long getOrderCount();
+}
@@ -0,0 +1,7 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+public interface RevenueRollupTotalProjection {
+    Double getRevenue();
+    Long getOrderCount();
+    Long getCompletedOrderCount();
+}
@@ -0,0 +1,6 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+public interface UsageTotalProjection {
+    Long getUsageCount();
+    Double getDiscountAmount();
+}
@@ -0,0 +1,6 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+public interface VoucherEligibilityCheckProjection {
+    Boolean getAssigned();
+    Boolean getUsed();
+}
@@ -0,0 +1,8 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+import iuh.fit.ecommerce.entities.Voucher;
+
+public interface VoucherEligibilityProjection {
+    Voucher getVoucher();
+    String getAssignedCode(); // Mã riêng của khách (voucher GROUP/RANK), null với voucher ALL
+}
@@ -0,0 +1,19 @@
+package iuh.fit.ecommerce.dtos.projection;
+
+import iuh.fit.ecommerce.enums.VoucherType;
+
+import java.time.LocalDateTime;
+
+public interface VoucherUsageExportProjection {
+    Long getVoucherId();
+    Long getOrderId();
+    LocalDateTime getOrderDate();
+    String getCustomerName();
+    String getCustomerPhone();
+    String getVoucherCode();
+    String getVoucherName();
+    VoucherType getVoucherType();
+    Double getDiscountAmount();
+    Double getTotalPrice();
+    Double getFinalTotalPrice();
+}
@@ -0,0 +1,23 @@
+package iuh.fit.ecommerce.dtos.response.ai;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatAIStreamEvent {
+    public static final String TOKEN = "token";
+    public static final String DONE = "done";
+    public static final String ERROR = "error";
+
+    private String event; // "token" cho từng đoạn text, "done" cho gói cuối, "error" khi stream dừng vì lỗi
+    private String delta; // Đoạn text vừa sinh ra (event "token")
+    private ChatAIResponse response; // Câu trả lời đầy đủ + sản phẩm gợi ý (event "done")
+    private String error; // Thông báo lỗi cho người dùng (event "error")
+}
@@ -0,0 +1,19 @@
+package iuh.fit.ecommerce.dtos.response.ai;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRetrievalResult {
+    private List<String> productContexts; // Mô tả sản phẩm đã format để đưa vào prompt
+    private List<Long> productIds; // Product IDs theo thứ tự độ tương đồng, không trùng lặp
+}
@@ -0,0 +1,24 @@
+package iuh.fit.ecommerce.dtos.response.base;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Trang theo keyset: client gửi lại nextCursor để lấy trang kế, không có tổng số trang.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> data;
+    private int limit;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -9,6 +9,7 @@ import org.springframework.data.domain.Page;
 
 import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Getter
 @Setter
@@ -27,7 +28,8 @@ public class PageResponse<T> {
             Function<E, R> mapper
     ) {
         return PageResponse.<R>builder()
-                .data(page.getContent().stream().map(mapper).toList())
+                // ArrayList thay vì List bất biến: serialize được kèm type info khi cache trên Redis
+                .data(page.getContent().stream().map(mapper).collect(Collectors.toList()))
                 .page(page.getNumber() + 1)
                 .totalPage(page.getTotalPages())
                 .limit(page.getSize())
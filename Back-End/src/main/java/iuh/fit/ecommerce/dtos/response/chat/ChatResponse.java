@@ -24,6 +24,9 @@ public class ChatResponse {
     private MessageResponse lastMessage;
     private List<MessageResponse> messages;
     
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime lastActivityAt;
+    
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime createdAt;
     
@@ -0,0 +1,21 @@
+package iuh.fit.ecommerce.dtos.response.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupConsistencyResponse {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Integer checkedDays;
+    private List<LocalDate> mismatchedDays;
+    private Boolean repaired;
+}
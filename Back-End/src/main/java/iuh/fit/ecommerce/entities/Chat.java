@@ -3,10 +3,15 @@ package iuh.fit.ecommerce.entities;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Getter
 @Setter
-@Table(name = "chats")
+@Table(name = "chats", indexes = {
+        @Index(name = "idx_chats_last_activity", columnList = "last_activity_at, id"),
+        @Index(name = "idx_chats_staff_last_activity", columnList = "staff_id, last_activity_at, id")
+})
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,4 +27,22 @@ public class Chat extends BaseEntity {
     @ManyToOne
     @JoinColumn(name = "customer_id")
     private Customer customer;
+
+    // Tóm tắt cho inbox, cập nhật khi gửi tin / đánh dấu đã đọc để không phải đọc bảng messages
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "last_message_id")
+    private Message lastMessage;
+
+    @Column(name = "last_activity_at")
+    private LocalDateTime lastActivityAt;
+
+    // Tin chưa đọc phía customer (do staff gửi)
+    @Builder.Default
+    @Column(name = "customer_unread_count")
+    private Integer customerUnreadCount = 0;
+
+    // Tin chưa đọc phía staff (do customer gửi)
+    @Builder.Default
+    @Column(name = "staff_unread_count")
+    private Integer staffUnreadCount = 0;
 }
@@ -0,0 +1,33 @@
+package iuh.fit.ecommerce.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Entity
+@Getter
+@Setter
+@Table(name = "daily_product_rollups",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"rollup_date", "product_id"}))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyProductRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity_sold", nullable = false)
+    private Long quantitySold;
+
+    @Column(nullable = false)
+    private Double revenue;
+}
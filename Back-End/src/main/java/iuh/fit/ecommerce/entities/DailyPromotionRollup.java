@@ -0,0 +1,33 @@
+package iuh.fit.ecommerce.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Entity
+@Getter
+@Setter
+@Table(name = "daily_promotion_rollups",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"rollup_date", "promotion_id"}))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyPromotionRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Column(name = "promotion_id", nullable = false)
+    private Long promotionId;
+
+    @Column(name = "usage_count", nullable = false)
+    private Long usageCount;
+
+    @Column(name = "discount_amount", nullable = false)
+    private Double discountAmount;
+}
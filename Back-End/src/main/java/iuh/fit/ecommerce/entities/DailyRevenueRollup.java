@@ -0,0 +1,35 @@
+package iuh.fit.ecommerce.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@Table(name = "daily_revenue_rollups")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyRevenueRollup {
+
+    @Id
+    @Column(name = "rollup_date")
+    private LocalDate rollupDate;
+
+    // Doanh thu của các đơn COMPLETED đặt trong ngày
+    @Column(nullable = false)
+    private Double revenue;
+
+    @Column(name = "completed_order_count", nullable = false)
+    private Long completedOrderCount;
+
+    // Tổng số đơn đặt trong ngày, mọi trạng thái
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -1,6 +1,7 @@
 package iuh.fit.ecommerce.entities;
 
 import iuh.fit.ecommerce.enums.PaymentMethod;
+import iuh.fit.ecommerce.events.OrderEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
 import iuh.fit.ecommerce.enums.OrderStatus;
@@ -11,7 +12,9 @@ import java.util.List;
 @Entity
 @Getter
 @Setter
-@Table(name = "orders")
+@Table(name = "orders",
+        indexes = @Index(name = "idx_orders_status_payment_expires", columnList = "status, payment_expires_at"))
+@EntityListeners(OrderEntityListener.class)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -59,6 +62,17 @@ public class Order extends BaseEntity {
     @Column(name = "final_total_price", nullable = false)
     private Double finalTotalPrice;
 
+    // Hạn thanh toán online; quá hạn mà vẫn PENDING_PAYMENT thì job sẽ hủy đơn
+    @Column(name = "payment_expires_at")
+    private LocalDateTime paymentExpiresAt;
+
+    // Node đang giữ quyền xử lý hết hạn thanh toán và thời điểm quyền đó hết hiệu lực
+    @Column(name = "payment_lease_owner", length = 64)
+    private String paymentLeaseOwner;
+
+    @Column(name = "payment_lease_until")
+    private LocalDateTime paymentLeaseUntil;
+
     @ManyToOne( fetch = FetchType.EAGER )
     private Customer customer;
 
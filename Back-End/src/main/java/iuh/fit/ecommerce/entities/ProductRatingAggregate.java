@@ -0,0 +1,43 @@
+package iuh.fit.ecommerce.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Tổng hợp rating theo sản phẩm (chỉ tính feedback đang hiển thị), cập nhật bằng delta mỗi khi feedback thay đổi.
+ * Thống kê rating của trang sản phẩm chỉ cần đọc một dòng này.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "product_rating_aggregates")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRatingAggregate {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "star1_count", nullable = false)
+    private Long star1Count;
+
+    @Column(name = "star2_count", nullable = false)
+    private Long star2Count;
+
+    @Column(name = "star3_count", nullable = false)
+    private Long star3Count;
+
+    @Column(name = "star4_count", nullable = false)
+    private Long star4Count;
+
+    @Column(name = "star5_count", nullable = false)
+    private Long star5Count;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum;
+
+    @Column(name = "review_count", nullable = false)
+    private Long reviewCount;
+}
@@ -2,6 +2,7 @@ package iuh.fit.ecommerce.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.List;
 
@@ -31,6 +32,8 @@ public class ProductVariant extends BaseEntity {
     @JoinColumn(name = "product_id")
     private Product product;
 
+    // EAGER: khi nạp nhiều biến thể (index, giỏ hàng) Hibernate gom lại thành query IN theo lô thay vì mỗi biến thể một query
+    @BatchSize(size = 100)
     @OneToMany( mappedBy = "productVariant", fetch = FetchType.EAGER)
     private List<ProductVariantValue> productVariantValues;
 
@@ -2,11 +2,13 @@ package iuh.fit.ecommerce.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 @Entity
 @Getter
 @Setter
 @Table(name = "variant_value")
+@BatchSize(size = 100)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -7,7 +7,8 @@ import lombok.*;
 @Entity
 @Getter
 @Setter
-@Table(name = "voucher_customers")
+@Table(name = "voucher_customers",
+        indexes = @Index(name = "idx_voucher_customers_customer_voucher", columnList = "customer_id, voucher_id"))
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -6,7 +6,8 @@ import lombok.*;
 @Entity
 @Getter
 @Setter
-@Table(name = "voucher_usage_histories")
+@Table(name = "voucher_usage_histories",
+        indexes = @Index(name = "idx_vuh_customer_voucher", columnList = "customer_id, voucher_id"))
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,4 +27,9 @@ public class VoucherUsageHistory extends BaseEntity{
     @JoinColumn(name = "order_id")
     private Order order;
 
+    // Sao chép từ order.customer để kiểm tra "khách đã dùng voucher chưa" bằng index, không cần join orders
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_id")
+    private Customer customer;
+
 }
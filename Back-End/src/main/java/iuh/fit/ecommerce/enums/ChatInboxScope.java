@@ -0,0 +1,7 @@
+package iuh.fit.ecommerce.enums;
+
+public enum ChatInboxScope {
+    ALL,
+    MINE,
+    UNASSIGNED
+}
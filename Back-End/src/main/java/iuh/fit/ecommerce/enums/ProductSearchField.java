@@ -0,0 +1,9 @@
+package iuh.fit.ecommerce.enums;
+
+public enum ProductSearchField {
+    STOCK,
+    // minPrice + maxPrice
+    PRICE,
+    RATING,
+    STATUS
+}
@@ -0,0 +1,5 @@
+package iuh.fit.ecommerce.events;
+
+import java.time.LocalDateTime;
+
+public record OrderChangedEvent(Long orderId, LocalDateTime orderDate) {}
@@ -0,0 +1,28 @@
+package iuh.fit.ecommerce.events;
+
+import iuh.fit.ecommerce.entities.Order;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bắt mọi thay đổi ghi xuống bảng orders (tạo đơn, chuyển trạng thái, hủy...) ở một chỗ,
+ * thay vì phải publish event ở từng chỗ gọi order.setStatus.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onOrderChanged(Order order) {
+        if (order.getOrderDate() == null) return;
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), order.getOrderDate()));
+    }
+}
@@ -0,0 +1,13 @@
+package iuh.fit.ecommerce.events;
+
+import iuh.fit.ecommerce.enums.ProductSearchField;
+
+import java.util.Collection;
+import java.util.Set;
+
+public record ProductSearchFieldsChangedEvent(Set<Long> productIds, Set<ProductSearchField> fields) {
+
+    public static ProductSearchFieldsChangedEvent of(Collection<Long> productIds, ProductSearchField... fields) {
+        return new ProductSearchFieldsChangedEvent(Set.copyOf(productIds), Set.of(fields));
+    }
+}
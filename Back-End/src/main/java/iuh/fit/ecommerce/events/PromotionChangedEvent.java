@@ -0,0 +1,3 @@
+package iuh.fit.ecommerce.events;
+
+public record PromotionChangedEvent(Long promotionId) {}
@@ -0,0 +1,6 @@
+package iuh.fit.ecommerce.events;
+
+import java.util.Set;
+
+// Tồn kho thay đổi ở mức biến thể; product id được tra lúc đồng bộ search để không tốn query trên luồng đặt hàng
+public record VariantStockChangedEvent(Set<Long> variantIds) {}
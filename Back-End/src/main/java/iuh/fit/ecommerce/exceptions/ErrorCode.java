@@ -40,6 +40,7 @@ public enum ErrorCode {
     PRODUCT_NAME_EXISTS(3202, HttpStatus.CONFLICT, "Product name already exists. A product with this name is already registered in the system."),
     PRODUCT_VARIANT_NOT_FOUND(3203, HttpStatus.NOT_FOUND, "Product variant not found. The specified product variant ID does not exist in the system."),
     PRODUCT_VARIANT_IDS_EMPTY(3204, HttpStatus.BAD_REQUEST, "Product variant IDs list is empty. Please provide at least one product variant ID."),
+    PRODUCT_VARIANT_OUT_OF_STOCK(3205, HttpStatus.BAD_REQUEST, "Product variant is out of stock. The requested quantity exceeds the available stock."),
 
     // Cart errors (3250-3259)
     CART_NOT_FOUND(3250, HttpStatus.NOT_FOUND, "Cart not found. The specified cart does not exist in the system."),
@@ -1,30 +1,147 @@
 package iuh.fit.ecommerce.messaging.rabbitmq.consumer;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import iuh.fit.ecommerce.configurations.RabbitConfig;
 import iuh.fit.ecommerce.entities.Product;
-import iuh.fit.ecommerce.events.ProductCreatedEvent;
+import iuh.fit.ecommerce.messaging.rabbitmq.message.ProductCreatedMessage;
 import iuh.fit.ecommerce.services.ProductSearchService;
 import iuh.fit.ecommerce.services.VectorStoreService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Nhận message theo lô (xem {@link RabbitConfig#productIndexBatchContainerFactory}), gộp các productId trùng,
+ * load toàn bộ sản phẩm bằng một bộ query fetch join, bulk index vào ES và embed mọi biến thể trong một lần gọi.
+ * Lô lỗi thì index lại từng sản phẩm: chỉ message của sản phẩm vẫn lỗi mới bị chuyển sang DLQ, phần còn lại được ack.
+ * Nếu không sản phẩm nào index được (ES/DB đang sập) thì ném lỗi để cả lô đi theo retry của container như cũ.
+ */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class ProductIndexingConsumer {
 
     private final ProductSearchService productSearchService;
     private final VectorStoreService vectorStoreService;
+    private final MeterRegistry meterRegistry;
+    private final RabbitTemplate rabbitTemplate;
+
+    @RabbitListener(queues = RabbitConfig.QUEUE_INDEX, containerFactory = RabbitConfig.INDEX_BATCH_CONTAINER_FACTORY)
+    public void handleProductsCreated(List<Message<ProductCreatedMessage>> messages) {
+        DistributionSummary.builder("product.index.batch.size")
+                .description("Số message trong mỗi lô index sản phẩm")
+                .register(meterRegistry)
+                .record(messages.size());
+
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (Message<ProductCreatedMessage> message : messages) {
+            if (message.getPayload() != null && message.getPayload().productId() != null) {
+                productIds.add(message.getPayload().productId());
+            }
+        }
+        if (productIds.isEmpty()) return;
+
+        try {
+            int indexed = index(productIds);
+            log.debug("Indexed {} products from {} messages", indexed, messages.size());
+        } catch (RuntimeException batchFailure) {
+            log.warn("Index batch of {} products failed, retrying one by one: {}",
+                    productIds.size(), batchFailure.getMessage());
+            Map<Long, RuntimeException> failures = indexIndividually(productIds);
+            if (failures.size() == productIds.size()) throw batchFailure;
+            deadLetter(messages, failures);
+        }
+
+        recordLag(messages);
+    }
+
+    // Load + index ES + embed cho một tập sản phẩm, trả về số sản phẩm đã index
+    private int index(Set<Long> productIds) {
+        List<Product> products = timeStage("load",
+                () -> productSearchService.loadProductsForIndexing(new ArrayList<>(productIds)));
 
-    @RabbitListener(queues = "product.index.queue")
-    public void handleProductCreated(ProductCreatedEvent event) {
+        timeStage("search", () -> {
+            productSearchService.indexProducts(products);
+            // Sản phẩm đã bị xóa trước khi message được xử lý: gỡ khỏi index
+            Set<Long> missing = new HashSet<>(productIds);
+            products.forEach(product -> missing.remove(product.getId()));
+            missing.forEach(productSearchService::deleteProduct);
+            return null;
+        });
 
-        Product product = productSearchService
-                .loadProductForIndexing(event.productId())
-                .orElseThrow();
+        timeStage("vector", () -> {
+            vectorStoreService.indexProductVariants(products.stream()
+                    .flatMap(product -> product.getProductVariants().stream())
+                    .toList());
+            return null;
+        });
+        return products.size();
+    }
+
+    private Map<Long, RuntimeException> indexIndividually(Set<Long> productIds) {
+        Map<Long, RuntimeException> failures = new LinkedHashMap<>();
+        for (Long productId : productIds) {
+            try {
+                index(Set.of(productId));
+            } catch (RuntimeException e) {
+                failures.put(productId, e);
+            }
+        }
+        return failures;
+    }
+
+    // Gửi thẳng sang DLX giống khi container reject, kèm lý do lỗi; các message khác của lô vẫn được ack
+    private void deadLetter(List<Message<ProductCreatedMessage>> messages, Map<Long, RuntimeException> failures) {
+        Counter deadLettered = Counter.builder("product.index.dead-lettered")
+                .description("Số message index sản phẩm bị chuyển sang DLQ sau khi index riêng vẫn lỗi")
+                .register(meterRegistry);
+        for (Message<ProductCreatedMessage> message : messages) {
+            ProductCreatedMessage payload = message.getPayload();
+            RuntimeException failure = payload != null ? failures.get(payload.productId()) : null;
+            if (failure == null) continue;
 
-        productSearchService.indexProduct(product);
+            log.error("Product {} could not be indexed, sending to {}: {}",
+                    payload.productId(), RabbitConfig.QUEUE_INDEX_DEAD_LETTER, failure.getMessage());
+            rabbitTemplate.convertAndSend(RabbitConfig.DEAD_LETTER_EXCHANGE, RabbitConfig.ROUTING_KEY, payload,
+                    deadLetter -> {
+                        deadLetter.getMessageProperties().setHeader("x-exception-message", failure.getMessage());
+                        deadLetter.getMessageProperties().setHeader("x-original-queue", RabbitConfig.QUEUE_INDEX);
+                        return deadLetter;
+                    });
+            deadLettered.increment();
+        }
+    }
+
+    private <T> T timeStage(String stage, Supplier<T> work) {
+        return Timer.builder("product.index.stage.duration")
+                .description("Thời gian từng bước của một lô index sản phẩm")
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .record(work);
+    }
 
-        product.getProductVariants()
-                .forEach(vectorStoreService::indexProductVariant);
+    // Độ trễ từ lúc publish (timestamp của message) đến lúc cả lô index xong
+    private void recordLag(List<Message<ProductCreatedMessage>> messages) {
+        Timer lag = Timer.builder("product.index.lag")
+                .description("Độ trễ từ lúc publish đến lúc sản phẩm được index")
+                .register(meterRegistry);
+        long now = System.currentTimeMillis();
+        for (Message<ProductCreatedMessage> message : messages) {
+            Object timestamp = message.getHeaders().get(AmqpHeaders.TIMESTAMP);
+            if (timestamp instanceof Date date) {
+                lag.record(Duration.ofMillis(Math.max(0, now - date.getTime())));
+            }
+        }
     }
 }
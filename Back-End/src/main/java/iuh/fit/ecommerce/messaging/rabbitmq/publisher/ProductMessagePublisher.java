@@ -9,6 +9,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionPhase;
 import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.Date;
+
 @Component
 @RequiredArgsConstructor
 public class ProductMessagePublisher {
@@ -22,7 +24,12 @@ public class ProductMessagePublisher {
         rabbitTemplate.convertAndSend(
                 RabbitConfig.EXCHANGE,
                 RabbitConfig.ROUTING_KEY,
-                new ProductCreatedMessage(event.productId())
+                new ProductCreatedMessage(event.productId()),
+                // Consumer dùng timestamp để đo độ trễ từ lúc publish đến lúc index xong
+                message -> {
+                    message.getMessageProperties().setTimestamp(new Date());
+                    return message;
+                }
         );
     }
-}
\ No newline at end of file
+}
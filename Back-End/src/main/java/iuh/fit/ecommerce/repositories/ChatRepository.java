@@ -3,11 +3,14 @@ package iuh.fit.ecommerce.repositories;
 import iuh.fit.ecommerce.entities.Chat;
 import iuh.fit.ecommerce.entities.Customer;
 import iuh.fit.ecommerce.entities.Staff;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,14 +19,75 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
     
     Optional<Chat> findByCustomerId(Long customerId);
     
-    List<Chat> findByStaffId(Long staffId);
-    
     @Query("SELECT c FROM Chat c WHERE c.staff.id = :staffId OR c.customer.id = :userId")
     List<Chat> findChatsByUserId(@Param("userId") Long userId, @Param("staffId") Long staffId);
     
-    @Query("SELECT c FROM Chat c WHERE c.staff IS NULL")
-    List<Chat> findUnassignedChats();
-    
     boolean existsByCustomerId(Long customerId);
+
+    // Keyset trên (lastActivityAt, id) giảm dần, khớp index idx_chats_last_activity / idx_chats_staff_last_activity
+    @Query("""
+            SELECT c FROM Chat c
+            LEFT JOIN FETCH c.customer
+            LEFT JOIN FETCH c.staff
+            LEFT JOIN FETCH c.lastMessage lm
+            LEFT JOIN FETCH lm.sender
+            WHERE (:staffId IS NULL OR c.staff.id = :staffId)
+              AND (:unassigned = false OR c.staff IS NULL)
+              AND (:cursorAt IS NULL OR c.lastActivityAt < :cursorAt
+                   OR (c.lastActivityAt = :cursorAt AND c.id < :cursorId))
+            ORDER BY c.lastActivityAt DESC, c.id DESC
+            """)
+    List<Chat> findInboxPage(@Param("staffId") Long staffId,
+                             @Param("unassigned") boolean unassigned,
+                             @Param("cursorAt") LocalDateTime cursorAt,
+                             @Param("cursorId") Long cursorId,
+                             Pageable pageable);
+
+    // Cộng dồn trên DB để hai tin gửi đồng thời không làm mất lượt đếm.
+    // Tin commit sau nhưng có id nhỏ hơn không được ghi đè tóm tắt của tin mới hơn.
+    // MySQL gán SET từ trái sang phải (vế sau thấy giá trị mới) nên last_activity_at phải đứng trước last_message_id
+    @Modifying
+    @Query(value = """
+            UPDATE chats c SET
+                c.last_activity_at = CASE WHEN c.last_message_id IS NULL OR c.last_message_id < :messageId
+                    THEN :sentAt ELSE c.last_activity_at END,
+                c.last_message_id = CASE WHEN c.last_message_id IS NULL OR c.last_message_id < :messageId
+                    THEN :messageId ELSE c.last_message_id END,
+                c.customer_unread_count = COALESCE(c.customer_unread_count, 0) + :customerIncrement,
+                c.staff_unread_count = COALESCE(c.staff_unread_count, 0) + :staffIncrement
+            WHERE c.id = :chatId
+            """, nativeQuery = true)
+    int recordMessage(@Param("chatId") Long chatId,
+                      @Param("messageId") Long messageId,
+                      @Param("sentAt") LocalDateTime sentAt,
+                      @Param("customerIncrement") int customerIncrement,
+                      @Param("staffIncrement") int staffIncrement);
+
+    // markMessagesAsRead đánh dấu mọi tin của chat là đã đọc, nên cả hai bộ đếm về 0
+    @Modifying
+    @Query("UPDATE Chat c SET c.customerUnreadCount = 0, c.staffUnreadCount = 0 WHERE c.id = :chatId")
+    int resetUnreadCounts(@Param("chatId") Long chatId);
+
+    // Dựng tóm tắt cho các chat có từ trước khi thêm cột
+    @Modifying
+    @Query(value = """
+            UPDATE chats c
+            LEFT JOIN (
+                SELECT m.chat_id,
+                       MAX(m.id) AS last_message_id,
+                       MAX(m.created_at) AS last_message_at,
+                       SUM(CASE WHEN m.status = FALSE AND m.sender_id = ch.customer_id THEN 1 ELSE 0 END) AS staff_unread,
+                       SUM(CASE WHEN m.status = FALSE AND m.sender_id <> ch.customer_id THEN 1 ELSE 0 END) AS customer_unread
+                FROM messages m
+                JOIN chats ch ON ch.id = m.chat_id
+                GROUP BY m.chat_id
+            ) s ON s.chat_id = c.id
+            SET c.last_message_id = s.last_message_id,
+                c.last_activity_at = COALESCE(s.last_message_at, c.created_at, NOW()),
+                c.staff_unread_count = COALESCE(s.staff_unread, 0),
+                c.customer_unread_count = COALESCE(s.customer_unread, 0)
+            WHERE c.last_activity_at IS NULL
+            """, nativeQuery = true)
+    int backfillSummaries();
 }
 
@@ -1,16 +1,23 @@
 package iuh.fit.ecommerce.repositories;
 
+import iuh.fit.ecommerce.dtos.excel.CustomerExcelDTO;
 import iuh.fit.ecommerce.entities.Customer;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
@@ -41,4 +48,18 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
     @Query("SELECT COUNT(c) FROM Customer c WHERE c.createdAt BETWEEN :startDate AND :endDate")
     Long countNewCustomersByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    // Stream cho Excel export: constructor expression nên không nạp entity (và ranking EAGER), MySQL trả từng dòng
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new iuh.fit.ecommerce.dtos.excel.CustomerExcelDTO(c.email, c.fullName, c.phone, c.dateOfBirth) " +
+            "FROM Customer c ORDER BY c.id")
+    Stream<CustomerExcelDTO> streamAllForExport();
+
+    // Token bị Expo báo DeviceNotRegistered: bỏ đi để không gửi tiếp
+    @Modifying
+    @Query("UPDATE Customer c SET c.expoPushToken = NULL WHERE c.expoPushToken IN :tokens")
+    int clearExpoPushTokens(@Param("tokens") Collection<String> tokens);
 }
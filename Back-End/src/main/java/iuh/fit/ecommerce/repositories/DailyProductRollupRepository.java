@@ -0,0 +1,80 @@
+package iuh.fit.ecommerce.repositories;
+
+import iuh.fit.ecommerce.dtos.projection.DailyMetricProjection;
+import iuh.fit.ecommerce.dtos.projection.TopProductProjection;
+import iuh.fit.ecommerce.entities.DailyProductRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyProductRollupRepository extends JpaRepository<DailyProductRollup, Long> {
+
+    @Modifying
+    @Query("DELETE FROM DailyProductRollup r WHERE r.rollupDate = :day")
+    void deleteByDay(@Param("day") LocalDate day);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO daily_product_rollups (rollup_date, product_id, quantity_sold, revenue)
+        SELECT :day, pv.product_id, SUM(od.quantity), COALESCE(SUM(od.final_price), 0)
+        FROM order_detail od
+        JOIN product_variants pv ON od.product_variant_id = pv.id
+        JOIN orders o ON od.order_id = o.id
+        WHERE o.order_date >= :start AND o.order_date < :end
+            AND o.status = 'COMPLETED'
+        GROUP BY pv.product_id
+    """, nativeQuery = true)
+    void insertFromOrders(@Param("day") LocalDate day,
+                          @Param("start") LocalDateTime start,
+                          @Param("end") LocalDateTime end);
+
+    // Sản phẩm bán chạy trong khoảng ngày, chỉ join products sau khi đã gộp rollup
+    @Query(value = """
+        SELECT p.id as productId,
+               p.name as productName,
+               p.thumbnail as productImage,
+               SUM(r.quantity_sold) as totalQuantitySold,
+               SUM(r.revenue) as totalRevenue
+        FROM daily_product_rollups r
+        JOIN products p ON r.product_id = p.id
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+        GROUP BY p.id, p.name, p.thumbnail
+        ORDER BY totalQuantitySold DESC
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<TopProductProjection> getTopProducts(@Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate,
+                                              @Param("limit") int limit);
+
+    @Query(value = """
+        SELECT r.rollup_date as day,
+               SUM(r.quantity_sold) as count,
+               SUM(r.revenue) as amount
+        FROM daily_product_rollups r
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+        GROUP BY r.rollup_date
+    """, nativeQuery = true)
+    List<DailyMetricProjection> findRollupTotals(@Param("startDate") LocalDate startDate,
+                                                 @Param("endDate") LocalDate endDate);
+
+    @Query(value = """
+        SELECT DATE(o.order_date) as day,
+               SUM(od.quantity) as count,
+               COALESCE(SUM(od.final_price), 0) as amount
+        FROM order_detail od
+        JOIN product_variants pv ON od.product_variant_id = pv.id
+        JOIN orders o ON od.order_id = o.id
+        WHERE o.order_date >= :start AND o.order_date < :end
+            AND o.status = 'COMPLETED'
+        GROUP BY DATE(o.order_date)
+    """, nativeQuery = true)
+    List<DailyMetricProjection> findRawTotals(@Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end);
+}
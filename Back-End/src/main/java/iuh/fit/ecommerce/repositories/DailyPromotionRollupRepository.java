@@ -0,0 +1,89 @@
+package iuh.fit.ecommerce.repositories;
+
+import iuh.fit.ecommerce.dtos.projection.DailyMetricProjection;
+import iuh.fit.ecommerce.dtos.projection.TopPromotionProjection;
+import iuh.fit.ecommerce.dtos.projection.UsageTotalProjection;
+import iuh.fit.ecommerce.entities.DailyPromotionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyPromotionRollupRepository extends JpaRepository<DailyPromotionRollup, Long> {
+
+    @Modifying
+    @Query("DELETE FROM DailyPromotionRollup r WHERE r.rollupDate = :day")
+    void deleteByDay(@Param("day") LocalDate day);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO daily_promotion_rollups (rollup_date, promotion_id, usage_count, discount_amount)
+        SELECT :day, pu.promotion_id, COUNT(pu.id), COALESCE(SUM(pu.discount_amount), 0)
+        FROM promotion_usages pu
+        JOIN order_detail od ON pu.order_detail_id = od.id
+        JOIN orders o ON od.order_id = o.id
+        WHERE o.order_date >= :start AND o.order_date < :end
+            AND pu.promotion_id IS NOT NULL
+        GROUP BY pu.promotion_id
+    """, nativeQuery = true)
+    void insertFromUsages(@Param("day") LocalDate day,
+                          @Param("start") LocalDateTime start,
+                          @Param("end") LocalDateTime end);
+
+    @Query(value = """
+        SELECT p.id as promotionId,
+               p.name as promotionName,
+               p.promotion_type as promotionType,
+               SUM(r.usage_count) as usageCount,
+               COALESCE(SUM(r.discount_amount), 0) as totalDiscountAmount
+        FROM daily_promotion_rollups r
+        JOIN promotions p ON r.promotion_id = p.id
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+        GROUP BY p.id, p.name, p.promotion_type
+        ORDER BY usageCount DESC, totalDiscountAmount DESC
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<TopPromotionProjection> getTopPromotions(@Param("startDate") LocalDate startDate,
+                                                  @Param("endDate") LocalDate endDate,
+                                                  @Param("limit") int limit);
+
+    @Query(value = """
+        SELECT COALESCE(SUM(r.usage_count), 0) as usageCount,
+               COALESCE(SUM(r.discount_amount), 0) as discountAmount
+        FROM daily_promotion_rollups r
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+    """, nativeQuery = true)
+    UsageTotalProjection sumByDateRange(@Param("startDate") LocalDate startDate,
+                                        @Param("endDate") LocalDate endDate);
+
+    @Query(value = """
+        SELECT r.rollup_date as day,
+               SUM(r.usage_count) as count,
+               SUM(r.discount_amount) as amount
+        FROM daily_promotion_rollups r
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+        GROUP BY r.rollup_date
+    """, nativeQuery = true)
+    List<DailyMetricProjection> findRollupTotals(@Param("startDate") LocalDate startDate,
+                                                 @Param("endDate") LocalDate endDate);
+
+    @Query(value = """
+        SELECT DATE(o.order_date) as day,
+               COUNT(pu.id) as count,
+               COALESCE(SUM(pu.discount_amount), 0) as amount
+        FROM promotion_usages pu
+        JOIN order_detail od ON pu.order_detail_id = od.id
+        JOIN orders o ON od.order_id = o.id
+        WHERE o.order_date >= :start AND o.order_date < :end
+            AND pu.promotion_id IS NOT NULL
+        GROUP BY DATE(o.order_date)
+    """, nativeQuery = true)
+    List<DailyMetricProjection> findRawTotals(@Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end);
+}
@@ -0,0 +1,113 @@
+package iuh.fit.ecommerce.repositories;
+
+import iuh.fit.ecommerce.dtos.projection.DailyRevenueCheckProjection;
+import iuh.fit.ecommerce.dtos.projection.RevenueByDayProjection;
+import iuh.fit.ecommerce.dtos.projection.RevenueByMonthProjection;
+import iuh.fit.ecommerce.dtos.projection.RevenueByYearProjection;
+import iuh.fit.ecommerce.dtos.projection.RevenueRollupTotalProjection;
+import iuh.fit.ecommerce.entities.DailyRevenueRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyRevenueRollupRepository extends JpaRepository<DailyRevenueRollup, LocalDate> {
+
+    @Modifying
+    @Query("DELETE FROM DailyRevenueRollup r WHERE r.rollupDate = :day")
+    void deleteByDay(@Param("day") LocalDate day);
+
+    // Tính lại rollup của một ngày từ bảng orders (range trên order_date để dùng được index)
+    @Modifying
+    @Query(value = """
+        INSERT INTO daily_revenue_rollups (rollup_date, revenue, completed_order_count, order_count, updated_at)
+        SELECT :day,
+               COALESCE(SUM(CASE WHEN o.status = 'COMPLETED' THEN o.final_total_price ELSE 0 END), 0),
+               COALESCE(SUM(CASE WHEN o.status = 'COMPLETED' THEN 1 ELSE 0 END), 0),
+               COUNT(o.id),
+               CURRENT_TIMESTAMP
+        FROM orders o
+        WHERE o.order_date >= :start AND o.order_date < :end
+    """, nativeQuery = true)
+    void insertFromOrders(@Param("day") LocalDate day,
+                          @Param("start") LocalDateTime start,
+                          @Param("end") LocalDateTime end);
+
+    @Query(value = """
+        SELECT COALESCE(SUM(r.revenue), 0) as revenue,
+               COALESCE(SUM(r.order_count), 0) as orderCount,
+               COALESCE(SUM(r.completed_order_count), 0) as completedOrderCount
+        FROM daily_revenue_rollups r
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+    """, nativeQuery = true)
+    RevenueRollupTotalProjection sumByDateRange(@Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+
+    @Query(value = """
+        SELECT MONTH(r.rollup_date) as month,
+               COALESCE(SUM(r.revenue), 0) as revenue,
+               COALESCE(SUM(r.order_count), 0) as orderCount
+        FROM daily_revenue_rollups r
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+        GROUP BY MONTH(r.rollup_date)
+    """, nativeQuery = true)
+    List<RevenueByMonthProjection> getRevenueByMonth(@Param("startDate") LocalDate startDate,
+                                                     @Param("endDate") LocalDate endDate);
+
+    @Query(value = """
+        SELECT r.rollup_date as orderDate,
+               r.revenue as revenue,
+               r.completed_order_count as orderCount
+        FROM daily_revenue_rollups r
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+            AND r.completed_order_count > 0
+        ORDER BY r.rollup_date ASC
+    """, nativeQuery = true)
+    List<RevenueByDayProjection> getRevenueByDay(@Param("startDate") LocalDate startDate,
+                                                 @Param("endDate") LocalDate endDate);
+
+    @Query(value = """
+        SELECT YEAR(r.rollup_date) as year,
+               COALESCE(SUM(r.revenue), 0) as revenue,
+               COALESCE(SUM(r.completed_order_count), 0) as orderCount
+        FROM daily_revenue_rollups r
+        WHERE r.completed_order_count > 0
+            AND (:year IS NULL OR YEAR(r.rollup_date) = :year)
+        GROUP BY YEAR(r.rollup_date)
+        ORDER BY year ASC
+    """, nativeQuery = true)
+    List<RevenueByYearProjection> getRevenueByYear(@Param("year") Integer year);
+
+    @Query(value = """
+        SELECT r.rollup_date as day,
+               r.revenue as revenue,
+               r.order_count as orderCount,
+               r.completed_order_count as completedOrderCount
+        FROM daily_revenue_rollups r
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+    """, nativeQuery = true)
+    List<DailyRevenueCheckProjection> findRollupTotals(@Param("startDate") LocalDate startDate,
+                                                       @Param("endDate") LocalDate endDate);
+
+    // Số liệu gốc từ bảng orders, dùng để đối soát với rollup
+    @Query(value = """
+        SELECT DATE(o.order_date) as day,
+               COALESCE(SUM(CASE WHEN o.status = 'COMPLETED' THEN o.final_total_price ELSE 0 END), 0) as revenue,
+               COUNT(o.id) as orderCount,
+               COALESCE(SUM(CASE WHEN o.status = 'COMPLETED' THEN 1 ELSE 0 END), 0) as completedOrderCount
+        FROM orders o
+        WHERE o.order_date >= :start AND o.order_date < :end
+        GROUP BY DATE(o.order_date)
+    """, nativeQuery = true)
+    List<DailyRevenueCheckProjection> findRawTotals(@Param("start") LocalDateTime start,
+                                                    @Param("end") LocalDateTime end);
+
+    @Query(value = "SELECT MIN(o.order_date) FROM orders o", nativeQuery = true)
+    LocalDateTime findFirstOrderDate();
+}
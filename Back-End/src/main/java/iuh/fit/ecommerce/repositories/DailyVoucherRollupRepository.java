@@ -0,0 +1,87 @@
+package iuh.fit.ecommerce.repositories;
+
+import iuh.fit.ecommerce.dtos.projection.DailyMetricProjection;
+import iuh.fit.ecommerce.dtos.projection.TopVoucherProjection;
+import iuh.fit.ecommerce.dtos.projection.UsageTotalProjection;
+import iuh.fit.ecommerce.entities.DailyVoucherRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyVoucherRollupRepository extends JpaRepository<DailyVoucherRollup, Long> {
+
+    @Modifying
+    @Query("DELETE FROM DailyVoucherRollup r WHERE r.rollupDate = :day")
+    void deleteByDay(@Param("day") LocalDate day);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO daily_voucher_rollups (rollup_date, voucher_id, usage_count, discount_amount)
+        SELECT :day, vuh.voucher_id, COUNT(vuh.id), COALESCE(SUM(vuh.discount_amount), 0)
+        FROM voucher_usage_histories vuh
+        JOIN orders o ON vuh.order_id = o.id
+        WHERE o.order_date >= :start AND o.order_date < :end
+            AND vuh.voucher_id IS NOT NULL
+        GROUP BY vuh.voucher_id
+    """, nativeQuery = true)
+    void insertFromUsages(@Param("day") LocalDate day,
+                          @Param("start") LocalDateTime start,
+                          @Param("end") LocalDateTime end);
+
+    @Query(value = """
+        SELECT v.id as voucherId,
+               v.code as voucherCode,
+               v.name as voucherName,
+               SUM(r.usage_count) as usageCount,
+               COALESCE(SUM(r.discount_amount), 0) as totalDiscountAmount
+        FROM daily_voucher_rollups r
+        JOIN vouchers v ON r.voucher_id = v.id
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+        GROUP BY v.id, v.code, v.name
+        ORDER BY usageCount DESC
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<TopVoucherProjection> getTopVouchers(@Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate,
+                                              @Param("limit") int limit);
+
+    @Query(value = """
+        SELECT COALESCE(SUM(r.usage_count), 0) as usageCount,
+               COALESCE(SUM(r.discount_amount), 0) as discountAmount
+        FROM daily_voucher_rollups r
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+    """, nativeQuery = true)
+    UsageTotalProjection sumByDateRange(@Param("startDate") LocalDate startDate,
+                                        @Param("endDate") LocalDate endDate);
+
+    @Query(value = """
+        SELECT r.rollup_date as day,
+               SUM(r.usage_count) as count,
+               SUM(r.discount_amount) as amount
+        FROM daily_voucher_rollups r
+        WHERE r.rollup_date BETWEEN :startDate AND :endDate
+        GROUP BY r.rollup_date
+    """, nativeQuery = true)
+    List<DailyMetricProjection> findRollupTotals(@Param("startDate") LocalDate startDate,
+                                                 @Param("endDate") LocalDate endDate);
+
+    @Query(value = """
+        SELECT DATE(o.order_date) as day,
+               COUNT(vuh.id) as count,
+               COALESCE(SUM(vuh.discount_amount), 0) as amount
+        FROM voucher_usage_histories vuh
+        JOIN orders o ON vuh.order_id = o.id
+        WHERE o.order_date >= :start AND o.order_date < :end
+            AND vuh.voucher_id IS NOT NULL
+        GROUP BY DATE(o.order_date)
+    """, nativeQuery = true)
+    List<DailyMetricProjection> findRawTotals(@Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end);
+}
@@ -1,6 +1,7 @@
 package iuh.fit.ecommerce.repositories;
 
 import iuh.fit.ecommerce.entities.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,15 +9,16 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
     
-    List<Message> findByChatIdOrderByCreatedAtAsc(Long chatId);
-    
-    @Query("SELECT m FROM Message m LEFT JOIN FETCH m.sender WHERE m.chat.id = :chatId ORDER BY m.createdAt ASC")
-    List<Message> findByChatIdWithSenderOrderByCreatedAtAsc(@Param("chatId") Long chatId);
+    // Lịch sử tin nhắn theo cursor: id IDENTITY tăng dần theo thời gian gửi, dùng được index (chat_id, id)
+    @Query("SELECT m FROM Message m LEFT JOIN FETCH m.sender " +
+            "WHERE m.chat.id = :chatId AND (:beforeId IS NULL OR m.id < :beforeId) ORDER BY m.id DESC")
+    List<Message> findPageByChatId(@Param("chatId") Long chatId,
+                                   @Param("beforeId") Long beforeId,
+                                   Pageable pageable);
     
     @Query("SELECT m FROM Message m WHERE m.chat.id = :chatId AND m.status = false")
     List<Message> findUnreadMessagesByChatId(@Param("chatId") Long chatId);
@@ -28,11 +30,5 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     @Query("SELECT COUNT(m) FROM Message m WHERE m.chat.id = :chatId AND m.status = false AND m.sender.id = :userId")
     Long countUnreadMessagesByChatIdAndUserId(@Param("chatId") Long chatId, @Param("userId") Long userId);
 
-    // Count unread messages NOT from userId (messages received by userId that are unread)
-    @Query("SELECT COUNT(m) FROM Message m WHERE m.chat.id = :chatId AND m.status = false AND m.sender.id != :userId")
-    Long countUnreadMessagesByChatIdNotFromUserId(@Param("chatId") Long chatId, @Param("userId") Long userId);
-
-
-    Optional<Message> findTopByChat_IdOrderByCreatedAtDesc(Long chatId);
 }
 
@@ -1,13 +1,13 @@
 package iuh.fit.ecommerce.repositories;
 
-import iuh.fit.ecommerce.dtos.projection.RevenueByDayProjection;
-import iuh.fit.ecommerce.dtos.projection.RevenueByYearProjection;
+import iuh.fit.ecommerce.dtos.projection.ExpiredPaymentOrderProjection;
 import iuh.fit.ecommerce.entities.Customer;
 import iuh.fit.ecommerce.enums.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import iuh.fit.ecommerce.entities.Order;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -35,6 +35,19 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
 
     // Find orders by customerId with pagination
     List<Order> findByCustomerId(Long customerId, Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.customer.id = :customerId ORDER BY o.id DESC")
+    List<Long> findRecentIdsByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    @Query("""
+        SELECT DISTINCT o FROM Order o
+        LEFT JOIN FETCH o.orderDetails od
+        LEFT JOIN FETCH od.productVariant pv
+        LEFT JOIN FETCH pv.product
+        WHERE o.id IN :ids
+        ORDER BY o.id DESC
+    """)
+    List<Order> findAllWithDetailsByIdIn(@Param("ids") List<Long> ids);
     
     //  Tính tổng doanh thu
     @Query("SELECT COALESCE(SUM(o.finalTotalPrice), 0.0) FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate AND o.status = 'COMPLETED'")
@@ -44,39 +57,6 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
     @Query("SELECT COUNT(o) FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate")
     Long countByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
-
-    //Doanh thu theo từng ngày
-    @Query(value = """
-        SELECT DATE(o.order_date) as orderDate,
-               COALESCE(SUM(o.final_total_price), 0) as revenue,
-               COUNT(*) as orderCount
-        FROM orders o
-        WHERE o.order_date BETWEEN :startDate AND :endDate
-            AND o.status = 'COMPLETED'
-        GROUP BY DATE(o.order_date)
-        ORDER BY orderDate ASC
-    """, nativeQuery = true)
-    List<RevenueByDayProjection> getRevenueByDay(
-        @Param("startDate") LocalDateTime startDate,
-        @Param("endDate") LocalDateTime endDate
-    );
-    
-    //Doanh thu theo từng năm
-    @Query(value = """
-        SELECT year_value as year,
-               COALESCE(SUM(o.final_total_price), 0) as revenue,
-               COUNT(*) as orderCount
-        FROM (
-            SELECT o.id, o.final_total_price, YEAR(o.order_date) as year_value
-            FROM orders o
-            WHERE o.status = 'COMPLETED'
-                AND (:year IS NULL OR YEAR(o.order_date) = :year)
-        ) o
-        GROUP BY year_value
-        ORDER BY year_value ASC
-    """, nativeQuery = true)
-    List<RevenueByYearProjection> getRevenueByYear(@Param("year") Integer year);
-    
     // Tìm đơn hàng theo khoảng thời gian và trạng thái
     @Query("""
         SELECT o FROM Order o
@@ -110,4 +90,44 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
         WHERE o.id = :orderId
     """)
     Order findByIdWithDetailsForEmail(@Param("orderId") Long orderId);
+
+    // Nhận một lô đơn quá hạn thanh toán chưa bị node khác giữ (hoặc lease đã hết hạn).
+    // Đơn tạo trước khi có cột payment_expires_at (NULL) thì tính hạn theo order_date
+    @Modifying
+    @Query(value = """
+        UPDATE orders
+        SET payment_lease_owner = :owner, payment_lease_until = :leaseUntil
+        WHERE status = 'PENDING_PAYMENT'
+            AND (payment_expires_at <= :now
+                OR (payment_expires_at IS NULL AND order_date <= :legacyOrderedBefore))
+            AND (payment_lease_until IS NULL OR payment_lease_until < :now)
+        ORDER BY COALESCE(payment_expires_at, order_date)
+        LIMIT :limit
+    """, nativeQuery = true)
+    int claimExpiredPendingPayments(@Param("owner") String owner,
+                                    @Param("now") LocalDateTime now,
+                                    @Param("legacyOrderedBefore") LocalDateTime legacyOrderedBefore,
+                                    @Param("leaseUntil") LocalDateTime leaseUntil,
+                                    @Param("limit") int limit);
+
+    // Khóa các đơn đã nhận; đơn vừa được thanh toán xong sẽ không còn PENDING_PAYMENT nên bị bỏ qua
+    @Query(value = """
+        SELECT o.id as id, o.order_date as orderDate
+        FROM orders o
+        WHERE o.payment_lease_owner = :owner
+            AND o.status = 'PENDING_PAYMENT'
+        FOR UPDATE
+    """, nativeQuery = true)
+    List<ExpiredPaymentOrderProjection> lockClaimedPendingPayments(@Param("owner") String owner);
+
+    @Modifying
+    @Query(value = """
+        UPDATE orders
+        SET status = 'PAYMENT_FAILED', payment_lease_owner = NULL, payment_lease_until = NULL
+        WHERE id IN (:orderIds) AND status = 'PENDING_PAYMENT'
+    """, nativeQuery = true)
+    int markPaymentFailed(@Param("orderIds") List<Long> orderIds);
+
+    @Query("SELECT o.status FROM Order o WHERE o.id = :orderId")
+    OrderStatus findStatusById(@Param("orderId") Long orderId);
 }
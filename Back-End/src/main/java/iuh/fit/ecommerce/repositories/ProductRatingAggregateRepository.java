@@ -0,0 +1,107 @@
+package iuh.fit.ecommerce.repositories;
+
+import iuh.fit.ecommerce.entities.ProductRatingAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductRatingAggregateRepository extends JpaRepository<ProductRatingAggregate, Long> {
+
+    // Cộng delta (+1/-1) vào đúng cột sao; upsert trên khóa chính nên hai request đồng thời không ghi đè nhau.
+    // Chặn dưới ở 0 để tổng hợp lệch không sinh số âm rồi bị chép sang products
+    @Modifying
+    @Query(value = """
+        INSERT INTO product_rating_aggregates
+            (product_id, star1_count, star2_count, star3_count, star4_count, star5_count, rating_sum, review_count)
+        VALUES (:productId,
+                GREATEST(IF(:rating = 1, :delta, 0), 0), GREATEST(IF(:rating = 2, :delta, 0), 0),
+                GREATEST(IF(:rating = 3, :delta, 0), 0), GREATEST(IF(:rating = 4, :delta, 0), 0),
+                GREATEST(IF(:rating = 5, :delta, 0), 0),
+                GREATEST(:rating * :delta, 0), GREATEST(:delta, 0))
+        ON DUPLICATE KEY UPDATE
+            star1_count = GREATEST(star1_count + IF(:rating = 1, :delta, 0), 0),
+            star2_count = GREATEST(star2_count + IF(:rating = 2, :delta, 0), 0),
+            star3_count = GREATEST(star3_count + IF(:rating = 3, :delta, 0), 0),
+            star4_count = GREATEST(star4_count + IF(:rating = 4, :delta, 0), 0),
+            star5_count = GREATEST(star5_count + IF(:rating = 5, :delta, 0), 0),
+            rating_sum = GREATEST(rating_sum + :rating * :delta, 0),
+            review_count = GREATEST(review_count + :delta, 0)
+    """, nativeQuery = true)
+    void applyDelta(@Param("productId") Long productId,
+                    @Param("rating") int rating,
+                    @Param("delta") int delta);
+
+    // Chép tổng hợp sang các cột rating của products (dùng cho listing và ES)
+    @Modifying
+    @Query(value = """
+        UPDATE products p
+        LEFT JOIN product_rating_aggregates a ON a.product_id = p.id
+        SET p.total_rating = COALESCE(a.rating_sum, 0),
+            p.review_count = COALESCE(a.review_count, 0),
+            p.rating = CASE WHEN COALESCE(a.review_count, 0) > 0
+                            THEN ROUND(a.rating_sum / a.review_count, 1) ELSE 0 END
+        WHERE p.id IN :productIds
+    """, nativeQuery = true)
+    void syncProductRatings(@Param("productIds") Collection<Long> productIds);
+
+    // Sản phẩm có tổng hợp (hoặc cột rating trên products) lệch so với dữ liệu feedback gốc
+    @Query(value = """
+        SELECT t.product_id
+        FROM (
+            SELECT pv.product_id,
+                   SUM(f.rating = 1) AS s1, SUM(f.rating = 2) AS s2, SUM(f.rating = 3) AS s3,
+                   SUM(f.rating = 4) AS s4, SUM(f.rating = 5) AS s5,
+                   SUM(f.rating) AS total, COUNT(*) AS cnt
+            FROM feedbacks f
+            JOIN product_variants pv ON pv.id = f.product_variant_id
+            WHERE f.status = true
+            GROUP BY pv.product_id
+        ) t
+        LEFT JOIN product_rating_aggregates a ON a.product_id = t.product_id
+        WHERE a.product_id IS NULL
+            OR a.star1_count <> t.s1 OR a.star2_count <> t.s2 OR a.star3_count <> t.s3
+            OR a.star4_count <> t.s4 OR a.star5_count <> t.s5
+            OR a.rating_sum <> t.total OR a.review_count <> t.cnt
+        UNION
+        SELECT a.product_id
+        FROM product_rating_aggregates a
+        WHERE a.review_count <> 0
+            AND NOT EXISTS (
+                SELECT 1 FROM feedbacks f
+                JOIN product_variants pv ON pv.id = f.product_variant_id
+                WHERE pv.product_id = a.product_id AND f.status = true
+            )
+        UNION
+        SELECT p.id
+        FROM products p
+        LEFT JOIN product_rating_aggregates a ON a.product_id = p.id
+        WHERE COALESCE(p.review_count, 0) <> COALESCE(a.review_count, 0)
+            OR COALESCE(p.total_rating, 0) <> COALESCE(a.rating_sum, 0)
+    """, nativeQuery = true)
+    List<Long> findDriftedProductIds();
+
+    @Modifying
+    @Query("DELETE FROM ProductRatingAggregate a WHERE a.productId IN :productIds")
+    void deleteByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    // IGNORE: hai request cùng seed một sản phẩm chưa có dòng tổng hợp thì request sau bỏ qua
+    @Modifying
+    @Query(value = """
+        INSERT IGNORE INTO product_rating_aggregates
+            (product_id, star1_count, star2_count, star3_count, star4_count, star5_count, rating_sum, review_count)
+        SELECT pv.product_id,
+               SUM(f.rating = 1), SUM(f.rating = 2), SUM(f.rating = 3), SUM(f.rating = 4), SUM(f.rating = 5),
+               SUM(f.rating), COUNT(*)
+        FROM feedbacks f
+        JOIN product_variants pv ON pv.id = f.product_variant_id
+        WHERE f.status = true AND pv.product_id IN :productIds
+        GROUP BY pv.product_id
+    """, nativeQuery = true)
+    void insertFromFeedbacks(@Param("productIds") Collection<Long> productIds);
+}
@@ -1,15 +1,25 @@
 package iuh.fit.ecommerce.repositories;
 
+import iuh.fit.ecommerce.dtos.projection.CatalogWatermarkProjection;
+import iuh.fit.ecommerce.dtos.projection.FeaturedProductProjection;
+import iuh.fit.ecommerce.dtos.projection.ProductExportProjection;
+import iuh.fit.ecommerce.dtos.projection.ProductSearchFieldsProjection;
+import iuh.fit.ecommerce.entities.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
-import iuh.fit.ecommerce.entities.Product;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
     boolean existsByName(String name);
@@ -35,6 +45,24 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     @Query("SELECT p FROM Product p LEFT JOIN FETCH p.productImages WHERE p.id = :id")
     Optional<Product> findForIndexingWithProductImages(@Param("id") Long id);
 
+    @Query("SELECT p.id FROM Product p WHERE p.id > :lastId ORDER BY p.id ASC")
+    List<Long> findIdsAfter(@Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("""
+        SELECT DISTINCT p FROM Product p
+        LEFT JOIN FETCH p.brand
+        LEFT JOIN FETCH p.category
+        LEFT JOIN FETCH p.productVariants
+        WHERE p.id IN :ids
+    """)
+    List<Product> findAllForIndexing(@Param("ids") List<Long> ids);
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.attributes a LEFT JOIN FETCH a.attribute WHERE p.id IN :ids")
+    List<Product> findAllForIndexingWithAttributes(@Param("ids") List<Long> ids);
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.productFilterValues pfv LEFT JOIN FETCH pfv.filterValue WHERE p.id IN :ids")
+    List<Product> findAllForIndexingWithProductFilterValues(@Param("ids") List<Long> ids);
+
     @Query("SELECT DISTINCT p FROM Product p " +
            "LEFT JOIN p.productVariants pv " +
             "WHERE (:keyword IS NULL OR (" +
@@ -57,6 +85,74 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
             Pageable pageable
     );
 
+    // Stream toàn bộ sản phẩm cho Excel export, không nạp entity vào persistence context
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.id AS id, p.name AS name, p.spu AS spu, p.status AS status FROM Product p ORDER BY p.id")
+    Stream<ProductExportProjection> streamAllForExport();
+
+    // Dấu mốc catalog (số dòng + modified_at lớn nhất, epoch ms) để biết index ES có cần dựng lại khi khởi động.
+    // Bảng không có modified_at: product_filter_values dùng id lớn nhất, filter_values dùng checksum nội dung
+    @Query(value = """
+        SELECT (SELECT COUNT(*) FROM products) AS productCount,
+               (SELECT COALESCE(CAST(UNIX_TIMESTAMP(MAX(modified_at)) * 1000 AS SIGNED), 0) FROM products) AS productModifiedAt,
+               (SELECT COUNT(*) FROM product_variants) AS variantCount,
+               (SELECT COALESCE(CAST(UNIX_TIMESTAMP(MAX(modified_at)) * 1000 AS SIGNED), 0) FROM product_variants) AS variantModifiedAt,
+               (SELECT COUNT(*) FROM product_attribute_values) AS productAttributeValueCount,
+               (SELECT COALESCE(CAST(UNIX_TIMESTAMP(MAX(modified_at)) * 1000 AS SIGNED), 0) FROM product_attribute_values) AS productAttributeValueModifiedAt,
+               (SELECT COUNT(*) FROM product_variant_values) AS productVariantValueCount,
+               (SELECT COALESCE(CAST(UNIX_TIMESTAMP(MAX(modified_at)) * 1000 AS SIGNED), 0) FROM product_variant_values) AS productVariantValueModifiedAt,
+               (SELECT COUNT(*) FROM product_filter_values) AS productFilterValueCount,
+               (SELECT COALESCE(MAX(id), 0) FROM product_filter_values) AS productFilterValueMaxId,
+               (SELECT COUNT(*) FROM brands) AS brandCount,
+               (SELECT COALESCE(CAST(UNIX_TIMESTAMP(MAX(modified_at)) * 1000 AS SIGNED), 0) FROM brands) AS brandModifiedAt,
+               (SELECT COUNT(*) FROM categories) AS categoryCount,
+               (SELECT COALESCE(CAST(UNIX_TIMESTAMP(MAX(modified_at)) * 1000 AS SIGNED), 0) FROM categories) AS categoryModifiedAt,
+               (SELECT COUNT(*) FROM attributes) AS attributeCount,
+               (SELECT COALESCE(CAST(UNIX_TIMESTAMP(MAX(modified_at)) * 1000 AS SIGNED), 0) FROM attributes) AS attributeModifiedAt,
+               (SELECT COUNT(*) FROM variant_value) AS variantValueCount,
+               (SELECT COALESCE(CAST(UNIX_TIMESTAMP(MAX(modified_at)) * 1000 AS SIGNED), 0) FROM variant_value) AS variantValueModifiedAt,
+               (SELECT COUNT(*) FROM filter_values) AS filterValueCount,
+               (SELECT COALESCE(CAST(SUM(CRC32(CONCAT(id, ':', filter_criteria_id, ':', value))) AS SIGNED), 0) FROM filter_values) AS filterValueChecksum
+        """, nativeQuery = true)
+    CatalogWatermarkProjection findCatalogWatermark();
+
     @Query("SELECT COUNT(p) FROM Product p WHERE p.createdAt BETWEEN :startDate AND :endDate")
     Long countNewProductsByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
-}
\ No newline at end of file
+
+    // Các field của ProductDocument hay thay đổi, tính giống ProductHelper (tổng stock, min/max giá mọi biến thể)
+    @Query("""
+        SELECT p.id as productId,
+               COALESCE(SUM(pv.stock), 0) as stock,
+               MIN(pv.price) as minPrice,
+               MAX(pv.price) as maxPrice,
+               p.rating as rating,
+               p.status as status
+        FROM Product p
+        LEFT JOIN p.productVariants pv
+        WHERE p.id IN :ids
+        GROUP BY p.id, p.rating, p.status
+    """)
+    List<ProductSearchFieldsProjection> findSearchFieldsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.productImages WHERE p.id IN :ids")
+    List<Product> findAllWithProductImagesByIdIn(@Param("ids") List<Long> ids);
+
+    // Danh sách sản phẩm gợi ý cho trợ lý AI: chỉ lấy cột cần dùng, giá thấp nhất tính trong DB
+    @Query("""
+        SELECT p.name as name,
+               b.name as brandName,
+               c.name as categoryName,
+               MIN(pv.price) as minPrice
+        FROM Product p
+        JOIN p.brand b
+        JOIN p.category c
+        LEFT JOIN p.productVariants pv
+        WHERE p.status = true
+        GROUP BY p.id, p.name, b.name, c.name
+        ORDER BY p.id
+    """)
+    List<FeaturedProductProjection> findFeaturedProducts(Pageable pageable);
+}
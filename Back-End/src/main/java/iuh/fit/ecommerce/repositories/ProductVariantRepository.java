@@ -3,9 +3,11 @@ package iuh.fit.ecommerce.repositories;
 import iuh.fit.ecommerce.dtos.projection.MinVariantPriceProjection;
 import iuh.fit.ecommerce.entities.ProductVariant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
@@ -23,4 +25,24 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
         WHERE t.rn = 1
         """, nativeQuery = true)
     List<MinVariantPriceProjection> findMinPriceVariantByProductIds(@Param("productIds") List<Long> productIds);
+
+    // Hoàn tồn kho cho cả lô đơn bằng một câu lệnh, gộp số lượng theo biến thể
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        UPDATE product_variants pv
+        JOIN (
+            SELECT od.product_variant_id, SUM(od.quantity) AS quantity
+            FROM order_detail od
+            WHERE od.order_id IN (:orderIds)
+            GROUP BY od.product_variant_id
+        ) r ON pv.id = r.product_variant_id
+        SET pv.stock = COALESCE(pv.stock, 0) + r.quantity
+    """, nativeQuery = true)
+    int restockFromOrders(@Param("orderIds") List<Long> orderIds);
+
+    @Query("SELECT DISTINCT pv.product.id FROM ProductVariant pv WHERE pv.id IN :ids")
+    List<Long> findProductIdsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT od.productVariant.product.id FROM OrderDetail od WHERE od.order.id IN :orderIds")
+    List<Long> findProductIdsByOrderIds(@Param("orderIds") List<Long> orderIds);
 }
@@ -1,76 +1,24 @@
 package iuh.fit.ecommerce.repositories;
 
-import iuh.fit.ecommerce.dtos.projection.TopPromotionProjection;
+import iuh.fit.ecommerce.dtos.projection.PromotionUsageExportProjection;
 import iuh.fit.ecommerce.entities.OrderDetail;
 import iuh.fit.ecommerce.entities.PromotionUsage;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface PromotionUsageRepository extends JpaRepository<PromotionUsage, Long> {
 
-    // Top 5 promotions by day range
-    @Query(value = """
-            SELECT p.id as promotionId,
-                   p.name as promotionName,
-                   p.promotion_type as promotionType,
-                   COUNT(pu.id) as usageCount,
-                   COALESCE(SUM(pu.discount_amount), 0) as totalDiscountAmount
-            FROM promotion_usages pu
-            JOIN promotions p ON pu.promotion_id = p.id
-            JOIN order_detail od ON pu.order_detail_id = od.id
-            JOIN orders o ON od.order_id = o.id
-            WHERE o.order_date BETWEEN :startDate AND :endDate
-            GROUP BY p.id, p.name, p.promotion_type
-            ORDER BY usageCount DESC
-            LIMIT 5
-            """, nativeQuery = true)
-    List<TopPromotionProjection> getTopPromotionsByDay(@Param("startDate") LocalDateTime startDate,
-                                                        @Param("endDate") LocalDateTime endDate);
-
-    // Top 5 promotions by month
-    @Query(value = """
-            SELECT p.id as promotionId,
-                   p.name as promotionName,
-                   p.promotion_type as promotionType,
-                   COUNT(pu.id) as usageCount,
-                   COALESCE(SUM(pu.discount_amount), 0) as totalDiscountAmount
-            FROM promotion_usages pu
-            JOIN promotions p ON pu.promotion_id = p.id
-            JOIN order_detail od ON pu.order_detail_id = od.id
-            JOIN orders o ON od.order_id = o.id
-            WHERE YEAR(o.order_date) = :year AND MONTH(o.order_date) = :month
-            GROUP BY p.id, p.name, p.promotion_type
-            ORDER BY usageCount DESC
-            LIMIT 5
-            """, nativeQuery = true)
-    List<TopPromotionProjection> getTopPromotionsByMonth(@Param("year") Integer year,
-                                                          @Param("month") Integer month);
-
-    // Top 5 promotions by year
-    @Query(value = """
-            SELECT p.id as promotionId,
-                   p.name as promotionName,
-                   p.promotion_type as promotionType,
-                   COUNT(pu.id) as usageCount,
-                   COALESCE(SUM(pu.discount_amount), 0) as totalDiscountAmount
-            FROM promotion_usages pu
-            JOIN promotions p ON pu.promotion_id = p.id
-            JOIN order_detail od ON pu.order_detail_id = od.id
-            JOIN orders o ON od.order_id = o.id
-            WHERE YEAR(o.order_date) = :year
-            GROUP BY p.id, p.name, p.promotion_type
-            ORDER BY usageCount DESC
-            LIMIT 5
-            """, nativeQuery = true)
-    List<TopPromotionProjection> getTopPromotionsByYear(@Param("year") Integer year);
-
     // Tổng số lần sử dụng promotion theo khoảng thời gian
     @Query(value = """
             SELECT COUNT(pu.id)
@@ -93,69 +41,25 @@ public interface PromotionUsageRepository extends JpaRepository<PromotionUsage,
     Double sumPromotionDiscountByDateRange(@Param("startDate") LocalDateTime startDate,
                                             @Param("endDate") LocalDateTime endDate);
 
-    // Lấy tất cả promotion usage với thông tin chi tiết (cho Excel export)
-    @Query("SELECT pu FROM PromotionUsage pu " +
-           "JOIN FETCH pu.promotion p " +
-           "JOIN FETCH pu.orderDetail od " +
-           "JOIN FETCH od.order o " +
-           "JOIN FETCH o.customer c " +
+    // Stream promotion usage cho Excel export: projection phẳng, MySQL trả từng dòng (fetch size MIN_VALUE)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.id AS promotionId, p.name AS promotionName, p.promotionType AS promotionType, " +
+           "o.id AS orderId, od.id AS orderDetailId, o.orderDate AS orderDate, " +
+           "c.fullName AS customerName, c.phone AS customerPhone, pu.discountAmount AS discountAmount, " +
+           "od.price AS price, od.quantity AS quantity, od.finalPrice AS finalPrice, " +
+           "o.paymentMethod AS paymentMethod, o.status AS status " +
+           "FROM PromotionUsage pu " +
+           "JOIN pu.promotion p " +
+           "JOIN pu.orderDetail od " +
+           "JOIN od.order o " +
+           "JOIN o.customer c " +
            "WHERE o.orderDate BETWEEN :startDate AND :endDate " +
            "ORDER BY o.orderDate DESC")
-    List<PromotionUsage> findAllWithDetailsByDateRange(@Param("startDate") LocalDateTime startDate,
-                                                         @Param("endDate") LocalDateTime endDate);
-
-    // ALL promotions by day range (không giới hạn top 5)
-    @Query(value = """
-            SELECT p.id as promotionId,
-                   p.name as promotionName,
-                   p.promotion_type as promotionType,
-                   COUNT(pu.id) as usageCount,
-                   COALESCE(SUM(pu.discount_amount), 0) as totalDiscountAmount
-            FROM promotion_usages pu
-            JOIN promotions p ON pu.promotion_id = p.id
-            JOIN order_detail od ON pu.order_detail_id = od.id
-            JOIN orders o ON od.order_id = o.id
-            WHERE o.order_date BETWEEN :startDate AND :endDate
-            GROUP BY p.id, p.name, p.promotion_type
-            ORDER BY usageCount DESC, totalDiscountAmount DESC
-            """, nativeQuery = true)
-    List<TopPromotionProjection> getAllPromotionsByDay(@Param("startDate") LocalDateTime startDate,
-                                                        @Param("endDate") LocalDateTime endDate);
-
-    // ALL promotions by month (không giới hạn top 5)
-    @Query(value = """
-            SELECT p.id as promotionId,
-                   p.name as promotionName,
-                   p.promotion_type as promotionType,
-                   COUNT(pu.id) as usageCount,
-                   COALESCE(SUM(pu.discount_amount), 0) as totalDiscountAmount
-            FROM promotion_usages pu
-            JOIN promotions p ON pu.promotion_id = p.id
-            JOIN order_detail od ON pu.order_detail_id = od.id
-            JOIN orders o ON od.order_id = o.id
-            WHERE YEAR(o.order_date) = :year AND MONTH(o.order_date) = :month
-            GROUP BY p.id, p.name, p.promotion_type
-            ORDER BY usageCount DESC, totalDiscountAmount DESC
-            """, nativeQuery = true)
-    List<TopPromotionProjection> getAllPromotionsByMonth(@Param("year") Integer year,
-                                                          @Param("month") Integer month);
-
-    // ALL promotions by year (không giới hạn top 5)
-    @Query(value = """
-            SELECT p.id as promotionId,
-                   p.name as promotionName,
-                   p.promotion_type as promotionType,
-                   COUNT(pu.id) as usageCount,
-                   COALESCE(SUM(pu.discount_amount), 0) as totalDiscountAmount
-            FROM promotion_usages pu
-            JOIN promotions p ON pu.promotion_id = p.id
-            JOIN order_detail od ON pu.order_detail_id = od.id
-            JOIN orders o ON od.order_id = o.id
-            WHERE YEAR(o.order_date) = :year
-            GROUP BY p.id, p.name, p.promotion_type
-            ORDER BY usageCount DESC, totalDiscountAmount DESC
-            """, nativeQuery = true)
-    List<TopPromotionProjection> getAllPromotionsByYear(@Param("year") Integer year);
+    Stream<PromotionUsageExportProjection> streamForExportByDateRange(@Param("startDate") LocalDateTime startDate,
+                                                                       @Param("endDate") LocalDateTime endDate);
 
     // Lấy promotion usages theo promotion ID và date range (cho detail)
     @Query("SELECT pu FROM PromotionUsage pu " +
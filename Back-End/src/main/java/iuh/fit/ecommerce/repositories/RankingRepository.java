@@ -5,6 +5,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface RankingRepository extends JpaRepository<Ranking, Long> {
@@ -12,6 +14,8 @@ public interface RankingRepository extends JpaRepository<Ranking, Long> {
 
     Ranking findByName(String name);
 
+    List<Ranking> findAllByNameIn(Collection<String> names);
+
     @Query("""
         SELECT r FROM Ranking r
         WHERE :spending >= r.minSpending 
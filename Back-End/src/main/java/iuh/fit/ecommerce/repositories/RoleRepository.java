@@ -4,6 +4,7 @@ package iuh.fit.ecommerce.repositories;
 import org.springframework.data.jpa.repository.JpaRepository;
 import iuh.fit.ecommerce.entities.Role;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +14,6 @@ public interface RoleRepository extends JpaRepository<Role, Long> {
     boolean existsByName(String roleName);
 
     List<Role> findAllByIdIn(List<Long> roleIds);
+
+    List<Role> findAllByNameIn(Collection<String> names);
 }
\ No newline at end of file
@@ -1,15 +1,20 @@
 package iuh.fit.ecommerce.repositories;
 
+import iuh.fit.ecommerce.dtos.excel.StaffExcelDTO;
 import iuh.fit.ecommerce.entities.Staff;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface StaffRepository extends JpaRepository<Staff, Long> {
     boolean existsByEmail(String email);
@@ -55,4 +60,15 @@ public interface StaffRepository extends JpaRepository<Staff, Long> {
     List<Staff> findAllActiveStaffsOnly();
 
     Optional<Staff> findByEmail(String email);
+
+    // Stream cho Excel export: constructor expression nên không nạp entity/userRoles, MySQL trả từng dòng
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new iuh.fit.ecommerce.dtos.excel.StaffExcelDTO(" +
+            "s.email, s.fullName, s.phone, s.address, s.dateOfBirth, s.joinDate, s.leader, " +
+            "(SELECT MIN(r.name) FROM UserRole ur JOIN ur.role r WHERE ur.user = s)) " +
+            "FROM Staff s ORDER BY s.id")
+    Stream<StaffExcelDTO> streamAllForExport();
 }
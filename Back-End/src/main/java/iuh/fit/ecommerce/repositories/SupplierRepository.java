@@ -1,15 +1,22 @@
 package iuh.fit.ecommerce.repositories;
 
+import iuh.fit.ecommerce.dtos.excel.SupplierExcelDTO;
 import iuh.fit.ecommerce.entities.Supplier;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface SupplierRepository extends JpaRepository<Supplier, Long> {
@@ -34,5 +41,17 @@ public interface SupplierRepository extends JpaRepository<Supplier, Long> {
 
     boolean existsByPhoneAndIdNot(String phone, Long id);
 
+    @Query("SELECT s.phone FROM Supplier s WHERE s.phone IN :phones")
+    Set<String> findExistingPhones(@Param("phones") Collection<String> phones);
+
     Optional<Supplier> findByPhone(String phone);
+
+    // Stream cho Excel export, MySQL trả từng dòng thay vì nạp toàn bộ result set
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new iuh.fit.ecommerce.dtos.excel.SupplierExcelDTO(s.name, s.phone, s.address, s.status) " +
+            "FROM Supplier s ORDER BY s.id")
+    Stream<SupplierExcelDTO> streamAllForExport();
 }
\ No newline at end of file
@@ -1,12 +1,22 @@
 package iuh.fit.ecommerce.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import iuh.fit.ecommerce.entities.User;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT u.phone FROM User u WHERE u.phone IN :phones")
+    Set<String> findExistingPhones(@Param("phones") Collection<String> phones);
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package iuh.fit.ecommerce.repositories;
 
+import iuh.fit.ecommerce.dtos.projection.VoucherEligibilityCheckProjection;
+import iuh.fit.ecommerce.dtos.projection.VoucherEligibilityProjection;
 import iuh.fit.ecommerce.entities.Voucher;
 import iuh.fit.ecommerce.enums.VoucherType;
 import org.springframework.data.domain.Page;
@@ -31,4 +33,38 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
             , LocalDate startDateIsLessThan);
 
     boolean existsByCode(String code);
+
+    // Voucher khách dùng được hôm nay: được gán riêng (và đang active) hoặc loại ALL, và khách chưa dùng.
+    // Lịch sử cũ chưa có customer_id thì xác định khách qua đơn hàng
+    @Query("""
+        SELECT v AS voucher, vc.code AS assignedCode
+        FROM Voucher v
+        LEFT JOIN VoucherCustomer vc ON vc.voucher = v AND vc.customer.id = :customerId
+        WHERE v.startDate <= :today AND v.endDate >= :today
+          AND ((vc.id IS NOT NULL AND v.active = true) OR v.voucherType = :allType)
+          AND NOT EXISTS (
+              SELECT 1 FROM VoucherUsageHistory u LEFT JOIN u.order o
+              WHERE u.voucher = v
+                AND (u.customer.id = :customerId OR (u.customer IS NULL AND o.customer.id = :customerId))
+          )
+        """)
+    List<VoucherEligibilityProjection> findEligibleForCustomer(@Param("customerId") Long customerId,
+                                                               @Param("today") LocalDate today,
+                                                               @Param("allType") VoucherType allType);
+
+    // Kiểm tra lúc checkout trong một query: voucher đã gán cho khách chưa, khách đã dùng chưa
+    @Query("""
+        SELECT CASE WHEN EXISTS (
+                   SELECT 1 FROM VoucherCustomer vc WHERE vc.voucher.id = :voucherId AND vc.customer.id = :customerId
+               ) THEN true ELSE false END AS assigned,
+               CASE WHEN EXISTS (
+                   SELECT 1 FROM VoucherUsageHistory u LEFT JOIN u.order o
+                   WHERE u.voucher.id = :voucherId
+                     AND (u.customer.id = :customerId OR (u.customer IS NULL AND o.customer.id = :customerId))
+               ) THEN true ELSE false END AS used
+        FROM Voucher v
+        WHERE v.id = :voucherId
+        """)
+    VoucherEligibilityCheckProjection checkEligibility(@Param("voucherId") Long voucherId,
+                                                       @Param("customerId") Long customerId);
 }
\ No newline at end of file
@@ -1,83 +1,45 @@
 package iuh.fit.ecommerce.repositories;
 
-import iuh.fit.ecommerce.dtos.projection.TopVoucherProjection;
-import iuh.fit.ecommerce.entities.Customer;
+import iuh.fit.ecommerce.dtos.projection.VoucherUsageExportProjection;
 import iuh.fit.ecommerce.entities.Order;
 import iuh.fit.ecommerce.entities.Voucher;
 import iuh.fit.ecommerce.entities.VoucherUsageHistory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface VoucherUsageHistoryRepository extends JpaRepository<VoucherUsageHistory, Long> {
-    boolean existsByVoucherAndOrder_Customer(Voucher voucher, Customer customer);
     @Modifying
     void deleteByVoucherAndOrder(Voucher voucher, Order order);
 
     @Modifying
     void deleteByOrder(Order order);
-    List<VoucherUsageHistory> findAllByOrder_Customer(Customer customer);
 
-    boolean existsByOrder(Order order);
+    @Modifying
+    @Query("DELETE FROM VoucherUsageHistory v WHERE v.order.id IN :orderIds")
+    int deleteByOrderIds(@Param("orderIds") List<Long> orderIds);
 
-    // Top 5 vouchers by day range
+    // Điền customer_id cho các dòng tạo trước khi có cột này (chỉ chạm các dòng còn NULL)
+    @Modifying
     @Query(value = """
-            SELECT v.id as voucherId,
-                   v.code as voucherCode,
-                   v.name as voucherName,
-                   COUNT(vuh.id) as usageCount,
-                   COALESCE(SUM(vuh.discount_amount), 0) as totalDiscountAmount
-            FROM voucher_usage_histories vuh
-            JOIN vouchers v ON vuh.voucher_id = v.id
-            JOIN orders o ON vuh.order_id = o.id
-            WHERE o.order_date BETWEEN :startDate AND :endDate
-            GROUP BY v.id, v.code, v.name
-            ORDER BY usageCount DESC
-            LIMIT 5
+            UPDATE voucher_usage_histories vuh
+            JOIN orders o ON o.id = vuh.order_id
+            SET vuh.customer_id = o.customer_id
+            WHERE vuh.customer_id IS NULL AND o.customer_id IS NOT NULL
             """, nativeQuery = true)
-    List<TopVoucherProjection> getTopVouchersByDay(@Param("startDate") LocalDateTime startDate,
-                                                     @Param("endDate") LocalDateTime endDate);
+    int backfillCustomerIds();
 
-    // Top 5 vouchers by month
-    @Query(value = """
-            SELECT v.id as voucherId,
-                   v.code as voucherCode,
-                   v.name as voucherName,
-                   COUNT(vuh.id) as usageCount,
-                   COALESCE(SUM(vuh.discount_amount), 0) as totalDiscountAmount
-            FROM voucher_usage_histories vuh
-            JOIN vouchers v ON vuh.voucher_id = v.id
-            JOIN orders o ON vuh.order_id = o.id
-            WHERE YEAR(o.order_date) = :year AND MONTH(o.order_date) = :month
-            GROUP BY v.id, v.code, v.name
-            ORDER BY usageCount DESC
-            LIMIT 5
-            """, nativeQuery = true)
-    List<TopVoucherProjection> getTopVouchersByMonth(@Param("year") Integer year,
-                                                       @Param("month") Integer month);
-
-    // Top 5 vouchers by year
-    @Query(value = """
-            SELECT v.id as voucherId,
-                   v.code as voucherCode,
-                   v.name as voucherName,
-                   COUNT(vuh.id) as usageCount,
-                   COALESCE(SUM(vuh.discount_amount), 0) as totalDiscountAmount
-            FROM voucher_usage_histories vuh
-            JOIN vouchers v ON vuh.voucher_id = v.id
-            JOIN orders o ON vuh.order_id = o.id
-            WHERE YEAR(o.order_date) = :year
-            GROUP BY v.id, v.code, v.name
-            ORDER BY usageCount DESC
-            LIMIT 5
-            """, nativeQuery = true)
-    List<TopVoucherProjection> getTopVouchersByYear(@Param("year") Integer year);
+    boolean existsByOrder(Order order);
 
     // Tổng số lần sử dụng voucher theo khoảng thời gian
     @Query(value = """
@@ -99,14 +61,23 @@ public interface VoucherUsageHistoryRepository extends JpaRepository<VoucherUsag
     Double sumVoucherDiscountByDateRange(@Param("startDate") LocalDateTime startDate,
                                           @Param("endDate") LocalDateTime endDate);
 
-    // Lấy tất cả voucher usage với thông tin chi tiết (cho Excel export)
-    @Query("SELECT vuh FROM VoucherUsageHistory vuh " +
-           "JOIN FETCH vuh.voucher v " +
-           "JOIN FETCH vuh.order o " +
+    // Stream voucher usage cho Excel export: projection phẳng, MySQL trả từng dòng (fetch size MIN_VALUE)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT v.id AS voucherId, o.id AS orderId, o.orderDate AS orderDate, " +
+           "c.fullName AS customerName, c.phone AS customerPhone, " +
+           "v.code AS voucherCode, v.name AS voucherName, v.voucherType AS voucherType, " +
+           "vuh.discountAmount AS discountAmount, o.totalPrice AS totalPrice, o.finalTotalPrice AS finalTotalPrice " +
+           "FROM VoucherUsageHistory vuh " +
+           "JOIN vuh.voucher v " +
+           "JOIN vuh.order o " +
+           "LEFT JOIN o.customer c " +
            "WHERE o.orderDate BETWEEN :startDate AND :endDate " +
            "ORDER BY v.code")
-    List<VoucherUsageHistory> findAllWithDetailsByDateRange(@Param("startDate") LocalDateTime startDate,
-                                                              @Param("endDate") LocalDateTime endDate);
+    Stream<VoucherUsageExportProjection> streamForExportByDateRange(@Param("startDate") LocalDateTime startDate,
+                                                                     @Param("endDate") LocalDateTime endDate);
     
     // Lấy usage history theo voucher ID và khoảng thời gian
     @Query("SELECT vuh FROM VoucherUsageHistory vuh " +
@@ -125,53 +96,4 @@ public interface VoucherUsageHistoryRepository extends JpaRepository<VoucherUsag
            "WHERE v.id = :voucherId")
     java.util.Optional<VoucherUsageHistory> findFirstByVoucherId(@Param("voucherId") Long voucherId);
     
-    // ALL vouchers by day range (không giới hạn top 5)
-    @Query(value = """
-            SELECT v.id as voucherId,
-                   v.code as voucherCode,
-                   v.name as voucherName,
-                   COUNT(vuh.id) as usageCount,
-                   COALESCE(SUM(vuh.discount_amount), 0) as totalDiscountAmount
-            FROM voucher_usage_histories vuh
-            JOIN vouchers v ON vuh.voucher_id = v.id
-            JOIN orders o ON vuh.order_id = o.id
-            WHERE o.order_date BETWEEN :startDate AND :endDate
-            GROUP BY v.id, v.code, v.name
-            ORDER BY usageCount DESC
-            """, nativeQuery = true)
-    List<TopVoucherProjection> getAllVouchersByDay(@Param("startDate") LocalDateTime startDate,
-                                                     @Param("endDate") LocalDateTime endDate);
-
-    // ALL vouchers by month (không giới hạn top 5)
-    @Query(value = """
-            SELECT v.id as voucherId,
-                   v.code as voucherCode,
-                   v.name as voucherName,
-                   COUNT(vuh.id) as usageCount,
-                   COALESCE(SUM(vuh.discount_amount), 0) as totalDiscountAmount
-            FROM voucher_usage_histories vuh
-            JOIN vouchers v ON vuh.voucher_id = v.id
-            JOIN orders o ON vuh.order_id = o.id
-            WHERE YEAR(o.order_date) = :year AND MONTH(o.order_date) = :month
-            GROUP BY v.id, v.code, v.name
-            ORDER BY usageCount DESC
-            """, nativeQuery = true)
-    List<TopVoucherProjection> getAllVouchersByMonth(@Param("year") Integer year,
-                                                       @Param("month") Integer month);
-
-    // ALL vouchers by year (không giới hạn top 5)
-    @Query(value = """
-            SELECT v.id as voucherId,
-                   v.code as voucherCode,
-                   v.name as voucherName,
-                   COUNT(vuh.id) as usageCount,
-                   COALESCE(SUM(vuh.discount_amount), 0) as totalDiscountAmount
-            FROM voucher_usage_histories vuh
-            JOIN vouchers v ON vuh.voucher_id = v.id
-            JOIN orders o ON vuh.order_id = o.id
-            WHERE YEAR(o.order_date) = :year
-            GROUP BY v.id, v.code, v.name
-            ORDER BY usageCount DESC
-            """, nativeQuery = true)
-    List<TopVoucherProjection> getAllVouchersByYear(@Param("year") Integer year);
 }
@@ -0,0 +1,15 @@
+package iuh.fit.ecommerce.services;
+
+import iuh.fit.ecommerce.dtos.response.product.ProductResponse;
+
+import java.util.List;
+
+public interface AIContextService {
+    String buildCustomerContext(Long customerId);
+
+    String buildGuestContext();
+
+    String getFeaturedProductsContext();
+
+    List<ProductResponse> getProductCards(List<Long> productIds);
+}
@@ -1,8 +1,12 @@
 package iuh.fit.ecommerce.services;
 
 import iuh.fit.ecommerce.dtos.response.ai.ChatAIResponse;
+import iuh.fit.ecommerce.dtos.response.ai.ChatAIStreamEvent;
+import reactor.core.publisher.Flux;
 
 public interface AIService {
     ChatAIResponse chat(String message, Long customerId, String sessionId);
+
+    Flux<ChatAIStreamEvent> chatStream(String message, Long customerId, String sessionId);
 }
 
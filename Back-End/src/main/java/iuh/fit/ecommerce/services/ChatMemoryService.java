@@ -6,6 +6,7 @@ import java.util.List;
 
 public interface ChatMemoryService {
     void addMessage(String sessionId, String role, String content);
+    void addExchange(String sessionId, String userMessage, String assistantMessage);
     List<ChatHistoryMessage> getRecentMessages(String sessionId, int limit);
     void clearHistory(String sessionId);
 }
@@ -2,8 +2,10 @@ package iuh.fit.ecommerce.services;
 
 import iuh.fit.ecommerce.dtos.request.chat.ChatRequest;
 import iuh.fit.ecommerce.dtos.request.chat.MessageRequest;
+import iuh.fit.ecommerce.dtos.response.base.CursorPageResponse;
 import iuh.fit.ecommerce.dtos.response.chat.ChatResponse;
 import iuh.fit.ecommerce.dtos.response.chat.MessageResponse;
+import iuh.fit.ecommerce.enums.ChatInboxScope;
 
 import java.util.List;
 
@@ -23,6 +25,8 @@ public interface ChatService {
     
     List<ChatResponse> getUnassignedChats();
     
+    CursorPageResponse<ChatResponse> getInbox(ChatInboxScope scope, String cursor, Integer limit);
+    
     ChatResponse assignStaffToChat(Long chatId, Long staffId);
     
     ChatResponse unassignStaffFromChat(Long chatId);
@@ -33,7 +37,7 @@ public interface ChatService {
     
     MessageResponse sendMessage(MessageRequest messageRequest);
     
-    List<MessageResponse> getMessagesByChatId(Long chatId);
+    List<MessageResponse> getMessagesByChatId(Long chatId, Long beforeId, Integer limit);
     
     void markMessagesAsReadByCustomer(Long chatId);
     
@@ -0,0 +1,16 @@
+package iuh.fit.ecommerce.services;
+
+import iuh.fit.ecommerce.dtos.response.dashboard.RollupConsistencyResponse;
+
+import java.time.LocalDate;
+
+public interface DashboardRollupService {
+    // Đánh dấu ngày cần tính lại, được xử lý gộp bởi job định kỳ
+    void markDirty(LocalDate day);
+
+    void rebuildDay(LocalDate day);
+
+    int backfill(LocalDate startDate, LocalDate endDate);
+
+    RollupConsistencyResponse checkConsistency(LocalDate startDate, LocalDate endDate, boolean repair);
+}
@@ -19,4 +19,7 @@ public interface FeedbackService {
     FeedbackResponse getFeedbackById(Long id);
     void changeStatusFeedback(Long id);
     void deleteFeedback(Long id);
+
+    // Tính lại tổng hợp rating cho các sản phẩm bị lệch so với feedbacks, trả về số sản phẩm đã sửa
+    int repairRatingAggregates();
 }
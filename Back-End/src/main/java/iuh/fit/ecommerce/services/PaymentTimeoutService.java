@@ -0,0 +1,10 @@
+package iuh.fit.ecommerce.services;
+
+import iuh.fit.ecommerce.entities.Order;
+
+public interface PaymentTimeoutService {
+    // Ghi hạn thanh toán vào đơn; đơn quá hạn vẫn PENDING_PAYMENT sẽ bị hủy bởi job quét
+    void schedule(Order order, int timeoutMinutes);
+
+    int revokeExpiredPayments();
+}
@@ -5,20 +5,32 @@ import iuh.fit.ecommerce.dtos.response.product.ProductSearchResponse;
 import iuh.fit.ecommerce.entities.Product;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface ProductSearchService {
 
     Optional<Product> loadProductForIndexing(Long productId);
 
+    List<Product> loadProductsForIndexing(List<Long> productIds);
+
     PageResponse<ProductSearchResponse> searchProducts(String query, int page, int size, String sortBy);
 
     List<String> getAutoCompleteSuggestions(String query, int limit);
     
     void indexProduct(Product product);
+
+    void indexProducts(List<Product> products);
     
     void deleteProduct(Long productId);
+
+    // Cập nhật một phần document (chỉ các field truyền vào), trả về id các document lỗi cần gửi lại
+    Set<Long> partialUpdate(Map<Long, Map<String, Object>> fieldsByProductId);
     
     void reindexAllProducts();
+
+    // So watermark catalog (DB) với watermark ghi trong index, chỉ reindex khi khác; trả về true nếu đã reindex
+    boolean reindexIfStale();
 }
 
@@ -0,0 +1,13 @@
+package iuh.fit.ecommerce.services;
+
+import iuh.fit.ecommerce.enums.ProductSearchField;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface ProductSearchSyncService {
+    // Ghi nhận field thay đổi, được gộp lại và gửi lên Elasticsearch theo lô bởi job định kỳ
+    void markChanged(Collection<Long> productIds, Set<ProductSearchField> fields);
+
+    int flush();
+}
@@ -10,7 +10,7 @@ import iuh.fit.ecommerce.entities.ProductVariant;
 import iuh.fit.ecommerce.entities.Promotion;
 
 import java.time.LocalDate;
-import java.util.List;
+import java.util.Collection;
 import java.util.Map;
 
 public interface PromotionService {
@@ -28,11 +28,9 @@ public interface PromotionService {
     void changeStatusPromotion(Long id);
     Double calculateDiscountPrice(ProductVariant variant, Promotion promotion);
     Double calculateOriginalPrice(ProductVariant variant);
-    Promotion getBestPromotion(ProductVariant variant, Map<Long, List<Promotion>> promosByVariant);
-
-    Map<Long, List<Promotion>>  getPromotionsGroupByVariantId(List<ProductVariant> variants, Product product);
-
     Promotion getBestPromotionForVariant(ProductVariant variant);
 
+    Map<Long, Promotion> getBestPromotionsForVariants(Collection<ProductVariant> variants);
+
     ProductResponse addPromotionToProductResponseByProduct(Product product);
 }
@@ -0,0 +1,14 @@
+package iuh.fit.ecommerce.services;
+
+import iuh.fit.ecommerce.entities.OrderDetail;
+
+import java.util.List;
+import java.util.Map;
+
+public interface StockReservationService {
+    void reserve(List<OrderDetail> orderDetails);
+
+    void release(List<OrderDetail> orderDetails);
+
+    void restock(Map<Long, Integer> quantityByVariantId);
+}
@@ -1,13 +1,17 @@
 package iuh.fit.ecommerce.services;
 
+import iuh.fit.ecommerce.dtos.response.ai.ProductRetrievalResult;
 import iuh.fit.ecommerce.entities.ProductVariant;
 
 import java.util.List;
 
 public interface VectorStoreService {
     void indexProductVariant(ProductVariant productVariant);
+    int indexProductVariants(List<ProductVariant> productVariants); // Embed cả lô trong một lần gọi, bỏ qua biến thể không đổi
+    int reindexAllProductVariants();
     void deleteProductVariantIndex(Long productVariantId);
     List<String> searchSimilarProducts(String query, int topK);
     List<Long> searchSimilarProductIds(String query, int topK); // Trả về danh sách product IDs
+    ProductRetrievalResult retrieve(String query, int topK); // Một lần search dùng cho cả prompt và product IDs
 }
 
@@ -2,38 +2,63 @@ package iuh.fit.ecommerce.services.excel;
 
 import iuh.fit.ecommerce.dtos.excel.CustomerExcelDTO;
 import iuh.fit.ecommerce.dtos.excel.ImportResult;
-import iuh.fit.ecommerce.entities.Customer;
 import iuh.fit.ecommerce.entities.Ranking;
 import iuh.fit.ecommerce.entities.Role;
-import iuh.fit.ecommerce.entities.UserRole;
 import iuh.fit.ecommerce.repositories.CustomerRepository;
 import iuh.fit.ecommerce.repositories.RankingRepository;
 import iuh.fit.ecommerce.repositories.RoleRepository;
+import iuh.fit.ecommerce.repositories.UserRepository;
 import iuh.fit.ecommerce.utils.excel.BaseExcelHandler;
+import iuh.fit.ecommerce.utils.excel.ExcelRow;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CustomerExcelService extends BaseExcelHandler<CustomerExcelDTO> {
     
+    private static final String INSERT_USER_SQL =
+        "INSERT INTO users (email, full_name, phone, password, date_of_birth, active, created_at, created_by, modified_at, modified_by) " +
+        "VALUES (?, ?, ?, ?, ?, TRUE, ?, ?, ?, ?)";
+    private static final String INSERT_CUSTOMER_SQL =
+        "INSERT INTO customers (id, total_spending, ranking_id) VALUES (?, 0, ?)";
+    private static final String INSERT_USER_ROLE_SQL =
+        "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)";
+    
     private final CustomerRepository customerRepository;
+    private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final RankingRepository rankingRepository;
     private final PasswordEncoder passwordEncoder;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final AuditorAware<String> auditorProvider;
+    
+    private TransactionTemplate importTransaction;
+    private volatile String cachedPasswordHash;
+    
+    @PostConstruct
+    void initTransactionTemplate() {
+        importTransaction = new TransactionTemplate(transactionManager);
+    }
     
     @Override
     public String[] getHeaders() {
@@ -46,33 +71,28 @@ public class CustomerExcelService extends BaseExcelHandler<CustomerExcelDTO> {
     }
     
     @Override
-    public List<CustomerExcelDTO> parseExcel(MultipartFile file) throws Exception {
-        List<CustomerExcelDTO> dataList = new ArrayList<>();
-        
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            
-          
-            int dataStartRow = 3;
-        
-            for (int i = dataStartRow; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null || isEmptyRow(row)) {
-                    continue;
-                }
-                
-                CustomerExcelDTO dto = CustomerExcelDTO.builder()
-                    .email(getCellValueAsString(row.getCell(0)))
-                    .fullName(getCellValueAsString(row.getCell(1)))
-                    .phone(getCellValueAsString(row.getCell(2)))
-                    .dateOfBirth(parseDateCell(row.getCell(3)))
-                    .build();
-                
-                dataList.add(dto);
-            }
-        }
-        
-        return dataList;
+    public CustomerExcelDTO mapRow(ExcelRow row) {
+        return CustomerExcelDTO.builder()
+            .email(row.get(0))
+            .fullName(row.get(1))
+            .phone(row.get(2))
+            .dateOfBirth(parseDate(row.get(3)))
+            .build();
+    }
+    
+    @Override
+    protected boolean isEmptyRow(ExcelRow row) {
+        return row.isBlank(3); // Check first 3 required columns
+    }
+    
+    @Override
+    protected List<UniqueKey<CustomerExcelDTO>> uniqueKeys() {
+        return List.of(
+            new UniqueKey<>("Email", CustomerExcelDTO::getEmail, userRepository::findExistingEmails,
+                "Email đã tồn tại trong hệ thống", "Email bị trùng lặp trong file Excel"),
+            new UniqueKey<>("Số điện thoại", CustomerExcelDTO::getPhone, userRepository::findExistingPhones,
+                "Số điện thoại đã tồn tại trong hệ thống", "Số điện thoại bị trùng lặp trong file Excel")
+        );
     }
     
     @Override
@@ -81,8 +101,6 @@ public class CustomerExcelService extends BaseExcelHandler<CustomerExcelDTO> {
             result.addError(rowIndex, "Email", "Email không được để trống");
         } else if (!data.getEmail().matches("^[A-Za-z0-9+_.-]+@(.+)$")) {
             result.addError(rowIndex, "Email", "Email không hợp lệ");
-        } else if (customerRepository.existsByEmail(data.getEmail())) {
-            result.addError(rowIndex, "Email", "Email đã tồn tại trong hệ thống");
         }
         
         if (data.getFullName() == null || data.getFullName().isBlank()) {
@@ -96,13 +114,13 @@ public class CustomerExcelService extends BaseExcelHandler<CustomerExcelDTO> {
         }
     }
     
+    // Customer dùng id IDENTITY nên Hibernate không batch insert được: ghi thẳng bằng JDBC batch,
+    // users -> customers -> user_roles trong cùng một transaction cho mỗi chunk
     @Override
-    @Transactional
     public void saveData(List<CustomerExcelDTO> dataList) throws Exception {
         Role customerRole = roleRepository.findByName("CUSTOMER")
             .orElseThrow(() -> new RuntimeException("Role CUSTOMER not found"));
         
-       
         Ranking defaultRanking = rankingRepository.findAll().stream()
             .findFirst()
             .orElse(null);
@@ -110,55 +128,39 @@ public class CustomerExcelService extends BaseExcelHandler<CustomerExcelDTO> {
         if (defaultRanking == null) {
             log.warn("No ranking found in database. Customers will be created without ranking.");
         }
+        Long rankingId = defaultRanking != null ? defaultRanking.getId() : null;
         
-      
-        String encodedPassword = passwordEncoder.encode("123456");
-        
-        int CHUNK_SIZE = 100; // Process 100 records per chunk
-        int totalChunks = (dataList.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        String encodedPassword = defaultPasswordHash();
+        String auditor = auditorProvider.getCurrentAuditor().orElse(null);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
         
-        log.info("Starting import of {} customers in {} chunks", dataList.size(), totalChunks);
-        
-   
-        for (int i = 0; i < dataList.size(); i += CHUNK_SIZE) {
-            int end = Math.min(i + CHUNK_SIZE, dataList.size());
-            List<CustomerExcelDTO> chunk = dataList.subList(i, end);
-            
-            List<Customer> customerList = new ArrayList<>();
+        importTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_USER_SQL, dataList, dataList.size(), (ps, dto) -> {
+                ps.setString(1, dto.getEmail());
+                ps.setString(2, dto.getFullName());
+                ps.setString(3, dto.getPhone());
+                ps.setString(4, encodedPassword);
+                ps.setObject(5, dto.getDateOfBirth() != null ? Date.valueOf(dto.getDateOfBirth()) : null, Types.DATE);
+                ps.setTimestamp(6, now);
+                ps.setString(7, auditor);
+                ps.setTimestamp(8, now);
+                ps.setString(9, auditor);
+            });
             
-            for (CustomerExcelDTO dto : chunk) {
-                Customer customer = Customer.builder()
-                    .email(dto.getEmail())
-                    .fullName(dto.getFullName())
-                    .password(encodedPassword) 
-                    .phone(dto.getPhone())
-                    .dateOfBirth(dto.getDateOfBirth()) 
-                    .active(true)
-                    .totalSpending(0.0)
-                    .ranking(defaultRanking)
-                    .build();
-                
-                customer.setUserRoles(new ArrayList<>());
-                
-                UserRole userRole = UserRole.builder()
-                    .role(customerRole)
-                    .user(customer)
-                    .build();
-                
-                customer.getUserRoles().add(userRole);
-                customerList.add(customer);
-            }
+            List<Long> userIds = jdbcTemplate.queryForList(
+                "SELECT id FROM users WHERE email IN (:emails)",
+                Map.of("emails", dataList.stream().map(CustomerExcelDTO::getEmail).toList()),
+                Long.class);
             
-            // Batch insert this chunk
-            customerRepository.saveAll(customerList);
-            
-            int currentChunk = (i / CHUNK_SIZE) + 1;
-            double progress = (currentChunk * 100.0) / totalChunks;
-            log.info("Processed chunk {}/{} ({} records) - Progress: {:.1f}%", 
-                     currentChunk, totalChunks, customerList.size(), progress);
-        }
-        
-        log.info("Successfully imported {} customers", dataList.size());
+            jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_CUSTOMER_SQL, userIds, userIds.size(), (ps, id) -> {
+                ps.setLong(1, id);
+                ps.setObject(2, rankingId, Types.BIGINT);
+            });
+            jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_USER_ROLE_SQL, userIds, userIds.size(), (ps, id) -> {
+                ps.setLong(1, id);
+                ps.setLong(2, customerRole.getId());
+            });
+        });
     }
     
     @Override
@@ -172,46 +174,20 @@ public class CustomerExcelService extends BaseExcelHandler<CustomerExcelDTO> {
     }
     
 
-    public Workbook exportAllCustomers() throws Exception {
-        List<Customer> customerList = customerRepository.findAll();
-        List<CustomerExcelDTO> dtoList = customerList.stream()
-            .map(customer -> CustomerExcelDTO.builder()
-                .email(customer.getEmail())
-                .fullName(customer.getFullName())
-                .phone(customer.getPhone())
-                .dateOfBirth(customer.getDateOfBirth())
-                .build())
-            .toList();
-        
-        return generateExcel(dtoList);
-    }
-    
-    
-    private boolean isEmptyRow(Row row) {
-        for (int i = 0; i < 3; i++) { // Check first 3 required columns
-            Cell cell = row.getCell(i);
-            if (cell != null && !getCellValueAsString(cell).isBlank()) {
-                return false;
-            }
+    @Transactional(readOnly = true)
+    public void exportAllCustomers(OutputStream outputStream) throws Exception {
+        try (Stream<CustomerExcelDTO> rows = customerRepository.streamAllForExport()) {
+            exportStreaming(rows, outputStream);
         }
-        return true;
     }
-    
-    private java.time.LocalDate parseDateCell(Cell cell) {
-        if (cell == null) {
-            return null;
-        }
-        
-        String dateStr = getCellValueAsString(cell);
-        if (dateStr.isBlank()) {
-            return null;
-        }
-        
-        try {
-            return java.time.LocalDate.parse(dateStr, java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy"));
-        } catch (Exception e) {
-            log.warn("Failed to parse date: {}", dateStr);
-            return null;
+
+    private String defaultPasswordHash() {
+        // BCrypt tốn vài chục ms: encode một lần thay vì mỗi chunk
+        String hash = cachedPasswordHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode("123456");
+            cachedPasswordHash = hash;
         }
+        return hash;
     }
 }
@@ -1,43 +1,65 @@
 package iuh.fit.ecommerce.services.excel;
 
+import iuh.fit.ecommerce.dtos.projection.DailyMetricProjection;
+import iuh.fit.ecommerce.dtos.projection.ProductExportProjection;
+import iuh.fit.ecommerce.dtos.projection.PromotionUsageExportProjection;
+import iuh.fit.ecommerce.dtos.projection.VoucherUsageExportProjection;
 import iuh.fit.ecommerce.dtos.response.dashboard.RevenueByDayResponse;
-import iuh.fit.ecommerce.dtos.response.dashboard.TopProductResponse;
-import iuh.fit.ecommerce.dtos.response.dashboard.TopVoucherResponse;
-import iuh.fit.ecommerce.dtos.response.dashboard.TopPromotionResponse;
-import iuh.fit.ecommerce.dtos.response.product.ProductResponse;
-import iuh.fit.ecommerce.entities.PromotionUsage;
-import iuh.fit.ecommerce.entities.VoucherUsageHistory;
+import iuh.fit.ecommerce.repositories.DailyPromotionRollupRepository;
+import iuh.fit.ecommerce.repositories.DailyVoucherRollupRepository;
+import iuh.fit.ecommerce.repositories.ProductRepository;
 import iuh.fit.ecommerce.repositories.PromotionUsageRepository;
 import iuh.fit.ecommerce.repositories.VoucherUsageHistoryRepository;
 import iuh.fit.ecommerce.services.DashboardService;
-import iuh.fit.ecommerce.services.ProductService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DashboardExcelService {
-    
+
+    // Số dòng SXSSF giữ trong heap cho mỗi sheet, các dòng cũ hơn được flush xuống file tạm
+    private static final int ROW_ACCESS_WINDOW = 100;
+
     private final DashboardService dashboardService;
-    private final ProductService productService;
+    private final ProductRepository productRepository;
     private final VoucherUsageHistoryRepository voucherUsageHistoryRepository;
     private final PromotionUsageRepository promotionUsageRepository;
-    
-    public byte[] exportDashboard(LocalDate startDate, LocalDate endDate) throws Exception {
+    private final DailyVoucherRollupRepository dailyVoucherRollupRepository;
+    private final DailyPromotionRollupRepository dailyPromotionRollupRepository;
+
+    // Các sheet chi tiết đọc bằng Stream nên cần transaction mở đến khi ghi xong.
+    // Mọi sheet được spool ra file tạm trước, chỉ workbook.write mới ghi byte đầu tiên vào outputStream
+    @Transactional(readOnly = true)
+    public void exportDashboard(LocalDate startDate, LocalDate endDate, OutputStream outputStream) throws Exception {
         log.info("Exporting dashboard from {} to {}", startDate, endDate);
-        
-        Workbook workbook = new XSSFWorkbook();
-        
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+
+        try {
+            writeSheets(workbook, startDate, endDate);
+            workbook.write(outputStream);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void writeSheets(SXSSFWorkbook workbook, LocalDate startDate, LocalDate endDate) {
         // Create styles
         CellStyle headerStyle = createHeaderStyle(workbook);
         CellStyle dateStyle = createDateStyle(workbook);
@@ -58,18 +80,13 @@ public class DashboardExcelService {
         
         // Sheet 5: Products
         createProductSheet(workbook, headerStyle, currencyStyle, numberStyle);
-        
-        // Write to bytes
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
-        workbook.close();
-        
-        return outputStream.toByteArray();
     }
     
-    private void createSummarySheet(Workbook workbook, LocalDate startDate, LocalDate endDate,
+    private void createSummarySheet(SXSSFWorkbook workbook, LocalDate startDate, LocalDate endDate,
                                      CellStyle headerStyle, CellStyle currencyStyle, CellStyle numberStyle) {
-        Sheet sheet = workbook.createSheet("Overall");
+        SXSSFSheet sheet = workbook.createSheet("Overall");
+        // Sheet nhỏ: vẫn auto-size được nếu theo dõi độ rộng trước khi dòng bị flush
+        sheet.trackAllColumnsForAutoSizing();
         
         LocalDateTime start = startDate.atStartOfDay();
         LocalDateTime end = endDate.atTime(23, 59, 59);
@@ -191,10 +208,11 @@ public class DashboardExcelService {
         }
     }
     
-    private void createRevenueSheet(Workbook workbook, LocalDate startDate, LocalDate endDate,
+    private void createRevenueSheet(SXSSFWorkbook workbook, LocalDate startDate, LocalDate endDate,
                                      CellStyle headerStyle, CellStyle dateStyle, 
                                      CellStyle currencyStyle, CellStyle numberStyle) {
-        Sheet sheet = workbook.createSheet("Chi tiết doanh thu");
+        SXSSFSheet sheet = workbook.createSheet("Chi tiết doanh thu");
+        sheet.trackAllColumnsForAutoSizing();
         
         // Header
         Row headerRow = sheet.createRow(0);
@@ -207,6 +225,11 @@ public class DashboardExcelService {
         
         // Data
         List<RevenueByDayResponse> revenueData = dashboardService.getRevenueByDay(startDate, endDate);
+        // Giảm giá theo ngày lấy một lần từ rollup thay vì 2 query cho mỗi ngày
+        Map<LocalDate, Double> voucherDiscountByDay = amountByDay(
+                dailyVoucherRollupRepository.findRollupTotals(startDate, endDate));
+        Map<LocalDate, Double> promotionDiscountByDay = amountByDay(
+                dailyPromotionRollupRepository.findRollupTotals(startDate, endDate));
         int rowNum = 1;
         double totalRevenue = 0;
         long totalOrders = 0;
@@ -236,11 +259,8 @@ public class DashboardExcelService {
             avgCell.setCellStyle(currencyStyle);
             
             // Total discount (voucher + promotion)
-            LocalDateTime dayStart = data.getDate().atStartOfDay();
-            LocalDateTime dayEnd = data.getDate().atTime(23, 59, 59);
-            Double voucherDiscount = voucherUsageHistoryRepository.sumVoucherDiscountByDateRange(dayStart, dayEnd);
-            Double promotionDiscount = promotionUsageRepository.sumPromotionDiscountByDateRange(dayStart, dayEnd);
-            double dayDiscount = (voucherDiscount != null ? voucherDiscount : 0) + (promotionDiscount != null ? promotionDiscount : 0);
+            double dayDiscount = voucherDiscountByDay.getOrDefault(data.getDate(), 0.0)
+                    + promotionDiscountByDay.getOrDefault(data.getDate(), 0.0);
             
             Cell discountCell = row.createCell(4);
             discountCell.setCellValue(dayDiscount);
@@ -289,7 +309,7 @@ public class DashboardExcelService {
         }
     }
     
-    private void createVoucherSheet(Workbook workbook, LocalDate startDate, LocalDate endDate,
+    private void createVoucherSheet(SXSSFWorkbook workbook, LocalDate startDate, LocalDate endDate,
                                      CellStyle headerStyle, CellStyle dateStyle, 
                                      CellStyle currencyStyle, CellStyle numberStyle) {
         Sheet sheet = workbook.createSheet("Chi tiết Voucher");
@@ -308,61 +328,67 @@ public class DashboardExcelService {
         // Data
         LocalDateTime start = startDate.atStartOfDay();
         LocalDateTime end = endDate.atTime(23, 59, 59);
-        List<VoucherUsageHistory> usageHistories = voucherUsageHistoryRepository
-                .findAllWithDetailsByDateRange(start, end);
-        
         int rowNum = 1;
         double totalDiscount = 0;
         double totalOrderValue = 0;
         double totalFinalValue = 0;
-        
-        for (VoucherUsageHistory usage : usageHistories) {
-            Row row = sheet.createRow(rowNum++);
-            
-            // Voucher ID
-            Cell voucherIdCell = row.createCell(0);
-            voucherIdCell.setCellValue(usage.getVoucher().getId());
-            voucherIdCell.setCellStyle(numberStyle);
-
-            // Order ID
-            Cell orderIdCell = row.createCell(1);
-            orderIdCell.setCellValue(usage.getOrder().getId());
-            orderIdCell.setCellStyle(numberStyle);
-            
-            // Order Date
-            Cell dateCell = row.createCell(2);
-            dateCell.setCellValue(Date.from(usage.getOrder().getOrderDate().atZone(ZoneId.systemDefault()).toInstant()));
-            dateCell.setCellStyle(dateStyle);
-            
-            // Customer info
-            row.createCell(3).setCellValue(usage.getOrder().getCustomer().getFullName());
-            row.createCell(4).setCellValue(usage.getOrder().getCustomer().getPhone());
-            
-            // Voucher info
-            row.createCell(5).setCellValue(usage.getVoucher().getCode());
-            row.createCell(6).setCellValue(usage.getVoucher().getName());
-            row.createCell(7).setCellValue(usage.getVoucher().getVoucherType().name());
-            
-            // Discount amount
-            Cell discountCell = row.createCell(8);
-            discountCell.setCellValue(usage.getDiscountAmount() != null ? usage.getDiscountAmount() : 0);
-            discountCell.setCellStyle(currencyStyle);
-            
-            // Order total
-            Cell orderTotalCell = row.createCell(9);
-            orderTotalCell.setCellValue(usage.getOrder().getTotalPrice());
-            orderTotalCell.setCellStyle(currencyStyle);
-            
-            // Final total
-            Cell finalTotalCell = row.createCell(10);
-            finalTotalCell.setCellValue(usage.getOrder().getFinalTotalPrice());
-            finalTotalCell.setCellStyle(currencyStyle);
-            
-            totalDiscount += (usage.getDiscountAmount() != null ? usage.getDiscountAmount() : 0);
-            totalOrderValue += usage.getOrder().getTotalPrice();
-            totalFinalValue += usage.getOrder().getFinalTotalPrice();
+
+        try (Stream<VoucherUsageExportProjection> usages = voucherUsageHistoryRepository
+                .streamForExportByDateRange(start, end)) {
+            Iterator<VoucherUsageExportProjection> iterator = usages.iterator();
+            while (iterator.hasNext()) {
+                VoucherUsageExportProjection usage = iterator.next();
+                Row row = sheet.createRow(rowNum++);
+
+                // Voucher ID
+                Cell voucherIdCell = row.createCell(0);
+                voucherIdCell.setCellValue(usage.getVoucherId());
+                voucherIdCell.setCellStyle(numberStyle);
+
+                // Order ID
+                Cell orderIdCell = row.createCell(1);
+                orderIdCell.setCellValue(usage.getOrderId());
+                orderIdCell.setCellStyle(numberStyle);
+
+                // Order Date
+                Cell dateCell = row.createCell(2);
+                dateCell.setCellValue(Date.from(usage.getOrderDate().atZone(ZoneId.systemDefault()).toInstant()));
+                dateCell.setCellStyle(dateStyle);
+
+                // Customer info
+                row.createCell(3).setCellValue(usage.getCustomerName());
+                row.createCell(4).setCellValue(usage.getCustomerPhone());
+
+                // Voucher info
+                row.createCell(5).setCellValue(usage.getVoucherCode());
+                row.createCell(6).setCellValue(usage.getVoucherName());
+                row.createCell(7).setCellValue(usage.getVoucherType() != null ? usage.getVoucherType().name() : "");
+
+                double discount = valueOrZero(usage.getDiscountAmount());
+                double orderTotal = valueOrZero(usage.getTotalPrice());
+                double finalTotal = valueOrZero(usage.getFinalTotalPrice());
+
+                // Discount amount
+                Cell discountCell = row.createCell(8);
+                discountCell.setCellValue(discount);
+                discountCell.setCellStyle(currencyStyle);
+
+                // Order total
+                Cell orderTotalCell = row.createCell(9);
+                orderTotalCell.setCellValue(orderTotal);
+                orderTotalCell.setCellStyle(currencyStyle);
+
+                // Final total
+                Cell finalTotalCell = row.createCell(10);
+                finalTotalCell.setCellValue(finalTotal);
+                finalTotalCell.setCellStyle(currencyStyle);
+
+                totalDiscount += discount;
+                totalOrderValue += orderTotal;
+                totalFinalValue += finalTotal;
+            }
         }
-        
+
         // Total row
         Row totalRow = sheet.createRow(rowNum);
         Cell totalLabelCell = totalRow.createCell(0);
@@ -381,14 +407,10 @@ public class DashboardExcelService {
         totalFinalCell.setCellValue(totalFinalValue);
         totalFinalCell.setCellStyle(currencyStyle);
         
-        // Auto-size columns
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
-            sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
-        }
+        setStreamingColumnWidths(sheet, headers);
     }
     
-    private void createPromotionSheet(Workbook workbook, LocalDate startDate, LocalDate endDate,
+    private void createPromotionSheet(SXSSFWorkbook workbook, LocalDate startDate, LocalDate endDate,
                                        CellStyle headerStyle, CellStyle dateStyle, 
                                        CellStyle currencyStyle, CellStyle numberStyle) {
         Sheet sheet = workbook.createSheet("Chi tiết Promotion");
@@ -407,77 +429,82 @@ public class DashboardExcelService {
         // Data
         LocalDateTime start = startDate.atStartOfDay();
         LocalDateTime end = endDate.atTime(23, 59, 59);
-        List<PromotionUsage> usageList = promotionUsageRepository.findAllWithDetailsByDateRange(start, end);
-        
         int rowNum = 1;
         double totalDiscount = 0;
         double totalOrderValue = 0;
         double totalFinalValue = 0;
-        
-        for (PromotionUsage usage : usageList) {
-            Row row = sheet.createRow(rowNum++);
-            
-            // Promotion ID
-            Cell promotionIdCell = row.createCell(0);
-            promotionIdCell.setCellValue(usage.getPromotion().getId());
-            promotionIdCell.setCellStyle(numberStyle);
-
-            // Promotion Code (generated from name)
-            String promotionCode = generatePromotionCode(usage.getPromotion().getName());
-            row.createCell(1).setCellValue(promotionCode);
-
-            // Order ID
-            Cell orderIdCell = row.createCell(2);
-            orderIdCell.setCellValue(usage.getOrderDetail().getOrder().getId());
-            orderIdCell.setCellStyle(numberStyle);
-            
-            // Order Detail ID
-            Cell orderDetailIdCell = row.createCell(3);
-            orderDetailIdCell.setCellValue(usage.getOrderDetail().getId());
-            orderDetailIdCell.setCellStyle(numberStyle);
-            
-            // Order Date
-            Cell dateCell = row.createCell(4);
-            dateCell.setCellValue(Date.from(usage.getOrderDetail().getOrder().getOrderDate().atZone(ZoneId.systemDefault()).toInstant()));
-            dateCell.setCellStyle(dateStyle);
-            
-            // Customer info
-            row.createCell(5).setCellValue(usage.getOrderDetail().getOrder().getCustomer().getFullName());
-            row.createCell(6).setCellValue(usage.getOrderDetail().getOrder().getCustomer().getPhone());
-            
-            // Promotion info
-            row.createCell(7).setCellValue(usage.getPromotion().getName());
-            row.createCell(8).setCellValue(usage.getPromotion().getPromotionType().name());
-            
-            // Discount amount
-            Cell discountCell = row.createCell(9);
-            discountCell.setCellValue(usage.getDiscountAmount() != null ? usage.getDiscountAmount() : 0);
-            discountCell.setCellStyle(currencyStyle);
-            
-            // Order detail total (price * quantity)
-            Double orderDetailTotal = usage.getOrderDetail().getPrice() * usage.getOrderDetail().getQuantity();
-            Cell orderTotalCell = row.createCell(10);
-            orderTotalCell.setCellValue(orderDetailTotal);
-            orderTotalCell.setCellStyle(currencyStyle);
-            
-            // Order detail final price (sau khi giảm giá)
-            Cell finalTotalCell = row.createCell(11);
-            finalTotalCell.setCellValue(usage.getOrderDetail().getFinalPrice());
-            finalTotalCell.setCellStyle(currencyStyle);
-            
-            // Payment method
-            row.createCell(12).setCellValue(usage.getOrderDetail().getOrder().getPaymentMethod() != null ?
-                    usage.getOrderDetail().getOrder().getPaymentMethod().name() : "");
-            
-            // Status
-            row.createCell(13).setCellValue(usage.getOrderDetail().getOrder().getStatus() != null ?
-                    usage.getOrderDetail().getOrder().getStatus().name() : "");
-            
-            totalDiscount += (usage.getDiscountAmount() != null ? usage.getDiscountAmount() : 0);
-            totalOrderValue += orderDetailTotal;
-            totalFinalValue += usage.getOrderDetail().getFinalPrice();
+
+        try (Stream<PromotionUsageExportProjection> usages = promotionUsageRepository
+                .streamForExportByDateRange(start, end)) {
+            Iterator<PromotionUsageExportProjection> iterator = usages.iterator();
+            while (iterator.hasNext()) {
+                PromotionUsageExportProjection usage = iterator.next();
+                Row row = sheet.createRow(rowNum++);
+
+                // Promotion ID
+                Cell promotionIdCell = row.createCell(0);
+                promotionIdCell.setCellValue(usage.getPromotionId());
+                promotionIdCell.setCellStyle(numberStyle);
+
+                // Promotion Code (generated from name)
+                String promotionCode = generatePromotionCode(usage.getPromotionName());
+                row.createCell(1).setCellValue(promotionCode);
+
+                // Order ID
+                Cell orderIdCell = row.createCell(2);
+                orderIdCell.setCellValue(usage.getOrderId());
+                orderIdCell.setCellStyle(numberStyle);
+
+                // Order Detail ID
+                Cell orderDetailIdCell = row.createCell(3);
+                orderDetailIdCell.setCellValue(usage.getOrderDetailId());
+                orderDetailIdCell.setCellStyle(numberStyle);
+
+                // Order Date
+                Cell dateCell = row.createCell(4);
+                dateCell.setCellValue(Date.from(usage.getOrderDate().atZone(ZoneId.systemDefault()).toInstant()));
+                dateCell.setCellStyle(dateStyle);
+
+                // Customer info
+                row.createCell(5).setCellValue(usage.getCustomerName());
+                row.createCell(6).setCellValue(usage.getCustomerPhone());
+
+                // Promotion info
+                row.createCell(7).setCellValue(usage.getPromotionName());
+                row.createCell(8).setCellValue(usage.getPromotionType() != null ? usage.getPromotionType().name() : "");
+
+                double discount = valueOrZero(usage.getDiscountAmount());
+                // Order detail total (price * quantity)
+                double orderDetailTotal = valueOrZero(usage.getPrice())
+                        * (usage.getQuantity() != null ? usage.getQuantity() : 0);
+                double finalPrice = valueOrZero(usage.getFinalPrice());
+
+                // Discount amount
+                Cell discountCell = row.createCell(9);
+                discountCell.setCellValue(discount);
+                discountCell.setCellStyle(currencyStyle);
+
+                Cell orderTotalCell = row.createCell(10);
+                orderTotalCell.setCellValue(orderDetailTotal);
+                orderTotalCell.setCellStyle(currencyStyle);
+
+                // Order detail final price (sau khi giảm giá)
+                Cell finalTotalCell = row.createCell(11);
+                finalTotalCell.setCellValue(finalPrice);
+                finalTotalCell.setCellStyle(currencyStyle);
+
+                // Payment method
+                row.createCell(12).setCellValue(usage.getPaymentMethod() != null ? usage.getPaymentMethod().name() : "");
+
+                // Status
+                row.createCell(13).setCellValue(usage.getStatus() != null ? usage.getStatus().name() : "");
+
+                totalDiscount += discount;
+                totalOrderValue += orderDetailTotal;
+                totalFinalValue += finalPrice;
+            }
         }
-        
+
         // Total row
         Row totalRow = sheet.createRow(rowNum);
         Cell totalLabelCell = totalRow.createCell(0);
@@ -496,14 +523,10 @@ public class DashboardExcelService {
         totalFinalCell.setCellValue(totalFinalValue);
         totalFinalCell.setCellStyle(currencyStyle);
         
-        // Auto-size columns
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
-            sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
-        }
+        setStreamingColumnWidths(sheet, headers);
     }
     
-    private void createProductSheet(Workbook workbook, CellStyle headerStyle, 
+    private void createProductSheet(SXSSFWorkbook workbook, CellStyle headerStyle, 
                                      CellStyle currencyStyle, CellStyle numberStyle) {
         Sheet sheet = workbook.createSheet("Danh sách sản phẩm");
         
@@ -517,31 +540,28 @@ public class DashboardExcelService {
         }
         
         // Data
-        var productsResponse = productService.getAllProducts(0, Integer.MAX_VALUE, null, null, null, null, null, null);
-        List<ProductResponse> products = productsResponse.getData();
-        
         int rowNum = 1;
-        for (ProductResponse product : products) {
-            Row row = sheet.createRow(rowNum++);
-            
-            Cell idCell = row.createCell(0);
-            idCell.setCellValue(product.getId());
-            idCell.setCellStyle(numberStyle);
-            
-            row.createCell(1).setCellValue(product.getName() != null ? product.getName() : "");
-            row.createCell(2).setCellValue(product.getSpu() != null ? product.getSpu() : "");
-            
-            Cell stockCell = row.createCell(3);
-            stockCell.setCellStyle(numberStyle);
-            
-            row.createCell(4).setCellValue(product.isStatus() ? "Hoạt động" : "Ngừng hoạt động");
-        }
-        
-        // Auto-size columns
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
-            sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
+        try (Stream<ProductExportProjection> products = productRepository.streamAllForExport()) {
+            Iterator<ProductExportProjection> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                ProductExportProjection product = iterator.next();
+                Row row = sheet.createRow(rowNum++);
+
+                Cell idCell = row.createCell(0);
+                idCell.setCellValue(product.getId());
+                idCell.setCellStyle(numberStyle);
+
+                row.createCell(1).setCellValue(product.getName() != null ? product.getName() : "");
+                row.createCell(2).setCellValue(product.getSpu() != null ? product.getSpu() : "");
+
+                Cell stockCell = row.createCell(3);
+                stockCell.setCellStyle(numberStyle);
+
+                row.createCell(4).setCellValue(Boolean.TRUE.equals(product.getStatus()) ? "Hoạt động" : "Ngừng hoạt động");
+            }
         }
+
+        setStreamingColumnWidths(sheet, headers);
     }
     
     private CellStyle createHeaderStyle(Workbook workbook) {
@@ -581,6 +601,25 @@ public class DashboardExcelService {
         return style;
     }
 
+    // Sheet stream không auto-size được (dòng cũ đã flush), độ rộng cột tính theo header
+    private void setStreamingColumnWidths(Sheet sheet, String[] headers) {
+        for (int i = 0; i < headers.length; i++) {
+            sheet.setColumnWidth(i, Math.min(Math.max(headers[i].length() + 6, 16), 60) * 256);
+        }
+    }
+
+    private Map<LocalDate, Double> amountByDay(List<DailyMetricProjection> totals) {
+        Map<LocalDate, Double> result = new HashMap<>();
+        for (DailyMetricProjection total : totals) {
+            result.put(total.getDay(), valueOrZero(total.getAmount()));
+        }
+        return result;
+    }
+
+    private double valueOrZero(Double value) {
+        return value != null ? value : 0;
+    }
+
     /**
      * Generate promotion code from promotion name
      * Example: "Black Friday 2024" -> "BF2024"
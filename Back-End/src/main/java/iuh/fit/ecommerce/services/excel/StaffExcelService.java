@@ -8,24 +8,24 @@ import iuh.fit.ecommerce.entities.UserRole;
 import iuh.fit.ecommerce.enums.WorkStatus;
 import iuh.fit.ecommerce.repositories.RoleRepository;
 import iuh.fit.ecommerce.repositories.StaffRepository;
+import iuh.fit.ecommerce.repositories.UserRepository;
 import iuh.fit.ecommerce.utils.excel.BaseExcelHandler;
+import iuh.fit.ecommerce.utils.excel.ExcelRow;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -33,11 +33,14 @@ import java.util.List;
 public class StaffExcelService extends BaseExcelHandler<StaffExcelDTO> {
     
     private final StaffRepository staffRepository;
+    private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     
+    private volatile String cachedPasswordHash;
+    
     @Override
     public String[] getHeaders() {
         return new String[]{
@@ -53,37 +56,32 @@ public class StaffExcelService extends BaseExcelHandler<StaffExcelDTO> {
     }
     
     @Override
-    public List<StaffExcelDTO> parseExcel(MultipartFile file) throws Exception {
-        List<StaffExcelDTO> dataList = new ArrayList<>();
-        
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            
-           
-            int dataStartRow = 3;
+    public StaffExcelDTO mapRow(ExcelRow row) {
+        return StaffExcelDTO.builder()
+            .email(row.get(0))
+            .fullName(row.get(1))
+            .phone(row.get(2))
+            .address(row.get(3))
+            .dateOfBirth(parseDate(row.get(4)))
+            .joinDate(parseDate(row.get(5)))
+            .isLeader(parseBoolean(row.get(6)))
+            .role(row.get(7))
+            .build();
+    }
     
-            for (int i = dataStartRow; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null || isEmptyRow(row)) {
-                    continue;
-                }
-                
-                StaffExcelDTO dto = StaffExcelDTO.builder()
-                    .email(getCellValueAsString(row.getCell(0)))
-                    .fullName(getCellValueAsString(row.getCell(1)))
-                    .phone(getCellValueAsString(row.getCell(2)))
-                    .address(getCellValueAsString(row.getCell(3)))
-                    .dateOfBirth(parseDateCell(row.getCell(4)))
-                    .joinDate(parseDateCell(row.getCell(5)))
-                    .isLeader(parseBooleanCell(row.getCell(6)))
-                    .role(getCellValueAsString(row.getCell(7)))
-                    .build();
-                
-                dataList.add(dto);
-            }
-        }
-        
-        return dataList;
+    @Override
+    protected boolean isEmptyRow(ExcelRow row) {
+        return row.isBlank(3);
+    }
+    
+    @Override
+    protected List<UniqueKey<StaffExcelDTO>> uniqueKeys() {
+        return List.of(
+            new UniqueKey<>("Email", StaffExcelDTO::getEmail, userRepository::findExistingEmails,
+                "Email đã tồn tại trong hệ thống", "Email bị trùng lặp trong file Excel"),
+            new UniqueKey<>("Số điện thoại", StaffExcelDTO::getPhone, userRepository::findExistingPhones,
+                "Số điện thoại đã tồn tại trong hệ thống", "Số điện thoại bị trùng lặp trong file Excel")
+        );
     }
     
     @Override
@@ -93,8 +91,6 @@ public class StaffExcelService extends BaseExcelHandler<StaffExcelDTO> {
             result.addError(rowIndex, "Email", "Email không được để trống");
         } else if (!data.getEmail().matches("^[A-Za-z0-9+_.-]+@(.+)$")) {
             result.addError(rowIndex, "Email", "Email không hợp lệ");
-        } else if (staffRepository.existsByEmail(data.getEmail())) {
-            result.addError(rowIndex, "Email", "Email đã tồn tại trong hệ thống");
         }
        
         if (data.getFullName() == null || data.getFullName().isBlank()) {
@@ -132,62 +128,48 @@ public class StaffExcelService extends BaseExcelHandler<StaffExcelDTO> {
     }
     
     @Override
-    @Transactional
     public void saveData(List<StaffExcelDTO> dataList) throws Exception {
-        String encodedPassword = passwordEncoder.encode("123456");
+        String encodedPassword = defaultPasswordHash();
         
-        int CHUNK_SIZE = 100; // Process 100 records per chunk
-        int totalChunks = (dataList.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        // Tra role một lần cho cả chunk thay vì mỗi dòng một query
+        Map<String, Role> roles = roleRepository.findAllByNameIn(
+                dataList.stream().map(StaffExcelDTO::getRole).collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(Role::getName, Function.identity()));
         
-        log.info("Starting import of {} staff members in {} chunks", dataList.size(), totalChunks);
-        
-     
-        for (int i = 0; i < dataList.size(); i += CHUNK_SIZE) {
-            int end = Math.min(i + CHUNK_SIZE, dataList.size());
-            List<StaffExcelDTO> chunk = dataList.subList(i, end);
+        List<Staff> staffList = new ArrayList<>(dataList.size());
+        for (StaffExcelDTO dto : dataList) {
+            String roleName = dto.getRole() != null ? dto.getRole() : "STAFF";
+            Role role = roles.get(roleName);
+            if (role == null) {
+                throw new RuntimeException("Role " + roleName + " not found");
+            }
             
-            List<Staff> staffList = new ArrayList<>();
+            Staff staff = Staff.builder()
+                .email(dto.getEmail())
+                .fullName(dto.getFullName())
+                .password(encodedPassword) 
+                .phone(dto.getPhone())
+                .address(dto.getAddress())
+                .dateOfBirth(dto.getDateOfBirth()) // Optional
+                .joinDate(dto.getJoinDate() != null ? dto.getJoinDate() : LocalDate.now())
+                .leader(dto.getIsLeader() != null ? dto.getIsLeader() : false)
+                .active(true)
+                .workStatus(WorkStatus.ACTIVE)
+                .build();
             
-            for (StaffExcelDTO dto : chunk) {
-                // Get role by name
-                String roleName = dto.getRole() != null ? dto.getRole().trim().toUpperCase() : "STAFF";
-                Role role = roleRepository.findByName(roleName)
-                    .orElseThrow(() -> new RuntimeException("Role " + roleName + " not found"));
-                
-                Staff staff = Staff.builder()
-                    .email(dto.getEmail())
-                    .fullName(dto.getFullName())
-                    .password(encodedPassword) 
-                    .phone(dto.getPhone())
-                    .address(dto.getAddress())
-                    .dateOfBirth(dto.getDateOfBirth()) // Optional
-                    .joinDate(dto.getJoinDate() != null ? dto.getJoinDate() : LocalDate.now())
-                    .leader(dto.getIsLeader() != null ? dto.getIsLeader() : false)
-                    .active(true)
-                    .workStatus(WorkStatus.ACTIVE)
-                    .build();
-                
-                staff.setUserRoles(new ArrayList<>());
-                
-                UserRole userRole = UserRole.builder()
-                    .role(role)
-                    .user(staff)
-                    .build();
-                
-                staff.getUserRoles().add(userRole);
-                staffList.add(staff);
-            }
+            staff.setUserRoles(new ArrayList<>());
             
-        
-            staffRepository.saveAll(staffList);
+            UserRole userRole = UserRole.builder()
+                .role(role)
+                .user(staff)
+                .build();
             
-            int currentChunk = (i / CHUNK_SIZE) + 1;
-            double progress = (currentChunk * 100.0) / totalChunks;
-            log.info("Processed chunk {}/{} ({} records) - Progress: {:.1f}%", 
-                     currentChunk, totalChunks, staffList.size(), progress);
+            staff.getUserRoles().add(userRole);
+            staffList.add(staff);
         }
         
-        log.info("Successfully imported {} staff members", dataList.size());
+        staffRepository.saveAll(staffList);
     }
     
     @Override
@@ -204,67 +186,26 @@ public class StaffExcelService extends BaseExcelHandler<StaffExcelDTO> {
         };
     }
   
-    public Workbook exportAllStaff() throws Exception {
-        List<Staff> staffList = staffRepository.findAll();
-        List<StaffExcelDTO> dtoList = staffList.stream()
-            .map(staff -> {
-                // Get first role (should only have one)
-                String roleName = "STAFF"; // default
-                if (staff.getUserRoles() != null && !staff.getUserRoles().isEmpty()) {
-                    roleName = staff.getUserRoles().get(0).getRole().getName();
-                }
-                
-                return StaffExcelDTO.builder()
-                    .email(staff.getEmail())
-                    .fullName(staff.getFullName())
-                    .phone(staff.getPhone())
-                    .address(staff.getAddress())
-                    .dateOfBirth(staff.getDateOfBirth())
-                    .joinDate(staff.getJoinDate())
-                    .isLeader(staff.getLeader())
-                    .role(roleName)
-                    .build();
-            })
-            .toList();
-        
-        return generateExcel(dtoList);
-    }
-    
-    
-    private boolean isEmptyRow(Row row) {
-        for (int i = 0; i < 3; i++) {
-            Cell cell = row.getCell(i);
-            if (cell != null && !getCellValueAsString(cell).isBlank()) {
-                return false;
-            }
+    @Transactional(readOnly = true)
+    public void exportAllStaff(OutputStream outputStream) throws Exception {
+        // Stream cần transaction mở suốt quá trình ghi
+        try (Stream<StaffExcelDTO> rows = staffRepository.streamAllForExport()) {
+            exportStreaming(rows, outputStream);
         }
-        return true;
     }
     
-    private LocalDate parseDateCell(Cell cell) {
-        if (cell == null) {
-            return null;
-        }
-        
-        String dateStr = getCellValueAsString(cell);
-        if (dateStr.isBlank()) {
-            return null;
-        }
-        
-        try {
-            return LocalDate.parse(dateStr, DATE_FORMATTER);
-        } catch (DateTimeParseException e) {
-            log.warn("Failed to parse date: {}", dateStr);
-            return null;
+    
+    private String defaultPasswordHash() {
+        String hash = cachedPasswordHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode("123456");
+            cachedPasswordHash = hash;
         }
+        return hash;
     }
     
-    private Boolean parseBooleanCell(Cell cell) {
-        if (cell == null) {
-            return false;
-        }
-        
-        String value = getCellValueAsString(cell).toLowerCase();
+    private Boolean parseBoolean(String value) {
+        value = value.toLowerCase();
         return value.equals("true") || value.equals("1") || value.equals("yes");
     }
 }
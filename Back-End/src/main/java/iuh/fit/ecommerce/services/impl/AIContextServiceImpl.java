@@ -0,0 +1,145 @@
+package iuh.fit.ecommerce.services.impl;
+
+import iuh.fit.ecommerce.configurations.CacheConfig;
+import iuh.fit.ecommerce.dtos.projection.FeaturedProductProjection;
+import iuh.fit.ecommerce.dtos.response.product.ProductResponse;
+import iuh.fit.ecommerce.entities.Customer;
+import iuh.fit.ecommerce.entities.Order;
+import iuh.fit.ecommerce.entities.Product;
+import iuh.fit.ecommerce.enums.OrderStatus;
+import iuh.fit.ecommerce.exceptions.ErrorCode;
+import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
+import iuh.fit.ecommerce.mappers.ProductMapper;
+import iuh.fit.ecommerce.repositories.CustomerRepository;
+import iuh.fit.ecommerce.repositories.OrderRepository;
+import iuh.fit.ecommerce.repositories.ProductRepository;
+import iuh.fit.ecommerce.services.AIContextService;
+import iuh.fit.ecommerce.services.ProductSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Dựng ngữ cảnh cho trợ lý AI với số query cố định mỗi lượt chat:
+ * khách hàng (1) + id đơn gần nhất (1) + đơn kèm chi tiết (1); sản phẩm nổi bật lấy từ cache.
+ */
+@Service
+@RequiredArgsConstructor
+public class AIContextServiceImpl implements AIContextService {
+
+    private static final int RECENT_ORDER_LIMIT = 3;
+    private static final int FEATURED_PRODUCT_LIMIT = 10;
+
+    private final CustomerRepository customerRepository;
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final ProductSearchService productSearchService;
+    private final ProductMapper productMapper;
+
+    @Override
+    @Transactional(readOnly = true)
+    public String buildCustomerContext(Long customerId) {
+        Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.CUSTOMER_NOT_FOUND));
+
+        StringBuilder context = new StringBuilder();
+
+        // Thông tin khách hàng
+        context.append("Khách hàng: ").append(customer.getFullName()).append("\n");
+        context.append("Email: ").append(customer.getEmail()).append("\n\n");
+
+        // Đơn hàng gần nhất: lấy id trước rồi fetch join chi tiết (fetch join collection không phân trang được)
+        List<Long> recentOrderIds = orderRepository.findRecentIdsByCustomerId(
+                customer.getId(),
+                PageRequest.of(0, RECENT_ORDER_LIMIT)
+        );
+        List<Order> recentOrders = recentOrderIds.isEmpty()
+                ? List.of()
+                : orderRepository.findAllWithDetailsByIdIn(recentOrderIds);
+
+        if (!recentOrders.isEmpty()) {
+            context.append("Đơn hàng gần đây của khách:\n");
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+            for (Order order : recentOrders) {
+                context.append("  - Đơn ").append(order.getId())
+                        .append(" (").append(order.getCreatedAt().format(formatter)).append(")")
+                        .append("\n    Trạng thái: ").append(getOrderStatusText(order.getStatus()))
+                        .append("\n    Tổng tiền: ").append(String.format("%,.0fđ", order.getTotalPrice()))
+                        .append("\n    Sản phẩm:\n");
+
+                // Chi tiết sản phẩm trong đơn
+                order.getOrderDetails().forEach(detail -> {
+                    context.append("      + ").append(detail.getProductVariant().getProduct().getName())
+                            .append(" x").append(detail.getQuantity())
+                            .append(" - ").append(String.format("%,.0fđ", detail.getPrice()))
+                            .append("\n");
+                });
+                context.append("\n");
+            }
+        }
+
+        return context.toString();
+    }
+
+    @Override
+    public String buildGuestContext() {
+        return "Khách: Khách vãng lai (chưa đăng nhập)\n";
+    }
+
+    // Giống nhau cho mọi khách hàng nên cache chung, thay vì load 10 sản phẩm kèm biến thể mỗi lượt chat
+    @Override
+    @Cacheable(value = CacheConfig.AI_CONTEXT_CACHE, key = "'featured'")
+    public String getFeaturedProductsContext() {
+        List<FeaturedProductProjection> topProducts =
+                productRepository.findFeaturedProducts(PageRequest.of(0, FEATURED_PRODUCT_LIMIT));
+        if (topProducts.isEmpty()) return "";
+
+        StringBuilder context = new StringBuilder("Sản phẩm nổi bật hiện có:\n");
+        for (FeaturedProductProjection product : topProducts) {
+            context.append("  - ").append(product.getName())
+                    .append(" (").append(product.getBrandName()).append(")")
+                    .append("\n    Giá từ: ").append(String.format("%,.0fđ",
+                            product.getMinPrice() != null ? product.getMinPrice() : 0.0))
+                    .append("\n    Danh mục: ").append(product.getCategoryName())
+                    .append("\n");
+        }
+        return context.toString();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductResponse> getProductCards(List<Long> productIds) {
+        if (productIds.isEmpty()) return new ArrayList<>();
+
+        // Các query fetch join theo lô dùng cho index, thêm ảnh sản phẩm, rồi map trong cùng transaction
+        Map<Long, Product> productsById = productSearchService.loadProductsForIndexing(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        productRepository.findAllWithProductImagesByIdIn(productIds);
+
+        return productIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .map(productMapper::toResponse)
+                .collect(Collectors.toList());
+    }
+
+    private String getOrderStatusText(OrderStatus status) {
+        return switch (status) {
+            case PENDING -> "⏳ Chờ xử lý";
+            case PROCESSING -> "🔄 Đang xử lý";
+            case READY_FOR_PICKUP -> "📦 Sẵn sàng lấy hàng";
+            case SHIPPED -> "🚚 Đang giao hàng";
+            case COMPLETED -> "✅ Hoàn thành";
+            case CANCELED -> "❌ Đã hủy";
+            default -> status.name();
+        };
+    }
+}
@@ -1,58 +1,144 @@
 package iuh.fit.ecommerce.services.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import iuh.fit.ecommerce.dtos.response.ai.ChatAIResponse;
+import iuh.fit.ecommerce.dtos.response.ai.ChatAIStreamEvent;
 import iuh.fit.ecommerce.dtos.response.ai.ChatHistoryMessage;
+import iuh.fit.ecommerce.dtos.response.ai.ProductRetrievalResult;
 import iuh.fit.ecommerce.dtos.response.product.ProductResponse;
-import iuh.fit.ecommerce.entities.Customer;
-import iuh.fit.ecommerce.entities.Order;
-import iuh.fit.ecommerce.entities.Product;
-import iuh.fit.ecommerce.entities.ProductVariant;
-import iuh.fit.ecommerce.exceptions.ErrorCode;
-import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
-import iuh.fit.ecommerce.mappers.ProductMapper;
-import iuh.fit.ecommerce.repositories.CustomerRepository;
-import iuh.fit.ecommerce.repositories.OrderRepository;
-import iuh.fit.ecommerce.repositories.ProductRepository;
+import iuh.fit.ecommerce.services.AIContextService;
 import iuh.fit.ecommerce.services.AIService;
 import iuh.fit.ecommerce.services.ChatMemoryService;
 import iuh.fit.ecommerce.services.VectorStoreService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.PromptTemplate;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AIServiceImpl implements AIService {
 
-    private final CustomerRepository customerRepository;
-    private final OrderRepository orderRepository;
-    private final ProductRepository productRepository;
+    private static final int RETRIEVAL_TOP_K = 5;
+    private static final int PRODUCT_CARD_LIMIT = 2;
+    private static final String STREAM_ERROR_MESSAGE = "Trợ lý AI đang gặp sự cố, vui lòng thử lại sau.";
+
     private final ChatModel chatModel;
     private final ChatMemoryService chatMemoryService;
     private final VectorStoreService vectorStoreService;
-    private final ProductMapper productMapper;
+    private final AIContextService aiContextService;
+    private final MeterRegistry meterRegistry;
 
     @Override
     public ChatAIResponse chat(String message, Long customerId, String sessionId) {
-        List<ChatHistoryMessage> conversationHistory = chatMemoryService.getRecentMessages(sessionId, 10);
-        
-        List<String> relevantProducts = vectorStoreService.searchSimilarProducts(message, 5);
+        PreparedChat prepared = prepare(message, customerId, sessionId);
+
+        String response = timeStage("llm", () -> chatModel.call(prepared.prompt())
+                .getResult()
+                .getOutput()
+                .getText());
+        timeStage("memory", () -> {
+            saveTurn(sessionId, message, response);
+            return null;
+        });
+
+        return ChatAIResponse.builder()
+                .message(response)
+                .role("assistant")
+                .products(productCards(message, prepared.retrieval()))
+                .build();
+    }
+
+    @Override
+    public Flux<ChatAIStreamEvent> chatStream(String message, Long customerId, String sessionId) {
+        // Chuẩn bị prompt (history, retrieval, context) trên boundedElastic, không giữ thread request
+        return Mono.fromCallable(() -> prepare(message, customerId, sessionId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(prepared -> streamAnswer(message, sessionId, prepared))
+                // Lỗi giữa chừng (model, retrieval, memory): gửi event "error" để client biết câu trả lời dừng ở đâu
+                .onErrorResume(e -> {
+                    log.warn("AI chat stream failed for session {}: {}", sessionId, e.getMessage());
+                    meterRegistry.counter("ai.chat.stream.errors").increment();
+                    return Mono.just(ChatAIStreamEvent.builder()
+                            .event(ChatAIStreamEvent.ERROR)
+                            .error(STREAM_ERROR_MESSAGE)
+                            .build());
+                });
+    }
+
+    private Flux<ChatAIStreamEvent> streamAnswer(String message, String sessionId, PreparedChat prepared) {
+        StringBuilder answer = new StringBuilder();
+        AtomicBoolean firstToken = new AtomicBoolean(true);
+        long startedAt = System.nanoTime();
+
+        Flux<ChatAIStreamEvent> tokens = chatModel.stream(prepared.prompt())
+                .mapNotNull(chunk -> chunk.getResult() != null && chunk.getResult().getOutput() != null
+                        ? chunk.getResult().getOutput().getText()
+                        : null)
+                .filter(text -> !text.isEmpty())
+                .doOnNext(text -> {
+                    if (firstToken.compareAndSet(true, false)) {
+                        recordStage("first_token", startedAt);
+                    }
+                    answer.append(text);
+                })
+                .map(text -> ChatAIStreamEvent.builder()
+                        .event(ChatAIStreamEvent.TOKEN)
+                        .delta(text)
+                        .build());
+
+        // Chỉ khi model trả xong mới ghi memory một lần và gửi gói cuối kèm sản phẩm gợi ý
+        Mono<ChatAIStreamEvent> done = Mono.fromCallable(() -> {
+                    recordStage("llm", startedAt);
+                    String response = answer.toString();
+                    timeStage("memory", () -> {
+                        saveTurn(sessionId, message, response);
+                        return null;
+                    });
+                    return ChatAIStreamEvent.builder()
+                            .event(ChatAIStreamEvent.DONE)
+                            .response(ChatAIResponse.builder()
+                                    .message(response)
+                                    .role("assistant")
+                                    .products(productCards(message, prepared.retrieval()))
+                                    .build())
+                            .build();
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+
+        return tokens.concatWith(done);
+    }
+
+    private PreparedChat prepare(String message, Long customerId, String sessionId) {
+        List<ChatHistoryMessage> conversationHistory = timeStage("history",
+                () -> chatMemoryService.getRecentMessages(sessionId, 10));
+
+        // Embed câu hỏi một lần, dùng chung kết quả cho prompt và danh sách sản phẩm gợi ý
+        ProductRetrievalResult retrieval = timeStage("retrieval",
+                () -> vectorStoreService.retrieve(message, RETRIEVAL_TOP_K));
+        List<String> relevantProducts = retrieval.getProductContexts();
         String productsContext = relevantProducts.isEmpty() 
                 ? "(Không tìm thấy sản phẩm liên quan)" 
                 : String.join("\n---\n", relevantProducts);
             
-        String context = (customerId != null) 
-                ? buildContextForCustomer(customerId)
-                : buildContextForGuest();
+        String context = timeStage("context", () -> (customerId != null)
+                ? aiContextService.buildCustomerContext(customerId) + aiContextService.getFeaturedProductsContext()
+                : aiContextService.buildGuestContext());
 
         String historyString = buildConversationHistory(conversationHistory);
         
@@ -88,14 +174,15 @@ public class AIServiceImpl implements AIService {
                 "history", historyString,
                 "question", message
         ));
-        String response = chatModel.call(prompt)
-                .getResult()
-                .getOutput()
-                .getText();
-        chatMemoryService.addMessage(sessionId, "user", message);
-        
-        chatMemoryService.addMessage(sessionId, "assistant", response);
+        return new PreparedChat(prompt, retrieval);
+    }
 
+    private void saveTurn(String sessionId, String message, String response) {
+        // Câu hỏi và câu trả lời ghi cùng một lần, một round trip Redis
+        chatMemoryService.addExchange(sessionId, message, response);
+    }
+
+    private List<ProductResponse> productCards(String message, ProductRetrievalResult retrieval) {
         String lowerMessage = message.toLowerCase();
         boolean isProductRelated = lowerMessage.contains("sản phẩm") 
                 || lowerMessage.contains("mua") 
@@ -107,25 +194,29 @@ public class AIServiceImpl implements AIService {
                 || lowerMessage.contains("khuyên")
                 || lowerMessage.contains("phù hợp");
 
-        List<ProductResponse> productResponses = new ArrayList<>();
-        
-        if (isProductRelated) {
-            List<Long> productIds = vectorStoreService.searchSimilarProductIds(message, 2);
-            List<Product> products = new ArrayList<>();
-            if (!productIds.isEmpty()) {
-                products = productRepository.findAllById(productIds);
-            }
-
-            productResponses = products.stream()
-                    .map(productMapper::toResponse)
-                    .collect(Collectors.toList());
+        if (!isProductRelated) {
+            return new ArrayList<>();
         }
+        List<Long> productIds = retrieval.getProductIds().stream()
+                .limit(PRODUCT_CARD_LIMIT)
+                .collect(Collectors.toList());
+        return timeStage("products", () -> aiContextService.getProductCards(productIds));
+    }
 
-        return ChatAIResponse.builder()
-                .message(response)
-                .role("assistant")
-                .products(productResponses)
-                .build();
+    private <T> T timeStage(String stage, Supplier<T> work) {
+        return Timer.builder("ai.chat.stage.duration")
+                .description("Thời gian từng bước của một lượt chat với trợ lý AI")
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .record(work);
+    }
+
+    private void recordStage(String stage, long startedAtNanos) {
+        Timer.builder("ai.chat.stage.duration")
+                .description("Thời gian từng bước của một lượt chat với trợ lý AI")
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedAtNanos, TimeUnit.NANOSECONDS);
     }
 
     private String buildConversationHistory(List<ChatHistoryMessage> history) {
@@ -141,88 +232,5 @@ public class AIServiceImpl implements AIService {
                 .collect(Collectors.joining("\n"));
     }
 
-    private String buildContextForCustomer(Long customerId) {
-        Customer customer = customerRepository.findById(customerId)
-                .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.CUSTOMER_NOT_FOUND));
-        
-        StringBuilder context = new StringBuilder();
-
-        // Thông tin khách hàng
-        context.append("Khách hàng: ").append(customer.getFullName()).append("\n");
-        context.append("Email: ").append(customer.getEmail()).append("\n\n");
-
-        // Đơn hàng gần nhất
-        List<Order> recentOrders = orderRepository.findByCustomerId(
-                customer.getId(),
-                PageRequest.of(0, 3)
-        );
-
-        if (!recentOrders.isEmpty()) {
-            context.append("Đơn hàng gần đây của khách:\n");
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-
-            for (Order order : recentOrders) {
-                context.append("  - Đơn ").append(order.getId())
-                        .append(" (").append(order.getCreatedAt().format(formatter)).append(")")
-                        .append("\n    Trạng thái: ").append(getOrderStatusText(order.getStatus()))
-                        .append("\n    Tổng tiền: ").append(String.format("%,.0fđ", order.getTotalPrice()))
-                        .append("\n    Sản phẩm:\n");
-
-                // Chi tiết sản phẩm trong đơn
-                order.getOrderDetails().forEach(detail -> {
-                    context.append("      + ").append(detail.getProductVariant().getProduct().getName())
-                            .append(" x").append(detail.getQuantity())
-                            .append(" - ").append(String.format("%,.0fđ", detail.getPrice()))
-                            .append("\n");
-                });
-                context.append("\n");
-            }
-        }
-
-        // Sản phẩm nổi bật
-        List<Product> topProducts = productRepository.findAll(PageRequest.of(0, 10))
-                .getContent();
-
-        if (!topProducts.isEmpty()) {
-            context.append("Sản phẩm nổi bật hiện có:\n");
-            for (Product product : topProducts) {
-                Double minPrice = findMinPrice(product);
-                context.append("  - ").append(product.getName())
-                        .append(" (").append(product.getBrand().getName()).append(")")
-                        .append("\n    Giá từ: ").append(String.format("%,.0fđ", minPrice))
-                        .append("\n    Danh mục: ").append(product.getCategory().getName())
-                        .append("\n");
-            }
-        }
-
-        return context.toString();
-    }
-
-    private String buildContextForGuest() {
-        StringBuilder context = new StringBuilder();
-        
-        context.append("Khách: Khách vãng lai (chưa đăng nhập)\n");
-        
-        return context.toString();
-    }
-
-    private String getOrderStatusText(iuh.fit.ecommerce.enums.OrderStatus status) {
-        return switch (status) {
-            case PENDING -> "⏳ Chờ xử lý";
-            case PROCESSING -> "🔄 Đang xử lý";
-            case READY_FOR_PICKUP -> "📦 Sẵn sàng lấy hàng";
-            case SHIPPED -> "🚚 Đang giao hàng";
-            case COMPLETED -> "✅ Hoàn thành";
-            case CANCELED -> "❌ Đã hủy";
-            default -> status.name();
-        };
-    }
-
-    private Double findMinPrice(Product product) {
-        return product.getProductVariants().stream()
-                .map(ProductVariant::getPrice)
-                .min(Double::compare)
-                .orElse(0.0);
-    }
+    private record PreparedChat(Prompt prompt, ProductRetrievalResult retrieval) {}
 }
-
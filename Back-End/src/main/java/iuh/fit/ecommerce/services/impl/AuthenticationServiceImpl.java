@@ -15,6 +15,7 @@ import iuh.fit.ecommerce.dtos.response.authentication.RefreshTokenResponse;
 import iuh.fit.ecommerce.dtos.response.user.UserProfileResponse;
 import iuh.fit.ecommerce.entities.*;
 import iuh.fit.ecommerce.enums.TokenType;
+import iuh.fit.ecommerce.events.UserAccessChangedEvent;
 import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.ConflictException;
 import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
@@ -28,6 +29,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientProperties;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -73,6 +75,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final SecurityUtils securityUtils;
+    private final ApplicationEventPublisher eventPublisher;
     private final OAuth2ClientProperties oAuth2ClientProperties;
     private final UserMapper userMapper;
 
@@ -182,6 +185,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
     public void logout(HttpServletRequest request) {
         User currentUser = securityUtils.getCurrentUser();
         String refreshToken = getRefreshTokenFromCookie(request);
+        eventPublisher.publishEvent(new UserAccessChangedEvent(currentUser.getEmail()));
 
         if (refreshToken == null) {
             List<RefreshToken> tokens = refreshTokenRepository.findAllByUserId(currentUser.getId());
@@ -19,6 +19,9 @@ import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
 import iuh.fit.ecommerce.mappers.BrandMapper;
 import iuh.fit.ecommerce.repositories.BrandRepository;
 import iuh.fit.ecommerce.services.BrandService;
+import iuh.fit.ecommerce.configurations.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 
 import java.util.List;
 
@@ -33,6 +36,7 @@ public class BrandServiceImpl implements BrandService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.BRAND_CACHE, allEntries = true)
     public BrandResponse createBrand(BrandAddRequest request) {
         validateBrandName(request.getName(), null);
 
@@ -44,6 +48,7 @@ public class BrandServiceImpl implements BrandService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.BRAND_CACHE, key = "'page:' + #page + ':' + #size + ':' + #brandName")
     public PageResponse<BrandResponse> getBrands(int page, int size, String brandName) {
         page = Math.max(0, page - 1);
         Pageable pageable = PageRequest.of(page, size);
@@ -58,12 +63,14 @@ public class BrandServiceImpl implements BrandService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.BRAND_CACHE, key = "'id:' + #id")
     public BrandResponse getBrandById(Long id) {
         return brandMapper.toResponse(getBrandEntityById(id));
     }
 
     @Override
     @Transactional
+    @CacheEvict(value = {CacheConfig.BRAND_CACHE, CacheConfig.CATEGORY_BRAND_CACHE}, allEntries = true)
     public BrandResponse updateBrand(Long id, BrandAddRequest request) {
         Brand brand = getBrandEntityById(id);
         validateBrandName(request.getName(), brand);
@@ -84,6 +91,7 @@ public class BrandServiceImpl implements BrandService {
     }
 
     @Override
+    @CacheEvict(value = {CacheConfig.BRAND_CACHE, CacheConfig.CATEGORY_BRAND_CACHE}, allEntries = true)
     public void changeStatusBrand(Long id) {
         Brand brand = getBrandEntityById(id);
         brand.setStatus(!brand.getStatus());
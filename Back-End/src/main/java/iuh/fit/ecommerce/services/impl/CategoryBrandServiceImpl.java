@@ -20,6 +20,9 @@ import iuh.fit.ecommerce.services.CategoryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import iuh.fit.ecommerce.configurations.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 
 import java.util.List;
 import java.util.stream.Collectors; // <-- THÊM
@@ -37,6 +40,7 @@ public class CategoryBrandServiceImpl implements CategoryBrandService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.CATEGORY_BRAND_CACHE, allEntries = true)
     public void setBrandsForCategory(SetBrandsForCategoryRequest request) {
         Category category = categoryService.getCategoryEntityById(request.getCategoryId());
 
@@ -65,6 +69,7 @@ public class CategoryBrandServiceImpl implements CategoryBrandService {
 
 
     @Override
+    @Cacheable(value = CacheConfig.CATEGORY_BRAND_CACHE, key = "'brands:' + #categoryId + ':' + #brandName")
     public List<BrandResponse> getBrandsByCategoryId(
             Long categoryId, String brandName
     ) {
@@ -81,6 +86,7 @@ public class CategoryBrandServiceImpl implements CategoryBrandService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.CATEGORY_BRAND_CACHE, key = "'categories:' + #brandId + ':' + #categoryName")
     public List<CategoryResponse> getCategoriesByBrandId(
             Long brandId, String categoryName
     ) {
@@ -96,6 +102,7 @@ public class CategoryBrandServiceImpl implements CategoryBrandService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.CATEGORY_BRAND_CACHE, key = "'slug:' + #slug")
     public List<BrandResponse> getBrandsByCategorySlug(String slug) {
         List<Brand> brands = categoryBrandRepository.findBrandsByCategorySlug(slug);
         return brands.stream().map(brandMapper::toResponse).collect(Collectors.toList());
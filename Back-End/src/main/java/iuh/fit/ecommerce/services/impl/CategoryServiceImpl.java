@@ -21,6 +21,9 @@ import iuh.fit.ecommerce.mappers.CategoryMapper;
 import iuh.fit.ecommerce.repositories.AttributeRepository;
 import iuh.fit.ecommerce.repositories.CategoryRepository;
 import iuh.fit.ecommerce.services.CategoryService;
+import iuh.fit.ecommerce.configurations.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -36,6 +39,7 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.CATEGORY_CACHE, allEntries = true)
     public CategoryResponse createCategory(CategoryAddRequest request) {
         validateCategoryName(request.getName(), null);
 
@@ -49,6 +53,7 @@ public class CategoryServiceImpl implements CategoryService {
 
 
     @Override
+    @Cacheable(value = CacheConfig.CATEGORY_CACHE, key = "'page:' + #page + ':' + #size + ':' + #categoryName")
     public PageResponse<CategoryResponse> getCategories(int page, int size, String categoryName) {
 
         page = Math.max(0, page - 1);
@@ -64,12 +69,16 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.CATEGORY_CACHE, key = "'id:' + #id")
     public CategoryResponse getCategoryById(Long id) {
         return categoryMapper.toResponse(getCategoryEntityById(id));
     }
 
     @Override
     @Transactional
+    // Slug/trạng thái category còn nằm trong kết quả cache của brand, filter và variant theo category
+    @CacheEvict(value = {CacheConfig.CATEGORY_CACHE, CacheConfig.CATEGORY_BRAND_CACHE,
+            CacheConfig.FILTER_CRITERIA_CACHE, CacheConfig.VARIANT_CACHE}, allEntries = true)
     public CategoryResponse updateCategory(Long id, CategoryAddRequest request) {
         Category category = getCategoryEntityById(id);
 
@@ -97,6 +106,8 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @CacheEvict(value = {CacheConfig.CATEGORY_CACHE, CacheConfig.CATEGORY_BRAND_CACHE,
+            CacheConfig.FILTER_CRITERIA_CACHE, CacheConfig.VARIANT_CACHE}, allEntries = true)
     public void changeStatusCategory(Long id) {
         Category category = getCategoryEntityById(id);
         category.setStatus(!category.getStatus());
@@ -1,129 +1,141 @@
 package iuh.fit.ecommerce.services.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import iuh.fit.ecommerce.dtos.response.ai.ChatHistoryMessage;
 import iuh.fit.ecommerce.services.ChatMemoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Lịch sử chat lưu trong một Redis list mỗi session, mỗi phần tử là một tin nhắn dạng "u|epochSecond|nội dung".
+ * Ghi tin nhắn mới chỉ RPUSH + LTRIM + EXPIRE trong một script (một round trip, atomic),
+ * không đọc - sửa - ghi lại cả danh sách nên hai tin nhắn đến cùng lúc không ghi đè nhau.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ChatMemoryServiceImpl implements ChatMemoryService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
-    private final ObjectMapper objectMapper;
-    
-    private static final String REDIS_KEY_PREFIX = "chat:history:";
-    private static final String REDIS_ACTIVITY_PREFIX = "chat:activity:";
+    private final StringRedisTemplate redisTemplate;
+
+    // Key mới (kiểu list); key "chat:history:" cũ kiểu string tự hết hạn theo TTL
+    private static final String REDIS_KEY_PREFIX = "chat:messages:";
     private static final int MAX_HISTORY_SIZE = 15;
-    
+
     // TTL: Xóa session sau 30 phút không hoạt động
     private static final Duration SESSION_TTL = Duration.ofMinutes(30);
 
+    private static final char SEPARATOR = '|';
+
+    // ARGV[1] = số tin nhắn giữ lại, ARGV[2] = TTL (giây), ARGV[3..] = các tin nhắn cần thêm
+    private static final RedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('RPUSH', KEYS[1], unpack(ARGV, 3))
+            redis.call('LTRIM', KEYS[1], -tonumber(ARGV[1]), -1)
+            redis.call('EXPIRE', KEYS[1], tonumber(ARGV[2]))
+            return redis.call('LLEN', KEYS[1])
+            """, Long.class);
+
     @Override
     public void addMessage(String sessionId, String role, String content) {
-        String historyKey = REDIS_KEY_PREFIX + sessionId;
-        String activityKey = REDIS_ACTIVITY_PREFIX + sessionId;
-
-        List<ChatHistoryMessage> messages = getMessagesFromRedis(historyKey);
+        append(sessionId, encode(role, content));
+    }
 
-        ChatHistoryMessage message = ChatHistoryMessage.builder()
-                .role(role)
-                .content(content)
-                .timestamp(LocalDateTime.now())
-                .build();
-        
-        messages.add(message);
-        
-        // Giữ tối đa MAX_HISTORY_SIZE tin nhắn
-        if (messages.size() > MAX_HISTORY_SIZE) {
-            messages.remove(0);
-        }
-        
-        // Lưu lại vào Redis
-        try {
-            redisTemplate.opsForValue().set(historyKey, messages, SESSION_TTL);
-            redisTemplate.opsForValue().set(activityKey, LocalDateTime.now().toString(), SESSION_TTL);
-        } catch (Exception e) {
-            log.error("Error saving message to Redis for session: {}", sessionId, e);
-        }
+    @Override
+    public void addExchange(String sessionId, String userMessage, String assistantMessage) {
+        append(sessionId, encode("user", userMessage), encode("assistant", assistantMessage));
     }
 
     @Override
     public List<ChatHistoryMessage> getRecentMessages(String sessionId, int limit) {
-        String historyKey = REDIS_KEY_PREFIX + sessionId;
-        String activityKey = REDIS_ACTIVITY_PREFIX + sessionId;
-        List<ChatHistoryMessage> messages = getMessagesFromRedis(historyKey);
-        
-        if (messages == null || messages.isEmpty()) {
+        if (limit <= 0) {
             return new ArrayList<>();
         }
-        
-        // Cập nhật thời gian activity khi đọc
         try {
-            redisTemplate.opsForValue().set(activityKey, LocalDateTime.now().toString(), SESSION_TTL);
+            List<String> entries = redisTemplate.opsForList().range(REDIS_KEY_PREFIX + sessionId, -limit, -1);
+            if (entries == null || entries.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            List<ChatHistoryMessage> messages = new ArrayList<>(entries.size());
+            for (String entry : entries) {
+                ChatHistoryMessage message = decode(entry);
+                if (message != null) messages.add(message);
+            }
+            return messages;
         } catch (Exception e) {
-            log.error("Error updating activity timestamp for session: {}", sessionId, e);
+            log.error("Error getting messages from Redis for session: {}", sessionId, e);
+            return new ArrayList<>();
         }
-        
-        // Lấy N tin nhắn gần nhất
-        int startIndex = Math.max(0, messages.size() - limit);
-        return messages.subList(startIndex, messages.size());
     }
 
     @Override
     public void clearHistory(String sessionId) {
-        String historyKey = REDIS_KEY_PREFIX + sessionId;
-        String activityKey = REDIS_ACTIVITY_PREFIX + sessionId;
-        
         try {
-            redisTemplate.delete(historyKey);
-            redisTemplate.delete(activityKey);
+            redisTemplate.delete(REDIS_KEY_PREFIX + sessionId);
         } catch (Exception e) {
             log.error("Error clearing history for session: {}", sessionId, e);
         }
     }
 
-    private List<ChatHistoryMessage> getMessagesFromRedis(String key) {
-        try {
-            Object value = redisTemplate.opsForValue().get(key);
-            if (value == null) {
-                return new ArrayList<>();
-            }
+    private void append(String sessionId, String... entries) {
+        Object[] args = new Object[entries.length + 2];
+        args[0] = String.valueOf(MAX_HISTORY_SIZE);
+        args[1] = String.valueOf(SESSION_TTL.toSeconds());
+        System.arraycopy(entries, 0, args, 2, entries.length);
 
-            if (value instanceof List) {
-                List<?> rawList = (List<?>) value;
-                if (rawList.isEmpty()) {
-                    return new ArrayList<>();
-                }
-                
-                // Convert từ List<Map> hoặc List<ChatHistoryMessage> sang List<ChatHistoryMessage>
-                return rawList.stream()
-                        .map(item -> {
-                            if (item instanceof ChatHistoryMessage) {
-                                return (ChatHistoryMessage) item;
-                            } else {
-                                // Nếu là Map (từ JSON), convert sang ChatHistoryMessage
-                                return objectMapper.convertValue(item, ChatHistoryMessage.class);
-                            }
-                        })
-                        .collect(Collectors.toList());
-            }
-            
-            return new ArrayList<>();
+        try {
+            redisTemplate.execute(APPEND_SCRIPT, List.of(REDIS_KEY_PREFIX + sessionId), args);
         } catch (Exception e) {
-            log.error("Error getting messages from Redis for key: {}", key, e);
-            return new ArrayList<>();
+            log.error("Error saving message to Redis for session: {}", sessionId, e);
         }
     }
-}
 
+    // "user" -> "u", "assistant" -> "a"; role khác giữ nguyên
+    private static String encode(String role, String content) {
+        String roleCode = switch (role) {
+            case "user" -> "u";
+            case "assistant" -> "a";
+            default -> role;
+        };
+        return roleCode + SEPARATOR + Instant.now().getEpochSecond() + SEPARATOR + (content != null ? content : "");
+    }
+
+    private static ChatHistoryMessage decode(String entry) {
+        int first = entry.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : entry.indexOf(SEPARATOR, first + 1);
+        if (second < 0) {
+            log.warn("Skip malformed chat memory entry: {}", entry);
+            return null;
+        }
+
+        String roleCode = entry.substring(0, first);
+        String role = switch (roleCode) {
+            case "u" -> "user";
+            case "a" -> "assistant";
+            default -> roleCode;
+        };
+        LocalDateTime timestamp;
+        try {
+            timestamp = LocalDateTime.ofInstant(
+                    Instant.ofEpochSecond(Long.parseLong(entry.substring(first + 1, second))), ZoneId.systemDefault());
+        } catch (NumberFormatException e) {
+            timestamp = null;
+        }
+
+        return ChatHistoryMessage.builder()
+                .role(role)
+                .content(entry.substring(second + 1))
+                .timestamp(timestamp)
+                .build();
+    }
+}
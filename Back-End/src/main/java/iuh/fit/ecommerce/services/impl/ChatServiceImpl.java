@@ -2,9 +2,11 @@ package iuh.fit.ecommerce.services.impl;
 
 import iuh.fit.ecommerce.dtos.request.chat.ChatRequest;
 import iuh.fit.ecommerce.dtos.request.chat.MessageRequest;
+import iuh.fit.ecommerce.dtos.response.base.CursorPageResponse;
 import iuh.fit.ecommerce.dtos.response.chat.ChatResponse;
 import iuh.fit.ecommerce.dtos.response.chat.MessageResponse;
 import iuh.fit.ecommerce.entities.*;
+import iuh.fit.ecommerce.enums.ChatInboxScope;
 import iuh.fit.ecommerce.enums.MessageType;
 import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.InvalidParamException;
@@ -16,19 +18,28 @@ import iuh.fit.ecommerce.repositories.MessageRepository;
 import iuh.fit.ecommerce.services.*;
 import iuh.fit.ecommerce.utils.SecurityUtils;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ChatServiceImpl implements ChatService {
     
+    private static final int DEFAULT_INBOX_LIMIT = 20;
+    private static final int DEFAULT_MESSAGE_LIMIT = 50;
+    private static final int MAX_PAGE_LIMIT = 100;
+    
     private final ChatRepository chatRepository;
     private final MessageRepository messageRepository;
     private final CustomerService customerService;
@@ -50,6 +61,7 @@ public class ChatServiceImpl implements ChatService {
         
         Chat chat = Chat.builder()
                 .customer(customer)
+                .lastActivityAt(LocalDateTime.now())
                 .build();
         
         if (chatRequest.getStaffId() != null) {
@@ -58,21 +70,24 @@ public class ChatServiceImpl implements ChatService {
         }
         
         Chat savedChat = chatRepository.save(chat);
-        return chatMapper.toResponse(savedChat);
+        return chatMapper.toCustomerResponse(savedChat);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public ChatResponse getChatById(Long chatId) {
         Chat chat = getChatEntityById(chatId);
-        return chatMapper.toResponse(chat);
+        return chatMapper.toStaffResponse(chat);
     }
     
     @Override
+    @Transactional(readOnly = true)
     public ChatResponse getChatByCustomerId(Long customerId) {
         Chat chat = chatRepository.findByCustomerId(customerId)
                 .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.CHAT_NOT_FOUND_FOR_CUSTOMER));
-        ChatResponse response = chatMapper.toResponse(chat);
-        chatMapper.setUnreadCountForUser(response, customerId);
+        ChatResponse response = chatMapper.toCustomerResponse(chat);
+        // Chỉ kèm trang tin nhắn mới nhất, các trang cũ hơn lấy qua /messages?beforeId=
+        response.setMessages(findMessagePage(chat.getId(), null, DEFAULT_MESSAGE_LIMIT));
         return response;
     }
     
@@ -84,46 +99,50 @@ public class ChatServiceImpl implements ChatService {
     
     @Override
     public List<ChatResponse> getChatsByStaffId(Long staffId) {
-        List<Chat> chats = chatRepository.findByStaffId(staffId);
-        return chats.stream()
-                .map(chat -> {
-                    ChatResponse response = chatMapper.toResponse(chat);
-                    chatMapper.setUnreadCountForUser(response, staffId);
-                    return response;
-                })
-                .collect(Collectors.toList());
+        return findChatSummaries(staffId, false);
     }
     
     @Override
     public List<ChatResponse> getAllChats() {
-        List<Chat> chats = chatRepository.findAll();
-
-        User currentUser = securityUtil.getCurrentUser();
-        
-        return chats.stream()
-                .map(chat -> {
-                    ChatResponse response = chatMapper.toResponse(chat);
-                    chatMapper.setUnreadCountForUser(response, currentUser.getId());
-                    return response;
-                })
-                .collect(Collectors.toList());
+        return findChatSummaries(null, false);
     }
     
     @Override
     public List<ChatResponse> getUnassignedChats() {
-        List<Chat> chats = chatRepository.findUnassignedChats();
-        User currentUser = securityUtil.getCurrentUser();
-        
-        return chats.stream()
-                .map(chat -> {
-                    ChatResponse response = chatMapper.toResponse(chat);
-                    // Set unread count for current staff viewing
-                    chatMapper.setUnreadCountForUser(response, currentUser.getId());
-                    return response;
-                })
+        return findChatSummaries(null, true);
+    }
+    
+    private List<ChatResponse> findChatSummaries(Long staffId, boolean unassigned) {
+        return chatRepository.findInboxPage(staffId, unassigned, null, null, Pageable.unpaged()).stream()
+                .map(chatMapper::toStaffResponse)
                 .collect(Collectors.toList());
     }
     
+    @Override
+    public CursorPageResponse<ChatResponse> getInbox(ChatInboxScope scope, String cursor, Integer limit) {
+        int size = pageSize(limit, DEFAULT_INBOX_LIMIT);
+        Long staffId = scope == ChatInboxScope.MINE ? securityUtil.getCurrentUser().getId() : null;
+        InboxCursor after = InboxCursor.decode(cursor);
+
+        // Lấy dư một dòng để biết còn trang sau hay không
+        List<Chat> chats = chatRepository.findInboxPage(
+                staffId,
+                scope == ChatInboxScope.UNASSIGNED,
+                after != null ? after.lastActivityAt() : null,
+                after != null ? after.chatId() : null,
+                PageRequest.of(0, size + 1));
+
+        boolean hasMore = chats.size() > size;
+        List<Chat> page = hasMore ? chats.subList(0, size) : chats;
+        
+        return CursorPageResponse.<ChatResponse>builder()
+                .data(page.stream().map(chatMapper::toStaffResponse).collect(Collectors.toList()))
+                .limit(size)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? InboxCursor.of(page.getLast()).encode() : null)
+                .build();
+    }
+    
     @Override
     @Transactional
     public ChatResponse assignStaffToChat(Long chatId, Long staffId) {
@@ -137,7 +156,7 @@ public class ChatServiceImpl implements ChatService {
 
         chat.setStaff(staff);
         Chat updatedChat = chatRepository.save(chat);
-        return chatMapper.toResponse(updatedChat);
+        return chatMapper.toStaffResponse(updatedChat);
     }
 
     private boolean hasShipperRole(Staff staff) {
@@ -152,7 +171,7 @@ public class ChatServiceImpl implements ChatService {
         
         chat.setStaff(null);
         Chat updatedChat = chatRepository.save(chat);
-        return chatMapper.toResponse(updatedChat);
+        return chatMapper.toStaffResponse(updatedChat);
     }
 
     @Override
@@ -171,7 +190,7 @@ public class ChatServiceImpl implements ChatService {
         List<Chat> updatedChats = chatRepository.saveAll(chats);
         
         return updatedChats.stream()
-                .map(chatMapper::toResponse)
+                .map(chatMapper::toStaffResponse)
                 .collect(Collectors.toList());
     }
 
@@ -185,7 +204,7 @@ public class ChatServiceImpl implements ChatService {
         List<Chat> updatedChats = chatRepository.saveAll(chats);
         
         return updatedChats.stream()
-                .map(chatMapper::toResponse)
+                .map(chatMapper::toStaffResponse)
                 .collect(Collectors.toList());
     }
 
@@ -210,7 +229,14 @@ public class ChatServiceImpl implements ChatService {
         
         Message savedMessage = messageRepository.save(message);
 
-
+        // Tin của customer tăng bộ đếm phía staff và ngược lại
+        boolean fromCustomer = chat.getCustomer() != null && chat.getCustomer().getId().equals(sender.getId());
+        chatRepository.recordMessage(
+                chat.getId(),
+                savedMessage.getId(),
+                savedMessage.getCreatedAt() != null ? savedMessage.getCreatedAt() : LocalDateTime.now(),
+                fromCustomer ? 0 : 1,
+                fromCustomer ? 1 : 0);
 
         // Gửi push notification nếu staff nhắn cho customer
         if (messageRequest.getIsStaff() != null && messageRequest.getIsStaff() && chat.getCustomer() != null) {
@@ -250,12 +276,18 @@ public class ChatServiceImpl implements ChatService {
     }
     
     @Override
-    public List<MessageResponse> getMessagesByChatId(Long chatId) {
+    public List<MessageResponse> getMessagesByChatId(Long chatId, Long beforeId, Integer limit) {
         if (!chatRepository.existsById(chatId)) {
             throw new ResourceNotFoundException(ErrorCode.CHAT_NOT_FOUND);
         }
-        
-        List<Message> messages = messageRepository.findByChatIdOrderByCreatedAtAsc(chatId);
+        return findMessagePage(chatId, beforeId, pageSize(limit, DEFAULT_MESSAGE_LIMIT));
+    }
+    
+    // Trả về tối đa size tin cũ hơn beforeId, theo thứ tự thời gian tăng dần
+    private List<MessageResponse> findMessagePage(Long chatId, Long beforeId, int size) {
+        List<Message> messages = new ArrayList<>(
+                messageRepository.findPageByChatId(chatId, beforeId, PageRequest.of(0, size)));
+        Collections.reverse(messages);
         return messages.stream()
                 .map(messageMapper::toResponse)
                 .collect(Collectors.toList());
@@ -271,16 +303,16 @@ public class ChatServiceImpl implements ChatService {
             throw new IllegalStateException(ErrorCode.CHAT_USER_NOT_CUSTOMER.getMessage());
         }
 
-        Optional<Message> lastMessageOptional = messageRepository.findTopByChat_IdOrderByCreatedAtDesc(chatId);
-        if (lastMessageOptional.isEmpty()) {
+        Message lastMessage = chat.getLastMessage();
+        if (lastMessage == null) {
             return;
         }
 
-        Message lastMessage = lastMessageOptional.get();
         if (lastMessage.getSender().getId().equals(currentUser.getId())) {
             return;
         }
         messageRepository.markMessagesAsRead(chatId);
+        chatRepository.resetUnreadCounts(chatId);
     }
 
 
@@ -298,26 +330,26 @@ public class ChatServiceImpl implements ChatService {
             throw new IllegalStateException(ErrorCode.CHAT_STAFF_NOT_ASSIGNED.getMessage());
         }
 
-        Optional<Message> lastMessageOptional = messageRepository.findTopByChat_IdOrderByCreatedAtDesc(chatId);
-        if (lastMessageOptional.isEmpty()) {
+        Message lastMessage = chat.getLastMessage();
+        if (lastMessage == null) {
             throw new ResourceNotFoundException(ErrorCode.CHAT_NO_MESSAGES);
         }
 
-        Message lastMessage = lastMessageOptional.get();
         if (lastMessage.getSender().getId().equals(currentUser.getId())) {
             return;
         }
 
         messageRepository.markMessagesAsRead(chatId);
+        chatRepository.resetUnreadCounts(chatId);
     }
 
     
     @Override
     public Long getUnreadMessageCount(Long chatId, Long userId) {
-        if (!chatRepository.existsById(chatId)) {
-            throw new ResourceNotFoundException(ErrorCode.CHAT_NOT_FOUND);
-        }
-        return messageRepository.countUnreadMessagesByChatIdNotFromUserId(chatId, userId);
+        Chat chat = getChatEntityById(chatId);
+        boolean isCustomer = chat.getCustomer() != null && chat.getCustomer().getId().equals(userId);
+        Integer count = isCustomer ? chat.getCustomerUnreadCount() : chat.getStaffUnreadCount();
+        return count != null ? count.longValue() : 0L;
     }
 
     @Override
@@ -325,5 +357,45 @@ public class ChatServiceImpl implements ChatService {
         User currentUser = securityUtil.getCurrentUser();
         return  getChatByCustomerId(currentUser.getId());
     }
+
+    // Chat tạo trước khi có cột tóm tắt: dựng last message / unread count một lần từ bảng messages
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillChatSummaries() {
+        int updated = chatRepository.backfillSummaries();
+        if (updated > 0) {
+            log.info("Backfilled inbox summary for {} chats", updated);
+        }
+    }
+
+    private static int pageSize(Integer limit, int defaultLimit) {
+        if (limit == null || limit <= 0) return defaultLimit;
+        return Math.min(limit, MAX_PAGE_LIMIT);
+    }
+
+    // Cursor dạng base64("lastActivityAt,id") để client coi như chuỗi mờ
+    private record InboxCursor(LocalDateTime lastActivityAt, Long chatId) {
+
+        static InboxCursor of(Chat chat) {
+            return new InboxCursor(chat.getLastActivityAt(), chat.getId());
+        }
+
+        static InboxCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int comma = raw.lastIndexOf(',');
+                return new InboxCursor(LocalDateTime.parse(raw.substring(0, comma)),
+                        Long.parseLong(raw.substring(comma + 1)));
+            } catch (RuntimeException e) {
+                throw new InvalidParamException(ErrorCode.INVALID_PARAMETER);
+            }
+        }
+
+        String encode() {
+            String raw = lastActivityAt + "," + chatId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
 }
 
@@ -7,6 +7,7 @@ import iuh.fit.ecommerce.dtos.response.address.AddressResponse;
 import iuh.fit.ecommerce.dtos.response.base.PageResponse;
 import iuh.fit.ecommerce.dtos.response.customer.CustomerResponse;
 import iuh.fit.ecommerce.entities.*;
+import iuh.fit.ecommerce.events.UserAccessChangedEvent;
 import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
 import iuh.fit.ecommerce.mappers.CustomerMapper;
@@ -15,6 +16,7 @@ import iuh.fit.ecommerce.services.CustomerService;
 import iuh.fit.ecommerce.services.RankingService;
 import iuh.fit.ecommerce.utils.SecurityUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -37,6 +39,7 @@ public class CustomerServiceImpl implements CustomerService {
     private final RankingService rankingService;
     private final SecurityUtils securityUtils;
     private final iuh.fit.ecommerce.services.AddressService addressService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -93,6 +96,8 @@ public class CustomerServiceImpl implements CustomerService {
     @Transactional
     public CustomerResponse updateCustomer(long id, CustomerProfileRequest customerProfileRequest) {
         Customer customer = getCustomerEntityById(id);
+        // Email là username trong token, đổi email thì principal đang cache không còn đúng
+        eventPublisher.publishEvent(new UserAccessChangedEvent(customer.getEmail()));
         customer.setFullName(customerProfileRequest.getFullName());
         customer.setPhone(customerProfileRequest.getPhone());
         customer.setEmail(customerProfileRequest.getEmail());
@@ -108,6 +113,7 @@ public class CustomerServiceImpl implements CustomerService {
         Customer customer = getCustomerEntityById(id);
         cartRepository.deleteByCustomer(customer);
         customerRepository.delete(customer);
+        eventPublisher.publishEvent(new UserAccessChangedEvent(customer.getEmail()));
     }
 
     @Override
@@ -118,6 +124,7 @@ public class CustomerServiceImpl implements CustomerService {
         Boolean newStatus = (currentStatus == null) ? Boolean.TRUE : !currentStatus;
         customer.setActive(newStatus);
         customerRepository.save(customer);
+        eventPublisher.publishEvent(new UserAccessChangedEvent(customer.getEmail()));
     }
 
     @Override
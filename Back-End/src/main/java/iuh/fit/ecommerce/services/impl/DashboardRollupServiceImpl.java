@@ -0,0 +1,288 @@
+package iuh.fit.ecommerce.services.impl;
+
+import iuh.fit.ecommerce.dtos.projection.DailyMetricProjection;
+import iuh.fit.ecommerce.dtos.projection.DailyRevenueCheckProjection;
+import iuh.fit.ecommerce.dtos.response.dashboard.RollupConsistencyResponse;
+import iuh.fit.ecommerce.events.OrderChangedEvent;
+import iuh.fit.ecommerce.repositories.DailyProductRollupRepository;
+import iuh.fit.ecommerce.repositories.DailyPromotionRollupRepository;
+import iuh.fit.ecommerce.repositories.DailyRevenueRollupRepository;
+import iuh.fit.ecommerce.repositories.DailyVoucherRollupRepository;
+import iuh.fit.ecommerce.services.DashboardRollupService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Duy trì các bảng rollup theo ngày cho dashboard.
+ * Mỗi thay đổi trên orders chỉ đánh dấu ngày đặt hàng là "dirty"; job định kỳ tính lại đúng những ngày đó
+ * từ dữ liệu gốc (range query trên order_date), nên rollup luôn idempotent và tự sửa được khi lệch.
+ * Ngày dirty nằm trong một Redis set nên không mất khi restart; job lấy từng ngày sang sorted set "processing"
+ * (atomic, một node xử lý một ngày) và chỉ xóa khỏi đó sau khi transaction tính lại đã commit.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DashboardRollupServiceImpl implements DashboardRollupService {
+
+    private static final double AMOUNT_TOLERANCE = 0.01;
+
+    private final DailyRevenueRollupRepository dailyRevenueRollupRepository;
+    private final DailyProductRollupRepository dailyProductRollupRepository;
+    private final DailyVoucherRollupRepository dailyVoucherRollupRepository;
+    private final DailyPromotionRollupRepository dailyPromotionRollupRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final StringRedisTemplate redisTemplate;
+
+    private static final String DIRTY_DAYS_KEY = "dashboard:rollup:dirty";
+    private static final String PROCESSING_DAYS_KEY = "dashboard:rollup:processing";
+
+    // KEYS[1] = set dirty, KEYS[2] = zset processing, ARGV[1] = thời điểm nhận (ms)
+    private static final RedisScript<String> CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            local day = redis.call('SPOP', KEYS[1])
+            if day then redis.call('ZADD', KEYS[2], ARGV[1], day) end
+            return day
+            """, String.class);
+
+    // Trả lại set dirty các ngày bị nhận quá lâu mà chưa xong (node chết giữa chừng); ARGV[1] = mốc hết hạn (ms)
+    private static final RedisScript<Long> RECLAIM_SCRIPT = new DefaultRedisScript<>("""
+            local days = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1])
+            for _, day in ipairs(days) do
+                redis.call('SADD', KEYS[1], day)
+                redis.call('ZREM', KEYS[2], day)
+            end
+            return #days
+            """, Long.class);
+
+    @Value("${dashboard.rollup.verify-days:35}")
+    private int verifyDays;
+
+    @Value("${dashboard.rollup.claim-timeout-ms:600000}")
+    private long claimTimeoutMs;
+
+    private final Object rebuildLock = new Object();
+    private TransactionTemplate rebuildTransaction;
+
+    @PostConstruct
+    void initTransactionTemplate() {
+        rebuildTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    // Chỉ đánh dấu sau khi commit để job không đọc dữ liệu chưa commit
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        markDirty(event.orderDate().toLocalDate());
+    }
+
+    @Override
+    public void markDirty(LocalDate day) {
+        if (day == null) return;
+        try {
+            redisTemplate.opsForSet().add(DIRTY_DAYS_KEY, day.toString());
+        } catch (Exception e) {
+            // verifyRecentDays sẽ bù ngày này trong lần kiểm tra kế tiếp
+            log.warn("Mark dashboard rollup day {} dirty failed: {}", day, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${dashboard.rollup.flush-delay-ms:15000}")
+    public void flushDirtyDays() {
+        List<String> keys = List.of(DIRTY_DAYS_KEY, PROCESSING_DAYS_KEY);
+        long now = System.currentTimeMillis();
+        redisTemplate.execute(RECLAIM_SCRIPT, keys, String.valueOf(now - claimTimeoutMs));
+
+        // Giới hạn theo số ngày hiện có để ngày bị đánh dấu lại liên tục không giữ job chạy mãi
+        Long pending = redisTemplate.opsForSet().size(DIRTY_DAYS_KEY);
+        for (long i = 0; pending != null && i < pending; i++) {
+            // Lấy ra trước khi tính: đơn thay đổi trong lúc đang tính sẽ đánh dấu lại ngày này
+            String day = redisTemplate.execute(CLAIM_SCRIPT, keys, String.valueOf(System.currentTimeMillis()));
+            if (day == null) return;
+            try {
+                rebuildDay(LocalDate.parse(day));
+            } catch (Exception e) {
+                log.warn("Rebuild dashboard rollup for {} failed, will retry: {}", day, e.getMessage());
+                redisTemplate.opsForSet().add(DIRTY_DAYS_KEY, day);
+            }
+            // rebuildDay đã commit (hoặc ngày đã được trả lại set dirty): bỏ đánh dấu đang xử lý
+            redisTemplate.opsForZSet().remove(PROCESSING_DAYS_KEY, day);
+        }
+    }
+
+    @Override
+    public void rebuildDay(LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+
+        synchronized (rebuildLock) {
+            rebuildTransaction.executeWithoutResult(status -> {
+                dailyRevenueRollupRepository.deleteByDay(day);
+                dailyProductRollupRepository.deleteByDay(day);
+                dailyVoucherRollupRepository.deleteByDay(day);
+                dailyPromotionRollupRepository.deleteByDay(day);
+
+                dailyRevenueRollupRepository.insertFromOrders(day, start, end);
+                dailyProductRollupRepository.insertFromOrders(day, start, end);
+                dailyVoucherRollupRepository.insertFromUsages(day, start, end);
+                dailyPromotionRollupRepository.insertFromUsages(day, start, end);
+            });
+        }
+    }
+
+    @Override
+    public int backfill(LocalDate startDate, LocalDate endDate) {
+        int rebuilt = 0;
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            rebuildDay(day);
+            rebuilt++;
+        }
+        log.info("Dashboard rollup backfilled {} days ({} -> {})", rebuilt, startDate, endDate);
+        return rebuilt;
+    }
+
+    // Lần đầu deploy (bảng rollup trống): dựng lại toàn bộ lịch sử ở background
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (dailyRevenueRollupRepository.count() > 0) return;
+
+        LocalDateTime firstOrderDate = dailyRevenueRollupRepository.findFirstOrderDate();
+        if (firstOrderDate == null) return;
+
+        backfill(firstOrderDate.toLocalDate(), LocalDate.now());
+    }
+
+    @Override
+    public RollupConsistencyResponse checkConsistency(LocalDate startDate, LocalDate endDate, boolean repair) {
+        LocalDateTime start = startDate.atStartOfDay();
+        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
+
+        Map<LocalDate, DayTotals> raw = collectTotals(
+                dailyRevenueRollupRepository.findRawTotals(start, end),
+                dailyProductRollupRepository.findRawTotals(start, end),
+                dailyVoucherRollupRepository.findRawTotals(start, end),
+                dailyPromotionRollupRepository.findRawTotals(start, end));
+        Map<LocalDate, DayTotals> rollup = collectTotals(
+                dailyRevenueRollupRepository.findRollupTotals(startDate, endDate),
+                dailyProductRollupRepository.findRollupTotals(startDate, endDate),
+                dailyVoucherRollupRepository.findRollupTotals(startDate, endDate),
+                dailyPromotionRollupRepository.findRollupTotals(startDate, endDate));
+
+        Set<LocalDate> days = new TreeSet<>(raw.keySet());
+        days.addAll(rollup.keySet());
+
+        List<LocalDate> mismatched = new ArrayList<>();
+        for (LocalDate day : days) {
+            DayTotals expected = raw.getOrDefault(day, DayTotals.EMPTY);
+            DayTotals actual = rollup.getOrDefault(day, DayTotals.EMPTY);
+            if (!expected.matches(actual)) {
+                mismatched.add(day);
+            }
+        }
+
+        if (repair) {
+            mismatched.forEach(this::rebuildDay);
+        }
+
+        return RollupConsistencyResponse.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .checkedDays(days.size())
+                .mismatchedDays(mismatched)
+                .repaired(repair && !mismatched.isEmpty())
+                .build();
+    }
+
+    // Lưới an toàn: bù các ngày bị lỡ đánh dấu (restart giữa chừng, sửa dữ liệu trực tiếp trên DB...)
+    @Scheduled(cron = "${dashboard.rollup.verify-cron:0 30 2 * * *}")
+    public void verifyRecentDays() {
+        LocalDate today = LocalDate.now();
+        RollupConsistencyResponse result = checkConsistency(today.minusDays(verifyDays), today, true);
+        if (!result.getMismatchedDays().isEmpty()) {
+            log.warn("Dashboard rollup repaired {} inconsistent days: {}",
+                    result.getMismatchedDays().size(), result.getMismatchedDays());
+        }
+    }
+
+    private static Map<LocalDate, DayTotals> collectTotals(List<DailyRevenueCheckProjection> revenues,
+                                                           List<DailyMetricProjection> products,
+                                                           List<DailyMetricProjection> vouchers,
+                                                           List<DailyMetricProjection> promotions) {
+        Map<LocalDate, DayTotals> totals = new HashMap<>();
+        Function<LocalDate, DayTotals> init = d -> new DayTotals();
+
+        for (DailyRevenueCheckProjection p : revenues) {
+            DayTotals t = totals.computeIfAbsent(p.getDay(), init);
+            t.revenue = value(p.getRevenue());
+            t.orderCount = value(p.getOrderCount());
+            t.completedOrderCount = value(p.getCompletedOrderCount());
+        }
+        for (DailyMetricProjection p : products) {
+            DayTotals t = totals.computeIfAbsent(p.getDay(), init);
+            t.productQuantity = value(p.getCount());
+            t.productRevenue = value(p.getAmount());
+        }
+        for (DailyMetricProjection p : vouchers) {
+            DayTotals t = totals.computeIfAbsent(p.getDay(), init);
+            t.voucherUsage = value(p.getCount());
+            t.voucherDiscount = value(p.getAmount());
+        }
+        for (DailyMetricProjection p : promotions) {
+            DayTotals t = totals.computeIfAbsent(p.getDay(), init);
+            t.promotionUsage = value(p.getCount());
+            t.promotionDiscount = value(p.getAmount());
+        }
+        return totals;
+    }
+
+    private static long value(Long v) {
+        return v != null ? v : 0L;
+    }
+
+    private static double value(Double v) {
+        return v != null ? v : 0.0;
+    }
+
+    private static class DayTotals {
+        static final DayTotals EMPTY = new DayTotals();
+
+        double revenue;
+        long orderCount;
+        long completedOrderCount;
+        long productQuantity;
+        double productRevenue;
+        long voucherUsage;
+        double voucherDiscount;
+        long promotionUsage;
+        double promotionDiscount;
+
+        boolean matches(DayTotals other) {
+            return orderCount == other.orderCount
+                    && completedOrderCount == other.completedOrderCount
+                    && productQuantity == other.productQuantity
+                    && voucherUsage == other.voucherUsage
+                    && promotionUsage == other.promotionUsage
+                    && Math.abs(revenue - other.revenue) < AMOUNT_TOLERANCE
+                    && Math.abs(productRevenue - other.productRevenue) < AMOUNT_TOLERANCE
+                    && Math.abs(voucherDiscount - other.voucherDiscount) < AMOUNT_TOLERANCE
+                    && Math.abs(promotionDiscount - other.promotionDiscount) < AMOUNT_TOLERANCE;
+        }
+    }
+}
@@ -3,27 +3,39 @@ package iuh.fit.ecommerce.services.impl;
 import iuh.fit.ecommerce.dtos.projection.TopProductProjection;
 import iuh.fit.ecommerce.dtos.projection.TopPromotionProjection;
 import iuh.fit.ecommerce.dtos.projection.TopVoucherProjection;
+import iuh.fit.ecommerce.dtos.projection.RevenueByMonthProjection;
+import iuh.fit.ecommerce.dtos.projection.RevenueRollupTotalProjection;
+import iuh.fit.ecommerce.dtos.projection.UsageTotalProjection;
 import iuh.fit.ecommerce.dtos.response.dashboard.*;
 import iuh.fit.ecommerce.entities.OrderDetail;
 import iuh.fit.ecommerce.entities.PromotionUsage;
 import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
+import iuh.fit.ecommerce.repositories.DailyProductRollupRepository;
+import iuh.fit.ecommerce.repositories.DailyPromotionRollupRepository;
+import iuh.fit.ecommerce.repositories.DailyRevenueRollupRepository;
+import iuh.fit.ecommerce.repositories.DailyVoucherRollupRepository;
 import iuh.fit.ecommerce.repositories.OrderDetailRepository;
 import iuh.fit.ecommerce.repositories.OrderRepository;
 import iuh.fit.ecommerce.repositories.PromotionUsageRepository;
 import iuh.fit.ecommerce.repositories.VoucherUsageHistoryRepository;
 import iuh.fit.ecommerce.services.DashboardService;
 import iuh.fit.ecommerce.services.ProductService;
+import iuh.fit.ecommerce.utils.DashboardQueryExecutor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.Year;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -35,60 +47,43 @@ public class DashboardServiceImpl implements DashboardService {
     private final VoucherUsageHistoryRepository voucherUsageHistoryRepository;
     private final PromotionUsageRepository promotionUsageRepository;
     private final ProductService productService;
+    private final DailyRevenueRollupRepository dailyRevenueRollupRepository;
+    private final DailyProductRollupRepository dailyProductRollupRepository;
+    private final DailyVoucherRollupRepository dailyVoucherRollupRepository;
+    private final DailyPromotionRollupRepository dailyPromotionRollupRepository;
+    private final DashboardQueryExecutor dashboardQueryExecutor;
+
+    private static final int TOP_LIMIT = 5;
+    private static final int ALL_LIMIT = Integer.MAX_VALUE;
 
     @Override
     public List<RevenueByMonthResponse> getRevenueByMonth(Integer year, Integer month) {
+        // Nếu có month cụ thể, chỉ lấy tháng đó; nếu không lấy cả 12 tháng trong một query trên rollup
+        int fromMonth = month != null ? month : 1;
+        int toMonth = month != null ? month : 12;
+
+        Map<Integer, RevenueByMonthProjection> byMonth = dailyRevenueRollupRepository.getRevenueByMonth(
+                        YearMonth.of(year, fromMonth).atDay(1),
+                        YearMonth.of(year, toMonth).atEndOfMonth()).stream()
+                .collect(Collectors.toMap(RevenueByMonthProjection::getMonth, Function.identity()));
+
         List<RevenueByMonthResponse> result = new ArrayList<>();
-        
-        // Nếu có month cụ thể, chỉ lấy tháng đó
-        if (month != null) {
-            YearMonth yearMonth = YearMonth.of(year, month);
-            LocalDate startDate = yearMonth.atDay(1);
-            LocalDate endDate = yearMonth.atEndOfMonth();
-            
-            LocalDateTime start = startDate.atStartOfDay();
-            LocalDateTime end = endDate.atTime(23, 59, 59);
-            
-            Double revenue = orderRepository.sumRevenueByDateRange(start, end);
-            Long orderCount = orderRepository.countByDateRange(start, end);
-            
+        for (int m = fromMonth; m <= toMonth; m++) {
+            RevenueByMonthProjection projection = byMonth.get(m);
             result.add(RevenueByMonthResponse.builder()
-                    .month(month)
+                    .month(m)
                     .year(year)
-                    .revenue(revenue != null ? revenue : 0.0)
-                    .orderCount(orderCount)
+                    .revenue(projection != null && projection.getRevenue() != null ? projection.getRevenue() : 0.0)
+                    .orderCount(projection != null && projection.getOrderCount() != null ? projection.getOrderCount() : 0L)
                     .build());
-        } else {
-            // Nếu không có month, lấy tất cả 12 tháng
-            for (int m = 1; m <= 12; m++) {
-                YearMonth yearMonth = YearMonth.of(year, m);
-                LocalDate startDate = yearMonth.atDay(1);
-                LocalDate endDate = yearMonth.atEndOfMonth();
-                
-                LocalDateTime start = startDate.atStartOfDay();
-                LocalDateTime end = endDate.atTime(23, 59, 59);
-                
-                Double revenue = orderRepository.sumRevenueByDateRange(start, end);
-                Long orderCount = orderRepository.countByDateRange(start, end);
-                
-                result.add(RevenueByMonthResponse.builder()
-                        .month(m)
-                        .year(year)
-                        .revenue(revenue != null ? revenue : 0.0)
-                        .orderCount(orderCount)
-                        .build());
-            }
         }
-        
+
         return result;
     }
 
     @Override
     public List<RevenueByDayResponse> getRevenueByDay(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atTime(23, 59, 59);
-        
-        return orderRepository.getRevenueByDay(start, end).stream()
+        return dailyRevenueRollupRepository.getRevenueByDay(startDate, endDate).stream()
                 .map(projection -> RevenueByDayResponse.builder()
                         .date(projection.getOrderDate())
                         .revenue(projection.getRevenue())
@@ -99,7 +94,7 @@ public class DashboardServiceImpl implements DashboardService {
 
     @Override
     public List<RevenueByYearResponse> getRevenueByYear(Integer year) {
-        return orderRepository.getRevenueByYear(year).stream()
+        return dailyRevenueRollupRepository.getRevenueByYear(year).stream()
                 .map(projection -> RevenueByYearResponse.builder()
                         .year(projection.getYear())
                         .revenue(projection.getRevenue())
@@ -110,28 +105,41 @@ public class DashboardServiceImpl implements DashboardService {
 
     @Override
     public List<TopProductResponse> getTopProductsByDay(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atTime(23, 59, 59);
-        
-        return orderDetailRepository.getTopProductsByDay(start, end).stream()
+        return dailyProductRollupRepository.getTopProducts(startDate, endDate, TOP_LIMIT).stream()
                 .map(this::mapToTopProductResponse)
                 .toList();
     }
 
     @Override
     public List<TopProductResponse> getTopProductsByMonth(Integer year, Integer month) {
-        return orderDetailRepository.getTopProductsByMonth(year, month).stream()
+        return dailyProductRollupRepository.getTopProducts(firstDayOfMonth(year, month), lastDayOfMonth(year, month), TOP_LIMIT).stream()
                 .map(this::mapToTopProductResponse)
                 .toList();
     }
 
     @Override
     public List<TopProductResponse> getTopProductsByYear(Integer year) {
-        return orderDetailRepository.getTopProductsByYear(year).stream()
+        return dailyProductRollupRepository.getTopProducts(firstDayOfYear(year), lastDayOfYear(year), TOP_LIMIT).stream()
                 .map(this::mapToTopProductResponse)
                 .toList();
     }
     
+    private static LocalDate firstDayOfMonth(Integer year, Integer month) {
+        return YearMonth.of(year, month).atDay(1);
+    }
+
+    private static LocalDate lastDayOfMonth(Integer year, Integer month) {
+        return YearMonth.of(year, month).atEndOfMonth();
+    }
+
+    private static LocalDate firstDayOfYear(Integer year) {
+        return Year.of(year).atDay(1);
+    }
+
+    private static LocalDate lastDayOfYear(Integer year) {
+        return Year.of(year).atMonth(12).atEndOfMonth();
+    }
+
     private TopProductResponse mapToTopProductResponse(TopProductProjection projection) {
         return TopProductResponse.builder()
                 .productId(projection.getProductId())
@@ -148,18 +156,20 @@ public class DashboardServiceImpl implements DashboardService {
             LocalDate startDate1, LocalDate endDate1,
             LocalDate startDate2, LocalDate endDate2) {
         
-        LocalDateTime start1 = startDate1.atStartOfDay();
-        LocalDateTime end1 = endDate1.atTime(23, 59, 59);
-        LocalDateTime start2 = startDate2.atStartOfDay();
-        LocalDateTime end2 = endDate2.atTime(23, 59, 59);
-        
+        var totals1Query = dashboardQueryExecutor.submit("compareRevenue.totals1",
+                () -> dailyRevenueRollupRepository.sumByDateRange(startDate1, endDate1));
+        var totals2Query = dashboardQueryExecutor.submit("compareRevenue.totals2",
+                () -> dailyRevenueRollupRepository.sumByDateRange(startDate2, endDate2));
+
         // Lấy dữ liệu kỳ 1
-        Double revenue1 = orderRepository.sumRevenueByDateRange(start1, end1);
-        Long orderCount1 = orderRepository.countByDateRange(start1, end1);
+        RevenueRollupTotalProjection totals1 = totals1Query.join();
+        Double revenue1 = totals1.getRevenue();
+        Long orderCount1 = totals1.getOrderCount();
         
         // Lấy dữ liệu kỳ 2
-        Double revenue2 = orderRepository.sumRevenueByDateRange(start2, end2);
-        Long orderCount2 = orderRepository.countByDateRange(start2, end2);
+        RevenueRollupTotalProjection totals2 = totals2Query.join();
+        Double revenue2 = totals2.getRevenue();
+        Long orderCount2 = totals2.getOrderCount();
         
         // Xử lý null
         revenue1 = revenue1 != null ? revenue1 : 0.0;
@@ -209,24 +219,21 @@ public class DashboardServiceImpl implements DashboardService {
 
     @Override
     public List<TopVoucherResponse> getTopVouchersByDay(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atTime(23, 59, 59);
-        
-        return voucherUsageHistoryRepository.getTopVouchersByDay(start, end).stream()
+        return dailyVoucherRollupRepository.getTopVouchers(startDate, endDate, TOP_LIMIT).stream()
                 .map(this::mapToTopVoucherResponse)
                 .toList();
     }
 
     @Override
     public List<TopVoucherResponse> getTopVouchersByMonth(Integer year, Integer month) {
-        return voucherUsageHistoryRepository.getTopVouchersByMonth(year, month).stream()
+        return dailyVoucherRollupRepository.getTopVouchers(firstDayOfMonth(year, month), lastDayOfMonth(year, month), TOP_LIMIT).stream()
                 .map(this::mapToTopVoucherResponse)
                 .toList();
     }
 
     @Override
     public List<TopVoucherResponse> getTopVouchersByYear(Integer year) {
-        return voucherUsageHistoryRepository.getTopVouchersByYear(year).stream()
+        return dailyVoucherRollupRepository.getTopVouchers(firstDayOfYear(year), lastDayOfYear(year), TOP_LIMIT).stream()
                 .map(this::mapToTopVoucherResponse)
                 .toList();
     }
@@ -247,7 +254,7 @@ public class DashboardServiceImpl implements DashboardService {
         LocalDateTime end = endDate.atTime(23, 59, 59);
         
         log.info("Getting top promotions by day from {} to {}", start, end);
-        var projections = promotionUsageRepository.getTopPromotionsByDay(start, end);
+        var projections = dailyPromotionRollupRepository.getTopPromotions(startDate, endDate, TOP_LIMIT);
         log.info("Found {} promotion projections", projections.size());
         
         return projections.stream()
@@ -258,7 +265,7 @@ public class DashboardServiceImpl implements DashboardService {
     @Override
     public List<TopPromotionResponse> getTopPromotionsByMonth(Integer year, Integer month) {
         log.info("Getting top promotions by month: {}/{}", month, year);
-        var projections = promotionUsageRepository.getTopPromotionsByMonth(year, month);
+        var projections = dailyPromotionRollupRepository.getTopPromotions(firstDayOfMonth(year, month), lastDayOfMonth(year, month), TOP_LIMIT);
         log.info("Found {} promotion projections", projections.size());
         
         return projections.stream()
@@ -269,7 +276,7 @@ public class DashboardServiceImpl implements DashboardService {
     @Override
     public List<TopPromotionResponse> getTopPromotionsByYear(Integer year) {
         log.info("Getting top promotions by year: {}", year);
-        var projections = promotionUsageRepository.getTopPromotionsByYear(year);
+        var projections = dailyPromotionRollupRepository.getTopPromotions(firstDayOfYear(year), lastDayOfYear(year), TOP_LIMIT);
         log.info("Found {} promotion projections", projections.size());
         
         return projections.stream()
@@ -301,13 +308,20 @@ public class DashboardServiceImpl implements DashboardService {
         log.info("Comparing voucher: Period1({} to {}) vs Period2({} to {})", 
                  start1, end1, start2, end2);
         
+        var usage1Query = dashboardQueryExecutor.submit("compareVoucher.usage1",
+                () -> dailyVoucherRollupRepository.sumByDateRange(startDate1, endDate1));
+        var usage2Query = dashboardQueryExecutor.submit("compareVoucher.usage2",
+                () -> dailyVoucherRollupRepository.sumByDateRange(startDate2, endDate2));
+
         // Lấy dữ liệu kỳ 1
-        Long count1 = voucherUsageHistoryRepository.countVoucherUsageByDateRange(start1, end1);
-        Double discount1 = voucherUsageHistoryRepository.sumVoucherDiscountByDateRange(start1, end1);
+        UsageTotalProjection usage1 = usage1Query.join();
+        Long count1 = usage1.getUsageCount();
+        Double discount1 = usage1.getDiscountAmount();
         
         // Lấy dữ liệu kỳ 2
-        Long count2 = voucherUsageHistoryRepository.countVoucherUsageByDateRange(start2, end2);
-        Double discount2 = voucherUsageHistoryRepository.sumVoucherDiscountByDateRange(start2, end2);
+        UsageTotalProjection usage2 = usage2Query.join();
+        Long count2 = usage2.getUsageCount();
+        Double discount2 = usage2.getDiscountAmount();
         
         // Xử lý null
         count1 = count1 != null ? count1 : 0L;
@@ -354,13 +368,20 @@ public class DashboardServiceImpl implements DashboardService {
         log.info("Comparing promotion: Period1({} to {}) vs Period2({} to {})", 
                  start1, end1, start2, end2);
         
+        var usage1Query = dashboardQueryExecutor.submit("comparePromotion.usage1",
+                () -> dailyPromotionRollupRepository.sumByDateRange(startDate1, endDate1));
+        var usage2Query = dashboardQueryExecutor.submit("comparePromotion.usage2",
+                () -> dailyPromotionRollupRepository.sumByDateRange(startDate2, endDate2));
+
         // Lấy dữ liệu kỳ 1
-        Long count1 = promotionUsageRepository.countPromotionUsageByDateRange(start1, end1);
-        Double discount1 = promotionUsageRepository.sumPromotionDiscountByDateRange(start1, end1);
+        UsageTotalProjection usage1 = usage1Query.join();
+        Long count1 = usage1.getUsageCount();
+        Double discount1 = usage1.getDiscountAmount();
         
         // Lấy dữ liệu kỳ 2
-        Long count2 = promotionUsageRepository.countPromotionUsageByDateRange(start2, end2);
-        Double discount2 = promotionUsageRepository.sumPromotionDiscountByDateRange(start2, end2);
+        UsageTotalProjection usage2 = usage2Query.join();
+        Long count2 = usage2.getUsageCount();
+        Double discount2 = usage2.getDiscountAmount();
         
         // Xử lý null
         count1 = count1 != null ? count1 : 0L;
@@ -407,21 +428,34 @@ public class DashboardServiceImpl implements DashboardService {
         log.info("Comparing voucher vs promotion: Period1({} to {}) vs Period2({} to {})", 
                  start1, end1, start2, end2);
         
+        var voucherUsage1Query = dashboardQueryExecutor.submit("compareVoucherPromotion.voucherUsage1",
+                () -> dailyVoucherRollupRepository.sumByDateRange(startDate1, endDate1));
+        var voucherUsage2Query = dashboardQueryExecutor.submit("compareVoucherPromotion.voucherUsage2",
+                () -> dailyVoucherRollupRepository.sumByDateRange(startDate2, endDate2));
+        var promotionUsage1Query = dashboardQueryExecutor.submit("compareVoucherPromotion.promotionUsage1",
+                () -> dailyPromotionRollupRepository.sumByDateRange(startDate1, endDate1));
+        var promotionUsage2Query = dashboardQueryExecutor.submit("compareVoucherPromotion.promotionUsage2",
+                () -> dailyPromotionRollupRepository.sumByDateRange(startDate2, endDate2));
+
         // Lấy dữ liệu voucher kỳ 1
-        Long voucherCount1 = voucherUsageHistoryRepository.countVoucherUsageByDateRange(start1, end1);
-        Double voucherDiscount1 = voucherUsageHistoryRepository.sumVoucherDiscountByDateRange(start1, end1);
+        UsageTotalProjection voucherUsage1 = voucherUsage1Query.join();
+        Long voucherCount1 = voucherUsage1.getUsageCount();
+        Double voucherDiscount1 = voucherUsage1.getDiscountAmount();
         
         // Lấy dữ liệu voucher kỳ 2
-        Long voucherCount2 = voucherUsageHistoryRepository.countVoucherUsageByDateRange(start2, end2);
-        Double voucherDiscount2 = voucherUsageHistoryRepository.sumVoucherDiscountByDateRange(start2, end2);
+        UsageTotalProjection voucherUsage2 = voucherUsage2Query.join();
+        Long voucherCount2 = voucherUsage2.getUsageCount();
+        Double voucherDiscount2 = voucherUsage2.getDiscountAmount();
         
         // Lấy dữ liệu promotion kỳ 1
-        Long promotionCount1 = promotionUsageRepository.countPromotionUsageByDateRange(start1, end1);
-        Double promotionDiscount1 = promotionUsageRepository.sumPromotionDiscountByDateRange(start1, end1);
+        UsageTotalProjection promotionUsage1 = promotionUsage1Query.join();
+        Long promotionCount1 = promotionUsage1.getUsageCount();
+        Double promotionDiscount1 = promotionUsage1.getDiscountAmount();
         
         // Lấy dữ liệu promotion kỳ 2
-        Long promotionCount2 = promotionUsageRepository.countPromotionUsageByDateRange(start2, end2);
-        Double promotionDiscount2 = promotionUsageRepository.sumPromotionDiscountByDateRange(start2, end2);
+        UsageTotalProjection promotionUsage2 = promotionUsage2Query.join();
+        Long promotionCount2 = promotionUsage2.getUsageCount();
+        Double promotionDiscount2 = promotionUsage2.getDiscountAmount();
         
         // Xử lý null
         voucherCount1 = voucherCount1 != null ? voucherCount1 : 0L;
@@ -488,23 +522,29 @@ public class DashboardServiceImpl implements DashboardService {
     
     @Override
     public DashboardStatsResponse getDashboardStats(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atTime(23, 59, 59);
-        
         // Tính toán kỳ trước (cùng độ dài thời gian)
         long daysBetween = java.time.temporal.ChronoUnit.DAYS.between(startDate, endDate) + 1;
         LocalDate prevStartDate = startDate.minusDays(daysBetween);
         LocalDate prevEndDate = startDate.minusDays(1);
-        LocalDateTime prevStart = prevStartDate.atStartOfDay();
-        LocalDateTime prevEnd = prevEndDate.atTime(23, 59, 59);
         
+        var currentTotalsQuery = dashboardQueryExecutor.submit("dashboardStats.currentTotals",
+                () -> dailyRevenueRollupRepository.sumByDateRange(startDate, endDate));
+        var prevTotalsQuery = dashboardQueryExecutor.submit("dashboardStats.prevTotals",
+                () -> dailyRevenueRollupRepository.sumByDateRange(prevStartDate, prevEndDate));
+        var totalProductsQuery = dashboardQueryExecutor.submit("dashboardStats.totalProducts",
+                () -> orderDetailRepository.count());
+        var totalCustomersQuery = dashboardQueryExecutor.submit("dashboardStats.totalCustomers",
+                () -> orderRepository.count());
+
         // Lấy dữ liệu kỳ hiện tại
-        Double currentRevenue = orderRepository.sumRevenueByDateRange(start, end);
-        Long currentOrders = orderRepository.countByDateRange(start, end);
+        RevenueRollupTotalProjection currentTotals = currentTotalsQuery.join();
+        Double currentRevenue = currentTotals.getRevenue();
+        Long currentOrders = currentTotals.getOrderCount();
         
         // Lấy dữ liệu kỳ trước
-        Double prevRevenue = orderRepository.sumRevenueByDateRange(prevStart, prevEnd);
-        Long prevOrders = orderRepository.countByDateRange(prevStart, prevEnd);
+        RevenueRollupTotalProjection prevTotals = prevTotalsQuery.join();
+        Double prevRevenue = prevTotals.getRevenue();
+        Long prevOrders = prevTotals.getOrderCount();
         
         // Tính % tăng trưởng
         double prevRev = prevRevenue != null ? prevRevenue : 0.0;
@@ -516,8 +556,8 @@ public class DashboardServiceImpl implements DashboardService {
         Double ordersGrowth = prevOrd > 0 ? ((currOrd - prevOrd) / prevOrd) * 100 : 0.0;
         
         // Đếm tổng sản phẩm và khách hàng (không phụ thuộc thời gian)
-        Long totalProducts = orderDetailRepository.count(); // Hoặc productRepository.count() nếu có
-        Long totalCustomers = orderRepository.count(); // Tạm thời dùng count orders, nên dùng customerRepository
+        Long totalProducts = totalProductsQuery.join(); // Hoặc productRepository.count() nếu có
+        Long totalCustomers = totalCustomersQuery.join(); // Tạm thời dùng count orders, nên dùng customerRepository
         
         return DashboardStatsResponse.builder()
                 .totalRevenue(currentRevenue != null ? currentRevenue : 0.0)
@@ -592,24 +632,21 @@ public class DashboardServiceImpl implements DashboardService {
 
     @Override
     public List<TopVoucherResponse> getAllVouchersByDay(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atTime(23, 59, 59);
-        
-        return voucherUsageHistoryRepository.getAllVouchersByDay(start, end).stream()
+        return dailyVoucherRollupRepository.getTopVouchers(startDate, endDate, ALL_LIMIT).stream()
                 .map(this::mapToTopVoucherResponse)
                 .toList();
     }
 
     @Override
     public List<TopVoucherResponse> getAllVouchersByMonth(Integer year, Integer month) {
-        return voucherUsageHistoryRepository.getAllVouchersByMonth(year, month).stream()
+        return dailyVoucherRollupRepository.getTopVouchers(firstDayOfMonth(year, month), lastDayOfMonth(year, month), ALL_LIMIT).stream()
                 .map(this::mapToTopVoucherResponse)
                 .toList();
     }
 
     @Override
     public List<TopVoucherResponse> getAllVouchersByYear(Integer year) {
-        return voucherUsageHistoryRepository.getAllVouchersByYear(year).stream()
+        return dailyVoucherRollupRepository.getTopVouchers(firstDayOfYear(year), lastDayOfYear(year), ALL_LIMIT).stream()
                 .map(this::mapToTopVoucherResponse)
                 .toList();
     }
@@ -620,7 +657,7 @@ public class DashboardServiceImpl implements DashboardService {
         LocalDateTime end = endDate.atTime(23, 59, 59);
         
         log.info("Getting all promotions by day from {} to {}", start, end);
-        var projections = promotionUsageRepository.getAllPromotionsByDay(start, end);
+        var projections = dailyPromotionRollupRepository.getTopPromotions(startDate, endDate, ALL_LIMIT);
         log.info("Found {} promotion projections", projections.size());
         
         return projections.stream()
@@ -631,7 +668,7 @@ public class DashboardServiceImpl implements DashboardService {
     @Override
     public List<TopPromotionResponse> getAllPromotionsByMonth(Integer year, Integer month) {
         log.info("Getting all promotions by month: {}/{}", month, year);
-        var projections = promotionUsageRepository.getAllPromotionsByMonth(year, month);
+        var projections = dailyPromotionRollupRepository.getTopPromotions(firstDayOfMonth(year, month), lastDayOfMonth(year, month), ALL_LIMIT);
         log.info("Found {} promotion projections", projections.size());
         
         return projections.stream()
@@ -642,7 +679,7 @@ public class DashboardServiceImpl implements DashboardService {
     @Override
     public List<TopPromotionResponse> getAllPromotionsByYear(Integer year) {
         log.info("Getting all promotions by year: {}", year);
-        var projections = promotionUsageRepository.getAllPromotionsByYear(year);
+        var projections = dailyPromotionRollupRepository.getTopPromotions(firstDayOfYear(year), lastDayOfYear(year), ALL_LIMIT);
         log.info("Found {} promotion projections", projections.size());
         
         return projections.stream()
@@ -721,7 +758,7 @@ public class DashboardServiceImpl implements DashboardService {
         LocalDateTime end = endDate.atTime(23, 59, 59);
 
         log.info("Getting all products by day from {} to {}", start, end);
-        var projections = orderDetailRepository.getAllProductsByDay(start, end);
+        var projections = dailyProductRollupRepository.getTopProducts(startDate, endDate, ALL_LIMIT);
         log.info("Found {} product projections", projections.size());
 
         return projections.stream()
@@ -732,7 +769,7 @@ public class DashboardServiceImpl implements DashboardService {
     @Override
     public List<TopProductResponse> getAllProductsByMonth(Integer year, Integer month) {
         log.info("Getting all products by month: {}/{}", month, year);
-        var projections = orderDetailRepository.getAllProductsByMonth(year, month);
+        var projections = dailyProductRollupRepository.getTopProducts(firstDayOfMonth(year, month), lastDayOfMonth(year, month), ALL_LIMIT);
         log.info("Found {} product projections", projections.size());
 
         return projections.stream()
@@ -743,7 +780,7 @@ public class DashboardServiceImpl implements DashboardService {
     @Override
     public List<TopProductResponse> getAllProductsByYear(Integer year) {
         log.info("Getting all products by year: {}", year);
-        var projections = orderDetailRepository.getAllProductsByYear(year);
+        var projections = dailyProductRollupRepository.getTopProducts(firstDayOfYear(year), lastDayOfYear(year), ALL_LIMIT);
         log.info("Found {} product projections", projections.size());
 
         return projections.stream()
@@ -7,28 +7,38 @@ import iuh.fit.ecommerce.entities.Customer;
 import iuh.fit.ecommerce.entities.Feedback;
 import iuh.fit.ecommerce.entities.FeedbackImage;
 import iuh.fit.ecommerce.entities.Order;
-import iuh.fit.ecommerce.entities.Product;
+import iuh.fit.ecommerce.entities.ProductRatingAggregate;
 import iuh.fit.ecommerce.entities.ProductVariant;
 import iuh.fit.ecommerce.enums.OrderStatus;
+import iuh.fit.ecommerce.enums.ProductSearchField;
+import iuh.fit.ecommerce.events.ProductSearchFieldsChangedEvent;
 import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.InvalidParamException;
 import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
 import iuh.fit.ecommerce.mappers.FeedbackMapper;
 import iuh.fit.ecommerce.repositories.FeedbackRepository;
 import iuh.fit.ecommerce.repositories.OrderRepository;
+import iuh.fit.ecommerce.repositories.ProductRatingAggregateRepository;
 import iuh.fit.ecommerce.repositories.ProductVariantRepository;
 import iuh.fit.ecommerce.services.FeedbackService;
 import iuh.fit.ecommerce.utils.SecurityUtils;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class FeedbackServiceImpl implements FeedbackService {
@@ -38,6 +48,10 @@ public class FeedbackServiceImpl implements FeedbackService {
     private final ProductVariantRepository productVariantRepository;
     private final SecurityUtils securityUtils;
     private final FeedbackMapper feedbackMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductRatingAggregateRepository productRatingAggregateRepository;
+
+    private static final int REPAIR_BATCH_SIZE = 500;
 
     @Override
     @Transactional
@@ -102,7 +116,9 @@ public class FeedbackServiceImpl implements FeedbackService {
         feedback = feedbackRepository.save(feedback);
 
         // Cập nhật rating của Product
-        updateProductRating(productVariant.getProduct());
+        if (Boolean.TRUE.equals(feedback.getStatus())) {
+            applyRatingDelta(productVariant.getProduct().getId(), feedback.getRating(), 1);
+        }
 
         return feedbackMapper.toResponse(feedback);
     }
@@ -140,24 +156,26 @@ public class FeedbackServiceImpl implements FeedbackService {
 
     @Override
     public RatingStatisticsResponse getRatingStatistics(Long productId) {
-        Long totalReviews = feedbackRepository.countByProductId(productId);
-        Double averageRating = feedbackRepository.getAverageRatingByProductId(productId);
-        
-        Long fiveStarCount = feedbackRepository.countByProductIdAndRating(productId, 5);
-        Long fourStarCount = feedbackRepository.countByProductIdAndRating(productId, 4);
-        Long threeStarCount = feedbackRepository.countByProductIdAndRating(productId, 3);
-        Long twoStarCount = feedbackRepository.countByProductIdAndRating(productId, 2);
-        Long oneStarCount = feedbackRepository.countByProductIdAndRating(productId, 1);
+        // Một lần đọc theo khóa chính; chưa có dòng nghĩa là chưa có feedback nào hiển thị
+        ProductRatingAggregate aggregate = productRatingAggregateRepository.findById(productId)
+                .orElseGet(() -> ProductRatingAggregate.builder()
+                        .productId(productId)
+                        .star1Count(0L).star2Count(0L).star3Count(0L).star4Count(0L).star5Count(0L)
+                        .ratingSum(0L).reviewCount(0L)
+                        .build());
+
+        long totalReviews = aggregate.getReviewCount();
+        double averageRating = totalReviews > 0 ? (double) aggregate.getRatingSum() / totalReviews : 0.0;
 
         return RatingStatisticsResponse.builder()
                 .productId(productId)
                 .totalReviews(totalReviews)
                 .averageRating(Math.round(averageRating * 10.0) / 10.0)
-                .fiveStarCount(fiveStarCount)
-                .fourStarCount(fourStarCount)
-                .threeStarCount(threeStarCount)
-                .twoStarCount(twoStarCount)
-                .oneStarCount(oneStarCount)
+                .fiveStarCount(aggregate.getStar5Count())
+                .fourStarCount(aggregate.getStar4Count())
+                .threeStarCount(aggregate.getStar3Count())
+                .twoStarCount(aggregate.getStar2Count())
+                .oneStarCount(aggregate.getStar1Count())
                 .build();
     }
 
@@ -206,7 +224,8 @@ public class FeedbackServiceImpl implements FeedbackService {
         feedbackRepository.save(feedback);
         
         // Cập nhật lại rating của Product khi thay đổi status feedback
-        updateProductRating(feedback.getProductVariant().getProduct());
+        applyRatingDelta(feedback.getProductVariant().getProduct().getId(), feedback.getRating(),
+                feedback.getStatus() ? 1 : -1);
     }
 
     @Override
@@ -215,43 +234,56 @@ public class FeedbackServiceImpl implements FeedbackService {
         Feedback feedback = feedbackRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Feedback not found"));
         
-        Product product = feedback.getProductVariant().getProduct();
+        Long productId = feedback.getProductVariant().getProduct().getId();
+        boolean visible = Boolean.TRUE.equals(feedback.getStatus());
         feedbackRepository.deleteById(id);
         
-        // Cập nhật lại rating của Product sau khi xóa
-        updateProductRating(product);
+        // Cập nhật lại rating của Product sau khi xóa (feedback đang ẩn không nằm trong tổng hợp)
+        if (visible) {
+            applyRatingDelta(productId, feedback.getRating(), -1);
+        }
+    }
+
+    @Override
+    @Transactional
+    @Scheduled(cron = "${feedback.rating.repair-cron:0 15 3 * * *}")
+    public int repairRatingAggregates() {
+        List<Long> driftedIds = productRatingAggregateRepository.findDriftedProductIds();
+        if (driftedIds.isEmpty()) return 0;
+
+        log.warn("Rating aggregates drifted for {} products, rebuilding: {}", driftedIds.size(),
+                driftedIds.size() > 20 ? driftedIds.subList(0, 20) + "..." : driftedIds);
+        for (int from = 0; from < driftedIds.size(); from += REPAIR_BATCH_SIZE) {
+            List<Long> batch = driftedIds.subList(from, Math.min(from + REPAIR_BATCH_SIZE, driftedIds.size()));
+            productRatingAggregateRepository.deleteByProductIds(batch);
+            productRatingAggregateRepository.insertFromFeedbacks(batch);
+            productRatingAggregateRepository.syncProductRatings(batch);
+        }
+        eventPublisher.publishEvent(ProductSearchFieldsChangedEvent.of(driftedIds, ProductSearchField.RATING));
+        return driftedIds.size();
+    }
+
+    // Bảng tổng hợp trống sau khi deploy: dựng ngay khi khởi động thay vì chờ job repair ban đêm
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void seedRatingAggregates() {
+        int rebuilt = repairRatingAggregates();
+        if (rebuilt > 0) log.info("Seeded rating aggregates for {} products", rebuilt);
     }
 
     /**
-     * Cập nhật rating của Product dựa trên tất cả feedbacks
+     * Cộng delta của một feedback vào tổng hợp rating rồi chép sang cột rating của Product,
+     * không phải nạp lại toàn bộ feedbacks của sản phẩm.
+     * Sản phẩm chưa có dòng tổng hợp thì dựng từ feedbacks (đã gồm thay đổi vừa flush) thay vì cộng delta vào 0.
      */
-    private void updateProductRating(Product product) {
-        // Lấy tất cả feedbacks của product (qua các product variants)
-        List<Long> variantIds = product.getProductVariants().stream()
-                .map(ProductVariant::getId)
-                .toList();
-        
-        List<Feedback> allFeedbacks = feedbackRepository.findAllByProductVariantIdInAndStatusTrue(variantIds);
-        
-        if (allFeedbacks.isEmpty()) {
-            product.setRating(0.0);
-            product.setTotalRating(0.0);
-            product.setReviewCount(0);
+    private void applyRatingDelta(Long productId, int rating, int delta) {
+        if (productRatingAggregateRepository.existsById(productId)) {
+            productRatingAggregateRepository.applyDelta(productId, rating, delta);
         } else {
-            double totalRating = allFeedbacks.stream()
-                    .mapToInt(Feedback::getRating)
-                    .sum();
-            int reviewCount = allFeedbacks.size();
-            double averageRating = totalRating / reviewCount;
-            
-            product.setRating(Math.round(averageRating * 10.0) / 10.0); // Làm tròn 1 chữ số
-            product.setTotalRating(totalRating);
-            product.setReviewCount(reviewCount);
-        }
-        
-        // Save product through variant to trigger update
-        if (!product.getProductVariants().isEmpty()) {
-            productVariantRepository.save(product.getProductVariants().get(0));
+            productRatingAggregateRepository.insertFromFeedbacks(List.of(productId));
         }
+        productRatingAggregateRepository.syncProductRatings(List.of(productId));
+        eventPublisher.publishEvent(ProductSearchFieldsChangedEvent.of(List.of(productId), ProductSearchField.RATING));
     }
 }
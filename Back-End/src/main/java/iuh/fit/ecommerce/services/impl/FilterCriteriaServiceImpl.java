@@ -39,6 +39,7 @@ public class FilterCriteriaServiceImpl implements FilterCriteriaService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.FILTER_CRITERIA_CACHE, allEntries = true)
     public FilterCriteriaResponse createFilterCriteria(CreateFilterCriteriaRequest request) {
         Category category = categoryService.getCategoryEntityById(request.getCategoryId());
 
@@ -64,6 +65,7 @@ public class FilterCriteriaServiceImpl implements FilterCriteriaService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.FILTER_CRITERIA_CACHE, key = "'category:' + #categoryId + ':' + #name")
     public List<FilterCriteriaResponse> getFilterCriteriaByCategoryId(Long categoryId, String name) {
         if (!categoryRepository.existsById(categoryId)) {
             throw new ResourceNotFoundException(ErrorCode.CATEGORY_NOT_FOUND);
@@ -74,6 +76,7 @@ public class FilterCriteriaServiceImpl implements FilterCriteriaService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.FILTER_CRITERIA_CACHE, key = "'slug:' + #categorySlug + ':' + #name")
     public List<FilterCriteriaResponse> getFilterCriteriaByCategorySlug(String categorySlug, String name) {
         Category category = categoryRepository.findBySlug(categorySlug)
                 .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.CATEGORY_NOT_FOUND));
@@ -84,6 +87,7 @@ public class FilterCriteriaServiceImpl implements FilterCriteriaService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.FILTER_CRITERIA_CACHE, allEntries = true)
     public void setFilterValuesForCriteria(SetFilterValuesForCriteriaRequest request) {
         FilterCriteria filterCriteria = getFilterCriteriaEntityById(request.getFilterCriteriaId());
 
@@ -104,6 +108,7 @@ public class FilterCriteriaServiceImpl implements FilterCriteriaService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.FILTER_CRITERIA_CACHE, key = "'values:' + #filterCriteriaId + ':' + #value")
     public List<FilterValueResponse> getFilterValuesByCriteriaId(Long filterCriteriaId, String value) {
         if (!filterCriteriaRepository.existsById(filterCriteriaId)) {
             throw new ResourceNotFoundException(ErrorCode.FILTER_CRITERIA_NOT_FOUND);
@@ -121,6 +126,7 @@ public class FilterCriteriaServiceImpl implements FilterCriteriaService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.FILTER_CRITERIA_CACHE, allEntries = true)
     public void deleteFilterCriteria(Long id) {
         FilterCriteria filterCriteria = getFilterCriteriaEntityById(id);
         filterCriteriaRepository.delete(filterCriteria);
@@ -1,5 +1,6 @@
 package iuh.fit.ecommerce.services.impl;
 
+import iuh.fit.ecommerce.dtos.projection.VoucherEligibilityCheckProjection;
 import iuh.fit.ecommerce.dtos.request.order.OrderCreationRequest;
 import iuh.fit.ecommerce.dtos.request.order.StaffOrderCreationRequest;
 import iuh.fit.ecommerce.dtos.request.order.StaffOrderItem;
@@ -28,6 +29,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static iuh.fit.ecommerce.enums.VoucherType.*;
 import static iuh.fit.ecommerce.enums.OrderStatus.*;
@@ -41,7 +43,6 @@ public class OrderServiceImpl implements OrderService {
     private final SecurityUtils securityUtils;
     private final CartRepository cartRepository;
     private final VoucherRepository voucherRepository;
-    private final VoucherCustomerRepository voucherCustomerRepository;
     private final VoucherUsageHistoryRepository voucherUsageHistoryRepository;
     private final ProductVariantRepository productVariantRepository;
     private final PromotionService promotionService;
@@ -54,6 +55,7 @@ public class OrderServiceImpl implements OrderService {
     private final VoucherService voucherService;
     private final EmailService emailService;
     private final NotificationWebSocketService notificationWebSocketService;
+    private final StockReservationService stockReservationService;
 
     @Override
     @Transactional
@@ -65,7 +67,11 @@ public class OrderServiceImpl implements OrderService {
 
         Order order = buildOrder(request, customer);
 
-        List<OrderDetail> orderDetails = buildOrderDetails(cart, order, request.getCartItemIds());
+        List<CartDetail> selectedItems = getSelectedCartItems(cart, request.getCartItemIds());
+        Map<Long, Promotion> promotionsByVariantId = promotionService.getBestPromotionsForVariants(
+                selectedItems.stream().map(CartDetail::getProductVariant).toList());
+
+        List<OrderDetail> orderDetails = buildOrderDetails(selectedItems, order, promotionsByVariantId);
         double totalPrice = calculateTotalPrice(orderDetails);
         double totalDiscount = calculatePromotionDiscount(orderDetails);
 
@@ -77,7 +83,7 @@ public class OrderServiceImpl implements OrderService {
 
         double finalTotalPrice = totalPrice - (totalDiscount + voucherDiscountAmount);
 
-        prepareOrderDetailAndPrice(order, orderDetails, totalPrice, totalDiscount, voucher, voucherDiscountAmount, finalTotalPrice, request.getPaymentMethod(), PENDING);
+        prepareOrderDetailAndPrice(order, orderDetails, promotionsByVariantId, totalPrice, totalDiscount, voucher, voucherDiscountAmount, finalTotalPrice, request.getPaymentMethod(), PENDING);
 
         return processPayment(request, httpRequest, voucher, order, cart, request.getCartItemIds());
     }
@@ -90,7 +96,13 @@ public class OrderServiceImpl implements OrderService {
         Order order = buildStaffOrder(request);
         Customer customer = order.getCustomer();
 
-        List<OrderDetail> orderDetails = buildStaffOrderDetails(order, request.getItems());
+        Map<Long, ProductVariant> variantsById = productVariantRepository.findAllById(
+                        request.getItems().stream().map(StaffOrderItem::getProductVariantId).toList())
+                .stream()
+                .collect(Collectors.toMap(ProductVariant::getId, variant -> variant));
+        Map<Long, Promotion> promotionsByVariantId = promotionService.getBestPromotionsForVariants(variantsById.values());
+
+        List<OrderDetail> orderDetails = buildStaffOrderDetails(order, request.getItems(), variantsById, promotionsByVariantId);
 
         double totalPrice = calculateTotalPrice(orderDetails);
         double totalDiscount = calculatePromotionDiscount(orderDetails);
@@ -104,13 +116,14 @@ public class OrderServiceImpl implements OrderService {
         
         double finalTotalPrice = totalPrice - totalDiscount - voucherDiscountAmount;
 
-        prepareOrderDetailAndPrice(order, orderDetails, totalPrice, totalDiscount, voucher, voucherDiscountAmount, finalTotalPrice, request.getPaymentMethod(), PROCESSING);
+        prepareOrderDetailAndPrice(order, orderDetails, promotionsByVariantId, totalPrice, totalDiscount, voucher, voucherDiscountAmount, finalTotalPrice, request.getPaymentMethod(), PROCESSING);
 
         return processStaffPayment(request, httpRequest, order, voucher);
     }
 
 
-    private void prepareOrderDetailAndPrice(Order order, List<OrderDetail> orderDetails, double totalPrice,
+    private void prepareOrderDetailAndPrice(Order order, List<OrderDetail> orderDetails,
+                                            Map<Long, Promotion> promotionsByVariantId, double totalPrice,
                                             double totalDiscount, Voucher voucher, double voucherDiscountAmount,
                                             double finalTotalPrice, PaymentMethod paymentMethod, OrderStatus orderStatus) {
         order.setOrderDetails(orderDetails);
@@ -122,16 +135,15 @@ public class OrderServiceImpl implements OrderService {
 
         orderRepository.save(order);
         handleVoucherUsage(voucher, order, voucherDiscountAmount);
-        handlePromotionUsage(orderDetails);
+        handlePromotionUsage(orderDetails, promotionsByVariantId);
     }
 
-    private void handlePromotionUsage(List<OrderDetail> orderDetails) {
+    private void handlePromotionUsage(List<OrderDetail> orderDetails, Map<Long, Promotion> promotionsByVariantId) {
         List<PromotionUsage> promotionUsages = new ArrayList<>();
 
         for (OrderDetail orderDetail : orderDetails) {
             if (orderDetail.getDiscount() != null && orderDetail.getDiscount() > 0) {
-                ProductVariant variant = orderDetail.getProductVariant();
-                Promotion promotion = promotionService.getBestPromotionForVariant(variant);
+                Promotion promotion = promotionsByVariantId.get(orderDetail.getProductVariant().getId());
 
                 if (promotion != null) {
                     double itemTotal = orderDetail.getPrice() * orderDetail.getQuantity();
@@ -168,12 +180,16 @@ public class OrderServiceImpl implements OrderService {
                 .build();
     }
 
-    private List<OrderDetail> buildStaffOrderDetails(Order order, List<StaffOrderItem> items) {
+    private List<OrderDetail> buildStaffOrderDetails(Order order, List<StaffOrderItem> items,
+                                                     Map<Long, ProductVariant> variantsById,
+                                                     Map<Long, Promotion> promotionsByVariantId) {
         List<OrderDetail> details = new ArrayList<>();
 
         for (StaffOrderItem item : items) {
-            ProductVariant variant = productVariantRepository.findById(item.getProductVariantId())
-                    .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.PRODUCT_VARIANT_NOT_FOUND));
+            ProductVariant variant = variantsById.get(item.getProductVariantId());
+            if (variant == null) {
+                throw new ResourceNotFoundException(ErrorCode.PRODUCT_VARIANT_NOT_FOUND);
+            }
 
             int quantity = item.getQuantity();
 
@@ -188,7 +204,7 @@ public class OrderServiceImpl implements OrderService {
                 );
             }
 
-            Promotion promotion = promotionService.getBestPromotionForVariant(variant);
+            Promotion promotion = promotionsByVariantId.get(variant.getId());
             double discountPercent = promotion != null ? promotion.getDiscount() : 0.0;
 
             double price = variant.getPrice();
@@ -293,16 +309,21 @@ public class OrderServiceImpl implements OrderService {
                 .build();
     }
 
-    private List<OrderDetail> buildOrderDetails(Cart cart, Order order, List<Long> cartItemIds) {
-        List<OrderDetail> details = new ArrayList<>();
-
+    private List<CartDetail> getSelectedCartItems(Cart cart, List<Long> cartItemIds) {
+        Set<Long> selectedIds = new HashSet<>(cartItemIds);
         List<CartDetail> selectedItems = cart.getCartDetails().stream()
-                .filter(cd -> cartItemIds.contains(cd.getId()))
+                .filter(cd -> selectedIds.contains(cd.getId()))
                 .toList();
 
         if (selectedItems.isEmpty()) {
             throw new InvalidParamException(ErrorCode.ORDER_NO_VALID_ITEMS);
         }
+        return selectedItems;
+    }
+
+    private List<OrderDetail> buildOrderDetails(List<CartDetail> selectedItems, Order order,
+                                                Map<Long, Promotion> promotionsByVariantId) {
+        List<OrderDetail> details = new ArrayList<>();
 
         for (CartDetail cartDetail : selectedItems) {
             ProductVariant variant = cartDetail.getProductVariant();
@@ -320,7 +341,7 @@ public class OrderServiceImpl implements OrderService {
                 );
             }
 
-            Promotion promotion = promotionService.getBestPromotionForVariant(variant);
+            Promotion promotion = promotionsByVariantId.get(variant.getId());
             double discountPercent = promotion != null ? promotion.getDiscount() : 0.0;
 
             double itemTotal = price * quantity;
@@ -379,6 +400,7 @@ public class OrderServiceImpl implements OrderService {
         VoucherUsageHistory history = VoucherUsageHistory.builder()
                 .voucher(voucher)
                 .order(order)
+                .customer(order.getCustomer())
                 .discountAmount(discountAmount)
                 .build();
 
@@ -437,22 +459,18 @@ public class OrderServiceImpl implements OrderService {
     }
 
     private void updateVariantStockAfterOrderCreated(List<OrderDetail> orderDetails) {
-        orderDetails.forEach(detail -> {
-            ProductVariant variant = detail.getProductVariant();
-            int newStock = variant.getStock() - detail.getQuantity().intValue();
-            variant.setStock(newStock);
-            productVariantRepository.save(variant);
-        });
+        stockReservationService.reserve(orderDetails);
     }
 
     private void validateVoucher(Voucher voucher, Customer customer, double currentAmount) {
-        if (!ALL.equals(voucher.getVoucherType())) {
-            boolean assigned = voucherCustomerRepository.existsByVoucherAndCustomer(voucher, customer);
-            if (!assigned) throw new InvalidParamException(ErrorCode.VOUCHER_NOT_ASSIGNED);
+        VoucherEligibilityCheckProjection eligibility =
+                voucherRepository.checkEligibility(voucher.getId(), customer.getId());
+
+        if (!ALL.equals(voucher.getVoucherType()) && !Boolean.TRUE.equals(eligibility.getAssigned())) {
+            throw new InvalidParamException(ErrorCode.VOUCHER_NOT_ASSIGNED);
         }
 
-        boolean used = voucherUsageHistoryRepository.existsByVoucherAndOrder_Customer(voucher, customer);
-        if (used) throw new InvalidParamException(ErrorCode.VOUCHER_ALREADY_USED);
+        if (Boolean.TRUE.equals(eligibility.getUsed())) throw new InvalidParamException(ErrorCode.VOUCHER_ALREADY_USED);
 
         LocalDate today = LocalDate.now();
         if (today.isBefore(voucher.getStartDate()) || today.isAfter(voucher.getEndDate())) {
@@ -552,12 +570,7 @@ public class OrderServiceImpl implements OrderService {
     }
 
     private void restoreProductStock(List<OrderDetail> orderDetails) {
-        orderDetails.forEach(detail -> {
-            ProductVariant variant = detail.getProductVariant();
-            int newStock = variant.getStock() + detail.getQuantity().intValue();
-            variant.setStock(newStock);
-            productVariantRepository.save(variant);
-        });
+        stockReservationService.release(orderDetails);
     }
 
     private void restoreVoucher(Order order) {
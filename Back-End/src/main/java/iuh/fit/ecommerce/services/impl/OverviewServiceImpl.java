@@ -1,7 +1,8 @@
 package iuh.fit.ecommerce.services.impl;
 
+import iuh.fit.ecommerce.dtos.projection.RevenueByMonthProjection;
 import iuh.fit.ecommerce.repositories.CustomerRepository;
-import iuh.fit.ecommerce.repositories.OrderRepository;
+import iuh.fit.ecommerce.repositories.DailyRevenueRollupRepository;
 import iuh.fit.ecommerce.repositories.ProductRepository;
 import iuh.fit.ecommerce.services.OverviewService;
 import lombok.RequiredArgsConstructor;
@@ -13,14 +14,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class OverviewServiceImpl implements OverviewService {
 
-    private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final CustomerRepository customerRepository;
+    private final DailyRevenueRollupRepository dailyRevenueRollupRepository;
 
     public Map<String, Object> getDashboardStats() {
         YearMonth currentMonth = YearMonth.now();
@@ -65,10 +68,11 @@ public class OverviewServiceImpl implements OverviewService {
 
         switch (type) {
             case "revenue":
-                Double revenue = orderRepository.sumRevenueByDateRange(start, end);
+                Double revenue = dailyRevenueRollupRepository.sumByDateRange(month.atDay(1), month.atEndOfMonth()).getRevenue();
                 return revenue != null ? revenue : 0.0;
             case "orders":
-                return orderRepository.countCompletedOrdersByDateRange(start, end).doubleValue();
+                Long completed = dailyRevenueRollupRepository.sumByDateRange(month.atDay(1), month.atEndOfMonth()).getCompletedOrderCount();
+                return completed != null ? completed.doubleValue() : 0.0;
             case "products":
                 return productRepository.countNewProductsByDateRange(start, end).doubleValue();
             case "customers":
@@ -82,15 +86,18 @@ public class OverviewServiceImpl implements OverviewService {
     public List<Map<String, Object>> getMonthlyRevenue() {
         List<Map<String, Object>> result = new ArrayList<>();
         YearMonth currentMonth = YearMonth.now();
+        YearMonth firstMonth = currentMonth.minusMonths(11);
+
+        // 12 tháng liên tiếp nên số tháng không trùng nhau, gộp trong một query trên rollup
+        Map<Integer, RevenueByMonthProjection> byMonth = dailyRevenueRollupRepository
+                .getRevenueByMonth(firstMonth.atDay(1), currentMonth.atEndOfMonth()).stream()
+                .collect(Collectors.toMap(RevenueByMonthProjection::getMonth, Function.identity()));
 
         for (int i = 11; i >= 0; i--) {
             YearMonth targetMonth = currentMonth.minusMonths(i);
 
-            LocalDateTime start = targetMonth.atDay(1).atStartOfDay();
-            LocalDateTime end = targetMonth.atEndOfMonth().atTime(23, 59, 59);
-
-            Double revenue = orderRepository.sumRevenueByDateRange(start, end);
-            if (revenue == null) revenue = 0.0;
+            RevenueByMonthProjection projection = byMonth.get(targetMonth.getMonthValue());
+            Double revenue = projection != null && projection.getRevenue() != null ? projection.getRevenue() : 0.0;
 
             Map<String, Object> item = new HashMap<>();
             item.put("name", "Thg " + targetMonth.getMonthValue());
@@ -9,20 +9,22 @@ import iuh.fit.ecommerce.repositories.*;
 import iuh.fit.ecommerce.services.EmailService;
 import iuh.fit.ecommerce.services.NotificationWebSocketService;
 import iuh.fit.ecommerce.services.PaymentService;
+import iuh.fit.ecommerce.services.PaymentTimeoutService;
+import iuh.fit.ecommerce.services.StockReservationService;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import static iuh.fit.ecommerce.enums.OrderStatus.*;
 
@@ -57,16 +59,23 @@ public class PaymentServiceImpl implements PaymentService {
     private String payOsReturnUrl;
     @Value("${payment.pay_os.cancel-url}")
     private String payOsCancelUrl;
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
     private final OrderRepository orderRepository;
     private final VoucherUsageHistoryRepository voucherUsageHistoryRepository;
     private final VoucherRepository voucherRepository;
     private final CartRepository cartRepository;
-    private final ProductVariantRepository productVariantRepository;
+    private final StockReservationService stockReservationService;
+    private final PaymentTimeoutService paymentTimeoutService;
     private final PayOS payOS;
     private final EmailService emailService;
     private final NotificationWebSocketService notificationWebSocketService;
+    private final PlatformTransactionManager transactionManager;
     private final int TIME_OUT = 15;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void initTransactionTemplate() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     @Override
     public String createPaymentUrl(Voucher voucher, Order order, List<Long> cartItemIds, HttpServletRequest request, String platform) {
@@ -94,26 +103,11 @@ public class PaymentServiceImpl implements PaymentService {
         String vnpSecureHash = hmacSHA512(secretKey, hashData);
         queryUrl += "&vnp_SecureHash=" + vnpSecureHash;
 
-        scheduleRevokeJob(voucher, order.getId(), TIME_OUT + 1);
+        paymentTimeoutService.schedule(order, TIME_OUT + 1);
 
         return vnp_PayUrl + "?" + queryUrl;
     }
 
-    public void scheduleRevokeJob(Voucher voucher, Long orderId, int delayMinutes) {
-        scheduler.schedule(() -> {
-            Order order = orderRepository.findById(orderId).orElse(null);
-            if(order != null && PENDING_PAYMENT.equals(order.getStatus())) {
-                order.setStatus(PAYMENT_FAILED);
-                orderRepository.save(order);
-
-                restoreVariantStock(order);
-                if(voucher != null){
-                    voucherUsageHistoryRepository.deleteByVoucherAndOrder(voucher, order);
-                }
-            }
-        }, delayMinutes, TimeUnit.MINUTES);
-    }
-
     @Override
     public void handlePaymentCallBack(HttpServletRequest request, HttpServletResponse response) throws Exception {
         String status = request.getParameter("vnp_ResponseCode");
@@ -180,12 +174,7 @@ public class PaymentServiceImpl implements PaymentService {
                 String.format("Đơn hàng mới #%d đã được tạo", order.getId())
             );
         } else {
-            order.setStatus(PAYMENT_FAILED);
-            restoreVariantStock(order);
-            if (voucherId != 0) {
-                Voucher voucher = voucherRepository.findById(voucherId).orElseThrow(() -> new ResourceNotFoundException(ErrorCode.VOUCHER_NOT_FOUND));
-                voucherUsageHistoryRepository.deleteByVoucherAndOrder(voucher, order);
-            }
+            handlePaymentFailure(order, voucherId);
         }
         orderRepository.save(order);
 
@@ -224,7 +213,7 @@ public class PaymentServiceImpl implements PaymentService {
         
         CreatePaymentLinkResponse result = payOS.paymentRequests().create(paymentRequest);
         
-        scheduleRevokeJob(voucher, order.getId(), TIME_OUT + 1);
+        paymentTimeoutService.schedule(order, TIME_OUT + 1);
         
         return result.getCheckoutUrl();
     }
@@ -317,13 +306,22 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     private void handlePaymentFailure(Order order, long voucherId) {
-        order.setStatus(PAYMENT_FAILED);
-        restoreVariantStock(order);
-        if (voucherId != 0) {
-            Voucher voucher = voucherRepository.findById(voucherId)
-                    .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.VOUCHER_NOT_FOUND));
-            voucherUsageHistoryRepository.deleteByVoucherAndOrder(voucher, order);
-        }
+        // Job hết hạn (PaymentTimeoutServiceImpl) có thể hủy đơn cùng lúc: chỉ bên chuyển được
+        // PENDING_PAYMENT -> PAYMENT_FAILED bằng UPDATE có điều kiện mới hoàn kho và voucher
+        Boolean failed = transactionTemplate.execute(status -> {
+            if (orderRepository.markPaymentFailed(List.of(order.getId())) != 1) return false;
+
+            restoreVariantStock(order);
+            if (voucherId != 0) {
+                Voucher voucher = voucherRepository.findById(voucherId)
+                        .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.VOUCHER_NOT_FOUND));
+                voucherUsageHistoryRepository.deleteByVoucherAndOrder(voucher, order);
+            }
+            return true;
+        });
+
+        // Đồng bộ entity với DB để lần save sau không ghi đè trạng thái bên kia đã đặt
+        order.setStatus(Boolean.TRUE.equals(failed) ? PAYMENT_FAILED : orderRepository.findStatusById(order.getId()));
         orderRepository.save(order);
     }
 
@@ -364,12 +362,7 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     private void restoreVariantStock(Order order) {
-        order.getOrderDetails().forEach(detail -> {
-            var variant = detail.getProductVariant();
-            int newStock = variant.getStock() + detail.getQuantity().intValue();
-            variant.setStock(newStock);
-            productVariantRepository.save(variant);
-        });
+        stockReservationService.release(order.getOrderDetails());
     }
 
 
@@ -0,0 +1,131 @@
+package iuh.fit.ecommerce.services.impl;
+
+import iuh.fit.ecommerce.dtos.projection.ExpiredPaymentOrderProjection;
+import iuh.fit.ecommerce.entities.Order;
+import iuh.fit.ecommerce.enums.ProductSearchField;
+import iuh.fit.ecommerce.events.ProductSearchFieldsChangedEvent;
+import iuh.fit.ecommerce.repositories.OrderRepository;
+import iuh.fit.ecommerce.repositories.ProductVariantRepository;
+import iuh.fit.ecommerce.repositories.VoucherUsageHistoryRepository;
+import iuh.fit.ecommerce.services.DashboardRollupService;
+import iuh.fit.ecommerce.services.PaymentTimeoutService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Hủy các đơn thanh toán online quá hạn dựa trên cột payment_expires_at, nên không mất lịch khi restart
+ * và chạy được trên nhiều node: mỗi node nhận (lease) một lô đơn bằng một câu UPDATE ... LIMIT,
+ * rồi xử lý cả lô bằng vài câu lệnh bulk. Node chết giữa chừng thì lease hết hạn và node khác nhận lại.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentTimeoutServiceImpl implements PaymentTimeoutService {
+
+    private final OrderRepository orderRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final VoucherUsageHistoryRepository voucherUsageHistoryRepository;
+    private final DashboardRollupService dashboardRollupService;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${payment.timeout.batch-size:200}")
+    private int batchSize;
+
+    @Value("${payment.timeout.lease-ms:120000}")
+    private long leaseMs;
+
+    // Giới hạn số lô mỗi lần quét để một node không ôm hết việc khi tồn đọng nhiều
+    @Value("${payment.timeout.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    // Hạn thanh toán cho đơn cũ chưa có payment_expires_at, bằng thời gian PaymentServiceImpl đặt cho đơn mới
+    @Value("${payment.timeout.legacy-timeout-minutes:16}")
+    private long legacyTimeoutMinutes;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void initTransactionTemplate() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void schedule(Order order, int timeoutMinutes) {
+        order.setPaymentExpiresAt(LocalDateTime.now().plusMinutes(timeoutMinutes));
+        orderRepository.save(order);
+    }
+
+    @Scheduled(fixedDelayString = "${payment.timeout.poll-ms:30000}")
+    public void sweepExpiredPayments() {
+        try {
+            int revoked = revokeExpiredPayments();
+            if (revoked > 0) {
+                log.info("Revoked {} orders with expired online payment", revoked);
+            }
+        } catch (Exception e) {
+            log.warn("Sweep expired payments failed, will retry next run: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public int revokeExpiredPayments() {
+        int revoked = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int claimed = claimBatch();
+            if (claimed == 0) break;
+
+            revoked += revokeClaimed();
+            if (claimed < batchSize) break;
+        }
+        return revoked;
+    }
+
+    // Transaction riêng và ngắn: commit ngay để node khác thấy lease và bỏ qua các đơn này
+    private int claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status ->
+                orderRepository.claimExpiredPendingPayments(nodeId, now, now.minusMinutes(legacyTimeoutMinutes),
+                        now.plus(Duration.ofMillis(leaseMs)), batchSize));
+        return claimed != null ? claimed : 0;
+    }
+
+    private int revokeClaimed() {
+        List<ExpiredPaymentOrderProjection> orders = transactionTemplate.execute(status -> {
+            List<ExpiredPaymentOrderProjection> locked = orderRepository.lockClaimedPendingPayments(nodeId);
+            if (locked.isEmpty()) return locked;
+
+            List<Long> orderIds = locked.stream().map(ExpiredPaymentOrderProjection::getId).toList();
+            eventPublisher.publishEvent(ProductSearchFieldsChangedEvent.of(
+                    productVariantRepository.findProductIdsByOrderIds(orderIds), ProductSearchField.STOCK));
+            productVariantRepository.restockFromOrders(orderIds);
+            voucherUsageHistoryRepository.deleteByOrderIds(orderIds);
+            orderRepository.markPaymentFailed(orderIds);
+            return locked;
+        });
+        if (orders == null || orders.isEmpty()) return 0;
+
+        // Cập nhật bulk không đi qua OrderEntityListener nên phải tự đánh dấu rollup dashboard
+        orders.stream()
+                .map(ExpiredPaymentOrderProjection::getOrderDate)
+                .filter(Objects::nonNull)
+                .map(LocalDateTime::toLocalDate)
+                .distinct()
+                .forEach(dashboardRollupService::markDirty);
+        return orders.size();
+    }
+}
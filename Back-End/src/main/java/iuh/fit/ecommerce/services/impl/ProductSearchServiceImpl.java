@@ -9,6 +9,7 @@ import iuh.fit.ecommerce.dtos.response.product.BestVariantResponse;
 import iuh.fit.ecommerce.dtos.response.product.DisplayPriceResult;
 import iuh.fit.ecommerce.dtos.response.product.ProductResponse;
 import iuh.fit.ecommerce.dtos.response.product.ProductSearchResponse;
+import iuh.fit.ecommerce.dtos.projection.CatalogWatermarkProjection;
 import iuh.fit.ecommerce.dtos.projection.MinVariantPriceProjection;
 import iuh.fit.ecommerce.entities.Product;
 import iuh.fit.ecommerce.entities.ProductVariant;
@@ -22,31 +23,53 @@ import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.services.ProductSearchService;
 import iuh.fit.ecommerce.services.PromotionResolver;
 import iuh.fit.ecommerce.utils.ProductHelper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.BulkFailureException;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.data.elasticsearch.core.query.Criteria;
 import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.data.elasticsearch.core.document.Document;
 import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
 import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
@@ -63,6 +86,29 @@ public class ProductSearchServiceImpl implements ProductSearchService {
     private final PromotionResolver promotionResolver;
     private final ProductDocumentMapper productDocumentMapper;
     private final ProductHelper productHelper;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+    @Qualifier("reindexExecutor")
+    private final ThreadPoolTaskExecutor reindexExecutor;
+
+    private static final String INDEX_ALIAS = "products";
+    private static final int REINDEX_BATCH_SIZE = 500;
+    private static final String WATERMARK_META_KEY = "catalogWatermark";
+    private static final String REFERENCE_WATERMARK_META_KEY = "referenceWatermark";
+
+    @Value("${search.reindex.parallelism:4}")
+    private int reindexParallelism;
+
+    private TransactionTemplate readOnlyTransaction;
+    private final AtomicBoolean reindexRunning = new AtomicBoolean(false);
+    private final AtomicLong reindexTotal = new AtomicLong();
+    private final AtomicLong reindexProcessed = new AtomicLong();
+    private final AtomicLong reindexThroughput = new AtomicLong();
+    private final Set<Long> touchedDuringReindex = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean startupIndexChecked = new AtomicBoolean(false);
+    // Watermark phần sản phẩm lấy ở lượt kiểm tra trước, và cờ báo có lần ghi index lỗi kể từ đó
+    private volatile String watermarkCandidate;
+    private final AtomicBoolean indexWriteFailed = new AtomicBoolean(false);
 
     @Override
     public PageResponse<ProductSearchResponse> searchProducts(
@@ -446,48 +492,335 @@ public class ProductSearchServiceImpl implements ProductSearchService {
     @Override
     @Transactional
     public void indexProduct(Product product) {
+        if (reindexRunning.get()) touchedDuringReindex.add(product.getId());
         ProductDocument document =
                 productDocumentMapper.toDocument(product, productHelper);
-        productSearchRepository.save(document);
+        trackWrite(() -> productSearchRepository.save(document));
     }
 
     @Override
-    public void deleteProduct(Long productId) {
-        productSearchRepository.deleteById(String.valueOf(productId));
+    public void indexProducts(List<Product> products) {
+        if (products.isEmpty()) return;
+        if (reindexRunning.get()) products.forEach(product -> touchedDuringReindex.add(product.getId()));
+        List<ProductDocument> documents = products.stream()
+                .map(product -> productDocumentMapper.toDocument(product, productHelper))
+                .toList();
+        trackWrite(() -> productSearchRepository.saveAll(documents));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public void reindexAllProducts() {
+    public List<Product> loadProductsForIndexing(List<Long> productIds) {
+        if (productIds.isEmpty()) return List.of();
+        // Mỗi collection một query fetch join (tránh MultipleBagFetchException), cùng persistence context
+        // productVariantValues (EAGER) của các biến thể được nạp theo lô nhờ @BatchSize, không N+1
+        List<Product> products = productRepository.findAllForIndexing(productIds);
+        productRepository.findAllForIndexingWithAttributes(productIds);
+        productRepository.findAllForIndexingWithProductFilterValues(productIds);
+        return products;
+    }
 
+    @Override
+    public Set<Long> partialUpdate(Map<Long, Map<String, Object>> fieldsByProductId) {
+        if (fieldsByProductId.isEmpty()) return Set.of();
+        if (reindexRunning.get()) touchedDuringReindex.addAll(fieldsByProductId.keySet());
+
+        List<UpdateQuery> queries = fieldsByProductId.entrySet().stream()
+                .map(entry -> UpdateQuery.builder(String.valueOf(entry.getKey()))
+                        .withDocument(Document.from(entry.getValue()))
+                        .build())
+                .toList();
         try {
-            productSearchRepository.deleteAll();
-        } catch (Exception ignored) {}
+            elasticsearchOperations.bulkUpdate(queries, IndexCoordinates.of(INDEX_ALIAS));
+            return Set.of();
+        } catch (BulkFailureException e) {
+            indexWriteFailed.set(true);
+            logger.warn("Partial update failed for {} product documents: {}",
+                    e.getFailedDocuments().size(), e.getFailedDocuments().keySet());
+            // 404 = document chưa được index (sản phẩm mới, index đang build lại): bản đầy đủ sẽ có ở lần index sau,
+            // gửi lại cũng chỉ lỗi tiếp. Các lỗi khác (429, timeout shard...) trả về để gửi lại
+            return e.getFailedDocuments().entrySet().stream()
+                    .filter(entry -> !Integer.valueOf(404).equals(entry.getValue().status()))
+                    .map(entry -> Long.valueOf(entry.getKey()))
+                    .collect(Collectors.toSet());
+        } catch (RuntimeException e) {
+            indexWriteFailed.set(true);
+            throw e;
+        }
+    }
 
-        final int BATCH_SIZE = 200;
-        int page = 0;
+    @Override
+    public void deleteProduct(Long productId) {
+        if (reindexRunning.get()) touchedDuringReindex.add(productId);
+        trackWrite(() -> productSearchRepository.deleteById(String.valueOf(productId)));
+    }
 
-        Page<Product> productPage;
+    // Ghi nhận lỗi ghi index để không đẩy watermark qua thay đổi chưa lên được ES
+    private void trackWrite(Runnable write) {
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            indexWriteFailed.set(true);
+            throw e;
+        }
+    }
 
-        do {
-            productPage = productRepository.findAll(
-                    PageRequest.of(page, BATCH_SIZE)
-            );
+    /**
+     * Build index mới (products_&lt;timestamp&gt;) song song với index đang phục vụ search,
+     * sau đó chuyển alias "products" sang index mới trong một request duy nhất.
+     */
+    @Override
+    public void reindexAllProducts() {
+        if (!reindexRunning.compareAndSet(false, true)) {
+            logger.warn("Product reindex is already running, skipping");
+            return;
+        }
 
-            List<ProductDocument> documents =
-                    productPage.getContent()
-                            .stream()
-                            .map(product ->
-                                    productDocumentMapper.toDocument(product, productHelper))
-                            .toList();
+        String newIndexName = INDEX_ALIAS + "_" + System.currentTimeMillis();
+        IndexCoordinates newIndex = IndexCoordinates.of(newIndexName);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long startedAt = System.nanoTime();
+        boolean switched = false;
 
-            if (!documents.isEmpty()) {
-                productSearchRepository.saveAll(documents);
+        try {
+            // Lấy dấu mốc trước khi quét: thay đổi trong lúc reindex chỉ làm lần khởi động sau reindex thừa, không sót
+            watermarkCandidate = null;
+            CatalogWatermark watermark = catalogWatermark();
+            IndexOperations indexOps = elasticsearchOperations.indexOps(newIndex);
+            indexOps.create();
+            Document mapping = indexOps.createMapping(ProductDocument.class);
+            mapping.put("_meta", watermark.toMeta());
+            indexOps.putMapping(mapping);
+
+            reindexTotal.set(productRepository.count());
+            reindexProcessed.set(0);
+            logger.info("Reindexing {} products into {}", reindexTotal.get(), newIndexName);
+
+            Deque<CompletableFuture<Void>> inFlight = new ArrayDeque<>();
+            long lastId = 0L;
+            while (true) {
+                List<Long> ids = productRepository.findIdsAfter(lastId, PageRequest.of(0, REINDEX_BATCH_SIZE));
+                if (ids.isEmpty()) break;
+
+                List<ProductDocument> documents = readOnlyTransaction.execute(status ->
+                        loadProductsForIndexing(ids).stream()
+                                .map(product -> productDocumentMapper.toDocument(product, productHelper))
+                                .toList());
+
+                // Giới hạn số bulk request đang chạy để không đọc DB nhanh hơn ES ghi được
+                if (inFlight.size() >= reindexParallelism) {
+                    inFlight.removeFirst().join();
+                }
+                inFlight.addLast(CompletableFuture.runAsync(() -> bulkIndex(documents, newIndex), reindexExecutor));
+
+                lastId = ids.getLast();
             }
+            inFlight.forEach(CompletableFuture::join);
+
+            indexOps.refresh();
+            switchAlias(newIndexName);
+            switched = true;
+
+            long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            reindexThroughput.set(reindexProcessed.get() * 1000 / elapsedMs);
+            logger.info("Reindexed {} products into {} in {} ms", reindexProcessed.get(), newIndexName, elapsedMs);
+        } catch (Exception e) {
+            logger.error("Product reindex into {} failed, keeping current index: {}", newIndexName, e.getMessage(), e);
+            try {
+                elasticsearchOperations.indexOps(newIndex).delete();
+            } catch (Exception ignored) {}
+        } finally {
+            sample.stop(meterRegistry.timer("search.reindex.duration", "result", switched ? "success" : "failure"));
+            reindexRunning.set(false);
+            if (switched) {
+                replayTouchedProducts();
+            }
+            touchedDuringReindex.clear();
+        }
+    }
 
-            page++;
+    private void bulkIndex(List<ProductDocument> documents, IndexCoordinates index) {
+        if (documents.isEmpty()) return;
+        elasticsearchOperations.save(documents, index);
+        reindexProcessed.addAndGet(documents.size());
+        meterRegistry.counter("search.reindex.documents").increment(documents.size());
+    }
+
+    @Override
+    public boolean reindexIfStale() {
+        Map<String, Object> expected = catalogWatermark().toMeta();
+        Map<String, Object> indexed = indexedMeta();
+        if (indexed != null && expected.entrySet().stream()
+                .allMatch(e -> e.getValue().equals(String.valueOf(indexed.get(e.getKey()))))) {
+            logger.info("Product index is up to date (watermark {}), skipping reindex", expected);
+            return false;
+        }
+        logger.info("Product index watermark {} differs from catalog {}, reindexing", indexed, expected);
+        reindexAllProducts();
+        return true;
+    }
+
+    /**
+     * Index, partial update và xóa document không đổi _meta nên sau vài thay đổi bình thường lần khởi động sau
+     * vẫn thấy lệch và reindex toàn bộ. Định kỳ ghi watermark phần sản phẩm lấy ở lượt trước nếu từ đó tới giờ
+     * không có lần ghi index nào lỗi: thay đổi commit trước lượt đó đã được đẩy lên (hàng đợi sync flush mỗi vài giây).
+     * Phần bảng tham chiếu (brand, category, ...) chỉ reindex mới cập nhật.
+     */
+    @Scheduled(fixedDelayString = "${search.watermark.refresh-ms:300000}",
+            initialDelayString = "${search.watermark.refresh-ms:300000}")
+    public void advanceIndexedWatermark() {
+        if (reindexRunning.get()) {
+            watermarkCandidate = null;
+            return;
+        }
+        try {
+            String candidate = watermarkCandidate;
+            boolean clean = !indexWriteFailed.getAndSet(false);
+            watermarkCandidate = catalogWatermark().products();
+            if (candidate == null || !clean) return;
+
+            Map<String, Object> meta = indexedMeta();
+            if (meta == null || candidate.equals(meta.get(WATERMARK_META_KEY))) return;
+
+            Map<String, Object> updated = new HashMap<>(meta);
+            updated.put(WATERMARK_META_KEY, candidate);
+            elasticsearchOperations.indexOps(IndexCoordinates.of(INDEX_ALIAS))
+                    .putMapping(Document.from(Map.of("_meta", updated)));
+            logger.debug("Advanced product index watermark to {}", candidate);
+        } catch (Exception e) {
+            watermarkCandidate = null;
+            logger.warn("Cannot advance product index watermark: {}", e.getMessage());
+        }
+    }
+
+    // Kiểm tra một lần sau khi readiness probe báo ACCEPTING_TRAFFIC, reindex (nếu cần) chạy nền với alias cũ vẫn phục vụ search
+    @Async("taskExecutor")
+    @EventListener
+    public void onReadinessChanged(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() != ReadinessState.ACCEPTING_TRAFFIC || !startupIndexChecked.compareAndSet(false, true)) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean reindexed = false;
+        try {
+            reindexed = reindexIfStale();
+        } catch (Exception e) {
+            logger.error("Startup product index check failed: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(Timer.builder("app.startup.phase")
+                    .description("Thời gian từng bước khởi động ứng dụng")
+                    .tag("phase", reindexed ? "search_reindex" : "search_index_check")
+                    .register(meterRegistry));
+        }
+    }
+
+    private CatalogWatermark catalogWatermark() {
+        CatalogWatermarkProjection w = productRepository.findCatalogWatermark();
+        String products = "p" + w.getProductCount() + ":" + w.getProductModifiedAt()
+                + "|v" + w.getVariantCount() + ":" + w.getVariantModifiedAt()
+                + "|pa" + w.getProductAttributeValueCount() + ":" + w.getProductAttributeValueModifiedAt()
+                + "|pvv" + w.getProductVariantValueCount() + ":" + w.getProductVariantValueModifiedAt()
+                + "|pf" + w.getProductFilterValueCount() + ":" + w.getProductFilterValueMaxId();
+        String references = "b" + w.getBrandCount() + ":" + w.getBrandModifiedAt()
+                + "|c" + w.getCategoryCount() + ":" + w.getCategoryModifiedAt()
+                + "|a" + w.getAttributeCount() + ":" + w.getAttributeModifiedAt()
+                + "|vv" + w.getVariantValueCount() + ":" + w.getVariantValueModifiedAt()
+                + "|f" + w.getFilterValueCount() + ":" + w.getFilterValueChecksum();
+        return new CatalogWatermark(products, references);
+    }
+
+    private record CatalogWatermark(String products, String references) {
+        Map<String, Object> toMeta() {
+            return Map.of(WATERMARK_META_KEY, products, REFERENCE_WATERMARK_META_KEY, references);
+        }
+    }
+
+    // _meta mapping của index mà alias đang trỏ tới; null nếu chưa có alias hoặc index cũ chưa ghi
+    private Map<String, Object> indexedMeta() {
+        try {
+            Set<String> indices = elasticsearchOperations.indexOps(IndexCoordinates.of(INDEX_ALIAS))
+                    .getAliases(INDEX_ALIAS).keySet();
+            if (indices.size() != 1) return null;
+
+            Map<String, Object> mapping = elasticsearchOperations
+                    .indexOps(IndexCoordinates.of(indices.iterator().next()))
+                    .getMapping();
+            if (!(mapping.get("_meta") instanceof Map<?, ?> meta)) return null;
+            Map<String, Object> result = new HashMap<>();
+            meta.forEach((key, value) -> result.put(String.valueOf(key), value));
+            return result;
+        } catch (Exception e) {
+            logger.warn("Cannot read product index watermark: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void switchAlias(String newIndexName) {
+        IndexOperations aliasOps = elasticsearchOperations.indexOps(IndexCoordinates.of(INDEX_ALIAS));
+
+        Set<String> previousIndices = new HashSet<>();
+        try {
+            previousIndices.addAll(aliasOps.getAliases(INDEX_ALIAS).keySet());
+        } catch (Exception ignored) {
+            // Alias chưa tồn tại
+        }
+
+        AliasActions actions = new AliasActions(new AliasAction.Add(AliasActionParameters.builder()
+                .withIndices(newIndexName)
+                .withAliases(INDEX_ALIAS)
+                .build()));
+
+        if (previousIndices.isEmpty() && aliasOps.exists()) {
+            // "products" vẫn là index thật (trước khi dùng alias): xóa trong cùng request để alias lấy tên này
+            previousIndices.add(INDEX_ALIAS);
+        }
+        previousIndices.remove(newIndexName);
+        for (String previousIndex : previousIndices) {
+            actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                    .withIndices(previousIndex)
+                    .build()));
+        }
+
+        aliasOps.alias(actions);
+    }
+
+    // Các sản phẩm thay đổi trong lúc reindex được ghi vào index cũ, ghi lại vào index mới sau khi chuyển alias
+    private void replayTouchedProducts() {
+        List<Long> productIds = new ArrayList<>(touchedDuringReindex);
+        if (productIds.isEmpty()) return;
+
+        List<ProductDocument> documents = readOnlyTransaction.execute(status ->
+                loadProductsForIndexing(productIds).stream()
+                        .map(product -> productDocumentMapper.toDocument(product, productHelper))
+                        .toList());
+        if (documents != null && !documents.isEmpty()) {
+            productSearchRepository.saveAll(documents);
+        }
+
+        Set<Long> indexedIds = documents == null ? Set.of() : documents.stream()
+                .map(ProductDocument::getProductId)
+                .collect(Collectors.toSet());
+        productIds.stream()
+                .filter(id -> !indexedIds.contains(id))
+                .forEach(id -> productSearchRepository.deleteById(String.valueOf(id)));
+    }
 
-        } while (productPage.hasNext());
+    @PostConstruct
+    void registerReindexMetrics() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        Gauge.builder("search.reindex.running", reindexRunning, running -> running.get() ? 1 : 0)
+                .description("Whether a full product reindex is in progress")
+                .register(meterRegistry);
+        Gauge.builder("search.reindex.progress", this, service -> service.reindexTotal.get() == 0 ? 0
+                        : (double) service.reindexProcessed.get() / service.reindexTotal.get())
+                .description("Fraction of products written into the new index")
+                .register(meterRegistry);
+        Gauge.builder("search.reindex.throughput", reindexThroughput, AtomicLong::get)
+                .description("Documents per second of the last completed reindex")
+                .baseUnit("documents/s")
+                .register(meterRegistry);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+package iuh.fit.ecommerce.services.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import iuh.fit.ecommerce.dtos.projection.ProductSearchFieldsProjection;
+import iuh.fit.ecommerce.enums.ProductSearchField;
+import iuh.fit.ecommerce.events.ProductSearchFieldsChangedEvent;
+import iuh.fit.ecommerce.events.VariantStockChangedEvent;
+import iuh.fit.ecommerce.repositories.ProductRepository;
+import iuh.fit.ecommerce.repositories.ProductVariantRepository;
+import iuh.fit.ecommerce.services.ProductSearchService;
+import iuh.fit.ecommerce.services.ProductSearchSyncService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Đồng bộ các field hay đổi của ProductDocument (stock, giá, rating, status) mà không build lại cả document.
+ * Thay đổi được gộp theo sản phẩm trong một cửa sổ ngắn; khi flush, giá trị được đọc lại từ DB
+ * (một query aggregate cho cả lô) nên thứ tự sự kiện không quan trọng, rồi gửi một bulk partial update.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSearchSyncServiceImpl implements ProductSearchSyncService {
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final ProductSearchService productSearchService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${search.partial-update.batch-size:500}")
+    private int batchSize;
+
+    private final Map<Long, Set<ProductSearchField>> pendingFields = new ConcurrentHashMap<>();
+    private final Set<Long> pendingStockVariants = ConcurrentHashMap.newKeySet();
+
+    private Counter updatedDocuments;
+    private Counter failedDocuments;
+
+    @PostConstruct
+    void registerMetrics() {
+        updatedDocuments = Counter.builder("search.partial_update.documents")
+                .description("Số document sản phẩm được cập nhật một phần")
+                .tag("result", "success")
+                .register(meterRegistry);
+        failedDocuments = Counter.builder("search.partial_update.documents")
+                .description("Số document sản phẩm được cập nhật một phần")
+                .tag("result", "failure")
+                .register(meterRegistry);
+    }
+
+    // Chỉ nhận sau khi commit để không đẩy lên search dữ liệu có thể bị rollback
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFieldsChanged(ProductSearchFieldsChangedEvent event) {
+        markChanged(event.productIds(), event.fields());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVariantStockChanged(VariantStockChangedEvent event) {
+        pendingStockVariants.addAll(event.variantIds());
+    }
+
+    @Override
+    public void markChanged(Collection<Long> productIds, Set<ProductSearchField> fields) {
+        if (fields.isEmpty()) return;
+        for (Long productId : productIds) {
+            if (productId == null) continue;
+            pendingFields.merge(productId, EnumSet.copyOf(fields), (current, added) -> {
+                EnumSet<ProductSearchField> merged = EnumSet.copyOf(current);
+                merged.addAll(added);
+                return merged;
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.partial-update.flush-ms:2000}")
+    public void flushPendingChanges() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Flush product search partial updates failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public int flush() {
+        drainStockVariants();
+        if (pendingFields.isEmpty()) return 0;
+
+        Map<Long, Set<ProductSearchField>> changes = new HashMap<>();
+        for (Long productId : new ArrayList<>(pendingFields.keySet())) {
+            // Gỡ trước khi gửi: thay đổi mới trong lúc gửi sẽ được ghi nhận lại cho lần sau
+            Set<ProductSearchField> fields = pendingFields.remove(productId);
+            if (fields != null) changes.put(productId, fields);
+        }
+
+        int sent = 0;
+        List<Long> productIds = new ArrayList<>(changes.keySet());
+        for (int from = 0; from < productIds.size(); from += batchSize) {
+            List<Long> batch = productIds.subList(from, Math.min(from + batchSize, productIds.size()));
+            try {
+                sent += sendBatch(batch, changes);
+            } catch (Exception e) {
+                // Trả lại lô lỗi và các lô chưa gửi
+                productIds.subList(from, productIds.size()).forEach(id -> markChanged(List.of(id), changes.get(id)));
+                throw e;
+            }
+        }
+        return sent;
+    }
+
+    private void drainStockVariants() {
+        if (pendingStockVariants.isEmpty()) return;
+
+        List<Long> variantIds = new ArrayList<>(pendingStockVariants);
+        variantIds.forEach(pendingStockVariants::remove);
+        try {
+            markChanged(productVariantRepository.findProductIdsByIds(variantIds), EnumSet.of(ProductSearchField.STOCK));
+        } catch (Exception e) {
+            pendingStockVariants.addAll(variantIds);
+            throw e;
+        }
+    }
+
+    private int sendBatch(List<Long> productIds, Map<Long, Set<ProductSearchField>> changes) {
+        Map<Long, Map<String, Object>> updates = new LinkedHashMap<>();
+        for (ProductSearchFieldsProjection row : productRepository.findSearchFieldsByIds(productIds)) {
+            updates.put(row.getProductId(), toDocumentFields(row, changes.get(row.getProductId())));
+        }
+        // Sản phẩm đã bị xóa khỏi DB không có dòng nào: bỏ qua, việc xóa document do luồng khác xử lý
+
+        Set<Long> failed = productSearchService.partialUpdate(updates);
+        updatedDocuments.increment(updates.size() - failed.size());
+        failedDocuments.increment(failed.size());
+        // Gửi lại ở lần flush sau với đúng các field đã đổi; giá trị sẽ được đọc lại từ DB
+        failed.forEach(id -> markChanged(List.of(id), changes.get(id)));
+        return updates.size() - failed.size();
+    }
+
+    private static Map<String, Object> toDocumentFields(ProductSearchFieldsProjection row, Set<ProductSearchField> fields) {
+        Map<String, Object> document = new HashMap<>();
+        if (fields.contains(ProductSearchField.STOCK)) {
+            document.put("stock", row.getStock() != null ? row.getStock().intValue() : 0);
+        }
+        if (fields.contains(ProductSearchField.PRICE)) {
+            document.put("minPrice", row.getMinPrice());
+            document.put("maxPrice", row.getMaxPrice());
+        }
+        if (fields.contains(ProductSearchField.RATING)) {
+            document.put("rating", row.getRating());
+        }
+        if (fields.contains(ProductSearchField.STATUS)) {
+            document.put("status", row.getStatus());
+        }
+        return document;
+    }
+}
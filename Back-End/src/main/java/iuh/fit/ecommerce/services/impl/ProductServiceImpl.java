@@ -12,7 +12,9 @@ import iuh.fit.ecommerce.dtos.response.product.ProductResponse;
 import iuh.fit.ecommerce.dtos.response.product.ProductSearchResponse;
 import iuh.fit.ecommerce.dtos.projection.MinVariantPriceProjection;
 import iuh.fit.ecommerce.entities.*;
+import iuh.fit.ecommerce.enums.ProductSearchField;
 import iuh.fit.ecommerce.events.ProductCreatedEvent;
+import iuh.fit.ecommerce.events.ProductSearchFieldsChangedEvent;
 import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.ConflictException;
 import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
@@ -26,6 +28,7 @@ import iuh.fit.ecommerce.specifications.ProductSpecification;
 import iuh.fit.ecommerce.utils.StringUtils;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -57,6 +60,7 @@ public class ProductServiceImpl implements ProductService {
     private final FilterValueRepository filterValueRepository;
     private final ProductMessagePublisher productMessagePublisher;
     private final PromotionResolver promotionResolver;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -179,6 +183,7 @@ public class ProductServiceImpl implements ProductService {
         Product product = getProductEntityById(id);
         product.setStatus(!product.getStatus());
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductSearchFieldsChangedEvent.of(List.of(id), ProductSearchField.STATUS));
     }
     
     private void updateProductImages(Product product, List<String> newImageUrls) {
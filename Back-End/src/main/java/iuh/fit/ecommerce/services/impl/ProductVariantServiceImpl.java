@@ -47,13 +47,15 @@ public class ProductVariantServiceImpl implements ProductVariantService {
                 productVariantPromotionRequest.getProductVariantIds()
         ).stream().collect(Collectors.toMap(ProductVariant::getId, pv -> pv));
 
+        Map<Long, Promotion> promotionsByVariantId = promotionService.getBestPromotionsForVariants(productVariants.values());
+
         List<ProductVariantPromotionResponse> responses = new ArrayList<>();
 
         for(Long pvId : productVariantPromotionRequest.getProductVariantIds()){
             ProductVariant variant = productVariants.get(pvId);
             if(variant == null) continue;
 
-            Promotion bestPromotion = promotionService.getBestPromotionForVariant(variant);
+            Promotion bestPromotion = promotionsByVariantId.get(pvId);
             Double discount = bestPromotion != null ? bestPromotion.getDiscount() : 0.0;
 
             ProductVariantPromotionResponse response = ProductVariantPromotionResponse.builder()
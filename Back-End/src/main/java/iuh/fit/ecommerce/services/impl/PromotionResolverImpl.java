@@ -1,56 +1,52 @@
 package iuh.fit.ecommerce.services.impl;
 
+import iuh.fit.ecommerce.configurations.cache.CacheInvalidationPublisher;
 import iuh.fit.ecommerce.dtos.request.search.SearchProductContext;
 import iuh.fit.ecommerce.dtos.response.product.DisplayPriceResult;
 import iuh.fit.ecommerce.entities.Promotion;
 import iuh.fit.ecommerce.entities.PromotionTarget;
 import iuh.fit.ecommerce.enums.PromotionType;
+import iuh.fit.ecommerce.events.PromotionChangedEvent;
 import iuh.fit.ecommerce.repositories.PromotionRepository;
 import iuh.fit.ecommerce.services.PromotionResolver;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.util.CollectionUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class PromotionResolverImpl implements PromotionResolver {
+public class PromotionResolverImpl implements PromotionResolver, MessageListener {
+
+    // Tên dùng trên kênh cache:invalidation để báo các node khác dựng lại index promotion
+    static final String INDEX_NAME = "promotion-index";
 
     private final PromotionRepository promotionRepository;
+    private final CacheInvalidationPublisher invalidationPublisher;
 
-    private Map<Long, Promotion> byVariantId;
-    private Map<Long, Promotion> byProductId;
-    private Map<Long, Promotion> byBrandId;
-    private Map<Long, Promotion> byCategoryId;
-    private Promotion bestGlobal;
+    // Snapshot bất biến, chỉ được thay thế nguyên khối (copy-on-write) nên reader không cần khóa
+    private final AtomicReference<PromotionIndex> index = new AtomicReference<>();
 
     @Override
     public Map<Long, DisplayPriceResult> resolveDisplayPrices(List<SearchProductContext> contexts) {
         if (CollectionUtils.isEmpty(contexts)) return Map.of();
 
-        Set<Long> variantIds = new HashSet<>();
-        Set<Long> productIds = new HashSet<>();
-        Set<Long> categoryIds = new HashSet<>();
-        Set<Long> brandIds = new HashSet<>();
-        for (SearchProductContext c : contexts) {
-            if (c.getProductId() != null) productIds.add(c.getProductId());
-            if (c.getVariantId() != null) variantIds.add(c.getVariantId());
-            if (c.getCategoryId() != null) categoryIds.add(c.getCategoryId());
-            if (c.getBrandId() != null) brandIds.add(c.getBrandId());
-        }
-        if (variantIds.isEmpty()) variantIds.add(-1L);
-        if (categoryIds.isEmpty()) categoryIds.add(-1L);
-        if (brandIds.isEmpty()) brandIds.add(-1L);
-
-        List<Promotion> promotions = promotionRepository.findValidPromotionsWithTargetsForDisplayPrice(
-                new ArrayList<>(variantIds), new ArrayList<>(productIds),
-                new ArrayList<>(categoryIds), new ArrayList<>(brandIds));
-        buildLookupMaps(promotions);
+        PromotionIndex snapshot = currentIndex();
 
         Map<Long, DisplayPriceResult> result = new HashMap<>();
         for (SearchProductContext c : contexts) {
-            Promotion best = resolveBestPromotion(c.getVariantId(), c.getProductId(), c.getBrandId(), c.getCategoryId());
+            Promotion best = snapshot.resolve(c.getVariantId(), c.getProductId(), c.getBrandId(), c.getCategoryId());
             double orig = c.getOriginalPrice() != null ? c.getOriginalPrice() : 0.0;
             double discountPercent = (best != null && best.getDiscount() != null) ? best.getDiscount() : 0.0;
             double displayPrice = orig * (1 - discountPercent / 100.0);
@@ -66,13 +62,56 @@ public class PromotionResolverImpl implements PromotionResolver {
 
     @Override
     public Promotion resolveBestPromotion(Long variantId, Long productId, Long brandId, Long categoryId) {
-        Promotion best = null;
-        if (byVariantId != null && variantId != null) best = better(best, byVariantId.get(variantId));
-        if (byProductId != null && productId != null) best = better(best, byProductId.get(productId));
-        if (byBrandId != null && brandId != null) best = better(best, byBrandId.get(brandId));
-        if (byCategoryId != null && categoryId != null) best = better(best, byCategoryId.get(categoryId));
-        best = better(best, bestGlobal);
-        return best;
+        return currentIndex().resolve(variantId, productId, brandId, categoryId);
+    }
+
+    private synchronized void refresh() {
+        PromotionIndex previous = index.get();
+        long version = previous != null ? previous.version() + 1 : 1;
+        LocalDate today = LocalDate.now();
+
+        PromotionIndex rebuilt = PromotionIndex.build(
+                promotionRepository.findAllValidPromotionsWithTargetsOn(today), today, version);
+        index.set(rebuilt);
+
+        log.debug("Promotion index v{} built for {} ({} promotions)", version, today, rebuilt.size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPromotionChanged(PromotionChangedEvent event) {
+        refresh();
+        invalidationPublisher.publishClear(INDEX_NAME);
+    }
+
+    // Node khác vừa ghi promotion: dựng lại ngay thay vì chờ lần refresh định kỳ
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = payload.split("\\" + CacheInvalidationPublisher.SEPARATOR, 3);
+        if (parts.length != 2 || !INDEX_NAME.equals(parts[1])
+                || invalidationPublisher.getNodeId().equals(parts[0])) return;
+        refresh();
+    }
+
+    // Qua ngày mới: promotion bắt đầu/hết hạn theo startDate/endDate.
+    // Chạy định kỳ thêm để bù khi thông báo pub/sub từ node khác bị lỡ (mất kết nối Redis).
+    @Scheduled(cron = "${promotion.index.refresh-cron:0 */5 * * * *}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    private PromotionIndex currentIndex() {
+        PromotionIndex snapshot = index.get();
+        if (snapshot == null || !LocalDate.now().equals(snapshot.validOn())) {
+            synchronized (this) {
+                snapshot = index.get();
+                if (snapshot == null || !LocalDate.now().equals(snapshot.validOn())) {
+                    refresh();
+                    snapshot = index.get();
+                }
+            }
+        }
+        return snapshot;
     }
 
     private static Promotion better(Promotion current, Promotion candidate) {
@@ -86,28 +125,51 @@ public class PromotionResolverImpl implements PromotionResolver {
         return dCand >= dCur ? candidate : current;
     }
 
-    private void buildLookupMaps(List<Promotion> promotions) {
-        byVariantId = new HashMap<>();
-        byProductId = new HashMap<>();
-        byBrandId = new HashMap<>();
-        byCategoryId = new HashMap<>();
-        bestGlobal = null;
-        for (Promotion p : promotions) {
-            if (p.getPromotionType() == PromotionType.ALL) {
-                bestGlobal = better(bestGlobal, p);
-                continue;
-            }
-            if (p.getPromotionTargets() == null) continue;
-            for (PromotionTarget pt : p.getPromotionTargets()) {
-                if (pt.getProductVariant() != null && pt.getProductVariant().getId() != null)
-                    byVariantId.merge(pt.getProductVariant().getId(), p, PromotionResolverImpl::better);
-                if (pt.getProduct() != null && pt.getProduct().getId() != null)
-                    byProductId.merge(pt.getProduct().getId(), p, PromotionResolverImpl::better);
-                if (pt.getBrand() != null && pt.getBrand().getId() != null)
-                    byBrandId.merge(pt.getBrand().getId(), p, PromotionResolverImpl::better);
-                if (pt.getCategory() != null && pt.getCategory().getId() != null)
-                    byCategoryId.merge(pt.getCategory().getId(), p, PromotionResolverImpl::better);
+    private record PromotionIndex(
+            Map<Long, Promotion> byVariantId,
+            Map<Long, Promotion> byProductId,
+            Map<Long, Promotion> byBrandId,
+            Map<Long, Promotion> byCategoryId,
+            Promotion bestGlobal,
+            LocalDate validOn,
+            long version,
+            int size
+    ) {
+
+        static PromotionIndex build(List<Promotion> promotions, LocalDate validOn, long version) {
+            Map<Long, Promotion> byVariantId = new HashMap<>();
+            Map<Long, Promotion> byProductId = new HashMap<>();
+            Map<Long, Promotion> byBrandId = new HashMap<>();
+            Map<Long, Promotion> byCategoryId = new HashMap<>();
+            Promotion bestGlobal = null;
+            for (Promotion p : promotions) {
+                if (p.getPromotionType() == PromotionType.ALL) {
+                    bestGlobal = better(bestGlobal, p);
+                    continue;
+                }
+                if (p.getPromotionTargets() == null) continue;
+                for (PromotionTarget pt : p.getPromotionTargets()) {
+                    if (pt.getProductVariant() != null && pt.getProductVariant().getId() != null)
+                        byVariantId.merge(pt.getProductVariant().getId(), p, PromotionResolverImpl::better);
+                    if (pt.getProduct() != null && pt.getProduct().getId() != null)
+                        byProductId.merge(pt.getProduct().getId(), p, PromotionResolverImpl::better);
+                    if (pt.getBrand() != null && pt.getBrand().getId() != null)
+                        byBrandId.merge(pt.getBrand().getId(), p, PromotionResolverImpl::better);
+                    if (pt.getCategory() != null && pt.getCategory().getId() != null)
+                        byCategoryId.merge(pt.getCategory().getId(), p, PromotionResolverImpl::better);
+                }
             }
+            return new PromotionIndex(Map.copyOf(byVariantId), Map.copyOf(byProductId),
+                    Map.copyOf(byBrandId), Map.copyOf(byCategoryId), bestGlobal, validOn, version, promotions.size());
+        }
+
+        Promotion resolve(Long variantId, Long productId, Long brandId, Long categoryId) {
+            Promotion best = null;
+            if (variantId != null) best = better(best, byVariantId.get(variantId));
+            if (productId != null) best = better(best, byProductId.get(productId));
+            if (brandId != null) best = better(best, byBrandId.get(brandId));
+            if (categoryId != null) best = better(best, byCategoryId.get(categoryId));
+            return better(best, bestGlobal);
         }
     }
 }
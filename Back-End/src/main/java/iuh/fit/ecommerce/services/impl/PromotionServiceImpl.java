@@ -11,15 +11,18 @@ import iuh.fit.ecommerce.entities.ProductVariant;
 import iuh.fit.ecommerce.entities.Promotion;
 import iuh.fit.ecommerce.entities.PromotionTarget;
 import iuh.fit.ecommerce.enums.PromotionType;
+import iuh.fit.ecommerce.events.PromotionChangedEvent;
 import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
 import iuh.fit.ecommerce.mappers.ProductMapper;
 import iuh.fit.ecommerce.mappers.PromotionMapper;
 import iuh.fit.ecommerce.repositories.PromotionRepository;
 import iuh.fit.ecommerce.repositories.PromotionTargetRepository;
+import iuh.fit.ecommerce.services.PromotionResolver;
 import iuh.fit.ecommerce.services.PromotionService;
 import iuh.fit.ecommerce.specifications.PromotionSpecification;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -31,7 +34,6 @@ import org.springframework.util.CollectionUtils;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -41,6 +43,8 @@ public class PromotionServiceImpl implements PromotionService {
     private final PromotionTargetRepository promotionTargetRepository;
     private final PromotionMapper promotionMapper;
     private final ProductMapper productMapper;
+    private final PromotionResolver promotionResolver;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -56,6 +60,7 @@ public class PromotionServiceImpl implements PromotionService {
             promotionTargetRepository.saveAll(promotionTargets);
         }
 
+        eventPublisher.publishEvent(new PromotionChangedEvent(promotion.getId()));
         return promotionMapper.toResponse(promotion);
     }
 
@@ -108,6 +113,7 @@ public class PromotionServiceImpl implements PromotionService {
             promotionTargetRepository.saveAll(promotionMapper.toPromotionTargets(request.getPromotionTargets(), promotion));
         }
 
+        eventPublisher.publishEvent(new PromotionChangedEvent(promotion.getId()));
         return promotionMapper.toResponse(promotion);
     }
 
@@ -117,6 +123,7 @@ public class PromotionServiceImpl implements PromotionService {
         Promotion promotion = findById(id);
         promotionTargetRepository.deleteByPromotion(promotion);
         promotionRepository.delete(promotion);
+        eventPublisher.publishEvent(new PromotionChangedEvent(id));
     }
 
     @Override
@@ -125,6 +132,7 @@ public class PromotionServiceImpl implements PromotionService {
         Promotion promotion = findById(id);
         promotion.setActive(!promotion.getActive());
         promotionRepository.save(promotion);
+        eventPublisher.publishEvent(new PromotionChangedEvent(id));
     }
 
     private Promotion findById(Long id) {
@@ -145,44 +153,27 @@ public class PromotionServiceImpl implements PromotionService {
         return variant.getPrice();
     }
 
-    @Override
-    public Promotion getBestPromotion(ProductVariant variant, Map<Long, List<Promotion>> promosByVariant) {
-        List<Promotion> promos = promosByVariant.getOrDefault(variant.getId(), List.of());
-        return promos.isEmpty() ? null : promos.getFirst();
-    }
-
-    @Override
-    public Map<Long, List<Promotion>> getPromotionsGroupByVariantId(List<ProductVariant> variants, Product product) {
-        List<Long> variantIds = variants.stream().map(ProductVariant::getId).toList();
-        List<Long> productIds = List.of(product.getId());
-        List<Long> categoryIds = List.of(product.getCategory().getId());
-        List<Long> brandIds = List.of(product.getBrand().getId());
-
-        List<Promotion> allPromotions = promotionRepository.findAllValidPromotions(
-                variantIds, productIds, categoryIds, brandIds
-        );
-
-        // Map variantId -> list promotion, đã ordered
-        return variants.stream()
-                .collect(Collectors.toMap(
-                        ProductVariant::getId,
-                        v -> allPromotions.stream()
-                                .filter(p -> appliesToVariant(p, v))
-                                .toList()
-                ));
-    }
-
     @Override
     public Promotion getBestPromotionForVariant(ProductVariant variant) {
-        List<Promotion> promos = promotionRepository.findBestPromotionForVariant(
+        Product product = variant.getProduct();
+        return promotionResolver.resolveBestPromotion(
                 variant.getId(),
-                variant.getProduct().getId(),
-                variant.getProduct().getCategory().getId(),
-                variant.getProduct().getBrand().getId(),
-                PageRequest.of(0, 1)  // chỉ lấy 1 promotion đầu tiên
+                product.getId(),
+                product.getBrand() != null ? product.getBrand().getId() : null,
+                product.getCategory() != null ? product.getCategory().getId() : null
         );
+    }
 
-        return promos.isEmpty() ? null : promos.get(0);
+    @Override
+    public Map<Long, Promotion> getBestPromotionsForVariants(Collection<ProductVariant> variants) {
+        Map<Long, Promotion> result = new HashMap<>();
+        for (ProductVariant variant : variants) {
+            Promotion promotion = getBestPromotionForVariant(variant);
+            if (promotion != null) {
+                result.put(variant.getId(), promotion);
+            }
+        }
+        return result;
     }
 
     public ProductResponse addPromotionToProductResponseByProduct(Product product) {
@@ -194,9 +185,6 @@ public class PromotionServiceImpl implements PromotionService {
             return response;
         }
 
-        Map<Long, List<Promotion>> promosByVariant =
-                getPromotionsGroupByVariantId(variants, product);
-
         List<ProductVariantResponse> responseVariants = response.getVariants();
 
         for (int i = 0; i < variants.size(); i++) {
@@ -207,8 +195,7 @@ public class PromotionServiceImpl implements PromotionService {
             Double originalPrice = calculateOriginalPrice(entityVariant);
             v.setOldPrice(originalPrice);
 
-            Promotion bestPromo =
-                    getBestPromotion(entityVariant, promosByVariant);
+            Promotion bestPromo = getBestPromotionForVariant(entityVariant);
 
             if (bestPromo != null) {
                 v.setPrice(calculateDiscountPrice(entityVariant, bestPromo));
@@ -221,18 +208,4 @@ public class PromotionServiceImpl implements PromotionService {
 
         return response;
     }
-
-
-
-
-    private boolean appliesToVariant(Promotion promo, ProductVariant variant) {
-        return promo.getPromotionTargets().stream().anyMatch(pt ->
-                (pt.getProductVariant() != null && pt.getProductVariant().getId().equals(variant.getId())) ||
-                        (pt.getProduct() != null && pt.getProduct().getId().equals(variant.getProduct().getId())) ||
-                        (pt.getCategory() != null && pt.getCategory().getId().equals(variant.getProduct().getCategory().getId())) ||
-                        (pt.getBrand() != null && pt.getBrand().getId().equals(variant.getProduct().getBrand().getId()))
-        )
-                || promo.getPromotionType() == PromotionType.ALL;
-    }
-
 }
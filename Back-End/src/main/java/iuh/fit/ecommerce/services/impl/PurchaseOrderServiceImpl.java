@@ -12,6 +12,7 @@ import iuh.fit.ecommerce.mappers.PurchaseOrderDetailMapper;
 import iuh.fit.ecommerce.mappers.PurchaseOrderMapper;
 import iuh.fit.ecommerce.repositories.*;
 import iuh.fit.ecommerce.services.PurchaseOrderService;
+import iuh.fit.ecommerce.services.StockReservationService;
 import iuh.fit.ecommerce.specifications.PurchaseOrderSpecification;
 import iuh.fit.ecommerce.utils.SecurityUtils;
 import lombok.RequiredArgsConstructor;
@@ -26,7 +27,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -39,6 +42,7 @@ public class PurchaseOrderServiceImpl implements PurchaseOrderService {
     private final SecurityUtils securityUtils;
     private final PurchaseOrderMapper purchaseOrderMapper;
     private final PurchaseOrderDetailMapper purchaseOrderDetailMapper;
+    private final StockReservationService stockReservationService;
 
     @Override
     @Transactional
@@ -64,6 +68,7 @@ public class PurchaseOrderServiceImpl implements PurchaseOrderService {
         // Calculate total price and create details
         double totalPrice = 0.0;
         List<PurchaseOrderDetail> details = new ArrayList<>();
+        Map<Long, Integer> restockQuantities = new HashMap<>();
 
         for (PurchaseOrderDetailRequest detailRequest : request.getDetails()) {
             ProductVariant productVariant = productVariantRepository.findById(detailRequest.getProductVariantId())
@@ -78,11 +83,12 @@ public class PurchaseOrderServiceImpl implements PurchaseOrderService {
             totalPrice += detailRequest.getPrice() * detailRequest.getQuantity();
             details.add(detail);
 
-            // Update product variant stock
-            productVariant.setStock(productVariant.getStock() + detailRequest.getQuantity().intValue());
-            productVariantRepository.save(productVariant);
+            restockQuantities.merge(productVariant.getId(), detailRequest.getQuantity().intValue(), Integer::sum);
         }
 
+        // Update product variant stock
+        stockReservationService.restock(restockQuantities);
+
         purchaseOrder.setTotalPrice(totalPrice);
 
         // Save purchase order and details
@@ -1,74 +1,397 @@
 package iuh.fit.ecommerce.services.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import iuh.fit.ecommerce.repositories.CustomerRepository;
 import iuh.fit.ecommerce.services.PushNotificationService;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Gom push notification vào hàng đợi có giới hạn và gửi lên Expo theo batch (tối đa 100 tin / request)
+ * qua một HttpClient dùng chung (HTTP/2, giữ kết nối). Ticket trả về được lưu lại để kiểm tra receipt sau,
+ * token DeviceNotRegistered bị xóa khỏi customer.
+ */
 @Slf4j
 @Service
 public class PushNotificationServiceImpl implements PushNotificationService {
 
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    private static final String SEND_PATH = "/--/api/v2/push/send";
+    private static final String RECEIPTS_PATH = "/--/api/v2/push/getReceipts";
+    // Giới hạn của Expo
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_RECEIPT_IDS = 1000;
+    private static final String DEVICE_NOT_REGISTERED = "DeviceNotRegistered";
 
-    public PushNotificationServiceImpl() {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+    private final RestClient restClient;
+    private final ThreadPoolTaskExecutor pushExecutor;
+    private final CustomerRepository customerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final BlockingDeque<ExpoMessage> queue;
+    // Ticket đã gửi thành công, chờ Expo có receipt (thường sau vài phút)
+    private final Deque<PendingTicket> pendingTickets = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger pendingTicketCount = new AtomicInteger();
+    private final AtomicBoolean receiptCheckRunning = new AtomicBoolean();
+
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final long receiptDelayMs;
+    private final int maxPendingTickets;
+
+    private final DistributionSummary batchSize;
+    private final Counter retries;
+
+    public PushNotificationServiceImpl(RestClient.Builder restClientBuilder,
+                                       @Qualifier("pushExecutor") ThreadPoolTaskExecutor pushExecutor,
+                                       CustomerRepository customerRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${push.expo.base-url:https://exp.host}") String baseUrl,
+                                       @Value("${push.expo.access-token:}") String accessToken,
+                                       @Value("${push.queue-capacity:10000}") int queueCapacity,
+                                       @Value("${push.max-retries:3}") int maxRetries,
+                                       @Value("${push.retry-backoff-ms:1000}") long retryBackoffMs,
+                                       @Value("${push.receipt-delay-ms:900000}") long receiptDelayMs,
+                                       @Value("${push.max-pending-tickets:50000}") int maxPendingTickets) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofSeconds(15));
+
+        RestClient.Builder builder = restClientBuilder.clone()
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory)
+                .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+        if (!accessToken.isBlank()) {
+            builder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken);
+        }
+        this.restClient = builder.build();
+
+        this.pushExecutor = pushExecutor;
+        this.customerRepository = customerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.queue = new LinkedBlockingDeque<>(queueCapacity);
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.receiptDelayMs = receiptDelayMs;
+        this.maxPendingTickets = maxPendingTickets;
+
+        this.batchSize = DistributionSummary.builder("push.batch.size")
+                .description("Số tin trong mỗi request batch gửi Expo")
+                .register(meterRegistry);
+        this.retries = Counter.builder("push.batch.retries")
+                .description("Số lần gửi lại batch do lỗi tạm thời")
+                .register(meterRegistry);
+        Gauge.builder("push.queue.size", queue, Collection::size)
+                .description("Số push notification đang chờ gửi")
+                .register(meterRegistry);
+        Gauge.builder("push.receipts.pending", pendingTicketCount, AtomicInteger::get)
+                .description("Số ticket đang chờ kiểm tra receipt")
+                .register(meterRegistry);
     }
-    private static final String EXPO_PUSH_URL = "https://exp.host/--/api/v2/push/send";
 
     @Override
-    @Async
     public void sendPushNotification(String expoPushToken, String title, String body, Object data) {
         if (expoPushToken == null || expoPushToken.isEmpty()) {
             log.warn("Expo push token is null or empty, skipping notification");
             return;
         }
 
+        ExpoMessage message = new ExpoMessage(expoPushToken, "default", title, body, data, "high", "default");
+
+        // Gọi trong transaction (đổi trạng thái đơn, gửi tin chat): chỉ xếp hàng khi đã commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(message);
+                }
+            });
+        } else {
+            enqueue(message);
+        }
+    }
+
+    private void enqueue(ExpoMessage message) {
+        if (!queue.offer(message)) {
+            notificationCounter("dropped").increment();
+            log.warn("Push queue is full, dropping notification to token: {}", message.to());
+        }
+    }
+
+    // Thread scheduler dùng chung với các job khác: ở đây chỉ chia batch và giao cho pushExecutor,
+    // không gửi HTTP hay sleep backoff trên thread này
+    @Scheduled(fixedDelayString = "${push.flush-delay-ms:500}")
+    public void flushQueue() {
+        while (!queue.isEmpty()) {
+            List<ExpoMessage> batch = new ArrayList<>(MAX_BATCH_SIZE);
+            queue.drainTo(batch, MAX_BATCH_SIZE);
+            if (batch.isEmpty()) return;
+            try {
+                pushExecutor.execute(() -> sendBatch(batch));
+            } catch (TaskRejectedException e) {
+                // Executor đầy: trả batch về đầu hàng đợi, lần flush sau gửi tiếp
+                requeue(batch);
+                return;
+            }
+        }
+    }
+
+    private void requeue(List<ExpoMessage> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (!queue.offerFirst(batch.get(i))) {
+                notificationCounter("dropped").increment();
+            }
+        }
+    }
+
+    // Gửi nốt phần còn lại khi tắt ứng dụng
+    @PreDestroy
+    void flushOnShutdown() {
+        List<ExpoMessage> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += MAX_BATCH_SIZE) {
+            sendBatch(remaining.subList(i, Math.min(i + MAX_BATCH_SIZE, remaining.size())));
+        }
+    }
+
+    private void sendBatch(List<ExpoMessage> batch) {
+        batchSize.record(batch.size());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failed";
+
         try {
-            Map<String, Object> message = new HashMap<>();
-            message.put("to", expoPushToken);
-            message.put("sound", "default");
-            message.put("title", title);
-            message.put("body", body);
-            message.put("data", data);
-            message.put("priority", "high");
-            message.put("channelId", "default");
-
-            String jsonBody = objectMapper.writeValueAsString(message);
-
-            // Thiết lập header
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setAccept(List.of(MediaType.APPLICATION_JSON));
-
-            // Gửi yêu cầu POST tới Expo Push API
-            HttpEntity<String> request = new HttpEntity<>(jsonBody, headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                    EXPO_PUSH_URL,
-                    request,
-                    String.class
-            );
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                log.info("Push notification sent successfully to token: {}", expoPushToken);
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    ExpoResponse<List<ExpoTicket>> response = restClient.post()
+                            .uri(SEND_PATH)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(batch)
+                            .retrieve()
+                            .body(new ParameterizedTypeReference<>() {});
+                    handleTickets(batch, response != null ? response.data() : null);
+                    outcome = "sent";
+                    return;
+                } catch (RestClientException e) {
+                    if (!isRetryable(e) || attempt >= maxRetries) {
+                        log.error("Failed to send push batch of {} after {} attempts", batch.size(), attempt + 1, e);
+                        notificationCounter("failed").increment(batch.size());
+                        return;
+                    }
+                    retries.increment();
+                    long backoff = retryBackoffMs << attempt;
+                    log.warn("Push batch failed ({}), retrying in {} ms", e.getMessage(), backoff);
+                    Thread.sleep(backoff);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            notificationCounter("failed").increment(batch.size());
+        } finally {
+            sample.stop(Timer.builder("push.batch.duration")
+                    .description("Thời gian gửi một batch lên Expo, kể cả retry")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    // Chỉ thử lại khi chắc Expo chưa nhận batch: lỗi kết nối/IO, 429 hoặc 5xx.
+    // Lỗi đọc response sau khi đã 200 thì không gửi lại, tránh push trùng
+    static boolean isRetryable(RestClientException e) {
+        if (e instanceof ResourceAccessException) {
+            return true;
+        }
+        if (e instanceof HttpStatusCodeException statusException) {
+            int status = statusException.getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        return false;
+    }
+
+    // Ticket trả về theo đúng thứ tự tin trong batch
+    private void handleTickets(List<ExpoMessage> batch, List<ExpoTicket> tickets) {
+        if (tickets == null) {
+            notificationCounter("failed").increment(batch.size());
+            return;
+        }
+
+        Set<String> unregistered = new HashSet<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < tickets.size() && i < batch.size(); i++) {
+            ExpoTicket ticket = tickets.get(i);
+            String token = batch.get(i).to();
+            if (ticket.isOk()) {
+                notificationCounter("ok").increment();
+                trackReceipt(new PendingTicket(ticket.id(), token, now));
             } else {
-                log.error("Failed to send push notification. Status: {}, Response: {}",
-                        response.getStatusCode(), response.getBody());
+                notificationCounter("error").increment();
+                log.warn("Expo rejected notification to {}: {}", token, ticket.message());
+                if (DEVICE_NOT_REGISTERED.equals(ticket.errorCode())) {
+                    unregistered.add(token);
+                }
             }
-        } catch (Exception e) {
-            log.error("Error sending push notification to token: {}", expoPushToken, e);
         }
+        clearTokens(unregistered);
+    }
+
+    private void trackReceipt(PendingTicket ticket) {
+        if (ticket.id() == null) return;
+        if (pendingTicketCount.get() >= maxPendingTickets) {
+            // Receipt chỉ để dọn token hỏng, bỏ bớt khi quá nhiều thay vì giữ vô hạn trong heap
+            notificationCounter("receipt_skipped").increment();
+            return;
+        }
+        pendingTickets.add(ticket);
+        pendingTicketCount.incrementAndGet();
+    }
+
+    // Gọi /getReceipts trên pushExecutor, mỗi lúc chỉ một lượt kiểm tra
+    @Scheduled(fixedDelayString = "${push.receipt-check-interval-ms:60000}")
+    public void checkReceipts() {
+        if (pendingTickets.isEmpty() || !receiptCheckRunning.compareAndSet(false, true)) return;
+        try {
+            pushExecutor.execute(() -> {
+                try {
+                    fetchDueReceipts();
+                } finally {
+                    receiptCheckRunning.set(false);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            receiptCheckRunning.set(false);
+        }
+    }
+
+    void fetchDueReceipts() {
+        long cutoff = System.currentTimeMillis() - receiptDelayMs;
+
+        while (true) {
+            List<PendingTicket> due = new ArrayList<>();
+            Map<String, String> tokensById = new HashMap<>();
+            PendingTicket head;
+            // Hàng đợi theo thứ tự gửi: dừng ở ticket đầu tiên chưa đủ thời gian
+            while (due.size() < MAX_RECEIPT_IDS
+                    && (head = pendingTickets.peekFirst()) != null
+                    && head.sentAtMs() <= cutoff) {
+                if (pendingTickets.pollFirst() != null) {
+                    pendingTicketCount.decrementAndGet();
+                    due.add(head);
+                    tokensById.put(head.id(), head.token());
+                }
+            }
+            if (due.isEmpty()) return;
+
+            try {
+                ExpoResponse<Map<String, ExpoTicket>> response = restClient.post()
+                        .uri(RECEIPTS_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(Map.of("ids", tokensById.keySet()))
+                        .retrieve()
+                        .body(new ParameterizedTypeReference<>() {});
+                handleReceipts(tokensById, response != null ? response.data() : null);
+            } catch (RestClientException e) {
+                log.warn("Failed to fetch {} Expo push receipts, will retry: {}", due.size(), e.getMessage());
+                requeueReceipts(due);
+                return;
+            }
+        }
+    }
+
+    // Trả ticket về đầu hàng đợi theo đúng thứ tự cũ để lượt kiểm tra sau lấy lại trước
+    private void requeueReceipts(List<PendingTicket> tickets) {
+        for (int i = tickets.size() - 1; i >= 0; i--) {
+            pendingTickets.addFirst(tickets.get(i));
+        }
+        pendingTicketCount.addAndGet(tickets.size());
+        notificationCounter("receipt_requeued").increment(tickets.size());
+    }
+
+    private void handleReceipts(Map<String, String> tokensById, Map<String, ExpoTicket> receipts) {
+        if (receipts == null) return;
+
+        Set<String> unregistered = new HashSet<>();
+        receipts.forEach((id, receipt) -> {
+            Counter.builder("push.receipts")
+                    .description("Receipt Expo theo trạng thái")
+                    .tag("status", receipt.isOk() ? "ok" : "error")
+                    .register(meterRegistry)
+                    .increment();
+            if (!receipt.isOk()) {
+                log.warn("Expo receipt {} failed: {}", id, receipt.message());
+                if (DEVICE_NOT_REGISTERED.equals(receipt.errorCode()) && tokensById.containsKey(id)) {
+                    unregistered.add(tokensById.get(id));
+                }
+            }
+        });
+        clearTokens(unregistered);
+    }
+
+    private void clearTokens(Set<String> tokens) {
+        if (tokens.isEmpty()) return;
+        Integer cleared = transactionTemplate.execute(status -> customerRepository.clearExpoPushTokens(tokens));
+        log.info("Cleared {} unregistered Expo push tokens", cleared);
+    }
+
+    private Counter notificationCounter(String result) {
+        return Counter.builder("push.notifications")
+                .description("Số push notification theo kết quả")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    record ExpoMessage(String to, String sound, String title, String body, Object data,
+                       String priority, String channelId) {
+    }
+
+    record ExpoResponse<T>(T data) {
+    }
+
+    record ExpoTicket(String status, String id, String message, Map<String, Object> details) {
+
+        boolean isOk() {
+            return "ok".equals(status);
+        }
+
+        String errorCode() {
+            return details != null ? String.valueOf(details.get("error")) : null;
+        }
+    }
+
+    private record PendingTicket(String id, String token, long sentAtMs) {
     }
 }
@@ -7,6 +7,7 @@ import iuh.fit.ecommerce.dtos.response.staff.StaffResponse;
 import iuh.fit.ecommerce.entities.Role;
 import iuh.fit.ecommerce.entities.Staff;
 import iuh.fit.ecommerce.entities.UserRole;
+import iuh.fit.ecommerce.events.UserAccessChangedEvent;
 import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.ConflictException;
 import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
@@ -15,6 +16,7 @@ import iuh.fit.ecommerce.repositories.RoleRepository;
 import iuh.fit.ecommerce.repositories.StaffRepository;
 import iuh.fit.ecommerce.services.StaffService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -35,6 +37,7 @@ public class StaffServiceImpl implements StaffService {
     private final StaffRepository staffRepository;
     private final StaffMapper staffMapper;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -114,6 +117,9 @@ public class StaffServiceImpl implements StaffService {
         Staff staff = getStaffEntityById(id);
         mapUpdateRequestToStaff(staffUpdateRequest, staff);
         staffRepository.save(staff);
+        if (staffUpdateRequest.getRoleId() != null) {
+            eventPublisher.publishEvent(new UserAccessChangedEvent(staff.getEmail()));
+        }
         return staffMapper.toResponse(staff);
     }
 
@@ -122,6 +128,7 @@ public class StaffServiceImpl implements StaffService {
         Staff staff = getStaffEntityById(id);
         staff.setActive(!staff.getActive());
         staffRepository.save(staff);
+        eventPublisher.publishEvent(new UserAccessChangedEvent(staff.getEmail()));
     }
 
     @Override
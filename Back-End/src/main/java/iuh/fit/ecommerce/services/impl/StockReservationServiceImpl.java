@@ -0,0 +1,113 @@
+package iuh.fit.ecommerce.services.impl;
+
+import iuh.fit.ecommerce.entities.OrderDetail;
+import iuh.fit.ecommerce.entities.ProductVariant;
+import iuh.fit.ecommerce.events.VariantStockChangedEvent;
+import iuh.fit.ecommerce.exceptions.ErrorCode;
+import iuh.fit.ecommerce.exceptions.custom.InvalidParamException;
+import iuh.fit.ecommerce.services.StockReservationService;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Giữ/hoàn tồn kho bằng câu lệnh UPDATE có điều kiện ({@code stock = stock - ?}) thay vì đọc-sửa-ghi entity.
+ * Các dòng cùng biến thể được gộp lại và gửi trong một JDBC batch theo thứ tự id tăng dần để hai đơn hàng
+ * đồng thời luôn khóa các dòng theo cùng một thứ tự (tránh deadlock).
+ */
+@Service
+@RequiredArgsConstructor
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private static final String DECREASE_STOCK_SQL =
+            "UPDATE product_variants SET stock = stock - ? WHERE id = ? AND stock >= ?";
+    private static final String INCREASE_STOCK_SQL =
+            "UPDATE product_variants SET stock = COALESCE(stock, 0) + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    @Transactional
+    public void reserve(List<OrderDetail> orderDetails) {
+        Map<Long, ProductVariant> variants = new HashMap<>();
+        orderDetails.forEach(detail -> variants.put(detail.getProductVariant().getId(), detail.getProductVariant()));
+
+        Map<Long, Integer> quantities = groupQuantityByVariantId(orderDetails);
+        List<Long> variantIds = new ArrayList<>(quantities.keySet());
+        int[] updated = batchUpdateStock(DECREASE_STOCK_SQL, variantIds.stream()
+                .map(id -> new Object[]{quantities.get(id), id, quantities.get(id)})
+                .toList());
+
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                // Ném lỗi để rollback toàn bộ giao dịch, kể cả các dòng đã trừ trong cùng batch
+                Long variantId = variantIds.get(i);
+                throw new InvalidParamException(
+                        ErrorCode.PRODUCT_VARIANT_OUT_OF_STOCK,
+                        String.format("Sản phẩm \"%s\" không đủ số lượng. Số lượng yêu cầu: %d",
+                                variants.get(variantId).getProduct().getName(), quantities.get(variantId))
+                );
+            }
+        }
+        refreshLoadedVariants(variantIds);
+        eventPublisher.publishEvent(new VariantStockChangedEvent(Set.copyOf(variants.keySet())));
+    }
+
+    @Override
+    @Transactional
+    public void release(List<OrderDetail> orderDetails) {
+        restock(groupQuantityByVariantId(orderDetails));
+    }
+
+    @Override
+    @Transactional
+    public void restock(Map<Long, Integer> quantityByVariantId) {
+        List<Long> variantIds = new TreeMap<>(quantityByVariantId).entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .toList();
+        batchUpdateStock(INCREASE_STOCK_SQL, variantIds.stream()
+                .map(id -> new Object[]{quantityByVariantId.get(id), id})
+                .toList());
+        refreshLoadedVariants(variantIds);
+        eventPublisher.publishEvent(new VariantStockChangedEvent(Set.copyOf(quantityByVariantId.keySet())));
+    }
+
+    private int[] batchUpdateStock(String sql, List<Object[]> args) {
+        if (args.isEmpty()) return new int[0];
+        // JDBC chạy trên cùng connection của transaction: đẩy thay đổi Hibernate đang chờ xuống trước
+        entityManager.flush();
+        return jdbcTemplate.batchUpdate(sql, args);
+    }
+
+    // UPDATE không đi qua persistence context: nạp lại các biến thể đã load để không đọc/ghi đè stock cũ
+    private void refreshLoadedVariants(List<Long> variantIds) {
+        for (Long variantId : variantIds) {
+            ProductVariant variant = entityManager.getReference(ProductVariant.class, variantId);
+            if (Hibernate.isInitialized(variant)) {
+                entityManager.refresh(variant);
+            }
+        }
+    }
+
+    private Map<Long, Integer> groupQuantityByVariantId(List<OrderDetail> orderDetails) {
+        Map<Long, Integer> quantityByVariantId = new TreeMap<>();
+        for (OrderDetail detail : orderDetails) {
+            quantityByVariantId.merge(detail.getProductVariant().getId(), detail.getQuantity().intValue(), Integer::sum);
+        }
+        return quantityByVariantId;
+    }
+}
@@ -1,13 +1,19 @@
 package iuh.fit.ecommerce.services.impl;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.minio.*;
 import iuh.fit.ecommerce.dtos.request.upload.UploadRequest;
 import iuh.fit.ecommerce.exceptions.ErrorCode;
 import iuh.fit.ecommerce.exceptions.custom.InvalidParamException;
 import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import iuh.fit.ecommerce.services.UploadService;
@@ -15,15 +21,17 @@ import iuh.fit.ecommerce.services.UploadService;
 import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
+@RequiredArgsConstructor
 public class UploadServiceImpl implements UploadService {
     private final MinioClient minioClient;
+    @Qualifier("uploadExecutor")
+    private final ThreadPoolTaskExecutor uploadExecutor;
+    private final MeterRegistry meterRegistry;
+    private Counter uploadedBytes;
 
     @Value("${minio.bucket-name}")
     private String bucketName;
@@ -31,6 +39,18 @@ public class UploadServiceImpl implements UploadService {
     @Value("${minio.public-url}")
     private String publicUrl;
 
+    // File lớn hơn part size được MinIO chia multipart, mỗi lần chỉ giữ một part trong bộ nhớ (tối thiểu 5MB)
+    @Value("${upload.part-size-bytes:10485760}")
+    private long partSize;
+
+    @PostConstruct
+    void initMetrics() {
+        uploadedBytes = Counter.builder("upload.bytes")
+                .description("Tổng số byte đã upload lên MinIO (rate = throughput)")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
     @Override
     public List<String> upload(UploadRequest uploadRequest) {
         List<MultipartFile> files = uploadRequest.getFiles();
@@ -41,52 +61,62 @@ public class UploadServiceImpl implements UploadService {
         }
         validateFile(files);
 
-        int poolSize = Math.max(1, Math.min(files.size(), 6));
-        ExecutorService executorService = Executors.newFixedThreadPool(poolSize);
         List<Future<String>> futures = new ArrayList<>();
-
         for (MultipartFile file : files) {
-            Future<String> future = executorService.submit(() -> {
-                try {
-                    String originalFileName = file.getOriginalFilename();
-                    String fileExtension = getFileExtension(originalFileName);
-                    String baseName = originalFileName.replace(fileExtension, "");
-
-                    String objectName = baseName + "_" + UUID.randomUUID() + fileExtension;
-
-                    try (InputStream inputStream = file.getInputStream()) {
-                        minioClient.putObject(
-                                PutObjectArgs.builder()
-                                        .bucket(bucketName)
-                                        .object(objectName)
-                                        .stream(inputStream, file.getSize(), -1)
-                                        .contentType(file.getContentType())
-                                        .build()
-                        );
-                    }
-
-                    return String.format("%s/%s/%s", publicUrl, bucketName, objectName);
-                } catch (Exception e) {
-                    log.error("Lỗi khi upload file: {}", e.getMessage());
-                    throw new RuntimeException(ErrorCode.UPLOAD_FAILED.getMessage(), e);
-                }
-            });
-            futures.add(future);
+            futures.add(uploadExecutor.submit(() -> uploadFile(file)));
         }
 
-        for (Future<String> future : futures) {
-            try {
+        try {
+            for (Future<String> future : futures) {
                 savedFileUrls.add(future.get());
-            } catch (InterruptedException | ExecutionException e) {
-                throw new RuntimeException(ErrorCode.UPLOAD_FAILED.getMessage(), e);
             }
+        } catch (InterruptedException | ExecutionException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // Một file lỗi thì hủy các file còn đang chờ trong pool dùng chung
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException(ErrorCode.UPLOAD_FAILED.getMessage(), e);
         }
 
-        executorService.shutdown();
-
         return savedFileUrls;
     }
 
+    private String uploadFile(MultipartFile file) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            String originalFileName = file.getOriginalFilename();
+            String fileExtension = getFileExtension(originalFileName);
+            String baseName = originalFileName.replace(fileExtension, "");
+
+            String objectName = baseName + "_" + UUID.randomUUID() + fileExtension;
+
+            try (InputStream inputStream = file.getInputStream()) {
+                minioClient.putObject(
+                        PutObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(objectName)
+                                .stream(inputStream, file.getSize(), partSize)
+                                .contentType(file.getContentType())
+                                .build()
+                );
+            }
+
+            uploadedBytes.increment(file.getSize());
+            outcome = "success";
+            return String.format("%s/%s/%s", publicUrl, bucketName, objectName);
+        } catch (Exception e) {
+            log.error("Lỗi khi upload file: {}", e.getMessage());
+            throw new RuntimeException(ErrorCode.UPLOAD_FAILED.getMessage(), e);
+        } finally {
+            sample.stop(Timer.builder("upload.file.duration")
+                    .description("Thời gian upload một file lên MinIO")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
     @Override
     public void deleteFile(String url) {
         try {
@@ -16,6 +16,8 @@ import iuh.fit.ecommerce.services.VariantCategoryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import iuh.fit.ecommerce.configurations.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -33,6 +35,7 @@ public class VariantCategoryServiceImpl implements VariantCategoryService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.VARIANT_CACHE, allEntries = true)
     public void setVariantsForCategory(SetVariantsForCategoryRequest request) {
         Category category = categoryService.getCategoryEntityById(request.getCategoryId());
 
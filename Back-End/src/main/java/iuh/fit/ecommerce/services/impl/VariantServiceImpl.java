@@ -22,8 +22,12 @@ import iuh.fit.ecommerce.mappers.VariantMapper;
 import iuh.fit.ecommerce.repositories.VariantRepository;
 import iuh.fit.ecommerce.services.VariantService;
 import iuh.fit.ecommerce.services.VariantValueService;
+import iuh.fit.ecommerce.configurations.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -37,6 +41,7 @@ public class VariantServiceImpl implements VariantService {
     private final VariantCategoryRepository variantCategoryRepository;
 
     @Override
+    @Cacheable(value = CacheConfig.VARIANT_CACHE, key = "'page:' + #page + ':' + #size + ':' + #variantName")
     public PageResponse<VariantResponse> getVariants(int page, int size, String variantName) {
         page = Math.max(0, page - 1);
         Pageable pageable = PageRequest.of(page, size);
@@ -51,12 +56,14 @@ public class VariantServiceImpl implements VariantService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.VARIANT_CACHE, key = "'id:' + #id")
     public VariantResponse getVariantById(Long id) {
         Variant variant = findVariantOrThrow(id);
         return variantMapper.toResponse(variant);
     }
 
     @Override
+    @CacheEvict(value = CacheConfig.VARIANT_CACHE, allEntries = true)
     public VariantResponse createVariant(VariantAddRequest request) {
         Variant variant = new Variant();
         mapVariantFields(variant, request);
@@ -71,6 +78,7 @@ public class VariantServiceImpl implements VariantService {
     }
 
     @Override
+    @CacheEvict(value = CacheConfig.VARIANT_CACHE, allEntries = true)
     public VariantResponse updateVariant(Long id, VariantAddRequest request) {
         Variant variant = findVariantOrThrow(id);
 
@@ -86,6 +94,7 @@ public class VariantServiceImpl implements VariantService {
     }
 
     @Override
+    @CacheEvict(value = CacheConfig.VARIANT_CACHE, allEntries = true)
     public void changeStatusVariant(Long id) {
         Variant variant = findVariantOrThrow(id);
         variant.setStatus(!variant.getStatus());
@@ -93,19 +102,21 @@ public class VariantServiceImpl implements VariantService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.VARIANT_CACHE, key = "'category:' + #id")
     public List<VariantResponse> getVariantsByCategory( Long id) {
         List<Variant> variants = variantCategoryRepository.findByStatusAndCategoryId(true,id);
         return variants.stream()
                 .map(variantMapper::toResponse)
-                .toList();
+                .collect(Collectors.toList());
     }
 
     @Override
+    @Cacheable(value = CacheConfig.VARIANT_CACHE, key = "'slug:' + #slug")
     public List<VariantResponse> getVariantsByCategorySlug(String slug) {
         List<Variant> variants = variantCategoryRepository.findByStatusAndCategorySlug(true,slug);
         return variants.stream()
                 .map(variantMapper::toResponse)
-                .toList();
+                .collect(Collectors.toList());
     }
 
     private Variant findVariantOrThrow(Long id) {
@@ -14,6 +14,8 @@ import iuh.fit.ecommerce.mappers.VariantValueMapper;
 import iuh.fit.ecommerce.repositories.VariantRepository;
 import iuh.fit.ecommerce.repositories.VariantValueRepository;
 import iuh.fit.ecommerce.services.VariantValueService;
+import iuh.fit.ecommerce.configurations.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -132,6 +134,7 @@ public class VariantValueServiceImpl implements VariantValueService {
 //    }
 
     @Override
+    @CacheEvict(value = CacheConfig.VARIANT_CACHE, allEntries = true)
     public void changeStatusVariantValue(Long id) {
         VariantValue value = getVariantValueEntityById(id);
         value.setStatus(!value.getStatus());
@@ -1,32 +1,183 @@
 package iuh.fit.ecommerce.services.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import iuh.fit.ecommerce.configurations.ai.CachingEmbeddingModel;
+import iuh.fit.ecommerce.dtos.response.ai.ProductRetrievalResult;
 import iuh.fit.ecommerce.entities.Product;
 import iuh.fit.ecommerce.entities.ProductVariant;
+import iuh.fit.ecommerce.repositories.ProductRepository;
+import iuh.fit.ecommerce.services.ProductSearchService;
 import iuh.fit.ecommerce.services.VectorStoreService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import io.qdrant.client.QdrantClient;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class VectorStoreServiceImpl implements VectorStoreService {
 
+    // Hash variantId -> fingerprint (model + text + metadata) của bản đã ghi vào Qdrant.
+    // Chỉ đúng với collection hiện tại: xem syncFingerprintsWithCollection()
+    private static final String FINGERPRINT_KEY = "vector:variant-fingerprints";
+
     private final VectorStore vectorStore;
+    private final StringRedisTemplate redisTemplate;
+    private final ProductRepository productRepository;
+    private final ProductSearchService productSearchService;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spring.ai.google.genai.embedding.text.options.model:default}")
+    private String embeddingModelName;
+
+    @Value("${ai.vector.reindex.page-size:200}")
+    private int reindexPageSize;
+
+    @Value("${spring.ai.vectorstore.qdrant.collection-name:vector_store}")
+    private String collectionName;
+
+    // Hash được gia hạn mỗi lần ghi; không index gì trong thời gian này thì tự hết hạn và lần sau embed lại
+    @Value("${ai.vector.fingerprint-ttl:P30D}")
+    private Duration fingerprintTtl;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void initTransactionTemplate() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
 
     @Override
     public void indexProductVariant(ProductVariant productVariant) {
+        indexProductVariants(List.of(productVariant));
+    }
+
+    @Override
+    public int indexProductVariants(List<ProductVariant> productVariants) {
+        if (productVariants.isEmpty()) return 0;
+
+        List<Document> documents = productVariants.stream().map(this::toDocument).toList();
+        List<Object> variantIds = productVariants.stream().map(v -> (Object) String.valueOf(v.getId())).toList();
+        List<Object> stored = redisTemplate.opsForHash().multiGet(FINGERPRINT_KEY, variantIds);
+
+        // Chỉ ghi lại biến thể có text/metadata thay đổi; phần còn lại đã có trong Qdrant đúng như hiện tại
+        List<Document> changed = new ArrayList<>();
+        Map<String, String> changedFingerprints = new HashMap<>();
+        for (int i = 0; i < documents.size(); i++) {
+            String fingerprint = fingerprint(documents.get(i));
+            if (!fingerprint.equals(stored.get(i))) {
+                changed.add(documents.get(i));
+                changedFingerprints.put((String) variantIds.get(i), fingerprint);
+            }
+        }
+
+        meterRegistry.counter("ai.vector.index.variants", "result", "skipped")
+                .increment(documents.size() - changed.size());
+        if (changed.isEmpty()) return 0;
+
+        // VectorStore gửi embedding theo lô (BatchingStrategy) thay vì một round trip mỗi biến thể
+        vectorStore.add(changed);
+        redisTemplate.opsForHash().putAll(FINGERPRINT_KEY, changedFingerprints);
+        redisTemplate.expire(FINGERPRINT_KEY, fingerprintTtl);
+        meterRegistry.counter("ai.vector.index.variants", "result", "indexed").increment(changed.size());
+        return changed.size();
+    }
+
+    /**
+     * Duyệt toàn bộ sản phẩm theo trang (keyset trên id), load biến thể bằng các query fetch join theo lô
+     * và chỉ embed những biến thể đã thay đổi.
+     */
+    @Override
+    public int reindexAllProductVariants() {
+        syncFingerprintsWithCollection();
+        int total = 0;
+        int indexed = 0;
+        long lastId = 0L;
+        while (true) {
+            List<Long> productIds = productRepository.findIdsAfter(lastId, PageRequest.of(0, reindexPageSize));
+            if (productIds.isEmpty()) break;
+
+            List<ProductVariant> variants = readOnlyTransaction.execute(status ->
+                    productSearchService.loadProductsForIndexing(productIds).stream()
+                            .flatMap(product -> product.getProductVariants().stream())
+                            .toList());
+            if (variants != null && !variants.isEmpty()) {
+                total += variants.size();
+                indexed += indexProductVariants(variants);
+            }
+            lastId = productIds.getLast();
+        }
+        log.info("Vector reindex finished: {} variants scanned, {} re-embedded, {} unchanged",
+                total, indexed, total - indexed);
+        return indexed;
+    }
+
+    // Kiểm tra một lần khi khởi động: Spring AI tạo lại collection nếu nó đã bị xóa (initialize-schema)
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            syncFingerprintsWithCollection();
+        } catch (Exception e) {
+            log.warn("Cannot verify vector fingerprints against Qdrant: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Mỗi biến thể là một point, nên collection bị xóa/tạo lại (kể cả đã index lại một phần)
+     * sẽ có ít point hơn số fingerprint đã lưu: khi đó xóa hết fingerprint để lần index sau embed lại toàn bộ
+     * thay vì bỏ qua các biến thể không còn trong Qdrant.
+     */
+    private void syncFingerprintsWithCollection() {
+        long fingerprints = redisTemplate.opsForHash().size(FINGERPRINT_KEY);
+        if (fingerprints == 0) return;
+
+        Optional<QdrantClient> client = vectorStore.getNativeClient();
+        if (client.isEmpty()) return;
+        long points;
+        try {
+            points = client.get().countAsync(collectionName, Duration.ofSeconds(10)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            log.warn("Cannot count points of Qdrant collection {}: {}", collectionName, e.getMessage());
+            return;
+        }
+
+        if (points < fingerprints) {
+            redisTemplate.delete(FINGERPRINT_KEY);
+            log.info("Qdrant collection {} has {} points but {} fingerprints are stored, clearing fingerprints",
+                    collectionName, points, fingerprints);
+        }
+    }
+
+    private Document toDocument(ProductVariant productVariant) {
         // Xây dựng text để embed
         String text = buildProductVariantText(productVariant);
 
         // Tạo document với metadata
-        Document doc = Document.builder()
+        return Document.builder()
                 .text(text)
                 .id(UUID.nameUUIDFromBytes(
                         String.valueOf(productVariant.getId()).getBytes()
@@ -42,9 +193,6 @@ public class VectorStoreServiceImpl implements VectorStoreService {
                         "stock", productVariant.getStock()
                 ))
                 .build();
-
-        // Add to vector store
-        vectorStore.add(List.of(doc));
     }
 
     @Override
@@ -53,43 +201,21 @@ public class VectorStoreServiceImpl implements VectorStoreService {
                 String.valueOf(productVariantId).getBytes()
         ).toString();
         vectorStore.delete(List.of(docId));
+        redisTemplate.opsForHash().delete(FINGERPRINT_KEY, String.valueOf(productVariantId));
     }
 
     @Override
     public List<String> searchSimilarProducts(String query, int topK) {
-        SearchRequest request = SearchRequest.builder()
-                .query(query)
-                .topK(topK)
-                .build();
-
-        List<Document> retrievedDocs = vectorStore.similaritySearch(request);
-
-        // Format kết quả thành string để đưa vào prompt
-        return retrievedDocs.stream()
-                .map(doc -> {
-                    Map<String, Object> metadata = doc.getMetadata();
-                    return String.format(
-                            "Sản phẩm: %s\n" +
-                            "Thương hiệu: %s\n" +
-                            "Danh mục: %s\n" +
-                            "Giá: %,.0fđ\n" +
-                            "SKU: %s\n" +
-                            "Tồn kho: %d\n" +
-                            "Mô tả: %s",
-                            metadata.get("productName"),
-                            metadata.get("brandName"),
-                            metadata.get("categoryName"),
-                            ((Number) metadata.get("price")).doubleValue(),
-                            metadata.get("sku"),
-                            ((Number) metadata.get("stock")).intValue(),
-                            doc.getFormattedContent()
-                    );
-                })
-                .collect(Collectors.toList());
+        return retrieve(query, topK).getProductContexts();
     }
 
     @Override
     public List<Long> searchSimilarProductIds(String query, int topK) {
+        return retrieve(query, topK).getProductIds();
+    }
+
+    @Override
+    public ProductRetrievalResult retrieve(String query, int topK) {
         SearchRequest request = SearchRequest.builder()
                 .query(query)
                 .topK(topK)
@@ -97,26 +223,53 @@ public class VectorStoreServiceImpl implements VectorStoreService {
 
         List<Document> retrievedDocs = vectorStore.similaritySearch(request);
 
-        // Lấy danh sách product IDs từ metadata, loại bỏ trùng lặp
-        return retrievedDocs.stream()
-                .map(doc -> {
-                    Map<String, Object> metadata = doc.getMetadata();
-                    Object productIdObj = metadata.get("productId");
-                    if (productIdObj == null) {
-                        return null;
-                    }
-                    // Xử lý cả Number và String
-                    if (productIdObj instanceof Number) {
-                        return ((Number) productIdObj).longValue();
-                    } else if (productIdObj instanceof String) {
-                        return Long.parseLong((String) productIdObj);
-                    } else {
-                        return Long.parseLong(productIdObj.toString());
-                    }
-                })
-                .filter(id -> id != null) // Loại bỏ null
-                .distinct() // Loại bỏ trùng lặp
-                .collect(Collectors.toList());
+        return ProductRetrievalResult.builder()
+                .productContexts(retrievedDocs.stream()
+                        .map(this::formatForPrompt)
+                        .collect(Collectors.toList()))
+                .productIds(retrievedDocs.stream()
+                        .map(doc -> toProductId(doc.getMetadata().get("productId")))
+                        .filter(Objects::nonNull) // Loại bỏ null
+                        .distinct() // Loại bỏ trùng lặp
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    // Format kết quả thành string để đưa vào prompt
+    private String formatForPrompt(Document doc) {
+        Map<String, Object> metadata = doc.getMetadata();
+        return String.format(
+                "Sản phẩm: %s\n" +
+                "Thương hiệu: %s\n" +
+                "Danh mục: %s\n" +
+                "Giá: %,.0fđ\n" +
+                "SKU: %s\n" +
+                "Tồn kho: %d\n" +
+                "Mô tả: %s",
+                metadata.get("productName"),
+                metadata.get("brandName"),
+                metadata.get("categoryName"),
+                ((Number) metadata.get("price")).doubleValue(),
+                metadata.get("sku"),
+                ((Number) metadata.get("stock")).intValue(),
+                doc.getFormattedContent()
+        );
+    }
+
+    // Xử lý cả Number và String
+    private static Long toProductId(Object productIdObj) {
+        if (productIdObj == null) {
+            return null;
+        }
+        if (productIdObj instanceof Number number) {
+            return number.longValue();
+        }
+        return Long.parseLong(productIdObj.toString());
+    }
+
+    private String fingerprint(Document document) {
+        return CachingEmbeddingModel.sha256(embeddingModelName + "\n" + document.getText()
+                + "\n" + new TreeMap<>(document.getMetadata()));
     }
 
     private String buildProductVariantText(ProductVariant productVariant) {
@@ -24,6 +24,9 @@ import iuh.fit.ecommerce.utils.CodeGenerator;
 import iuh.fit.ecommerce.utils.SecurityUtils;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -32,9 +35,9 @@ import org.springframework.stereotype.Service;
 import iuh.fit.ecommerce.dtos.response.voucher.VoucherResponse;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.stream.Stream;
+import java.util.*;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class VoucherServiceImpl implements VoucherService {
@@ -214,89 +217,40 @@ public class VoucherServiceImpl implements VoucherService {
     @Override
     public List<VoucherAvailableResponse> getAvailableVouchersForCustomer() {
         Customer customer = securityUtils.getCurrentCustomer();
-        LocalDate now = LocalDate.now();
-
-        List<VoucherAvailableResponse> customerVoucherResponses =
-                voucherCustomerRepository
-                        .findAllByCustomerIdAndVoucherDateBetweenAndReady(customer.getId(), now, now)
-                        .stream()
-                        .map(vc -> {
-                            VoucherAvailableResponse dto = voucherMapper.toVoucherAvailableResponse(vc.getVoucher());
-                            dto.setCode(vc.getCode());
-                            return dto;
-                        })
-                        .toList();
-
-        List<VoucherAvailableResponse> globalVoucherResponses =
-                voucherRepository
-                        .findAllByVoucherTypeAndEndDateGreaterThanEqualAndStartDateLessThanEqual(VoucherType.ALL, now, now)
-                        .stream()
-                        .map(voucherMapper::toVoucherAvailableResponse)
-                        .toList();
-
-        List<VoucherAvailableResponse> allVouchers = Stream.concat(
-                        customerVoucherResponses.stream(),
-                        globalVoucherResponses.stream()
-                )
-                .distinct()
-                .toList();
-
-        List<Long> usedVoucherIds = voucherUsageHistoryRepository
-                .findAllByOrder_Customer(customer)
-                .stream()
-                .map(vuh -> vuh.getVoucher().getId())
-                .distinct()
-                .toList();
-
-        return allVouchers.stream()
-                .filter(v -> !usedVoucherIds.contains(v.getId()))
-                .toList();
+        return findAvailableVouchers(customer.getId());
     }
 
     @Override
     public List<VoucherAvailableResponse> getAvailableVouchersForCustomerById(Long customerId) {
-        Customer customer = customerRepository.findById(customerId)
-                .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.CUSTOMER_NOT_FOUND));
-
-        LocalDate now = LocalDate.now();
-
-        // Get vouchers assigned to this specific customer
-        List<VoucherAvailableResponse> customerVoucherResponses =
-                voucherCustomerRepository
-                        .findAllByCustomerIdAndVoucherDateBetweenAndReady(customerId, now, now)
-                        .stream()
-                        .map(vc -> {
-                            VoucherAvailableResponse dto = voucherMapper.toVoucherAvailableResponse(vc.getVoucher());
-                            dto.setCode(vc.getCode());
-                            return dto;
-                        })
-                        .toList();
-
-        // Get global vouchers (type ALL)
-        List<VoucherAvailableResponse> globalVoucherResponses =
-                voucherRepository
-                        .findAllByVoucherTypeAndEndDateGreaterThanEqualAndStartDateLessThanEqual(VoucherType.ALL, now, now)
-                        .stream()
-                        .map(voucherMapper::toVoucherAvailableResponse)
-                        .toList();
-
-        List<VoucherAvailableResponse> allVouchers = Stream.concat(
-                        customerVoucherResponses.stream(),
-                        globalVoucherResponses.stream()
-                )
-                .distinct()
-                .toList();
-
-        List<Long> usedVoucherIds = voucherUsageHistoryRepository
-                .findAllByOrder_Customer(customer)
-                .stream()
-                .map(vuh -> vuh.getVoucher().getId())
-                .distinct()
-                .toList();
-
-        return allVouchers.stream()
-                .filter(v -> !usedVoucherIds.contains(v.getId()))
-                .toList();
+        if (!customerRepository.existsById(customerId)) {
+            throw new ResourceNotFoundException(ErrorCode.CUSTOMER_NOT_FOUND);
+        }
+        return findAvailableVouchers(customerId);
+    }
+
+    // Điền customer_id cho lịch sử dùng voucher cũ, để query eligibility không bỏ sót các lần đã dùng
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillUsageCustomers() {
+        int updated = voucherUsageHistoryRepository.backfillCustomerIds();
+        if (updated > 0) {
+            log.info("Backfilled customer_id for {} voucher usage histories", updated);
+        }
+    }
+
+    private List<VoucherAvailableResponse> findAvailableVouchers(Long customerId) {
+        // Voucher gán riêng đứng trước (mang mã riêng của khách), trùng id thì giữ bản đầu
+        Map<Long, VoucherAvailableResponse> available = new LinkedHashMap<>();
+        voucherRepository.findEligibleForCustomer(customerId, LocalDate.now(), VoucherType.ALL).stream()
+                .sorted(Comparator.comparing(e -> e.getAssignedCode() == null))
+                .forEach(e -> available.computeIfAbsent(e.getVoucher().getId(), id -> {
+                    VoucherAvailableResponse dto = voucherMapper.toVoucherAvailableResponse(e.getVoucher());
+                    if (e.getAssignedCode() != null) {
+                        dto.setCode(e.getAssignedCode());
+                    }
+                    return dto;
+                }));
+        return new ArrayList<>(available.values());
     }
 
     private Voucher findById(Long id) {
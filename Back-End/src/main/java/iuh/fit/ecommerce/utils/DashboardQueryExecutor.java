@@ -0,0 +1,79 @@
+package iuh.fit.ecommerce.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Chạy song song các query aggregate độc lập của dashboard trên pool giới hạn,
+ * mỗi query có timeout và timer riêng (dashboard.query, tag query=<tên>).
+ * Bên gọi submit hết các query rồi mới join, nên độ trễ của cả endpoint ≈ query chậm nhất thay vì tổng các query.
+ * Query chạy trong transaction read-only có timeout: Spring áp timeout đó thành
+ * jakarta.persistence.query.timeout (Statement.setQueryTimeout) nên DB tự hủy câu lệnh quá hạn,
+ * không chỉ bên gọi thôi chờ.
+ */
+@Slf4j
+@Component
+public class DashboardQueryExecutor {
+
+    private final ThreadPoolTaskExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final long timeoutMs;
+
+    public DashboardQueryExecutor(@Qualifier("dashboardQueryExecutor") ThreadPoolTaskExecutor executor,
+                                  MeterRegistry meterRegistry,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${dashboard.query.timeout-ms:5000}") long timeoutMs) {
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.timeoutMs = timeoutMs;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        // Timeout transaction tính theo giây
+        this.transactionTemplate.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMs + 999)));
+    }
+
+    public <T> DashboardQuery<T> submit(String name, Supplier<T> query) {
+        Timer timer = Timer.builder("dashboard.query")
+                .tag("query", name)
+                .register(meterRegistry);
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Future<T> future = executor.submit(() -> timer.record(() -> transactionTemplate.execute(status -> query.get())));
+        return new DashboardQuery<>(name, future, deadlineNanos);
+    }
+
+    public record DashboardQuery<T>(String name, Future<T> future, long deadlineNanos) {
+
+        // Hạn chờ tính từ lúc submit nên các query song song dùng chung một mốc, không cộng dồn theo thứ tự join
+        public T join() {
+            try {
+                return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                throw new RuntimeException("Interrupted while waiting for dashboard query " + name, e);
+            } catch (TimeoutException e) {
+                // Bỏ task còn trong hàng đợi / ngắt thread đang chạy; câu lệnh đang chạy bị DB hủy theo query timeout
+                future.cancel(true);
+                log.warn("Dashboard query {} timed out", name);
+                throw new RuntimeException("Dashboard query " + name + " timed out", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw new RuntimeException("Dashboard query " + name + " failed", e.getCause());
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package iuh.fit.ecommerce.utils;
 
+import iuh.fit.ecommerce.configurations.jwt.AuthenticatedUser;
 import iuh.fit.ecommerce.entities.Customer;
 import iuh.fit.ecommerce.entities.Staff;
 import iuh.fit.ecommerce.entities.User;
@@ -26,6 +27,18 @@ public class SecurityUtils {
             throw new AuthenticationException("Unauthorized. User must be logged in.") {};
         }
 
+        // Principal do AuthTokenFilter cache chỉ là snapshot: nạp lại theo id để có entity managed,
+        // trong cùng persistence context các lần gọi sau lấy từ first-level cache thay vì query lại
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal && principal.id() != null) {
+            return userRepository.findById(principal.id())
+                    .orElseThrow(() -> new ResourceNotFoundException("Account not found with username: " + principal.getUsername()));
+        }
+
+        if (authentication.getPrincipal() instanceof User principal && principal.getId() != null) {
+            return userRepository.findById(principal.getId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Account not found with username: " + principal.getUsername()));
+        }
+
         if (authentication.getPrincipal() instanceof UserDetails userDetails) {
             return userRepository.findByEmail(userDetails.getUsername())
                     .orElseThrow(() -> new ResourceNotFoundException("Account not found with username: " + userDetails.getUsername()));
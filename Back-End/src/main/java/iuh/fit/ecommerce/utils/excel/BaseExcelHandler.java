@@ -3,19 +3,32 @@ package iuh.fit.ecommerce.utils.excel;
 import iuh.fit.ecommerce.dtos.excel.ImportResult;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Slf4j
 public abstract class BaseExcelHandler<T> implements ExcelImporter<T>, ExcelExporter<T> {
 
     protected static final int HEADER_ROW_INDEX = 0;
     protected static final int DATA_START_ROW_INDEX = 1;
+    // Số dòng SXSSF giữ trong heap, các dòng cũ hơn được flush xuống file tạm
+    protected static final int STREAMING_ROW_WINDOW = 100;
+    // Số dòng validate + lưu mỗi lần khi import
+    protected static final int IMPORT_CHUNK_SIZE = 500;
+    private static final DateTimeFormatter IMPORT_DATE_FORMATTER = DateTimeFormatter.ofPattern("d/M/yyyy");
 
     @Override
     public ImportResult importExcel(MultipartFile file) {
@@ -26,6 +39,7 @@ public abstract class BaseExcelHandler<T> implements ExcelImporter<T>, ExcelExpo
                 .errors(new ArrayList<>())
                 .build();
 
+        Path tempFile = null;
         try {
             // Step 1:
             validateFile(file, result);
@@ -34,32 +48,22 @@ public abstract class BaseExcelHandler<T> implements ExcelImporter<T>, ExcelExpo
                 return result;
             }
 
-            // Step 2:
-            List<T> dataList = parseExcel(file);
-            result.setTotalRows(dataList.size());
+            // Step 2: đọc SAX từ file tạm, validate + lưu theo từng chunk
+            tempFile = Files.createTempFile("excel-import-", ".xlsx");
+            file.transferTo(tempFile);
 
-            if (dataList.isEmpty()) {
-                result.setMessage("No data found in Excel file");
-                return result;
-            }
-
-            // Step 3:
-            List<T> validData = new ArrayList<>();
-            for (int i = 0; i < dataList.size(); i++) {
-                T data = dataList.get(i);
-                // Row index in Excel: 3 (instruction rows) + 1 (header) + i (data index) = 4 + i
-                int rowIndex = 4 + i;
-
-                validateRow(data, rowIndex, result);
-
-                if (!hasRowErrors(result, rowIndex)) {
-                    validData.add(data);
+            ImportSession session = new ImportSession(result, file.getOriginalFilename());
+            StreamingSheetReader.read(tempFile, row -> {
+                if (row.rowNumber() <= dataStartRow() || isEmptyRow(row)) {
+                    return;
                 }
-            }
+                session.accept(row);
+            });
+            session.flush();
 
-            if (!validData.isEmpty()) {
-                saveData(validData);
-                result.setSuccessCount(validData.size());
+            if (result.getTotalRows() == 0) {
+                result.setMessage("No data found in Excel file");
+                return result;
             }
 
             if (result.hasErrors()) {
@@ -76,11 +80,145 @@ public abstract class BaseExcelHandler<T> implements ExcelImporter<T>, ExcelExpo
             log.error("Error during Excel import", e);
             result.addError(0, "SYSTEM", "System error: " + e.getMessage());
             result.setMessage("Import failed: " + e.getMessage());
+        } finally {
+            result.clearRowErrors();
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    log.warn("Could not delete temp import file {}", tempFile);
+                }
+            }
         }
 
         return result;
     }
 
+    // Chỉ số (0-based) của dòng dữ liệu đầu tiên: mặc định bỏ qua 2 dòng hướng dẫn + 1 dòng header của template
+    protected int dataStartRow() {
+        return 3;
+    }
+
+    protected boolean isEmptyRow(ExcelRow row) {
+        return row.isBlank(getHeaders().length);
+    }
+
+    // Các cột phải duy nhất: kiểm tra bằng một câu IN cho cả chunk và một set trùng lặp trong file
+    protected List<UniqueKey<T>> uniqueKeys() {
+        return List.of();
+    }
+
+    /**
+     * @param existing trả về các giá trị đã có trong DB trong số các giá trị truyền vào
+     */
+    public record UniqueKey<T>(String field,
+                               Function<T, String> extractor,
+                               Function<Collection<String>, Set<String>> existing,
+                               String existsMessage,
+                               String duplicateMessage) {
+    }
+
+    private record PendingRow<T>(int rowIndex, T data) {
+    }
+
+    private class ImportSession {
+        private final ImportResult result;
+        private final String filename;
+        private final List<PendingRow<T>> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        private final List<UniqueKey<T>> keys = uniqueKeys();
+        // Giá trị đã gặp ở các dòng hợp lệ trước đó trong file, theo từng UniqueKey
+        private final List<Set<String>> seen = new ArrayList<>();
+        private int chunkCount;
+
+        ImportSession(ImportResult result, String filename) {
+            this.result = result;
+            this.filename = filename;
+            keys.forEach(k -> seen.add(new HashSet<>()));
+        }
+
+        void accept(ExcelRow row) {
+            result.setTotalRows(result.getTotalRows() + 1);
+            try {
+                chunk.add(new PendingRow<>(row.rowNumber(), mapRow(row)));
+            } catch (Exception e) {
+                result.addError(row.rowNumber(), "ROW", "Không đọc được dòng: " + e.getMessage());
+            }
+            if (chunk.size() >= IMPORT_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) return;
+
+            for (PendingRow<T> row : chunk) {
+                validateRow(row.data(), row.rowIndex(), result);
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                checkUnique(keys.get(i), seen.get(i));
+            }
+
+            List<T> validData = new ArrayList<>(chunk.size());
+            for (PendingRow<T> row : chunk) {
+                if (!result.hasRowErrors(row.rowIndex())) {
+                    validData.add(row.data());
+                }
+            }
+
+            if (!validData.isEmpty()) {
+                try {
+                    saveData(validData);
+                    result.setSuccessCount(result.getSuccessCount() + validData.size());
+                } catch (Exception e) {
+                    // Một chunk lỗi không làm hỏng các chunk đã lưu, báo lỗi tại dòng đầu chunk rồi đi tiếp
+                    log.error("Saving import chunk starting at row {} failed", chunk.get(0).rowIndex(), e);
+                    result.addError(chunk.get(0).rowIndex(), "SYSTEM",
+                            String.format("Không lưu được %d dòng từ dòng %d đến %d: %s", validData.size(),
+                                    chunk.get(0).rowIndex(), chunk.get(chunk.size() - 1).rowIndex(), e.getMessage()));
+                }
+            }
+
+            chunkCount++;
+            log.info("Import {}: chunk {} done, {} rows read, {} saved, {} errors",
+                    filename, chunkCount, result.getTotalRows(), result.getSuccessCount(), result.getErrorCount());
+
+            chunk.clear();
+            result.clearRowErrors();
+        }
+
+        private void checkUnique(UniqueKey<T> key, Set<String> seenValues) {
+            List<String> candidates = new ArrayList<>();
+            for (PendingRow<T> row : chunk) {
+                String value = key.extractor().apply(row.data());
+                if (value != null && !value.isBlank() && !result.hasRowErrors(row.rowIndex())) {
+                    candidates.add(value);
+                }
+            }
+            if (candidates.isEmpty()) return;
+
+            Set<String> existing = new HashSet<>();
+            key.existing().apply(candidates).forEach(v -> existing.add(normalize(v)));
+
+            for (PendingRow<T> row : chunk) {
+                String value = key.extractor().apply(row.data());
+                if (value == null || value.isBlank() || result.hasRowErrors(row.rowIndex())) {
+                    continue;
+                }
+                String normalized = normalize(value);
+                if (existing.contains(normalized)) {
+                    result.addError(row.rowIndex(), key.field(), key.existsMessage() + ": " + value);
+                } else if (!seenValues.add(normalized)) {
+                    result.addError(row.rowIndex(), key.field(), key.duplicateMessage() + ": " + value);
+                }
+            }
+        }
+
+        // Collation MySQL không phân biệt hoa thường, set trong file cũng phải vậy
+        private String normalize(String value) {
+            return value.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
     @Override
     public Workbook generateTemplate() throws Exception {
         Workbook workbook = new XSSFWorkbook();
@@ -167,6 +305,55 @@ public abstract class BaseExcelHandler<T> implements ExcelImporter<T>, ExcelExpo
         return workbook;
     }
 
+    @Override
+    public void exportStreaming(Stream<T> dataStream, OutputStream outputStream) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(STREAMING_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+
+        try {
+            Sheet sheet = workbook.createSheet("Data");
+
+            Row headerRow = sheet.createRow(HEADER_ROW_INDEX);
+            CellStyle headerStyle = createHeaderStyle(workbook);
+
+            String[] headers = getHeaders();
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+            }
+
+            CellStyle dataStyle = createDataStyle(workbook);
+            int rowIndex = DATA_START_ROW_INDEX;
+            Iterator<T> iterator = dataStream.iterator();
+            while (iterator.hasNext()) {
+                Row row = sheet.createRow(rowIndex++);
+                Object[] rowData = mapToRow(iterator.next());
+
+                for (int j = 0; j < rowData.length; j++) {
+                    Cell cell = row.createCell(j);
+                    setCellValue(cell, rowData[j]);
+                    cell.setCellStyle(dataStyle);
+                }
+            }
+
+            // autoSizeColumn cần giữ mọi dòng trong bộ nhớ, nên độ rộng cột tính theo header
+            for (int i = 0; i < headers.length; i++) {
+                sheet.setColumnWidth(i, streamingColumnWidth(headers[i]));
+            }
+
+            workbook.write(outputStream);
+            log.debug("Streamed {} rows to Excel", rowIndex - DATA_START_ROW_INDEX);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    protected int streamingColumnWidth(String header) {
+        return Math.min(Math.max(header.length() + 6, 16), 60) * 256;
+    }
+
     public byte[] workbookToBytes(Workbook workbook) throws IOException {
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
             workbook.write(outputStream);
@@ -181,16 +368,11 @@ public abstract class BaseExcelHandler<T> implements ExcelImporter<T>, ExcelExpo
         }
 
         String filename = file.getOriginalFilename();
-        if (filename == null || (!filename.endsWith(".xlsx") && !filename.endsWith(".xls"))) {
-            result.addError(0, "FILE", "Invalid file format. Only .xlsx and .xls are supported");
+        if (filename == null || !filename.toLowerCase(Locale.ROOT).endsWith(".xlsx")) {
+            result.addError(0, "FILE", "Invalid file format. Only .xlsx is supported");
         }
     }
 
-    protected boolean hasRowErrors(ImportResult result, int rowIndex) {
-        return result.getErrors().stream()
-                .anyMatch(error -> error.getRowIndex() == rowIndex);
-    }
-
     protected String getCellValueAsString(Cell cell) {
         if (cell == null) {
             return "";
@@ -215,6 +397,20 @@ public abstract class BaseExcelHandler<T> implements ExcelImporter<T>, ExcelExpo
         }
     }
 
+    // Ô ngày thật đến dạng ISO (StreamingSheetReader); ô text gõ tay theo template là dd/MM/yyyy,
+    // chấp nhận cả 5/3/1990 lẫn 05/03/1990
+    protected LocalDate parseDate(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value, value.indexOf('-') > 0 ? DateTimeFormatter.ISO_LOCAL_DATE : IMPORT_DATE_FORMATTER);
+        } catch (DateTimeParseException e) {
+            log.warn("Failed to parse date: {}", value);
+            return null;
+        }
+    }
+
     protected void setCellValue(Cell cell, Object value) {
         if (value == null) {
             cell.setCellValue("");
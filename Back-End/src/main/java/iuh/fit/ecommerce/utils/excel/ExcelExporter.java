@@ -1,12 +1,19 @@
 package iuh.fit.ecommerce.utils.excel;
 
 import org.apache.poi.ss.usermodel.Workbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ExcelExporter<T> {
 
     Workbook generateExcel(List<T> data) throws Exception;
 
+    // Ghi trực tiếp ra stream với bộ nhớ cố định, dùng cho export dữ liệu lớn
+    void exportStreaming(Stream<T> data, OutputStream outputStream) throws IOException;
+
     Workbook generateTemplate() throws Exception;
 
     String[] getHeaders();
@@ -6,10 +6,11 @@ import java.util.List;
 
 public interface ExcelImporter<T> {
 
-    List<T> parseExcel(MultipartFile file) throws Exception;
+    T mapRow(ExcelRow row);
 
     void validateRow(T data, int rowIndex, ImportResult result);
 
+    // Được gọi một lần cho mỗi chunk dòng hợp lệ
     void saveData(List<T> data) throws Exception;
 
     ImportResult importExcel(MultipartFile file);
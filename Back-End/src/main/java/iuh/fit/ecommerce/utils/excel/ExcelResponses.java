@@ -0,0 +1,39 @@
+package iuh.fit.ecommerce.utils.excel;
+
+import iuh.fit.ecommerce.exceptions.ErrorCode;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.io.OutputStream;
+
+/**
+ * Ghi file Excel thẳng vào output stream của HTTP response thay vì dựng byte[] trong bộ nhớ.
+ */
+public final class ExcelResponses {
+
+    public static final String XLSX_CONTENT_TYPE =
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private ExcelResponses() {
+    }
+
+    public static void stream(HttpServletResponse response, String filename, ExcelBodyWriter writer) {
+        try {
+            response.setContentType(XLSX_CONTENT_TYPE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+            writer.write(response.getOutputStream());
+            response.flushBuffer();
+        } catch (Exception e) {
+            // Chưa gửi byte nào thì trả lỗi JSON bình thường; đã gửi thì client nhận file hỏng, chỉ còn log
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw new RuntimeException(ErrorCode.EXCEL_EXPORT_FAILED.getMessage(), e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ExcelBodyWriter {
+        void write(OutputStream outputStream) throws Exception;
+    }
+}
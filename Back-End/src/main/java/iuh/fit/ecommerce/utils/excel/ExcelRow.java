@@ -0,0 +1,25 @@
+package iuh.fit.ecommerce.utils.excel;
+
+import java.util.List;
+
+/**
+ * Một dòng dữ liệu đọc từ sheet: giá trị từng ô đã được format thành chuỗi (như Excel hiển thị),
+ * riêng ô ngày là chuỗi ISO yyyy-MM-dd.
+ *
+ * @param rowNumber số dòng theo Excel (bắt đầu từ 1), dùng để báo lỗi
+ */
+public record ExcelRow(int rowNumber, List<String> cells) {
+
+    public String get(int column) {
+        if (column >= cells.size()) return "";
+        String value = cells.get(column);
+        return value == null ? "" : value.trim();
+    }
+
+    public boolean isBlank(int columnCount) {
+        for (int i = 0; i < columnCount; i++) {
+            if (!get(i).isEmpty()) return false;
+        }
+        return true;
+    }
+}
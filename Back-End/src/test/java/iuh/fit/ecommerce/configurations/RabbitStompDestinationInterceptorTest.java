@@ -0,0 +1,88 @@
+package iuh.fit.ecommerce.configurations;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class RabbitStompDestinationInterceptorTest {
+
+    private final RabbitStompDestinationInterceptor interceptor = new RabbitStompDestinationInterceptor();
+    private final MessageChannel channel = mock(MessageChannel.class);
+
+    @Test
+    void replacesSlashesAfterTopicPrefixWithDots() {
+        assertThat(RabbitStompDestinationInterceptor.toRoutingKeyDestination("/topic/chat/12"))
+                .isEqualTo("/topic/chat.12");
+        assertThat(RabbitStompDestinationInterceptor.toRoutingKeyDestination("/topic/orders/5/status"))
+                .isEqualTo("/topic/orders.5.status");
+        assertThat(RabbitStompDestinationInterceptor.toRoutingKeyDestination("/topic/chat.12"))
+                .isEqualTo("/topic/chat.12");
+    }
+
+    @Test
+    void clientSubscribeAndServerSendMapToTheSameDestination() {
+        // SUBSCRIBE từ client đi qua clientInboundChannel
+        StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        subscribe.setDestination("/topic/chat/12");
+        subscribe.setSubscriptionId("sub-0");
+        subscribe.setSessionId("session-1");
+        subscribe.setLeaveMutable(true);
+        Message<byte[]> subscribeFrame = MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders());
+
+        // SimpMessagingTemplate.convertAndSend đi qua brokerChannel
+        SimpMessageHeaderAccessor send = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        send.setDestination("/topic/chat/12");
+        send.setLeaveMutable(true);
+        Message<String> serverMessage = MessageBuilder.createMessage("xin chào", send.getMessageHeaders());
+
+        String subscribed = destination(interceptor.preSend(subscribeFrame, channel));
+        String sent = destination(interceptor.preSend(serverMessage, channel));
+
+        assertThat(subscribed).isEqualTo("/topic/chat.12");
+        assertThat(sent).isEqualTo(subscribed);
+    }
+
+    @Test
+    void keepsOtherHeadersAndPayload() {
+        StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        subscribe.setDestination("/topic/chat/12");
+        subscribe.setSubscriptionId("sub-0");
+        subscribe.setSessionId("session-1");
+        Message<byte[]> frame = MessageBuilder.createMessage(new byte[]{1}, subscribe.getMessageHeaders());
+
+        Message<?> result = interceptor.preSend(frame, channel);
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(result);
+        assertThat(accessor.getCommand()).isEqualTo(StompCommand.SUBSCRIBE);
+        assertThat(accessor.getSubscriptionId()).isEqualTo("sub-0");
+        assertThat(accessor.getSessionId()).isEqualTo("session-1");
+        assertThat(result.getPayload()).isEqualTo(new byte[]{1});
+    }
+
+    @Test
+    void leavesSingleSegmentAndApplicationDestinationsUntouched() {
+        Message<String> topLevel = messageTo("/topic/orders");
+        Message<String> application = messageTo("/app/chat/12");
+
+        assertThat(interceptor.preSend(topLevel, channel)).isSameAs(topLevel);
+        assertThat(interceptor.preSend(application, channel)).isSameAs(application);
+    }
+
+    private static Message<String> messageTo(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage("payload", accessor.getMessageHeaders());
+    }
+
+    private static String destination(Message<?> message) {
+        return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+    }
+}
@@ -0,0 +1,207 @@
+package iuh.fit.ecommerce.configurations;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chạy WebSocketConfig ở chế độ relay với RabbitMQ thật (container, bật STOMP plugin):
+ * client subscribe đích có '/', server gửi qua SimpMessagingTemplate, tin phải tới được mọi subscriber.
+ * Chỉ dựng phần web + WebSocket, không cần DB/Redis/ES của ứng dụng.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(classes = WebSocketRelayIntegrationTest.RelayTestConfig.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "websocket.broker.mode=relay")
+class WebSocketRelayIntegrationTest {
+
+    private static final String RABBIT_USER = "relay";
+    private static final String RABBIT_PASSWORD = "relay";
+    private static final int STOMP_PORT = 61613;
+    private static final int SUBSCRIBERS = 200;
+
+    // User guest của RabbitMQ chỉ được kết nối từ localhost trong container: dùng user riêng
+    @Container
+    private static final GenericContainer<?> RABBITMQ = new GenericContainer<>("rabbitmq:3.13-alpine")
+            .withEnv("RABBITMQ_DEFAULT_USER", RABBIT_USER)
+            .withEnv("RABBITMQ_DEFAULT_PASS", RABBIT_PASSWORD)
+            .withCopyToContainer(Transferable.of("[rabbitmq_stomp]."), "/etc/rabbitmq/enabled_plugins")
+            .withExposedPorts(STOMP_PORT)
+            .waitingFor(Wait.forLogMessage(".*Server startup complete.*", 1))
+            .withStartupTimeout(Duration.ofMinutes(2));
+
+    @DynamicPropertySource
+    static void relayProperties(DynamicPropertyRegistry registry) {
+        registry.add("websocket.broker.relay.host", RABBITMQ::getHost);
+        registry.add("websocket.broker.relay.port", () -> RABBITMQ.getMappedPort(STOMP_PORT));
+        registry.add("websocket.broker.relay.login", () -> RABBIT_USER);
+        registry.add("websocket.broker.relay.passcode", () -> RABBIT_PASSWORD);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ApplicationContext context;
+
+    private ThreadPoolTaskScheduler heartbeatScheduler;
+    private WebSocketStompClient stompClient;
+    private final List<StompSession> sessions = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        heartbeatScheduler = new ThreadPoolTaskScheduler();
+        heartbeatScheduler.initialize();
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new StringMessageConverter());
+        stompClient.setTaskScheduler(heartbeatScheduler);
+
+        awaitRelayAvailable();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessions.forEach(session -> {
+            if (session.isConnected()) session.disconnect();
+        });
+        heartbeatScheduler.shutdown();
+    }
+
+    @Test
+    void deliversServerMessagesToClientsSubscribedWithSlashDestinations() throws Exception {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        StompSession session = connect();
+        subscribe(session, "/topic/chat/12", received);
+        // Đích khác cùng prefix không được nhận tin của chat 12
+        BlockingQueue<String> otherChat = new LinkedBlockingQueue<>();
+        subscribe(session, "/topic/chat/13", otherChat);
+
+        messagingTemplate.convertAndSend("/topic/chat/12", "xin chào");
+
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isEqualTo("xin chào");
+        assertThat(otherChat.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void fansOutToManySubscribers() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(SUBSCRIBERS);
+        Queue<String> payloads = new ConcurrentLinkedQueue<>();
+
+        List<CompletableFuture<StompSession>> pending = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            pending.add(stompClient.connectAsync("ws://localhost:" + port + "/ws", new StompSessionHandlerAdapter() {
+            }));
+        }
+        for (CompletableFuture<StompSession> future : pending) {
+            StompSession session = future.get(30, TimeUnit.SECONDS);
+            sessions.add(session);
+            subscribe(session, "/topic/orders/broadcast", new FrameSink(payloads, delivered));
+        }
+
+        messagingTemplate.convertAndSend("/topic/orders/broadcast", "cập nhật");
+
+        assertThat(delivered.await(30, TimeUnit.SECONDS))
+                .as("%d/%d subscriber nhận được tin", SUBSCRIBERS - delivered.getCount(), SUBSCRIBERS)
+                .isTrue();
+        assertThat(payloads).hasSize(SUBSCRIBERS).containsOnly("cập nhật");
+    }
+
+    private StompSession connect() throws Exception {
+        StompSession session = stompClient.connectAsync("ws://localhost:" + port + "/ws", new StompSessionHandlerAdapter() {
+        }).get(10, TimeUnit.SECONDS);
+        sessions.add(session);
+        return session;
+    }
+
+    private static void subscribe(StompSession session, String destination, Queue<String> received) throws Exception {
+        subscribe(session, destination, new FrameSink(received, null));
+    }
+
+    // Chờ RECEIPT để chắc RabbitMQ đã tạo binding trước khi server gửi
+    private static void subscribe(StompSession session, String destination, FrameSink sink) throws Exception {
+        CountDownLatch subscribed = new CountDownLatch(1);
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.setReceipt("receipt-" + destination + "-" + session.getSessionId());
+        session.subscribe(headers, sink).addReceiptTask(subscribed::countDown);
+        assertThat(subscribed.await(10, TimeUnit.SECONDS)).as("RECEIPT cho %s", destination).isTrue();
+    }
+
+    // Hệ thống kết nối tới relay bất đồng bộ sau khi context khởi động; tin gửi trước đó sẽ bị bỏ
+    private void awaitRelayAvailable() throws InterruptedException {
+        AbstractBrokerMessageHandler relay =
+                context.getBean("stompBrokerRelayMessageHandler", AbstractBrokerMessageHandler.class);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!relay.isBrokerAvailable() && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(relay.isBrokerAvailable()).as("STOMP relay connected").isTrue();
+    }
+
+    private record FrameSink(Queue<String> received, CountDownLatch delivered) implements StompFrameHandler {
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return String.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            received.add((String) payload);
+            if (delivered != null) delivered.countDown();
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class, WebSocketServletAutoConfiguration.class})
+    @Import({WebSocketConfig.class, WebSocketSessionMetrics.class})
+    static class RelayTestConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
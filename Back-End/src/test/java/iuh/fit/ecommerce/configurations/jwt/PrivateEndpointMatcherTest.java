@@ -0,0 +1,133 @@
+package iuh.fit.ecommerce.configurations.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import iuh.fit.ecommerce.constraints.Endpoints;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PrivateEndpointMatcher phải phân loại mọi URI giống hệt vòng lặp {@code String.matches} trên
+ * Endpoints.PRIVATE_ENDPOINT mà nó thay thế.
+ */
+@Slf4j
+class PrivateEndpointMatcherTest {
+
+    private static final String ANY_SUFFIX = "(?:/.*)?";
+
+    private final PrivateEndpointMatcher matcher = new PrivateEndpointMatcher(new SimpleMeterRegistry());
+
+    @Test
+    void classifiesEveryPrivateEndpointLikeTheRegexLoop() {
+        for (String regex : Endpoints.PRIVATE_ENDPOINT) {
+            List<String> samples = samplesFor(regex);
+            // Mỗi rule phải có ít nhất một URI mẫu khớp, nếu không phép so sánh bên dưới không kiểm tra được gì
+            assertThat(samples).as("samples for %s", regex).anyMatch(uri -> uri.matches(regex));
+
+            for (String uri : samples) {
+                assertThat(matcher.isPrivate(uri)).as("%s (rule %s)", uri, regex).isEqualTo(legacyIsPrivate(uri));
+            }
+        }
+    }
+
+    @Test
+    void classifiesPublicAndEdgeCaseUrisLikeTheRegexLoop() {
+        List<String> uris = List.of(
+                "", "/", "/api", "/api/v1", "/api/v1/", "/api/v1//carts", "/api/v2/carts", "/API/V1/carts",
+                "/api/v1/products", "/api/v1/products/12", "/api/v1/auth/login", "/api/v1/auth/profile/",
+                "/api/v1/carts", "/api/v1/carts/", "/api/v1/cartsx", "/api/v1/carts?x=1",
+                "/api/v1/vouchers/available", "/api/v1/vouchers/available/1",
+                "/api/v1/feedbacks/abc", "/api/v1/feedbacks/12/images", "/api/v1/feedbacks/change-status/",
+                "/api/v1/customers", "/api/v1/customers/update-push-token", "/api/v1/customers/update-push-toke",
+                "/api/v1/customers/update-push-tokenn", "/api/v1/staffs", "/api/v1/staffs/template/1",
+                "/api/v1/admin/product-questions", "/api/v1/admin/products", "/api/v1/dashboard-public");
+
+        for (String uri : uris) {
+            assertThat(matcher.isPrivate(uri)).as(uri).isEqualTo(legacyIsPrivate(uri));
+        }
+    }
+
+    @Test
+    void treatsNullAsPublic() {
+        assertThat(matcher.isPrivate(null)).isFalse();
+    }
+
+    /**
+     * So sánh thời gian mỗi lần tra giữa bảng đã compile và vòng lặp String.matches cũ.
+     * Chạy thủ công: {@code mvn test -Dbenchmark=true -Dtest=PrivateEndpointMatcherTest}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void comparesLookupTimeWithTheRegexLoop() {
+        List<String> uris = Arrays.stream(Endpoints.PRIVATE_ENDPOINT)
+                .flatMap(regex -> samplesFor(regex).stream())
+                .toList();
+        int iterations = Integer.getInteger("benchmark.matcher.iterations", 20_000);
+
+        double legacyNs = nanosPerLookup(uris, iterations, PrivateEndpointMatcherTest::legacyIsPrivate);
+        double compiledNs = nanosPerLookup(uris, iterations, matcher::isPrivate);
+
+        log.info("{} URIs x {} iterations: String.matches loop {} ns/op, compiled matcher {} ns/op ({}x)",
+                uris.size(), iterations, Math.round(legacyNs), Math.round(compiledNs),
+                String.format("%.1f", legacyNs / compiledNs));
+        assertThat(compiledNs).isPositive();
+    }
+
+    private static double nanosPerLookup(List<String> uris, int iterations, Predicate<String> isPrivate) {
+        int matched = 0;
+        // Chạy nóng một phần năm số vòng để JIT compile trước khi đo
+        for (int i = 0; i < iterations / 5; i++) {
+            for (String uri : uris) {
+                if (isPrivate.test(uri)) matched++;
+            }
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (String uri : uris) {
+                if (isPrivate.test(uri)) matched++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        // Dùng kết quả để JIT không bỏ vòng lặp
+        assertThat(matched).isPositive();
+        return (double) elapsed / ((long) iterations * uris.size());
+    }
+
+    // Cách AuthTokenFilter phân loại trước khi có PrivateEndpointMatcher
+    private static boolean legacyIsPrivate(String requestURI) {
+        return Arrays.stream(Endpoints.PRIVATE_ENDPOINT).anyMatch(requestURI::matches);
+    }
+
+    // URI mẫu cho một rule: bản khớp, bản có thêm segment, và vài bản gần giống nhưng không khớp
+    private static List<String> samplesFor(String regex) {
+        Set<String> samples = new LinkedHashSet<>();
+        String base = regex.endsWith(ANY_SUFFIX) ? regex.substring(0, regex.length() - ANY_SUFFIX.length()) : regex;
+
+        for (String concrete : List.of(base.replace("\\d+", "42"), base.replace("\\d+", "abc"))) {
+            if (concrete.endsWith("?")) {
+                // "token?" : ký tự cuối tùy chọn
+                String withoutMark = concrete.substring(0, concrete.length() - 1);
+                samples.add(withoutMark);
+                samples.add(withoutMark.substring(0, withoutMark.length() - 1));
+                concrete = withoutMark;
+            } else {
+                samples.add(concrete);
+            }
+            samples.add(concrete + "/");
+            samples.add(concrete + "/7");
+            samples.add(concrete + "/7/items");
+            samples.add(concrete + "x");
+            samples.add(concrete + "-x");
+            samples.add(concrete.substring(0, concrete.length() - 1));
+        }
+        return List.copyOf(samples);
+    }
+}
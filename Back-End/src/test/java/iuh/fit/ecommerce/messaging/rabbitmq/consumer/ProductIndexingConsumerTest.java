@@ -0,0 +1,93 @@
+package iuh.fit.ecommerce.messaging.rabbitmq.consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import iuh.fit.ecommerce.configurations.RabbitConfig;
+import iuh.fit.ecommerce.entities.Product;
+import iuh.fit.ecommerce.messaging.rabbitmq.message.ProductCreatedMessage;
+import iuh.fit.ecommerce.services.ProductSearchService;
+import iuh.fit.ecommerce.services.VectorStoreService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductIndexingConsumerTest {
+
+    private static final long BROKEN_PRODUCT_ID = 2L;
+
+    private ProductSearchService productSearchService;
+    private RabbitTemplate rabbitTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private ProductIndexingConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        productSearchService = mock(ProductSearchService.class);
+        rabbitTemplate = mock(RabbitTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        consumer = new ProductIndexingConsumer(productSearchService, mock(VectorStoreService.class),
+                meterRegistry, rabbitTemplate);
+
+        // Sản phẩm 2 có dữ liệu hỏng: lô nào chứa nó cũng index lỗi
+        when(productSearchService.loadProductsForIndexing(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> Product.builder().id(id).build()).toList();
+        });
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            if (products.stream().anyMatch(product -> product.getId() == BROKEN_PRODUCT_ID)) {
+                throw new IllegalStateException("mapping failed");
+            }
+            return null;
+        }).when(productSearchService).indexProducts(anyList());
+    }
+
+    @Test
+    void deadLettersOnlyTheMessagesThatStillFailAlone() {
+        consumer.handleProductsCreated(List.of(message(1L), message(BROKEN_PRODUCT_ID), message(3L)));
+
+        verify(productSearchService).indexProducts(onlyProduct(1L));
+        verify(productSearchService).indexProducts(onlyProduct(3L));
+        verify(rabbitTemplate).convertAndSend(eq(RabbitConfig.DEAD_LETTER_EXCHANGE), eq(RabbitConfig.ROUTING_KEY),
+                eq(new ProductCreatedMessage(BROKEN_PRODUCT_ID)), any(MessagePostProcessor.class));
+        verifyNoMoreInteractions(rabbitTemplate);
+        assertThat(meterRegistry.get("product.index.dead-lettered").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rethrowsWhenNothingInTheBatchCanBeIndexed() {
+        // Mọi sản phẩm đều lỗi (ví dụ ES sập): để container retry cả lô thay vì đẩy hết vào DLQ ngay
+        assertThatThrownBy(() -> consumer.handleProductsCreated(List.of(message(BROKEN_PRODUCT_ID))))
+                .isInstanceOf(IllegalStateException.class);
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void indexesTheWholeBatchInOneCallWhenNothingFails() {
+        consumer.handleProductsCreated(List.of(message(1L), message(3L), message(1L)));
+
+        verify(productSearchService).loadProductsForIndexing(List.of(1L, 3L));
+        verify(productSearchService, times(1)).indexProducts(anyList());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    private static Message<ProductCreatedMessage> message(long productId) {
+        return MessageBuilder.withPayload(new ProductCreatedMessage(productId)).build();
+    }
+
+    // Product không override equals: so sánh theo id
+    private static List<Product> onlyProduct(long id) {
+        return argThat(products -> products.size() == 1 && products.get(0).getId() == id);
+    }
+}
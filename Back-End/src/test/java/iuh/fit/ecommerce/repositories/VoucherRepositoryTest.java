@@ -0,0 +1,120 @@
+package iuh.fit.ecommerce.repositories;
+
+import iuh.fit.ecommerce.dtos.projection.VoucherEligibilityProjection;
+import iuh.fit.ecommerce.entities.Customer;
+import iuh.fit.ecommerce.entities.Order;
+import iuh.fit.ecommerce.entities.Voucher;
+import iuh.fit.ecommerce.entities.VoucherUsageHistory;
+import iuh.fit.ecommerce.enums.VoucherType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra "khách đã dùng voucher chưa" trên H2 (chế độ MySQL), gồm cả lịch sử cũ chưa có customer_id.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:voucher-repository;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.enable_lazy_load_no_trans=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class VoucherRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    private final LocalDate today = LocalDate.now();
+    private Customer customer;
+    private Customer otherCustomer;
+    private Voucher voucher;
+
+    @BeforeEach
+    void setUp() {
+        customer = entityManager.persist(Customer.builder().email("customer@example.com").build());
+        otherCustomer = entityManager.persist(Customer.builder().email("other@example.com").build());
+        voucher = entityManager.persist(Voucher.builder()
+                .code("WELCOME")
+                .name("Chào mừng")
+                .voucherType(VoucherType.ALL)
+                .active(true)
+                .discount(10.0)
+                .startDate(today.minusDays(1))
+                .endDate(today.plusDays(1))
+                .build());
+    }
+
+    @Test
+    void unusedVoucherIsEligible() {
+        assertThat(voucherRepository.checkEligibility(voucher.getId(), customer.getId()).getUsed()).isFalse();
+        assertThat(eligibleVoucherIds(customer)).contains(voucher.getId());
+    }
+
+    @Test
+    void rejectsVoucherAlreadyUsedByTheCustomer() {
+        recordUsage(customer, customer);
+
+        assertThat(voucherRepository.checkEligibility(voucher.getId(), customer.getId()).getUsed()).isTrue();
+        assertThat(eligibleVoucherIds(customer)).doesNotContain(voucher.getId());
+    }
+
+    @Test
+    void rejectsVoucherUsedBeforeCustomerIdWasRecorded() {
+        // Lịch sử cũ: customer_id NULL, chỉ biết khách qua đơn hàng
+        recordUsage(customer, null);
+
+        assertThat(voucherRepository.checkEligibility(voucher.getId(), customer.getId()).getUsed()).isTrue();
+        assertThat(eligibleVoucherIds(customer)).doesNotContain(voucher.getId());
+    }
+
+    @Test
+    void usageByAnotherCustomerDoesNotCount() {
+        recordUsage(otherCustomer, null);
+        recordUsage(otherCustomer, otherCustomer);
+
+        assertThat(voucherRepository.checkEligibility(voucher.getId(), customer.getId()).getUsed()).isFalse();
+        assertThat(eligibleVoucherIds(customer)).contains(voucher.getId());
+    }
+
+    private void recordUsage(Customer orderedBy, Customer recordedCustomer) {
+        Order order = entityManager.persist(Order.builder()
+                .customer(orderedBy)
+                .receiverAddress("12 Nguyễn Văn Bảo")
+                .receiverName("Khách")
+                .receiverPhone("0900000000")
+                .totalPrice(100_000.0)
+                .totalDiscount(0.0)
+                .finalTotalPrice(100_000.0)
+                .build());
+        entityManager.persist(VoucherUsageHistory.builder()
+                .voucher(voucher)
+                .order(order)
+                .customer(recordedCustomer)
+                .discountAmount(10_000.0)
+                .build());
+        entityManager.flush();
+    }
+
+    private List<Long> eligibleVoucherIds(Customer target) {
+        return voucherRepository.findEligibleForCustomer(target.getId(), today, VoucherType.ALL).stream()
+                .map(VoucherEligibilityProjection::getVoucher)
+                .map(Voucher::getId)
+                .toList();
+    }
+}
@@ -0,0 +1,212 @@
+package iuh.fit.ecommerce.services.excel;
+
+import iuh.fit.ecommerce.dtos.excel.ImportResult;
+import iuh.fit.ecommerce.entities.Role;
+import iuh.fit.ecommerce.repositories.CustomerRepository;
+import iuh.fit.ecommerce.repositories.RankingRepository;
+import iuh.fit.ecommerce.repositories.RoleRepository;
+import iuh.fit.ecommerce.repositories.UserRepository;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Import file khách hàng sinh bằng POI vào H2 (chế độ MySQL): kiểm tra chia chunk, giới hạn chi tiết lỗi
+ * và rollback cả chunk khi JDBC batch lỗi giữa chừng.
+ */
+class CustomerExcelServiceTest {
+
+    // Bằng BaseExcelHandler.IMPORT_CHUNK_SIZE
+    private static final int CHUNK_SIZE = 500;
+    // 3 dòng đầu của template: 2 dòng hướng dẫn + header
+    private static final int FIRST_DATA_ROW = 3;
+
+    private JdbcTemplate db;
+    private CustomerExcelService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:customer-import;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        db = new JdbcTemplate(dataSource);
+        db.execute("""
+                CREATE TABLE users (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    email VARCHAR(255) NOT NULL UNIQUE,
+                    full_name VARCHAR(255),
+                    phone VARCHAR(20),
+                    password VARCHAR(255),
+                    date_of_birth DATE,
+                    active BOOLEAN,
+                    created_at TIMESTAMP,
+                    created_by VARCHAR(255),
+                    modified_at TIMESTAMP,
+                    modified_by VARCHAR(255)
+                )""");
+        db.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, total_spending DOUBLE, ranking_id BIGINT)");
+        db.execute("CREATE TABLE user_roles (user_id BIGINT, role_id BIGINT)");
+
+        // Bước kiểm tra trùng với DB không thuộc phạm vi test này: luôn coi như chưa tồn tại
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of());
+        when(userRepository.findExistingPhones(anyCollection())).thenReturn(Set.of());
+
+        RoleRepository roleRepository = mock(RoleRepository.class);
+        when(roleRepository.findByName("CUSTOMER")).thenReturn(Optional.of(Role.builder().id(2L).name("CUSTOMER").build()));
+
+        RankingRepository rankingRepository = mock(RankingRepository.class);
+        when(rankingRepository.findAll()).thenReturn(List.of());
+
+        PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(any())).thenReturn("hash");
+
+        service = new CustomerExcelService(mock(CustomerRepository.class), userRepository, roleRepository,
+                rankingRepository, passwordEncoder, new NamedParameterJdbcTemplate(dataSource),
+                new DataSourceTransactionManager(dataSource), () -> Optional.of("importer"));
+        service.initTransactionTemplate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void importsEveryRowAcrossChunkBoundaries() throws IOException {
+        int rows = 2 * CHUNK_SIZE + 1;
+
+        ImportResult result = service.importExcel(workbook(rows, this::validRow));
+
+        assertThat(result.getTotalRows()).isEqualTo(rows);
+        assertThat(result.getSuccessCount()).isEqualTo(rows);
+        assertThat(result.getErrorCount()).isZero();
+        assertThat(count("users")).isEqualTo(rows);
+        assertThat(count("customers")).isEqualTo(rows);
+        assertThat(count("user_roles")).isEqualTo(rows);
+    }
+
+    @Test
+    void readsDateCellsFromTheirValueInsteadOfTheDisplayFormat() throws IOException {
+        ImportResult result = service.importExcel(workbook(2, i -> i == 0
+                // Ô ngày thật, style m/d/yy mặc định của Excel: hiển thị "3/5/90"
+                ? new Object[]{"date@example.com", "Nguyễn Văn A", "0900000000", LocalDate.of(1990, 3, 5)}
+                // Ô text gõ theo template dd/MM/yyyy
+                : new Object[]{"text@example.com", "Nguyễn Văn B", "0900000001", "05/03/1990"}));
+
+        assertThat(result.getSuccessCount()).isEqualTo(2);
+        assertThat(dateOfBirth("date@example.com")).isEqualTo(LocalDate.of(1990, 3, 5));
+        assertThat(dateOfBirth("text@example.com")).isEqualTo(LocalDate.of(1990, 3, 5));
+    }
+
+    @Test
+    void keepsCountingErrorsAfterTheDetailCap() throws IOException {
+        int rows = ImportResult.MAX_ERROR_DETAILS + 200;
+
+        ImportResult result = service.importExcel(workbook(rows,
+                i -> new Object[]{"not-an-email-" + i, "Khách " + i, phone(i), null}));
+
+        assertThat(result.getTotalRows()).isEqualTo(rows);
+        assertThat(result.getErrorCount()).isEqualTo(rows);
+        assertThat(result.getErrors()).hasSize(ImportResult.MAX_ERROR_DETAILS);
+        assertThat(result.getSuccessCount()).isZero();
+        assertThat(count("users")).isZero();
+    }
+
+    @Test
+    void rollsBackTheWholeChunkWhenTheBatchFails() throws IOException {
+        int rows = 2 * CHUNK_SIZE + 200;
+        // Email đã có trong DB nhưng lọt qua bước kiểm tra trùng: insert users của chunk thứ hai vi phạm UNIQUE
+        db.update("INSERT INTO users (email, full_name) VALUES (?, ?)", email(CHUNK_SIZE + 100), "Đã có");
+
+        ImportResult result = service.importExcel(workbook(rows, this::validRow));
+
+        int saved = rows - CHUNK_SIZE;
+        assertThat(result.getSuccessCount()).isEqualTo(saved);
+        assertThat(result.getErrorCount()).isEqualTo(1);
+        assertThat(result.getErrors().get(0).getField()).isEqualTo("SYSTEM");
+        assertThat(result.getErrors().get(0).getRowIndex()).isEqualTo(FIRST_DATA_ROW + CHUNK_SIZE + 1);
+        // Không còn user nào của chunk lỗi, kể cả các dòng đứng trước dòng vi phạm trong batch
+        assertThat(count("users")).isEqualTo(saved + 1);
+        assertThat(count("customers")).isEqualTo(saved);
+        assertThat(count("user_roles")).isEqualTo(saved);
+        assertThat(db.queryForObject("SELECT COUNT(*) FROM users WHERE email = ?", Integer.class, email(CHUNK_SIZE)))
+                .isZero();
+    }
+
+    private Object[] validRow(int i) {
+        return new Object[]{email(i), "Khách " + i, phone(i), null};
+    }
+
+    private static String email(int i) {
+        return "customer" + i + "@example.com";
+    }
+
+    private static String phone(int i) {
+        return String.format("09%08d", i);
+    }
+
+    private int count(String table) {
+        return db.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private LocalDate dateOfBirth(String email) {
+        return db.queryForObject("SELECT date_of_birth FROM users WHERE email = ?", LocalDate.class, email);
+    }
+
+    private static MockMultipartFile workbook(int rows, IntFunction<Object[]> rowData) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Template");
+            sheet.createRow(0).createCell(0).setCellValue("Hướng dẫn");
+            sheet.createRow(1).createCell(0).setCellValue("Lưu ý");
+            Row header = sheet.createRow(2);
+            String[] headers = {"Email*", "Họ tên*", "Số điện thoại*", "Ngày sinh (dd/MM/yyyy)"};
+            for (int c = 0; c < headers.length; c++) {
+                header.createCell(c).setCellValue(headers[c]);
+            }
+
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat((short) 14); // m/d/yy
+
+            for (int i = 0; i < rows; i++) {
+                Row row = sheet.createRow(FIRST_DATA_ROW + i);
+                Object[] values = rowData.apply(i);
+                for (int c = 0; c < values.length; c++) {
+                    if (values[c] instanceof LocalDate date) {
+                        row.createCell(c).setCellValue(date);
+                        row.getCell(c).setCellStyle(dateStyle);
+                    } else if (values[c] != null) {
+                        row.createCell(c).setCellValue(values[c].toString());
+                    }
+                }
+            }
+
+            workbook.write(out);
+            return new MockMultipartFile("file", "customers.xlsx",
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", out.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package iuh.fit.ecommerce.services.excel;
+
+import iuh.fit.ecommerce.dtos.projection.ProductExportProjection;
+import iuh.fit.ecommerce.repositories.DailyPromotionRollupRepository;
+import iuh.fit.ecommerce.repositories.DailyVoucherRollupRepository;
+import iuh.fit.ecommerce.repositories.ProductRepository;
+import iuh.fit.ecommerce.repositories.PromotionUsageRepository;
+import iuh.fit.ecommerce.repositories.VoucherUsageHistoryRepository;
+import iuh.fit.ecommerce.services.DashboardService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đo export dashboard với 1 triệu dòng sản phẩm: heap đỉnh tăng thêm bao nhiêu, thời gian tới byte đầu tiên
+ * (TTFB) và tổng thời gian. Chạy thủ công: {@code mvn test -Dbenchmark=true -Dtest=DashboardExcelServiceBenchmarkTest}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DashboardExcelServiceBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.excel.rows", 1_000_000);
+    // XSSF giữ cả workbook trong heap cần vài GB cho 1 triệu dòng; SXSSF phải nằm dưới mức này
+    private static final long MAX_HEAP_GROWTH_BYTES = 256L * 1024 * 1024;
+
+    @Test
+    void exportsAMillionRowsWithBoundedHeap() throws Exception {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.streamAllForExport()).thenAnswer(invocation -> LongStream.rangeClosed(1, ROWS)
+                .mapToObj(id -> (ProductExportProjection) new ProductRow(id, "Sản phẩm " + id, "SPU-" + id, id % 2 == 0)));
+
+        DashboardExcelService service = new DashboardExcelService(mock(DashboardService.class), productRepository,
+                mock(VoucherUsageHistoryRepository.class), mock(PromotionUsageRepository.class),
+                mock(DailyVoucherRollupRepository.class), mock(DailyPromotionRollupRepository.class));
+
+        HeapSampler heap = new HeapSampler();
+        TimingOutputStream out = new TimingOutputStream();
+        long start = System.nanoTime();
+        heap.start();
+        try {
+            service.exportDashboard(LocalDate.now().minusDays(30), LocalDate.now(), out);
+        } finally {
+            heap.stop();
+        }
+        long totalMs = (System.nanoTime() - start) / 1_000_000;
+        long ttfbMs = (out.firstWriteAt.get() - start) / 1_000_000;
+
+        log.info("Exported {} rows: {} bytes, TTFB {} ms, total {} ms, peak live heap growth {} MB",
+                ROWS, out.bytes, ttfbMs, totalMs, heap.peakGrowth() / (1024 * 1024));
+
+        assertThat(out.bytes).isPositive();
+        assertThat(heap.peakGrowth()).isLessThan(MAX_HEAP_GROWTH_BYTES);
+    }
+
+    private record ProductRow(Long id, String name, String spu, Boolean status) implements ProductExportProjection {
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getSpu() {
+            return spu;
+        }
+
+        @Override
+        public Boolean getStatus() {
+            return status;
+        }
+    }
+
+    // Bỏ dữ liệu, chỉ ghi lại số byte và thời điểm ghi byte đầu tiên
+    private static final class TimingOutputStream extends OutputStream {
+        private final AtomicLong firstWriteAt = new AtomicLong();
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            firstWriteAt.compareAndSet(0, System.nanoTime());
+            bytes += len;
+        }
+    }
+
+    /**
+     * Lấy mẫu mỗi 10 ms trên một thread riêng. Đo heap còn sống sau lần GC gần nhất (collection usage) thay vì
+     * heap đang dùng, vì heap đang dùng gồm cả rác chưa thu và phụ thuộc kích thước young gen của máy chạy.
+     */
+    private static final class HeapSampler {
+        private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+                .toList();
+        private final AtomicLong peak = new AtomicLong();
+        private volatile boolean running;
+        private Thread thread;
+        private long baseline;
+
+        void start() {
+            System.gc();
+            baseline = used();
+            peak.set(baseline);
+            running = true;
+            thread = new Thread(() -> {
+                while (running) {
+                    peak.accumulateAndGet(used(), Math::max);
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "heap-sampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+            peak.accumulateAndGet(used(), Math::max);
+        }
+
+        long peakGrowth() {
+            return peak.get() - baseline;
+        }
+
+        private long used() {
+            long used = 0;
+            for (MemoryPoolMXBean pool : heapPools) {
+                MemoryUsage afterGc = pool.getCollectionUsage();
+                if (afterGc != null) used += afterGc.getUsed();
+            }
+            return used;
+        }
+    }
+}
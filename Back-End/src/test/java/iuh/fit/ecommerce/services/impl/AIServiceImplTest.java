@@ -0,0 +1,124 @@
+package iuh.fit.ecommerce.services.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import iuh.fit.ecommerce.dtos.response.ai.ChatAIStreamEvent;
+import iuh.fit.ecommerce.dtos.response.ai.ProductRetrievalResult;
+import iuh.fit.ecommerce.services.AIContextService;
+import iuh.fit.ecommerce.services.ChatMemoryService;
+import iuh.fit.ecommerce.services.VectorStoreService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Chạy chatStream với một ChatModel giả stream token có độ trễ, không gọi model thật.
+ */
+class AIServiceImplTest {
+
+    private static final Duration FIRST_TOKEN_DELAY = Duration.ofMillis(50);
+    private static final Duration NEXT_TOKEN_DELAY = Duration.ofMillis(300);
+
+    private ChatMemoryService chatMemoryService;
+    private MeterRegistry meterRegistry;
+    private StubChatModel chatModel;
+    private AIServiceImpl aiService;
+
+    @BeforeEach
+    void setUp() {
+        chatMemoryService = mock(ChatMemoryService.class);
+        when(chatMemoryService.getRecentMessages(anyString(), anyInt())).thenReturn(List.of());
+
+        VectorStoreService vectorStoreService = mock(VectorStoreService.class);
+        when(vectorStoreService.retrieve(anyString(), anyInt())).thenReturn(ProductRetrievalResult.builder()
+                .productContexts(List.of())
+                .productIds(List.of())
+                .build());
+
+        AIContextService aiContextService = mock(AIContextService.class);
+        when(aiContextService.buildGuestContext()).thenReturn("Khách vãng lai");
+
+        meterRegistry = new SimpleMeterRegistry();
+        chatModel = new StubChatModel();
+        aiService = new AIServiceImpl(chatModel, chatMemoryService, vectorStoreService, aiContextService, meterRegistry);
+    }
+
+    @Test
+    void firstTokenArrivesBeforeTheModelFinishes() {
+        chatModel.response = Flux.concat(
+                Flux.just(chunk("Xin ")).delaySubscription(FIRST_TOKEN_DELAY),
+                Flux.just(chunk("chào "), chunk("bạn")).delayElements(NEXT_TOKEN_DELAY));
+
+        List<Tuple2<Long, ChatAIStreamEvent>> events = aiService.chatStream("xin chào", null, "session-1")
+                .elapsed()
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(events).extracting(e -> e.getT2().getEvent())
+                .containsExactly(ChatAIStreamEvent.TOKEN, ChatAIStreamEvent.TOKEN, ChatAIStreamEvent.TOKEN,
+                        ChatAIStreamEvent.DONE);
+        long timeToFirstToken = events.get(0).getT1();
+        long totalTime = events.stream().mapToLong(Tuple2::getT1).sum();
+        assertThat(timeToFirstToken).isLessThan(NEXT_TOKEN_DELAY.toMillis());
+        assertThat(totalTime).isGreaterThanOrEqualTo(2 * NEXT_TOKEN_DELAY.toMillis());
+
+        Timer firstToken = meterRegistry.get("ai.chat.stage.duration").tag("stage", "first_token").timer();
+        Timer llm = meterRegistry.get("ai.chat.stage.duration").tag("stage", "llm").timer();
+        assertThat(firstToken.count()).isEqualTo(1);
+        assertThat(firstToken.totalTime(TimeUnit.MILLISECONDS)).isLessThan(llm.totalTime(TimeUnit.MILLISECONDS));
+
+        assertThat(events.get(3).getT2().getResponse().getMessage()).isEqualTo("Xin chào bạn");
+        verify(chatMemoryService).addExchange("session-1", "xin chào", "Xin chào bạn");
+    }
+
+    @Test
+    void emitsErrorEventWhenModelStreamFails() {
+        chatModel.response = Flux.concat(
+                Flux.just(chunk("Xin ")),
+                Flux.error(new IllegalStateException("model unavailable")));
+
+        List<ChatAIStreamEvent> events = aiService.chatStream("xin chào", null, "session-1")
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(events).extracting(ChatAIStreamEvent::getEvent)
+                .containsExactly(ChatAIStreamEvent.TOKEN, ChatAIStreamEvent.ERROR);
+        assertThat(events.get(1).getError()).isNotBlank();
+        assertThat(meterRegistry.counter("ai.chat.stream.errors").count()).isEqualTo(1);
+        verify(chatMemoryService, never()).addExchange(anyString(), anyString(), anyString());
+    }
+
+    private static ChatResponse chunk(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    private static class StubChatModel implements ChatModel {
+
+        private Flux<ChatResponse> response = Flux.empty();
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            return response;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package iuh.fit.ecommerce.services.impl;
+
+import iuh.fit.ecommerce.dtos.response.ai.ChatHistoryMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chạy script append của ChatMemoryServiceImpl trên Redis thật (container): cửa sổ giữ đúng N tin mới nhất
+ * và TTL của session được làm mới ở mỗi lần ghi. Kèm một phép đo thủ công ops/giây và số byte Redis mỗi session.
+ */
+@Slf4j
+@Testcontainers(disabledWithoutDocker = true)
+class ChatMemoryServiceImplTest {
+
+    private static final String KEY_PREFIX = "chat:messages:";
+    private static final int WINDOW = 15;
+    private static final Duration SESSION_TTL = Duration.ofMinutes(30);
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private ChatMemoryServiceImpl chatMemoryService;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        chatMemoryService = new ChatMemoryServiceImpl(redisTemplate);
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentMessages() {
+        for (int i = 0; i < 10; i++) {
+            chatMemoryService.addExchange("session-1", "hỏi " + i, "đáp " + i);
+        }
+
+        assertThat(redisTemplate.opsForList().size(KEY_PREFIX + "session-1")).isEqualTo(WINDOW);
+
+        List<ChatHistoryMessage> messages = chatMemoryService.getRecentMessages("session-1", 100);
+        assertThat(messages).hasSize(WINDOW);
+        // 20 tin, giữ 15 tin cuối: bắt đầu từ câu trả lời của lượt thứ 3
+        assertThat(messages.get(0).getRole()).isEqualTo("assistant");
+        assertThat(messages.get(0).getContent()).isEqualTo("đáp 2");
+        assertThat(messages.get(WINDOW - 1).getRole()).isEqualTo("assistant");
+        assertThat(messages.get(WINDOW - 1).getContent()).isEqualTo("đáp 9");
+
+        assertThat(chatMemoryService.getRecentMessages("session-1", 2))
+                .extracting(ChatHistoryMessage::getContent)
+                .containsExactly("hỏi 9", "đáp 9");
+    }
+
+    @Test
+    void refreshesSessionTtlOnEveryWrite() {
+        String key = KEY_PREFIX + "session-1";
+        chatMemoryService.addMessage("session-1", "user", "xin chào");
+        assertThat(redisTemplate.getExpire(key, TimeUnit.SECONDS))
+                .isBetween(SESSION_TTL.toSeconds() - 5, SESSION_TTL.toSeconds());
+
+        // Giả lập session sắp hết hạn: lần ghi kế tiếp phải kéo TTL về đủ 30 phút
+        redisTemplate.expire(key, Duration.ofSeconds(10));
+        chatMemoryService.addMessage("session-1", "assistant", "chào bạn");
+
+        assertThat(redisTemplate.getExpire(key, TimeUnit.SECONDS))
+                .isBetween(SESSION_TTL.toSeconds() - 5, SESSION_TTL.toSeconds());
+        assertThat(chatMemoryService.getRecentMessages("session-1", 10))
+                .extracting(ChatHistoryMessage::getContent)
+                .containsExactly("xin chào", "chào bạn");
+    }
+
+    /**
+     * Đo throughput ghi/đọc từ nhiều luồng và bộ nhớ Redis của mỗi session khi cửa sổ đã đầy.
+     * Chạy thủ công: {@code mvn test -Dbenchmark=true -Dtest=ChatMemoryServiceImplTest}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void measuresThroughputAndBytesPerSession() throws Exception {
+        int sessions = Integer.getInteger("benchmark.chat.sessions", 500);
+        int exchangesPerSession = Integer.getInteger("benchmark.chat.exchanges", 40);
+        int threads = 8;
+        // Câu hỏi/trả lời cỡ thật của chatbot: vài chục đến vài trăm ký tự tiếng Việt
+        String question = "Cho mình hỏi áo thun cotton size M còn màu trắng không?";
+        String answer = "Dạ, áo thun cotton size M hiện còn màu trắng và đen, giá 199.000đ. ".repeat(3);
+
+        double writesPerSecond = opsPerSecond(threads, sessions * exchangesPerSession,
+                i -> chatMemoryService.addExchange("session-" + (i % sessions), question + i, answer));
+        double readsPerSecond = opsPerSecond(threads, sessions * exchangesPerSession,
+                i -> chatMemoryService.getRecentMessages("session-" + (i % sessions), WINDOW));
+
+        long totalBytes = 0;
+        for (int i = 0; i < sessions; i++) {
+            totalBytes += memoryUsage(KEY_PREFIX + "session-" + i);
+        }
+        long bytesPerSession = totalBytes / sessions;
+
+        log.info("{} sessions x {} exchanges, {} threads: addExchange {} ops/s, getRecentMessages {} ops/s, "
+                        + "{} bytes/session ({} messages)",
+                sessions, exchangesPerSession, threads, Math.round(writesPerSecond), Math.round(readsPerSecond),
+                bytesPerSession, WINDOW);
+
+        assertThat(redisTemplate.opsForList().size(KEY_PREFIX + "session-0")).isEqualTo(WINDOW);
+        assertThat(bytesPerSession).isPositive();
+    }
+
+    private static double opsPerSecond(int threads, int operations, IntConsumer operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                workers.add(executor.submit(() -> {
+                    for (int i = offset; i < operations; i += threads) {
+                        operation.accept(i);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(5, TimeUnit.MINUTES);
+            }
+            return operations / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // MEMORY USAGE: số byte Redis dùng cho key, gồm cả overhead của list và key
+    private static long memoryUsage(String key) {
+        Long bytes = redisTemplate.execute((RedisCallback<Long>) connection -> (Long) connection.execute(
+                "MEMORY", "USAGE".getBytes(StandardCharsets.UTF_8), key.getBytes(StandardCharsets.UTF_8)));
+        return bytes != null ? bytes : 0;
+    }
+}
@@ -0,0 +1,307 @@
+package iuh.fit.ecommerce.services.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import iuh.fit.ecommerce.repositories.CustomerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Gửi push lên một server HTTP cục bộ giả lập Expo: kiểm tra chia batch 100 tin, retry khi 429/5xx
+ * và xóa token DeviceNotRegistered.
+ */
+class PushNotificationServiceImplTest {
+
+    private static final String SEND_PATH = "/--/api/v2/push/send";
+    private static final String RECEIPTS_PATH = "/--/api/v2/push/getReceipts";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Queue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+    private final Queue<StubResponse> scriptedResponses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sendRequests = new AtomicInteger();
+    private final Queue<Integer> receiptStatuses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger receiptRequests = new AtomicInteger();
+    private volatile CountDownLatch sendGate;
+
+    private HttpServer server;
+    private ThreadPoolTaskExecutor pushExecutor;
+    private CustomerRepository customerRepository;
+    private MeterRegistry meterRegistry;
+    private PushNotificationServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(SEND_PATH, this::handleSend);
+        server.createContext(RECEIPTS_PATH, this::handleReceipts);
+        server.start();
+
+        customerRepository = mock(CustomerRepository.class);
+        when(customerRepository.clearExpoPushTokens(anyCollection())).thenAnswer(inv -> inv.<Collection<?>>getArgument(0).size());
+
+        meterRegistry = new SimpleMeterRegistry();
+        pushExecutor = newExecutor(2, 20);
+        service = newService(pushExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (sendGate != null) sendGate.countDown();
+        pushExecutor.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void splitsQueuedNotificationsIntoBatchesOfAtMost100() throws Exception {
+        for (int i = 0; i < 250; i++) {
+            service.sendPushNotification("ExponentPushToken[" + i + "]", "title", "body", null);
+        }
+
+        service.flushQueue();
+        awaitExecutor();
+
+        assertThat(batchSizes).containsExactlyInAnyOrder(100, 100, 50);
+        assertThat(counter("push.notifications", "result", "ok")).isEqualTo(250);
+    }
+
+    @Test
+    void retriesOn5xxAnd429WithBackoffThenSucceeds() throws Exception {
+        scriptedResponses.add(new StubResponse(503, "{}"));
+        scriptedResponses.add(new StubResponse(429, "{}"));
+
+        service.sendPushNotification("ExponentPushToken[a]", "title", "body", null);
+        service.flushQueue();
+        awaitExecutor();
+
+        assertThat(sendRequests.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("push.batch.retries").count()).isEqualTo(2);
+        assertThat(counter("push.notifications", "result", "ok")).isEqualTo(1);
+    }
+
+    @Test
+    void givesUpAfterMaxRetries() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            scriptedResponses.add(new StubResponse(500, "{}"));
+        }
+
+        service.sendPushNotification("ExponentPushToken[a]", "title", "body", null);
+        service.flushQueue();
+        awaitExecutor();
+
+        // 1 lần gửi + 3 lần retry
+        assertThat(sendRequests.get()).isEqualTo(4);
+        assertThat(counter("push.notifications", "result", "failed")).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotRetryClientErrors() throws Exception {
+        scriptedResponses.add(new StubResponse(400, "{\"errors\":[]}"));
+
+        service.sendPushNotification("ExponentPushToken[a]", "title", "body", null);
+        service.flushQueue();
+        awaitExecutor();
+
+        assertThat(sendRequests.get()).isEqualTo(1);
+        assertThat(counter("push.notifications", "result", "failed")).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotResendWhenSuccessResponseCannotBeDecoded() throws Exception {
+        scriptedResponses.add(new StubResponse(200, "not-json"));
+
+        service.sendPushNotification("ExponentPushToken[a]", "title", "body", null);
+        service.flushQueue();
+        awaitExecutor();
+
+        assertThat(sendRequests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void clearsDeviceNotRegisteredTokens() throws Exception {
+        service.sendPushNotification("ExponentPushToken[ok]", "title", "body", null);
+        service.sendPushNotification("ExponentPushToken[gone]", "title", "body", null);
+
+        service.flushQueue();
+        awaitExecutor();
+
+        verify(customerRepository).clearExpoPushTokens(Set.of("ExponentPushToken[gone]"));
+        assertThat(counter("push.notifications", "result", "error")).isEqualTo(1);
+    }
+
+    @Test
+    void requeuesBatchInsteadOfSendingOnCallerThreadWhenExecutorIsFull() throws Exception {
+        pushExecutor.shutdown();
+        pushExecutor = newExecutor(1, 0);
+        meterRegistry = new SimpleMeterRegistry();
+        service = newService(pushExecutor);
+        sendGate = new CountDownLatch(1);
+
+        for (int i = 0; i < 250; i++) {
+            service.sendPushNotification("ExponentPushToken[" + i + "]", "title", "body", null);
+        }
+        service.flushQueue();
+
+        // Batch đầu chiếm thread duy nhất, batch sau bị từ chối và quay lại hàng đợi
+        assertThat(meterRegistry.get("push.queue.size").gauge().value()).isEqualTo(150);
+
+        sendGate.countDown();
+        awaitExecutor();
+        assertThat(batchSizes).containsExactly(100);
+    }
+
+    @Test
+    void keepsReceiptTicketsPendingWhenReceiptRequestFails() throws Exception {
+        pushExecutor.shutdown();
+        pushExecutor = newExecutor(2, 20);
+        service = newService(pushExecutor, 0);
+        receiptStatuses.add(503);
+
+        service.sendPushNotification("ExponentPushToken[a]", "title", "body", null);
+        service.sendPushNotification("ExponentPushToken[b]", "title", "body", null);
+        service.flushQueue();
+        awaitExecutor();
+        assertThat(meterRegistry.get("push.receipts.pending").gauge().value()).isEqualTo(2);
+
+        // Lượt đầu lỗi: ticket quay lại hàng đợi thay vì bị bỏ
+        service.fetchDueReceipts();
+        assertThat(receiptRequests.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("push.receipts.pending").gauge().value()).isEqualTo(2);
+        assertThat(counter("push.notifications", "result", "receipt_requeued")).isEqualTo(2);
+
+        service.fetchDueReceipts();
+        assertThat(receiptRequests.get()).isEqualTo(2);
+        assertThat(meterRegistry.get("push.receipts.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    void retriesOnlyTransientFailures() {
+        assertThat(PushNotificationServiceImpl.isRetryable(new ResourceAccessException("connect timed out"))).isTrue();
+        assertThat(PushNotificationServiceImpl.isRetryable(
+                HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "", null, null, null))).isTrue();
+        assertThat(PushNotificationServiceImpl.isRetryable(
+                HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "", null, null, null))).isTrue();
+        assertThat(PushNotificationServiceImpl.isRetryable(
+                HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "", null, null, null))).isFalse();
+        assertThat(PushNotificationServiceImpl.isRetryable(new RestClientException("cannot decode"))).isFalse();
+    }
+
+    private void handleSend(HttpExchange exchange) throws IOException {
+        List<Map<String, Object>> messages = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<>() {});
+        sendRequests.incrementAndGet();
+
+        CountDownLatch gate = sendGate;
+        if (gate != null) {
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        StubResponse scripted = scriptedResponses.poll();
+        if (scripted != null) {
+            respond(exchange, scripted.status(), scripted.body());
+            return;
+        }
+
+        batchSizes.add(messages.size());
+        List<Map<String, Object>> tickets = new ArrayList<>();
+        for (Map<String, Object> message : messages) {
+            if (String.valueOf(message.get("to")).contains("gone")) {
+                tickets.add(Map.of("status", "error", "message", "not registered",
+                        "details", Map.of("error", "DeviceNotRegistered")));
+            } else {
+                tickets.add(Map.of("status", "ok", "id", UUID.randomUUID().toString()));
+            }
+        }
+        respond(exchange, 200, objectMapper.writeValueAsString(Map.of("data", tickets)));
+    }
+
+    private void handleReceipts(HttpExchange exchange) throws IOException {
+        Map<String, List<String>> request = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<>() {});
+        receiptRequests.incrementAndGet();
+
+        Integer status = receiptStatuses.poll();
+        if (status != null) {
+            respond(exchange, status, "{}");
+            return;
+        }
+        Map<String, Object> receipts = new HashMap<>();
+        for (String id : request.get("ids")) {
+            receipts.put(id, Map.of("status", "ok"));
+        }
+        respond(exchange, 200, objectMapper.writeValueAsString(Map.of("data", receipts)));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private PushNotificationServiceImpl newService(ThreadPoolTaskExecutor executor) {
+        return newService(executor, 900000);
+    }
+
+    private PushNotificationServiceImpl newService(ThreadPoolTaskExecutor executor, long receiptDelayMs) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new PushNotificationServiceImpl(RestClient.builder(), executor, customerRepository, transactionManager,
+                meterRegistry, baseUrl, "", 10000, 3, 10, receiptDelayMs, 50000);
+    }
+
+    private static ThreadPoolTaskExecutor newExecutor(int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    private void awaitExecutor() throws InterruptedException {
+        ThreadPoolExecutor threadPool = pushExecutor.getThreadPoolExecutor();
+        threadPool.shutdown();
+        assertThat(threadPool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private double counter(String name, String tagKey, String tagValue) {
+        var counter = meterRegistry.find(name).tag(tagKey, tagValue).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private record StubResponse(int status, String body) {
+    }
+}
@@ -0,0 +1,188 @@
+package iuh.fit.ecommerce.services.impl;
+
+import com.zaxxer.hikari.HikariDataSource;
+import iuh.fit.ecommerce.entities.OrderDetail;
+import iuh.fit.ecommerce.entities.Product;
+import iuh.fit.ecommerce.entities.ProductVariant;
+import iuh.fit.ecommerce.exceptions.custom.InvalidParamException;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nhiều luồng cùng giữ hàng một biến thể "hot" trên MySQL thật (container): UPDATE có điều kiện
+ * không được bán vượt tồn kho, tồn kho cuối phải đúng bằng số lượng ban đầu trừ phần đã giữ thành công.
+ * In kèm throughput (lượt giữ hàng/giây) để so sánh giữa các lần thay đổi.
+ */
+@Slf4j
+@Testcontainers(disabledWithoutDocker = true)
+class StockReservationServiceImplTest {
+
+    private static final long VARIANT_ID = 1L;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 50;
+
+    @Container
+    private static final GenericContainer<?> MYSQL = new GenericContainer<>("mysql:8.4")
+            .withEnv("MYSQL_ROOT_PASSWORD", "root")
+            .withEnv("MYSQL_DATABASE", "ecommerce")
+            .withExposedPorts(3306)
+            // MySQL khởi động tạm một lần (port: 0) để init rồi mới mở cổng 3306
+            .waitingFor(Wait.forLogMessage(".*ready for connections.*port: 3306.*", 1))
+            .withStartupTimeout(Duration.ofMinutes(2));
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate db;
+
+    private StockReservationServiceImpl service;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    static void connect() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:mysql://" + MYSQL.getHost() + ":" + MYSQL.getMappedPort(3306) + "/ecommerce");
+        dataSource.setUsername("root");
+        dataSource.setPassword("root");
+        dataSource.setMaximumPoolSize(THREADS);
+        db = new JdbcTemplate(dataSource);
+        db.execute("CREATE TABLE product_variants (id BIGINT PRIMARY KEY, stock INT)");
+    }
+
+    @AfterAll
+    static void disconnect() {
+        dataSource.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        db.update("DELETE FROM product_variants");
+
+        // UPDATE đi thẳng qua JDBC; EntityManager chỉ dùng để flush/refresh entity đã load nên giả lập là đủ
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.getReference(eq(ProductVariant.class), any())).thenReturn(new ProductVariant());
+
+        service = new StockReservationServiceImpl(new JdbcTemplate(dataSource), entityManager,
+                mock(ApplicationEventPublisher.class));
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Test
+    void neverOversellsAHotVariant() throws Exception {
+        int initialStock = 100;
+        db.update("INSERT INTO product_variants (id, stock) VALUES (?, ?)", VARIANT_ID, initialStock);
+
+        Result result = reserveConcurrently(1);
+
+        assertThat(result.reserved()).isEqualTo(initialStock);
+        assertThat(result.rejected()).isEqualTo(THREADS * ATTEMPTS_PER_THREAD - initialStock);
+        assertThat(stock()).isZero();
+    }
+
+    @Test
+    void keepsTheRemainderWhenQuantityDoesNotDivideStock() throws Exception {
+        int initialStock = 100;
+        db.update("INSERT INTO product_variants (id, stock) VALUES (?, ?)", VARIANT_ID, initialStock);
+
+        Result result = reserveConcurrently(3);
+
+        // 33 lượt x 3 = 99, còn 1 không đủ cho lượt nào nữa
+        assertThat(result.reserved()).isEqualTo(initialStock / 3);
+        assertThat(stock()).isEqualTo(initialStock % 3);
+    }
+
+    @Test
+    void stockStaysExactUnderConcurrentReserveAndRelease() throws Exception {
+        int initialStock = THREADS * ATTEMPTS_PER_THREAD;
+        db.update("INSERT INTO product_variants (id, stock) VALUES (?, ?)", VARIANT_ID, initialStock);
+
+        // Mỗi lượt giữ 2 rồi trả 1: đủ hàng cho mọi lượt nên tồn kho cuối xác định được chính xác
+        runConcurrently(() -> {
+            transactionTemplate.executeWithoutResult(status -> service.reserve(orderLine(2)));
+            transactionTemplate.executeWithoutResult(status -> service.release(orderLine(1)));
+            return true;
+        });
+
+        assertThat(stock()).isEqualTo(initialStock - THREADS * ATTEMPTS_PER_THREAD);
+    }
+
+    private Result reserveConcurrently(int quantity) throws Exception {
+        return runConcurrently(() -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> service.reserve(orderLine(quantity)));
+                return true;
+            } catch (InvalidParamException e) {
+                return false;
+            }
+        });
+    }
+
+    private Result runConcurrently(Callable<Boolean> attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        (attempt.call() ? reserved : rejected).incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+
+            int attempts = THREADS * ATTEMPTS_PER_THREAD;
+            log.info("{} attempts from {} threads in {} ms: {} ops/s ({} reserved, {} rejected)",
+                    attempts, THREADS, Math.round(seconds * 1000), Math.round(attempts / seconds),
+                    reserved.get(), rejected.get());
+            return new Result(reserved.get(), rejected.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<OrderDetail> orderLine(int quantity) {
+        Product product = Product.builder().name("Áo thun hot").build();
+        ProductVariant variant = ProductVariant.builder().id(VARIANT_ID).product(product).build();
+        return List.of(OrderDetail.builder().productVariant(variant).quantity((long) quantity).build());
+    }
+
+    private int stock() {
+        return db.queryForObject("SELECT stock FROM product_variants WHERE id = ?", Integer.class, VARIANT_ID);
+    }
+
+    private record Result(int reserved, int rejected) {
+    }
+}
@@ -0,0 +1,154 @@
+package iuh.fit.ecommerce.services.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import iuh.fit.ecommerce.dtos.request.upload.UploadRequest;
+import iuh.fit.ecommerce.exceptions.custom.ResourceNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Upload lên MinIO thật (container) với part size nhỏ để file lớn đi qua đường multipart:
+ * object phải đủ byte, đúng nội dung và là multipart (ETag dạng "...-<số part>").
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UploadServiceImplTest {
+
+    private static final String BUCKET = "uploads";
+    private static final String PUBLIC_URL = "http://cdn.example.com";
+    // Part nhỏ nhất MinIO/S3 chấp nhận
+    private static final long PART_SIZE = 5L * 1024 * 1024;
+
+    @Container
+    private static final GenericContainer<?> MINIO = new GenericContainer<>("minio/minio:RELEASE.2024-10-13T13-34-11Z")
+            .withEnv("MINIO_ROOT_USER", "minio")
+            .withEnv("MINIO_ROOT_PASSWORD", "minio-secret")
+            .withCommand("server", "/data")
+            .withExposedPorts(9000)
+            .waitingFor(Wait.forHttp("/minio/health/live").forPort(9000))
+            .withStartupTimeout(Duration.ofMinutes(2));
+
+    private static MinioClient minioClient;
+
+    private ThreadPoolTaskExecutor uploadExecutor;
+    private SimpleMeterRegistry meterRegistry;
+    private UploadServiceImpl uploadService;
+
+    @BeforeAll
+    static void createBucket() throws Exception {
+        minioClient = MinioClient.builder()
+                .endpoint("http://" + MINIO.getHost() + ":" + MINIO.getMappedPort(9000))
+                .credentials("minio", "minio-secret")
+                .build();
+        if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(BUCKET).build())) {
+            minioClient.makeBucket(MakeBucketArgs.builder().bucket(BUCKET).build());
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        uploadExecutor = new ThreadPoolTaskExecutor();
+        uploadExecutor.setCorePoolSize(4);
+        uploadExecutor.setMaxPoolSize(4);
+        uploadExecutor.initialize();
+        meterRegistry = new SimpleMeterRegistry();
+
+        uploadService = new UploadServiceImpl(minioClient, uploadExecutor, meterRegistry);
+        ReflectionTestUtils.setField(uploadService, "bucketName", BUCKET);
+        ReflectionTestUtils.setField(uploadService, "publicUrl", PUBLIC_URL);
+        ReflectionTestUtils.setField(uploadService, "partSize", PART_SIZE);
+        uploadService.initMetrics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploadExecutor.shutdown();
+    }
+
+    @Test
+    void uploadsLargeFilesInMultipleParts() throws Exception {
+        // 12MB với part 5MB: 3 part (5 + 5 + 2)
+        byte[] large = randomBytes(12 * 1024 * 1024, 1);
+        byte[] small = randomBytes(64 * 1024, 2);
+
+        List<String> urls = uploadService.upload(request(
+                new MockMultipartFile("files", "banner.png", "image/png", large),
+                new MockMultipartFile("files", "logo.webp", "image/webp", small)));
+
+        assertThat(urls).hasSize(2);
+        assertThat(urls.get(0)).startsWith(PUBLIC_URL + "/" + BUCKET + "/banner_").endsWith(".png");
+        assertThat(urls.get(1)).startsWith(PUBLIC_URL + "/" + BUCKET + "/logo_").endsWith(".webp");
+
+        StatObjectResponse largeObject = stat(objectName(urls.get(0)));
+        assertThat(largeObject.size()).isEqualTo(large.length);
+        assertThat(largeObject.contentType()).isEqualTo("image/png");
+        assertThat(largeObject.etag()).endsWith("-3");
+        assertThat(read(objectName(urls.get(0)))).isEqualTo(large);
+
+        // File nhỏ hơn part size đi một request PUT duy nhất
+        StatObjectResponse smallObject = stat(objectName(urls.get(1)));
+        assertThat(smallObject.etag()).doesNotContain("-");
+        assertThat(read(objectName(urls.get(1)))).isEqualTo(small);
+
+        assertThat(meterRegistry.get("upload.bytes").counter().count()).isEqualTo(large.length + small.length);
+        assertThat(meterRegistry.get("upload.file.duration").tag("outcome", "success").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void deletesUploadedFiles() {
+        String url = uploadService.upload(request(
+                new MockMultipartFile("files", "avatar.jpg", "image/jpeg", randomBytes(1024, 3)))).get(0);
+
+        uploadService.deleteFile(url);
+
+        assertThatThrownBy(() -> uploadService.deleteFile(url)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private static UploadRequest request(MockMultipartFile... files) {
+        UploadRequest request = new UploadRequest();
+        request.setFiles(List.of(files));
+        return request;
+    }
+
+    private static String objectName(String url) {
+        return url.substring((PUBLIC_URL + "/" + BUCKET + "/").length());
+    }
+
+    private static StatObjectResponse stat(String objectName) throws Exception {
+        return minioClient.statObject(StatObjectArgs.builder().bucket(BUCKET).object(objectName).build());
+    }
+
+    private static byte[] read(String objectName) throws Exception {
+        try (InputStream in = minioClient.getObject(GetObjectArgs.builder().bucket(BUCKET).object(objectName).build())) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}